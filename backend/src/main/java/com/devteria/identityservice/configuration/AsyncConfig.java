@@ -1,9 +1,11 @@
 package com.devteria.identityservice.configuration;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
@@ -28,4 +30,105 @@ public class AsyncConfig {
         log.info("Email async executor initialized with core pool size: {}", executor.getCorePoolSize());
         return executor;
     }
+
+    @Bean(name = "notificationTaskExecutor")
+    public Executor notificationTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1); // Dispatcher tự giữ lock, 1 thread là đủ
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(10); // Chỉ là tín hiệu wake-up, bỏ bớt khi đầy
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+        executor.setThreadNamePrefix("notification-outbox-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "broadcastTaskExecutor")
+    public Executor broadcastTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1); // Các broadcast chạy lần lượt
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(20);
+        executor.setThreadNamePrefix("broadcast-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "tileSeedTaskExecutor")
+    public Executor tileSeedTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1); // Seed tuần tự để không vượt rate limit của Vietmap
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.setThreadNamePrefix("tile-seed-");
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "routeSegmentExecutor")
+    public Executor routeSegmentExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4); // Giới hạn số lời gọi Route API đồng thời
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(50);
+        // Queue đầy thì luồng tạo tour tự gọi, không bỏ ngày nào
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("route-segment-");
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "imageDerivativeExecutor")
+    public Executor imageDerivativeExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2); // Giải mã/resize ảnh tốn CPU và RAM, giới hạn 2 ảnh cùng lúc
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(100);
+        // Queue đầy thì bỏ qua (AbortPolicy), ảnh gốc vẫn dùng được và sẽ được xử lý lại khi lưu tour
+        executor.setThreadNamePrefix("image-derivative-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "s3PartUploadExecutor")
+    public Executor s3PartUploadExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4); // Số part upload song song, mỗi part giữ tối đa 1 buffer trong RAM
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(32);
+        // Queue đầy thì luồng request tự upload part, tạo backpressure
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("s3-part-upload-");
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "chatMemoryPersistExecutor")
+    public Executor chatMemoryPersistExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1); // Ghi tuần tự để giữ thứ tự tin nhắn
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(500);
+        // Queue đầy thì bỏ qua (AbortPolicy), lịch sử trong bộ nhớ vẫn đầy đủ
+        executor.setThreadNamePrefix("chat-memory-persist-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "aiChatExecutor")
+    public Executor aiChatExecutor() {
+        // Mỗi lời gọi LLM một virtual thread: chờ I/O vài giây không chiếm thread của Tomcat.
+        // Số lời gọi đồng thời và hàng đợi do AiChatLimiter giới hạn
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("ai-chat-");
+        executor.setVirtualThreads(true);
+        return executor;
+    }
 }
@@ -16,12 +16,12 @@ public class CacheConfiguration {
 
     /**
      * Configure cache manager with multiple caches
-     * - vietmapTiles: Cache tiles for 7 days
      * - trendingTours: Cache trending tours for 1 hour
+     * Vietmap tiles use their own two-tier store (VietmapTileStore)
      */
     @Bean
     public CacheManager cacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager("vietmapTiles", "trendingTours");
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager("trendingTours");
         cacheManager.setCaffeine(Caffeine.newBuilder()
                 .maximumSize(1000) // Maximum number of entries to cache
                 .expireAfterWrite(1, TimeUnit.HOURS) // Default: Cache for 1 hour
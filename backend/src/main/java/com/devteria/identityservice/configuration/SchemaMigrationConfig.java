@@ -0,0 +1,45 @@
+package com.devteria.identityservice.configuration;
+
+import java.util.List;
+
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Sửa schema mà ddl-auto=update không tự làm được (update chỉ thêm bảng/cột, không sửa cột đã có).
+ * Hibernate 6 tạo cột ENUM native cho @Enumerated(STRING) trên MySQL, nên database cũ không nhận
+ * giá trị enum mới; các cột đó được chuyển sang VARCHAR một lần khi khởi động.
+ */
+@Configuration
+@Slf4j
+public class SchemaMigrationConfig {
+
+    // bảng, cột, định nghĩa mới (khớp columnDefinition trên entity)
+    private static final List<String[]> ENUM_TO_VARCHAR = List.<String[]>of(
+            new String[] {"notification", "type", "varchar(32) not null"});
+
+    @Bean
+    @ConditionalOnProperty(
+            prefix = "spring",
+            value = "datasource.driverClassName",
+            havingValue = "com.mysql.cj.jdbc.Driver")
+    ApplicationRunner enumColumnMigration(JdbcTemplate jdbcTemplate) {
+        return args -> {
+            for (String[] column : ENUM_TO_VARCHAR) {
+                List<String> dataType = jdbcTemplate.queryForList(
+                        "SELECT DATA_TYPE FROM information_schema.COLUMNS "
+                                + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ?",
+                        String.class, column[0], column[1]);
+                if (!dataType.isEmpty() && "enum".equalsIgnoreCase(dataType.get(0))) {
+                    jdbcTemplate.execute("ALTER TABLE " + column[0] + " MODIFY COLUMN " + column[1] + " " + column[2]);
+                    log.info("Migrated {}.{} from ENUM to {}", column[0], column[1], column[2]);
+                }
+            }
+        };
+    }
+}
@@ -46,8 +46,10 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.POST, PUBLIC_ENDPOINTS).permitAll()
                         .requestMatchers(HttpMethod.GET, "/auth/verify").permitAll()
                         .requestMatchers(HttpMethod.GET, "/vietmap/tiles/**").permitAll() // Map tiles for Leaflet
-                        .requestMatchers(HttpMethod.GET, "/tours/search", "/tours/approved", "/tours/{id}").permitAll() // Public tour endpoints
-                        .requestMatchers(HttpMethod.GET, "/locations", "/locations/cities").permitAll() // Public location list and cities
+                        .requestMatchers(HttpMethod.GET, "/tours/search", "/tours/approved", "/tours/{id}",
+                                "/tours/{id}/day-routes/**").permitAll() // Public tour endpoints
+                        .requestMatchers(HttpMethod.GET, "/locations", "/locations/cities",
+                                "/locations/nearby", "/locations/within").permitAll() // Public location list, cities and geo queries
                         .requestMatchers("/ws/**").permitAll() // WebSocket endpoint
                         .anyRequest().authenticated());
 
@@ -74,7 +76,7 @@ public class SecurityConfig {
         corsConfiguration.setAllowedHeaders(Arrays.asList("*"));
         
         // Expose headers in response
-        corsConfiguration.setExposedHeaders(Arrays.asList("Authorization", "Content-Type"));
+        corsConfiguration.setExposedHeaders(Arrays.asList("Authorization", "Content-Type", "X-Conversation-Id"));
         
         // Allow credentials (cookies, authorization headers)
         corsConfiguration.setAllowCredentials(true);
@@ -0,0 +1,97 @@
+package com.devteria.identityservice.configuration;
+
+import java.lang.reflect.Parameter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import com.devteria.identityservice.dto.request.ApiResponse;
+import com.devteria.identityservice.util.FieldSelection;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Cắt bớt JSON trả về theo tham số {@code fields=}.
+ * Chỉ áp dụng cho các endpoint khai báo {@code @RequestParam("fields")}; service đã bỏ qua phần không cần load,
+ * advice này chỉ bỏ các key không được yêu cầu khỏi từng phần tử của result.
+ */
+@ControllerAdvice
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class SparseFieldsResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    ObjectMapper objectMapper;
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        if (!MappingJackson2HttpMessageConverter.class.isAssignableFrom(converterType)
+                || returnType.getMethod() == null) {
+            return false;
+        }
+        for (Parameter parameter : returnType.getMethod().getParameters()) {
+            RequestParam requestParam = parameter.getAnnotation(RequestParam.class);
+            if (requestParam != null && (FieldSelection.PARAM.equals(requestParam.value())
+                    || FieldSelection.PARAM.equals(requestParam.name()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+            Class<? extends HttpMessageConverter<?>> selectedConverterType, ServerHttpRequest request,
+            ServerHttpResponse response) {
+        if (!(body instanceof ApiResponse<?> apiResponse) || apiResponse.getResult() == null
+                || !(request instanceof ServletServerHttpRequest servletRequest)) {
+            return body;
+        }
+
+        FieldSelection selection = FieldSelection.parse(
+                servletRequest.getServletRequest().getParameter(FieldSelection.PARAM));
+        if (selection.isAll()) {
+            return body;
+        }
+
+        Object result = apiResponse.getResult();
+        Object trimmed;
+        if (result instanceof Iterable<?> items) {
+            List<JsonNode> nodes = new ArrayList<>();
+            for (Object item : items) {
+                nodes.add(retain(item, selection));
+            }
+            trimmed = nodes;
+        } else {
+            trimmed = retain(result, selection);
+        }
+
+        return ApiResponse.builder()
+                .code(apiResponse.getCode())
+                .message(apiResponse.getMessage())
+                .result(trimmed)
+                .build();
+    }
+
+    private JsonNode retain(Object item, FieldSelection selection) {
+        JsonNode node = objectMapper.valueToTree(item);
+        if (node instanceof ObjectNode objectNode) {
+            objectNode.retain(selection.fields());
+        }
+        return node;
+    }
+}
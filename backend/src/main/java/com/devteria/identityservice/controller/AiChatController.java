@@ -1,12 +1,38 @@
 package com.devteria.identityservice.controller;
 
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.client.advisor.AbstractChatMemoryAdvisor;
 import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
-import org.springframework.ai.chat.memory.InMemoryChatMemory;
-import org.springframework.http.MediaType;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import com.devteria.identityservice.dto.request.ApiResponse;
+import com.devteria.identityservice.service.AiChatLimiter;
+import com.devteria.identityservice.service.AiFallbackResponder;
+import com.devteria.identityservice.service.AiResponseCache;
+import com.devteria.identityservice.service.BoundedChatMemory;
 
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Flux;
@@ -15,9 +41,29 @@ import reactor.core.publisher.Flux;
 @RequestMapping("/ai-chat")
 @Slf4j
 public class AiChatController {
+    private static final int MAX_CONVERSATION_ID_LENGTH = 64;
+    private static final int MAX_GUEST_TOKEN_LENGTH = 128;
+    static final String CONVERSATION_ID_HEADER = "X-Conversation-Id";
+
     private final ChatClient chatClient;
+    private final BoundedChatMemory chatMemory;
+    private final AiResponseCache aiResponseCache;
+    private final AiFallbackResponder aiFallbackResponder;
+    private final AiChatLimiter aiChatLimiter;
+    private final boolean fastPathEnabled;
+    private final SecretKeySpec guestIdKey;
 
-    public AiChatController(ChatClient.Builder builder) {
+    public AiChatController(ChatClient.Builder builder, BoundedChatMemory chatMemory,
+            AiResponseCache aiResponseCache, AiFallbackResponder aiFallbackResponder, AiChatLimiter aiChatLimiter,
+            @Value("${ai.chat.fast-path.enabled:true}") boolean fastPathEnabled,
+            @Value("${ai.chat.guest-id-secret:${jwt.signerKey}}") String guestIdSecret) {
+        this.guestIdKey = new SecretKeySpec(
+                ("ai-chat-guest:" + guestIdSecret).getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        this.chatMemory = chatMemory;
+        this.aiResponseCache = aiResponseCache;
+        this.aiFallbackResponder = aiFallbackResponder;
+        this.aiChatLimiter = aiChatLimiter;
+        this.fastPathEnabled = fastPathEnabled;
         this.chatClient = builder
                 .defaultSystem(
                         """
@@ -31,55 +77,254 @@ public class AiChatController {
                                 Khi tìm kiếm tour, hãy hỏi người dùng về các tiêu chí nếu họ chưa cung cấp đủ (thành phố, ngân sách, số ngày).
                                 Khi gợi ý địa điểm, hãy sử dụng danh sách địa điểm có sẵn trong hệ thống.
                                 """)
-                .defaultAdvisors(new MessageChatMemoryAdvisor(new InMemoryChatMemory()))
+                .defaultAdvisors(new MessageChatMemoryAdvisor(chatMemory))
                 .build();
     }
 
-    public record ChatRequest(String message) {
+    /**
+     * @param conversationId Signed-in users: client-generated chat session id, scoped to the user by the server.
+     *                       Guests: the id issued by the server in a previous reply, anything else starts a new chat.
+     */
+    public record ChatRequest(String message, String conversationId) {
+    }
+
+    /**
+     * @param conversationId Id to send with the next message (a signed guest id for guests)
+     */
+    public record ChatResponse(String reply, String conversationId) {
     }
 
-    public record ChatResponse(String reply) {
+    // memoryId keys BoundedChatMemory; clientId goes back to the client
+    private record Conversation(String memoryId, String clientId) {
     }
 
+    /**
+     * The LLM call runs on a virtual thread behind AiChatLimiter; the servlet thread is released immediately
+     */
     @PostMapping
-    public ApiResponse<ChatResponse> chat(@RequestBody ChatRequest request) {
+    public CompletableFuture<ApiResponse<ChatResponse>> chat(@RequestBody ChatRequest request,
+            HttpServletRequest httpRequest) {
         log.info("User AI chat: {}", request.message());
+        aiChatLimiter.checkRateLimit(rateLimitKey(httpRequest));
+        Conversation conversation = resolveConversation(request.conversationId());
+        Optional<String> local = answerLocally(conversation.memoryId(), request.message());
+        if (local.isPresent()) {
+            return CompletableFuture.completedFuture(ApiResponse.<ChatResponse>builder()
+                    .result(new ChatResponse(local.get(), conversation.clientId()))
+                    .build());
+        }
+        AiResponseCache.Key cacheKey = cacheKeyFor(conversation.memoryId(), request.message());
+
+        return aiChatLimiter.submit(
+                () -> callModel(request, conversation, cacheKey),
+                () -> ApiResponse.<ChatResponse>builder()
+                        .code(9999)
+                        .message("AI service is busy, showing quick search results.")
+                        .result(new ChatResponse(aiFallbackResponder.answerFallback(request.message()),
+                                conversation.clientId()))
+                        .build());
+    }
 
+    /**
+     * Streams the reply as plain text; the id for the next message is sent in the X-Conversation-Id header
+     */
+    @PostMapping(value = "/stream", produces = "text/plain;charset=UTF-8")
+    public Flux<String> chatStream(@RequestBody ChatRequest request, HttpServletRequest httpRequest,
+            HttpServletResponse httpResponse) {
+        log.info("User AI chat stream: {}", request.message());
+        aiChatLimiter.checkRateLimit(rateLimitKey(httpRequest));
+        Conversation conversation = resolveConversation(request.conversationId());
+        if (conversation.clientId() != null) {
+            httpResponse.setHeader(CONVERSATION_ID_HEADER, conversation.clientId());
+        }
+        String conversationId = conversation.memoryId();
+        Optional<String> local = answerLocally(conversationId, request.message());
+        if (local.isPresent()) {
+            return Flux.just(local.get());
+        }
+        AiResponseCache.Key cacheKey = cacheKeyFor(conversationId, request.message());
+
+        return aiChatLimiter.stream(
+                () -> streamModel(request, conversationId, cacheKey),
+                () -> aiFallbackResponder.answerFallback(request.message()));
+    }
+
+    private Flux<String> streamModel(ChatRequest request, String conversationId, AiResponseCache.Key cacheKey) {
+        try {
+            Flux<String> reply = chatClient.prompt()
+                    .user(request.message())
+                    .advisors(a -> a.param(AbstractChatMemoryAdvisor.CHAT_MEMORY_CONVERSATION_ID_KEY, conversationId))
+                    .functions("getAllActiveToursTools", "searchToursTool", "getTourDetailsTool", "listLocationsTool",
+                            "getLocationsByCityTool", "getTourReviewsTool")
+                    .stream()
+                    .content();
+            // Cache only streams that completed normally; fall back to local search if nothing was sent yet
+            StringBuilder answer = new StringBuilder();
+            AtomicBoolean emitted = new AtomicBoolean();
+            return reply.doOnNext(chunk -> {
+                        emitted.set(true);
+                        if (cacheKey != null) {
+                            answer.append(chunk);
+                        }
+                    })
+                    .doOnComplete(() -> {
+                        if (cacheKey != null) {
+                            aiResponseCache.put(cacheKey, answer.toString());
+                        }
+                    })
+                    .onErrorResume(e -> {
+                        log.error("AI Chat stream error: ", e);
+                        return emitted.get() ? Flux.empty()
+                                : Flux.just(aiFallbackResponder.answerFallback(request.message()));
+                    });
+        } catch (Exception e) {
+            log.error("AI Chat stream error: ", e);
+            return Flux.just(aiFallbackResponder.answerFallback(request.message()));
+        }
+    }
+
+    private ApiResponse<ChatResponse> callModel(ChatRequest request, Conversation conversation,
+            AiResponseCache.Key cacheKey) {
         try {
             String reply = chatClient.prompt()
                     .user(request.message())
+                    .advisors(a -> a.param(AbstractChatMemoryAdvisor.CHAT_MEMORY_CONVERSATION_ID_KEY,
+                            conversation.memoryId()))
                     .functions("getAllActiveToursTools", "searchToursTool", "getTourDetailsTool", "listLocationsTool",
                             "getLocationsByCityTool", "getTourReviewsTool")
                     .call()
                     .content();
+            if (cacheKey != null) {
+                aiResponseCache.put(cacheKey, reply);
+            }
 
             return ApiResponse.<ChatResponse>builder()
-                    .result(new ChatResponse(reply))
+                    .result(new ChatResponse(reply, conversation.clientId()))
                     .build();
         } catch (Exception e) {
             log.error("AI Chat error: ", e);
             return ApiResponse.<ChatResponse>builder()
                     .code(9999)
                     .message("AI service temporarily unavailable. Please make sure AI API Key is configured.")
-                    .result(new ChatResponse("Xin lỗi, tôi đang gặp chút trục trặc kỹ thuật. Vui lòng thử lại sau."))
+                    .result(new ChatResponse(aiFallbackResponder.answerFallback(request.message()),
+                            conversation.clientId()))
                     .build();
         }
     }
 
-    @PostMapping(value = "/stream", produces = "text/plain;charset=UTF-8")
-    public Flux<String> chatStream(@RequestBody ChatRequest request) {
-        log.info("User AI chat stream: {}", request.message());
+    /**
+     * Forget the history of one chat session of the current user
+     * DELETE /ai-chat/memory?conversationId=...
+     */
+    @DeleteMapping("/memory")
+    public ApiResponse<Void> clearMemory(@RequestParam(value = "conversationId", required = false) String conversationId) {
+        chatMemory.clear(resolveConversation(conversationId).memoryId());
+        return ApiResponse.<Void>builder()
+                .message("Conversation cleared")
+                .build();
+    }
+
+    /**
+     * Concurrency limiter counters, including the current queue depth (Admin only)
+     * GET /ai-chat/limiter/stats
+     */
+    @GetMapping("/limiter/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ApiResponse<Map<String, Long>> getLimiterStats() {
+        return ApiResponse.<Map<String, Long>>builder()
+                .result(aiChatLimiter.getStats())
+                .build();
+    }
+
+    /**
+     * Response cache counters (Admin only)
+     * GET /ai-chat/cache/stats
+     */
+    @GetMapping("/cache/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ApiResponse<Map<String, Long>> getCacheStats() {
+        return ApiResponse.<Map<String, Long>>builder()
+                .result(aiResponseCache.getStats())
+                .build();
+    }
+
+    // Structured tour searches are answered by the local parser, then repeated first questions from cache
+    private Optional<String> answerLocally(String conversationId, String message) {
+        Optional<String> answer = fastPathEnabled ? aiFallbackResponder.answerStructured(message) : Optional.empty();
+        if (answer.isEmpty()) {
+            AiResponseCache.Key cacheKey = cacheKeyFor(conversationId, message);
+            answer = Optional.ofNullable(cacheKey != null ? aiResponseCache.get(cacheKey) : null);
+        }
+        answer.ifPresent(reply -> rememberExchange(conversationId, message, reply));
+        return answer;
+    }
+
+    // Only the first question of a conversation is answered from cache; follow-ups depend on the history
+    private AiResponseCache.Key cacheKeyFor(String conversationId, String message) {
+        return chatMemory.get(conversationId, 1).isEmpty() ? aiResponseCache.keyOf(message) : null;
+    }
+
+    // A cached answer bypasses the memory advisor, so record the exchange for follow-up questions
+    private void rememberExchange(String conversationId, String question, String answer) {
+        chatMemory.add(conversationId, List.of(new UserMessage(question), new AssistantMessage(answer)));
+    }
+
+    // Rate limit per account; guests share a bucket per client IP
+    private String rateLimitKey(HttpServletRequest httpRequest) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return "user:" + authentication.getName();
+        }
+        return "ip:" + httpRequest.getRemoteAddr();
+    }
+
+    // Memory key = owner + client session id, so one user can never read another user's history.
+    // Guests cannot be scoped to an account, so their ids are issued by the server as "<uuid>.<HMAC of uuid>";
+    // an id without a valid signature starts a new conversation instead of loading someone else's history.
+    private Conversation resolveConversation(String clientConversationId) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        boolean authenticated = authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken);
 
+        if (authenticated) {
+            String session = clientConversationId == null ? ""
+                    : clientConversationId.replaceAll("[^A-Za-z0-9_-]", "");
+            if (session.length() > MAX_CONVERSATION_ID_LENGTH) {
+                session = session.substring(0, MAX_CONVERSATION_ID_LENGTH);
+            }
+            return new Conversation("user:" + authentication.getName() + ":" + (session.isEmpty() ? "default" : session),
+                    clientConversationId);
+        }
+        String guestId = verifiedGuestId(clientConversationId);
+        if (guestId == null) {
+            guestId = UUID.randomUUID().toString();
+        }
+        return new Conversation("guest:" + guestId, guestId + "." + signGuestId(guestId));
+    }
+
+    private String verifiedGuestId(String token) {
+        if (token == null || token.length() > MAX_GUEST_TOKEN_LENGTH) {
+            return null;
+        }
+        int dot = token.indexOf('.');
+        if (dot <= 0) {
+            return null;
+        }
+        String guestId = token.substring(0, dot);
+        byte[] expected = signGuestId(guestId).getBytes(StandardCharsets.UTF_8);
+        byte[] actual = token.substring(dot + 1).getBytes(StandardCharsets.UTF_8);
+        return MessageDigest.isEqual(expected, actual) ? guestId : null;
+    }
+
+    private String signGuestId(String guestId) {
         try {
-            return chatClient.prompt()
-                    .user(request.message())
-                    .functions("getAllActiveToursTools", "searchToursTool", "getTourDetailsTool", "listLocationsTool",
-                            "getLocationsByCityTool", "getTourReviewsTool")
-                    .stream()
-                    .content();
-        } catch (Exception e) {
-            log.error("AI Chat stream error: ", e);
-            return Flux.just("Xin lỗi, tôi đang gặp chút trục trặc kỹ thuật. Vui lòng thử lại sau.");
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(guestIdKey);
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(mac.doFinal(guestId.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
         }
     }
 }
@@ -10,6 +10,7 @@ import com.devteria.identityservice.dto.request.BookingCreationRequest;
 import com.devteria.identityservice.dto.request.ApiResponse;
 import com.devteria.identityservice.dto.response.BookingResponse;
 import com.devteria.identityservice.service.BookingService;
+import com.devteria.identityservice.util.FieldSelection;
 
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
@@ -37,11 +38,12 @@ public class BookingController {
 
     /**
      * Get my bookings (USER)
+     * GET /bookings/my?fields=id,bookingCode,tourName,tripStartDate,status
      */
     @GetMapping("/my")
-    public ApiResponse<List<BookingResponse>> getMyBookings() {
+    public ApiResponse<List<BookingResponse>> getMyBookings(@RequestParam(value = "fields", required = false) String fields) {
         return ApiResponse.<List<BookingResponse>>builder()
-                .result(bookingService.getMyBookings())
+                .result(bookingService.getMyBookings(FieldSelection.parse(fields)))
                 .build();
     }
 
@@ -81,10 +83,11 @@ public class BookingController {
      * Get bookings for a specific tour (AGENT - owner only)
      */
     @GetMapping("/tour/{tourId}")
-    public ApiResponse<List<BookingResponse>> getBookingsForTour(@PathVariable Long tourId) {
+    public ApiResponse<List<BookingResponse>> getBookingsForTour(@PathVariable Long tourId,
+            @RequestParam(value = "fields", required = false) String fields) {
         log.info("Getting bookings for tour: {}", tourId);
         return ApiResponse.<List<BookingResponse>>builder()
-                .result(bookingService.getBookingsForTour(tourId))
+                .result(bookingService.getBookingsForTour(tourId, FieldSelection.parse(fields)))
                 .build();
     }
 
@@ -92,10 +95,11 @@ public class BookingController {
      * Get bookings for a specific trip (AGENT - owner only)
      */
     @GetMapping("/trip/{tripId}")
-    public ApiResponse<List<BookingResponse>> getBookingsForTrip(@PathVariable Long tripId) {
+    public ApiResponse<List<BookingResponse>> getBookingsForTrip(@PathVariable Long tripId,
+            @RequestParam(value = "fields", required = false) String fields) {
         log.info("Getting bookings for trip: {}", tripId);
         return ApiResponse.<List<BookingResponse>>builder()
-                .result(bookingService.getBookingsForTrip(tripId))
+                .result(bookingService.getBookingsForTrip(tripId, FieldSelection.parse(fields)))
                 .build();
     }
 
@@ -5,8 +5,9 @@ import java.util.List;
 import org.springframework.web.bind.annotation.*;
 
 import com.devteria.identityservice.dto.request.ApiResponse;
-import com.devteria.identityservice.dto.response.TourResponse;
+import com.devteria.identityservice.dto.response.TourSummaryResponse;
 import com.devteria.identityservice.service.FavoriteTourService;
+import com.devteria.identityservice.util.FieldSelection;
 
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
@@ -49,12 +50,13 @@ public class FavoriteTourController {
 
     /**
      * Get all favorite tours for current user
-     * GET /favorites
+     * GET /favorites?fields=id,name,price,imageUrl
      */
     @GetMapping
-    ApiResponse<List<TourResponse>> getMyFavorites() {
-        return ApiResponse.<List<TourResponse>>builder()
-                .result(favoriteTourService.getMyFavorites())
+    ApiResponse<List<TourSummaryResponse>> getMyFavorites(
+            @RequestParam(value = "fields", required = false) String fields) {
+        return ApiResponse.<List<TourSummaryResponse>>builder()
+                .result(favoriteTourService.getMyFavorites(FieldSelection.parse(fields)))
                 .build();
     }
 
@@ -1,9 +1,21 @@
 package com.devteria.identityservice.controller;
 
+import java.util.Map;
+
+import jakarta.validation.Valid;
+
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.devteria.identityservice.dto.request.ApiResponse;
+import com.devteria.identityservice.dto.request.PresignedUploadRequest;
+import com.devteria.identityservice.dto.request.UploadCompletionRequest;
+import com.devteria.identityservice.dto.response.PresignedUploadResponse;
+import com.devteria.identityservice.dto.response.StorageGcRunResponse;
+import com.devteria.identityservice.service.ImageDerivativeService;
+import com.devteria.identityservice.service.S3MultipartUploader;
+import com.devteria.identityservice.service.S3OrphanCollector;
 import com.devteria.identityservice.service.S3Service;
 
 import lombok.AccessLevel;
@@ -17,6 +29,9 @@ import lombok.experimental.FieldDefaults;
 public class FileUploadController {
 
     S3Service s3Service;
+    ImageDerivativeService imageDerivativeService;
+    S3MultipartUploader s3MultipartUploader;
+    S3OrphanCollector s3OrphanCollector;
 
     /**
      * Upload a file to S3
@@ -45,6 +60,7 @@ public class FileUploadController {
         }
 
         String fileUrl = s3Service.uploadFile(file, folder);
+        imageDerivativeService.generateAsync(fileUrl);
 
         return ApiResponse.<String>builder()
                 .code(1000)
@@ -52,6 +68,72 @@ public class FileUploadController {
                 .build();
     }
 
+    /**
+     * Get a presigned PUT URL so the browser can upload an image straight to S3
+     * POST /upload/presign
+     * @return Upload URL plus the headers that must be sent with the PUT
+     */
+    @PostMapping("/presign")
+    public ApiResponse<PresignedUploadResponse> presignUpload(@Valid @RequestBody PresignedUploadRequest request) {
+        return ApiResponse.<PresignedUploadResponse>builder()
+                .result(s3Service.presignUpload(request))
+                .build();
+    }
+
+    /**
+     * Confirm a direct upload; the object is checked against the presigned constraints
+     * POST /upload/complete
+     * @return Public URL of the uploaded file
+     */
+    @PostMapping("/complete")
+    public ApiResponse<String> completeUpload(@Valid @RequestBody UploadCompletionRequest request) {
+        String fileUrl = s3Service.completeUpload(request.getKey());
+        imageDerivativeService.generateAsync(fileUrl);
+        return ApiResponse.<String>builder()
+                .result(fileUrl)
+                .build();
+    }
+
+    /**
+     * Multipart upload counters (Admin only)
+     * GET /upload/stats
+     */
+    @GetMapping("/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ApiResponse<Map<String, Long>> getUploadStats() {
+        return ApiResponse.<Map<String, Long>>builder()
+                .result(s3MultipartUploader.getStats())
+                .build();
+    }
+
+    /**
+     * Run the orphaned object collector now (Admin only)
+     * POST /upload/gc?dryRun=true
+     * @param dryRun Only count orphans without deleting them
+     */
+    @PostMapping("/gc")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ApiResponse<StorageGcRunResponse> runStorageGc(
+            @RequestParam(value = "dryRun", defaultValue = "true") boolean dryRun) {
+        StorageGcRunResponse result = s3OrphanCollector.run(dryRun);
+        return ApiResponse.<StorageGcRunResponse>builder()
+                .message(result == null ? "Storage GC is already running" : null)
+                .result(result)
+                .build();
+    }
+
+    /**
+     * Result of the last orphaned object collection (Admin only)
+     * GET /upload/gc/stats
+     */
+    @GetMapping("/gc/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ApiResponse<StorageGcRunResponse> getStorageGcStats() {
+        return ApiResponse.<StorageGcRunResponse>builder()
+                .result(s3OrphanCollector.getLastRun())
+                .build();
+    }
+
     /**
      * Delete a file from S3
      * @param fileUrl The full URL of the file to delete
@@ -8,8 +8,11 @@ import org.springframework.web.bind.annotation.*;
 
 import com.devteria.identityservice.dto.request.ApiResponse;
 import com.devteria.identityservice.dto.request.LocationSuggestionRequest;
+import com.devteria.identityservice.dto.response.LocationDistanceMatrixResponse;
 import com.devteria.identityservice.dto.response.LocationResponse;
 import com.devteria.identityservice.dto.response.LocationSuggestionResponse;
+import com.devteria.identityservice.dto.response.NearbyLocationResponse;
+import com.devteria.identityservice.service.LocationDistanceService;
 import com.devteria.identityservice.service.LocationSuggestionService;
 
 import lombok.AccessLevel;
@@ -24,6 +27,7 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class LocationController {
     LocationSuggestionService locationSuggestionService;
+    LocationDistanceService locationDistanceService;
 
     /**
      * UC_10: Agent/Customer submits a location suggestion
@@ -126,6 +130,51 @@ public class LocationController {
                 .build();
     }
 
+    /**
+     * Locations within a radius of a point, nearest first
+     * GET /locations/nearby?lat=16.06&lng=108.22&radiusKm=5&limit=50
+     */
+    @GetMapping("/nearby")
+    ApiResponse<List<NearbyLocationResponse>> getNearbyLocations(
+            @RequestParam double lat,
+            @RequestParam double lng,
+            @RequestParam(defaultValue = "5") double radiusKm,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ApiResponse.<List<NearbyLocationResponse>>builder()
+                .result(locationSuggestionService.getNearbyLocations(lat, lng, radiusKm, limit))
+                .build();
+    }
+
+    /**
+     * Locations inside the map viewport (at most 20 degrees on each side)
+     * GET /locations/within?minLat=..&minLng=..&maxLat=..&maxLng=..
+     */
+    @GetMapping("/within")
+    ApiResponse<List<LocationResponse>> getLocationsInBox(
+            @RequestParam double minLat,
+            @RequestParam double minLng,
+            @RequestParam double maxLat,
+            @RequestParam double maxLng) {
+        return ApiResponse.<List<LocationResponse>>builder()
+                .result(locationSuggestionService.getLocationsInBox(minLat, minLng, maxLat, maxLng))
+                .build();
+    }
+
+    /**
+     * Distance/duration matrix between locations (cached road distances, haversine estimate for missing pairs)
+     * fetch=true asks Vietmap for missing pairs; it is only honoured for agents and admins
+     * GET /locations/distances?ids=1,2,3&vehicle=car&fetch=true
+     */
+    @GetMapping("/distances")
+    ApiResponse<LocationDistanceMatrixResponse> getDistanceMatrix(
+            @RequestParam List<Long> ids,
+            @RequestParam(defaultValue = "car") String vehicle,
+            @RequestParam(defaultValue = "false") boolean fetch) {
+        return ApiResponse.<LocationDistanceMatrixResponse>builder()
+                .result(locationDistanceService.getMatrix(ids, vehicle, fetch))
+                .build();
+    }
+
     /**
      * Get location by ID
      * GET /locations/{locationId}
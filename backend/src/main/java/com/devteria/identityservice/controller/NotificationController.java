@@ -5,9 +5,14 @@ import java.util.List;
 import org.springframework.web.bind.annotation.*;
 
 import com.devteria.identityservice.dto.request.ApiResponse;
+import com.devteria.identityservice.dto.request.NotificationBroadcastRequest;
+import com.devteria.identityservice.dto.response.NotificationBroadcastResponse;
+import com.devteria.identityservice.dto.response.NotificationFeedResponse;
 import com.devteria.identityservice.dto.response.NotificationResponse;
+import com.devteria.identityservice.service.NotificationBroadcastService;
 import com.devteria.identityservice.service.NotificationService;
 
+import jakarta.validation.Valid;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
@@ -21,6 +26,7 @@ import lombok.extern.slf4j.Slf4j;
 public class NotificationController {
 
     NotificationService notificationService;
+    NotificationBroadcastService notificationBroadcastService;
 
     /**
      * Lấy danh sách notifications của user hiện tại
@@ -34,6 +40,19 @@ public class NotificationController {
                 .build();
     }
 
+    /**
+     * Lấy feed notifications phân trang theo cursor
+     * GET /notifications/feed?cursor=123&size=20
+     */
+    @GetMapping("/feed")
+    public ApiResponse<NotificationFeedResponse> getMyNotificationFeed(
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return ApiResponse.<NotificationFeedResponse>builder()
+                .result(notificationService.getMyNotificationFeed(cursor, size))
+                .build();
+    }
+
     /**
      * Lấy số notification chưa đọc
      * GET /notifications/unread-count
@@ -70,4 +89,28 @@ public class NotificationController {
                 .message("All notifications marked as read")
                 .build();
     }
+
+    /**
+     * Gửi thông báo hàng loạt cho 1 chuyến, khách của 1 tour hoặc 1 role (ROLE chỉ dành cho admin)
+     * POST /notifications/broadcasts
+     */
+    @PostMapping("/broadcasts")
+    public ApiResponse<NotificationBroadcastResponse> broadcast(
+            @RequestBody @Valid NotificationBroadcastRequest request) {
+        log.info("Starting notification broadcast to {} {}", request.getTarget(), request.getTargetId());
+        return ApiResponse.<NotificationBroadcastResponse>builder()
+                .result(notificationBroadcastService.startBroadcast(request))
+                .build();
+    }
+
+    /**
+     * Xem tiến độ của 1 đợt broadcast
+     * GET /notifications/broadcasts/{id}
+     */
+    @GetMapping("/broadcasts/{id}")
+    public ApiResponse<NotificationBroadcastResponse> getBroadcastProgress(@PathVariable String id) {
+        return ApiResponse.<NotificationBroadcastResponse>builder()
+                .result(notificationBroadcastService.getBroadcastProgress(id))
+                .build();
+    }
 }
@@ -7,8 +7,12 @@ import org.springframework.web.bind.annotation.*;
 import com.devteria.identityservice.dto.request.ApiResponse;
 import com.devteria.identityservice.dto.request.TourCreationRequest;
 import com.devteria.identityservice.dto.request.TourUpdateRequest;
+import com.devteria.identityservice.dto.response.TourDayRouteResponse;
 import com.devteria.identityservice.dto.response.TourResponse;
+import com.devteria.identityservice.dto.response.TourSummaryResponse;
+import com.devteria.identityservice.service.TourDayRouteService;
 import com.devteria.identityservice.service.TourService;
+import com.devteria.identityservice.util.FieldSelection;
 
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
@@ -22,6 +26,7 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class TourController {
         TourService tourService;
+        TourDayRouteService tourDayRouteService;
 
         /**
          * Create a new tour
@@ -37,55 +42,61 @@ public class TourController {
 
         /**
          * Get all tours created by current user
-         * GET /tours
+         * GET /tours?fields=id,name,price,imageUrl
          */
         @GetMapping
-        ApiResponse<List<TourResponse>> getMyTours() {
+        ApiResponse<List<TourResponse>> getMyTours(
+                        @RequestParam(value = "fields", required = false) String fields) {
                 return ApiResponse.<List<TourResponse>>builder()
-                                .result(tourService.getMyTours())
+                                .result(tourService.getMyTours(FieldSelection.parse(fields)))
                                 .build();
         }
 
         /**
          * Get pending tours (Admin only)
-         * GET /tours/pending
+         * GET /tours/pending?fields=id,name,price,imageUrl
          */
         @GetMapping("/pending")
-        ApiResponse<List<TourResponse>> getPendingTours() {
+        ApiResponse<List<TourResponse>> getPendingTours(
+                        @RequestParam(value = "fields", required = false) String fields) {
                 return ApiResponse.<List<TourResponse>>builder()
-                                .result(tourService.getPendingTours())
+                                .result(tourService.getPendingTours(FieldSelection.parse(fields)))
                                 .build();
         }
 
         /**
          * Get all tours including status (Admin only)
-         * GET /tours/all
+         * GET /tours/all?fields=id,name,price,imageUrl
          */
         @GetMapping("/all")
-        ApiResponse<List<TourResponse>> getAllTours() {
+        ApiResponse<List<TourResponse>> getAllTours(
+                        @RequestParam(value = "fields", required = false) String fields) {
                 return ApiResponse.<List<TourResponse>>builder()
-                                .result(tourService.getAllTours())
+                                .result(tourService.getAllTours(FieldSelection.parse(fields)))
                                 .build();
         }
 
         /**
          * Get approved tours (for users)
-         * GET /tours/approved
+         * GET /tours/approved?fields=id,name,price,imageUrl
          */
         @GetMapping("/approved")
-        ApiResponse<List<TourResponse>> getApprovedTours() {
-                return ApiResponse.<List<TourResponse>>builder()
-                                .result(tourService.getApprovedTours())
+        ApiResponse<List<TourSummaryResponse>> getApprovedTours(
+                        @RequestParam(value = "fields", required = false) String fields) {
+                return ApiResponse.<List<TourSummaryResponse>>builder()
+                                .result(tourService.getApprovedTours(FieldSelection.parse(fields)))
                                 .build();
         }
 
         /**
          * Get trending tours based on bookings, ratings, reviews, and favorites
-         * GET /tours/trending
+         * GET /tours/trending?fields=id,name,price,imageUrl
+         * Kết quả trending đã được cache nên fields chỉ dùng để cắt JSON
          */
         @GetMapping("/trending")
-        ApiResponse<List<TourResponse>> getTrendingTours() {
-                return ApiResponse.<List<TourResponse>>builder()
+        ApiResponse<List<TourSummaryResponse>> getTrendingTours(
+                        @RequestParam(value = "fields", required = false) String fields) {
+                return ApiResponse.<List<TourSummaryResponse>>builder()
                                 .result(tourService.getTrendingTours())
                                 .build();
         }
@@ -96,18 +107,35 @@ public class TourController {
          * /tours/search?keyword=...&minPrice=...&maxPrice=...&numberOfDays=...&vehicle=...&cityName=...
          */
         @GetMapping("/search")
-        ApiResponse<List<TourResponse>> searchTours(
+        ApiResponse<List<TourSummaryResponse>> searchTours(
                         @RequestParam(required = false) String keyword,
                         @RequestParam(required = false) Double minPrice,
                         @RequestParam(required = false) Double maxPrice,
                         @RequestParam(required = false) Integer numberOfDays,
                         @RequestParam(required = false) String vehicle,
-                        @RequestParam(required = false) String cityName) {
+                        @RequestParam(required = false) String cityName,
+                        @RequestParam(value = "fields", required = false) String fields) {
                 log.info("Searching tours with filters - keyword: {}, minPrice: {}, maxPrice: {}, numberOfDays: {}, vehicle: {}, cityName: {}",
                                 keyword, minPrice, maxPrice, numberOfDays, vehicle, cityName);
-                return ApiResponse.<List<TourResponse>>builder()
+                return ApiResponse.<List<TourSummaryResponse>>builder()
                                 .result(tourService.searchTours(keyword, minPrice, maxPrice, numberOfDays, vehicle,
-                                                cityName))
+                                                cityName, FieldSelection.parse(fields)))
+                                .build();
+        }
+
+        /**
+         * Approved tours passing near a point ("tours near me")
+         * GET /tours/nearby?lat=16.06&lng=108.22&radiusKm=10&limit=20&fields=id,name,price,imageUrl
+         */
+        @GetMapping("/nearby")
+        ApiResponse<List<TourSummaryResponse>> getToursNearby(
+                        @RequestParam double lat,
+                        @RequestParam double lng,
+                        @RequestParam(defaultValue = "10") double radiusKm,
+                        @RequestParam(defaultValue = "20") int limit,
+                        @RequestParam(value = "fields", required = false) String fields) {
+                return ApiResponse.<List<TourSummaryResponse>>builder()
+                                .result(tourService.getToursNearby(lat, lng, radiusKm, limit, FieldSelection.parse(fields)))
                                 .build();
         }
 
@@ -122,6 +150,28 @@ public class TourController {
                                 .build();
         }
 
+        /**
+         * Get per-day routes of a tour (polyline, distance, time of each day)
+         * GET /tours/{id}/day-routes
+         */
+        @GetMapping("/{id}/day-routes")
+        ApiResponse<List<TourDayRouteResponse>> getDayRoutes(@PathVariable Long id) {
+                return ApiResponse.<List<TourDayRouteResponse>>builder()
+                                .result(tourDayRouteService.getDayRoutes(id))
+                                .build();
+        }
+
+        /**
+         * Get the route of a single day, so the day map only loads its own polyline
+         * GET /tours/{id}/day-routes/{dayNumber}
+         */
+        @GetMapping("/{id}/day-routes/{dayNumber}")
+        ApiResponse<TourDayRouteResponse> getDayRoute(@PathVariable Long id, @PathVariable Integer dayNumber) {
+                return ApiResponse.<TourDayRouteResponse>builder()
+                                .result(tourDayRouteService.getDayRoute(id, dayNumber))
+                                .build();
+        }
+
         /**
          * Update tour (Agent only)
          * PUT /tours/{id}
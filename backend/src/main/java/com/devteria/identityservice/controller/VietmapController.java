@@ -5,22 +5,27 @@ import java.util.List;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.client.RestClient;
 
 import com.devteria.identityservice.dto.request.ApiResponse;
 import com.devteria.identityservice.dto.request.RouteRequest;
+import com.devteria.identityservice.dto.response.TspBenchmarkResponse;
+import com.devteria.identityservice.dto.response.VietmapClientStatsResponse;
 import com.devteria.identityservice.dto.response.VietmapAutocompleteResponse;
 import com.devteria.identityservice.dto.response.VietmapPlaceResponse;
 import com.devteria.identityservice.dto.response.VietmapRouteResponse;
+import com.devteria.identityservice.dto.response.VietmapSearchCacheStatsResponse;
+import com.devteria.identityservice.dto.response.VietmapTileCacheStatsResponse;
+import com.devteria.identityservice.service.VietmapClient;
+import com.devteria.identityservice.service.VietmapSearchCache;
 import com.devteria.identityservice.service.VietmapService;
+import com.devteria.identityservice.service.VietmapTileStore;
 
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
-import lombok.experimental.NonFinal;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
 
 @RestController
 @RequestMapping("/vietmap")
@@ -29,11 +34,9 @@ import org.springframework.beans.factory.annotation.Value;
 @Slf4j
 public class VietmapController {
     VietmapService vietmapService;
-    RestClient restClient = RestClient.create();
-
-    @NonFinal
-    @Value("${vietmap.api.key}")
-    String apiKey;
+    VietmapTileStore vietmapTileStore;
+    VietmapClient vietmapClient;
+    VietmapSearchCache vietmapSearchCache;
 
     /**
      * Autocomplete search for locations
@@ -75,37 +78,28 @@ public class VietmapController {
     /**
      * Proxy map tiles to hide API key from frontend
      * GET /vietmap/tiles/{z}/{x}/{y}.png
-     * Tiles are cached for 7 days to reduce API calls
+     * Tiles are served from VietmapTileStore (memory -> disk -> Vietmap)
+     * X-Cache-Status: HIT-MEMORY, HIT-DISK, STALE or MISS
      */
     @GetMapping("/tiles/{z}/{x}/{y}.png")
-    @org.springframework.cache.annotation.Cacheable(
-            value = "vietmapTiles",
-            key = "#z + '-' + #x + '-' + #y")
     ResponseEntity<byte[]> getTile(
             @PathVariable int z,
             @PathVariable int x,
             @PathVariable int y) {
         try {
-            String tileUrl = String.format(
-                    "https://maps.vietmap.vn/maps/tiles/tm/%d/%d/%d@2x.png?apikey=%s",
-                    z, x, y, apiKey);
-
-            log.debug("Fetching tile from Vietmap: z={}, x={}, y={}", z, x, y);
-
-            byte[] imageBytes = restClient
-                    .get()
-                    .uri(tileUrl)
-                    .retrieve()
-                    .body(byte[].class);
+            VietmapTileStore.Tile tile = vietmapTileStore.getTile(z, x, y);
+            if (tile == null) {
+                return ResponseEntity.notFound().build();
+            }
 
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.IMAGE_PNG);
             headers.setCacheControl("public, max-age=604800"); // Cache for 7 days (browser cache)
-            headers.set("X-Cache-Status", "MISS"); // Indicate this was fetched from Vietmap
+            headers.set("X-Cache-Status", cacheStatus(tile.getSource()));
 
             return ResponseEntity.ok()
                     .headers(headers)
-                    .body(imageBytes);
+                    .body(tile.getBytes());
 
         } catch (Exception e) {
             log.error("Error proxying tile: z={}, x={}, y={}", z, x, y, e);
@@ -113,6 +107,58 @@ public class VietmapController {
         }
     }
 
+    /**
+     * Tile cache statistics (admin)
+     * GET /vietmap/tile-cache/stats
+     */
+    @GetMapping("/tile-cache/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    ApiResponse<VietmapTileCacheStatsResponse> getTileCacheStats() {
+        return ApiResponse.<VietmapTileCacheStatsResponse>builder()
+                .result(vietmapTileStore.getStats())
+                .build();
+    }
+
+    /**
+     * Pre-seed the disk tile cache for Vietnam (admin)
+     * POST /vietmap/tile-cache/seed?minZoom=5&maxZoom=10
+     */
+    @PostMapping("/tile-cache/seed")
+    @PreAuthorize("hasRole('ADMIN')")
+    ApiResponse<Long> seedTileCache(
+            @RequestParam(defaultValue = "5") int minZoom,
+            @RequestParam(defaultValue = "10") int maxZoom) {
+        long scheduled = vietmapTileStore.seedVietnam(minZoom, maxZoom);
+        return ApiResponse.<Long>builder()
+                .message(scheduled < 0 ? "Tile seeding is already running" : "Tile seeding scheduled")
+                .result(Math.max(scheduled, 0))
+                .build();
+    }
+
+    /**
+     * Vietmap client statistics per endpoint: latency, errors, retries, circuit state (admin)
+     * GET /vietmap/client/stats
+     */
+    @GetMapping("/client/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    ApiResponse<VietmapClientStatsResponse> getClientStats() {
+        return ApiResponse.<VietmapClientStatsResponse>builder()
+                .result(vietmapClient.getStats())
+                .build();
+    }
+
+    /**
+     * Autocomplete/reverse cache statistics (admin)
+     * GET /vietmap/search-cache/stats
+     */
+    @GetMapping("/search-cache/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    ApiResponse<VietmapSearchCacheStatsResponse> getSearchCacheStats() {
+        return ApiResponse.<VietmapSearchCacheStatsResponse>builder()
+                .result(vietmapSearchCache.getStats())
+                .build();
+    }
+
     /**
      * Calculate route between points (manual ordering)
      * POST /vietmap/route
@@ -139,4 +185,28 @@ public class VietmapController {
                         request.getRoundtrip() != null ? request.getRoundtrip() : false))
                 .build();
     }
+
+    /**
+     * Compare the local TSP solver with Vietmap /tsp/v3 on the given points (admin)
+     * POST /vietmap/tsp/benchmark
+     */
+    @PostMapping("/tsp/benchmark")
+    @PreAuthorize("hasRole('ADMIN')")
+    ApiResponse<TspBenchmarkResponse> benchmarkTsp(@RequestBody RouteRequest request) {
+        return ApiResponse.<TspBenchmarkResponse>builder()
+                .result(vietmapService.benchmarkTsp(
+                        request.getPoints(),
+                        request.getVehicle() != null ? request.getVehicle() : "car",
+                        request.getRoundtrip() != null ? request.getRoundtrip() : false))
+                .build();
+    }
+
+    private String cacheStatus(VietmapTileStore.TileSource source) {
+        return switch (source) {
+            case MEMORY -> "HIT-MEMORY";
+            case DISK -> "HIT-DISK";
+            case STALE -> "STALE";
+            case UPSTREAM -> "MISS";
+        };
+    }
 }
@@ -0,0 +1,20 @@
+package com.devteria.identityservice.dto.projection;
+
+/**
+ * Projection cho LocationSearchIndex: chỉ các cột cần để tìm kiếm và hiển thị gợi ý địa điểm
+ */
+public interface LocationIndexView {
+    Long getId();
+
+    String getRefId();
+
+    String getName();
+
+    String getAddress();
+
+    String getCityName();
+
+    Double getLatitude();
+
+    Double getLongitude();
+}
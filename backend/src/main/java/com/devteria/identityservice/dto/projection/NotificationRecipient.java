@@ -0,0 +1,10 @@
+package com.devteria.identityservice.dto.projection;
+
+/**
+ * Projection chỉ lấy id và username của người nhận, dùng cho broadcast notification
+ */
+public interface NotificationRecipient {
+    String getId();
+
+    String getUsername();
+}
@@ -0,0 +1,54 @@
+package com.devteria.identityservice.dto.projection;
+
+import java.time.LocalDateTime;
+
+import com.devteria.identityservice.enums.TourStatus;
+
+/**
+ * Projection cho danh sách tour: chỉ các cột cần cho thẻ tour, không load points/trips/polyline
+ */
+public interface TourSummaryView {
+    Long getId();
+
+    String getName();
+
+    String getDescription();
+
+    Double getPrice();
+
+    Integer getNumberOfDays();
+
+    String getVehicle();
+
+    Boolean getIsOptimized();
+
+    Double getTotalDistance();
+
+    Long getTotalTime();
+
+    String getImageUrl();
+
+    String getThumbnailUrl();
+
+    String getCardImageUrl();
+
+    TourStatus getStatus();
+
+    LocalDateTime getCreatedAt();
+
+    String getCreatedById();
+
+    String getCreatedByUsername();
+
+    String getCreatedByFirstName();
+
+    String getCreatedByLastName();
+
+    String getCreatedByAvatar();
+
+    Long getPointCount();
+
+    Double getAverageRating();
+
+    Long getReviewCount();
+}
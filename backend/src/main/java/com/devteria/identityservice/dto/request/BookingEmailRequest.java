@@ -1,14 +1,19 @@
 package com.devteria.identityservice.dto.request;
 
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 /**
  * DTO để truyền dữ liệu email cho booking success
  * Được sử dụng thay cho entity Booking trong async method để tránh LazyInitializationException
+ * Cũng được lưu dạng JSON trong notification outbox
  */
 @Data
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
 public class BookingEmailRequest {
     private String recipientEmail;
     private String recipientName;
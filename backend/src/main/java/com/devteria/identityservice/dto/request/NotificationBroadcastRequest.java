@@ -0,0 +1,35 @@
+package com.devteria.identityservice.dto.request;
+
+import com.devteria.identityservice.enums.BroadcastTarget;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class NotificationBroadcastRequest {
+
+    @NotNull(message = "Đối tượng nhận không được để trống")
+    BroadcastTarget target;
+
+    Long targetId;  // tripId hoặc tourId (TRIP, TOUR)
+
+    String role;  // Tên role (ROLE)
+
+    @NotBlank(message = "Tiêu đề không được để trống")
+    @Size(max = 255, message = "Tiêu đề tối đa 255 ký tự")
+    String title;
+
+    @Size(max = 500, message = "Nội dung tối đa 500 ký tự")
+    String message;
+
+    Long referenceId;  // Mặc định targetId
+
+    String referenceType;  // Mặc định "TRIP" / "TOUR"
+}
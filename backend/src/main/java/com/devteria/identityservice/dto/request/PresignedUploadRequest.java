@@ -0,0 +1,29 @@
+package com.devteria.identityservice.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class PresignedUploadRequest {
+    String fileName; // Chỉ dùng để lấy phần mở rộng
+
+    @NotBlank(message = "INVALID_UPLOAD")
+    String contentType;
+
+    @NotNull(message = "INVALID_UPLOAD")
+    @Positive(message = "INVALID_UPLOAD")
+    Long contentLength; // bytes, được ký vào URL nên client phải gửi đúng kích thước này
+
+    String folder; // e.g. "tours", "tour-points"; mặc định "images"
+
+    @NotBlank(message = "INVALID_UPLOAD")
+    String sha256; // Hex SHA-256 của file, được ký vào URL và dùng làm key; nội dung đã có thì không cần upload
+}
@@ -0,0 +1,16 @@
+package com.devteria.identityservice.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class UploadCompletionRequest {
+    @NotBlank(message = "INVALID_UPLOAD")
+    String key; // Object key nhận được từ /upload/presign
+}
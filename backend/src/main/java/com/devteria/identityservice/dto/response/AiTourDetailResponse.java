@@ -0,0 +1,54 @@
+package com.devteria.identityservice.dto.response;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Chi tiết tour cho AI chatbot: lịch trình và các chuyến sắp khởi hành, không có polyline, ảnh hay tọa độ
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class AiTourDetailResponse {
+    Long id;
+    String name;
+    String description; // Đã cắt ngắn
+    Double price;
+    Integer numberOfDays;
+    String vehicle;
+    String status;
+    List<String> cities;
+    Double averageRating;
+    Integer reviewCount;
+    List<Stop> itinerary;
+    List<UpcomingTrip> upcomingTrips;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class Stop {
+        Integer dayNumber;
+        String startTime;
+        String locationName;
+        String cityName;
+        String activity;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class UpcomingTrip {
+        Long id;
+        LocalDateTime startDate;
+        Integer availableSlots;
+    }
+}
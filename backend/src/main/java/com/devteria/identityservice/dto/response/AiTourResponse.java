@@ -0,0 +1,25 @@
+package com.devteria.identityservice.dto.response;
+
+import java.util.List;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Tour rút gọn trả cho AI chatbot qua function calling, chỉ giữ các field model cần để gợi ý
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class AiTourResponse {
+    Long id;
+    String name;
+    Double price;
+    Integer numberOfDays;
+    String vehicle;
+    List<String> cities;
+    Double averageRating;
+    Integer reviewCount;
+}
@@ -0,0 +1,21 @@
+package com.devteria.identityservice.dto.response;
+
+import java.util.List;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class LocationDistanceMatrixResponse {
+    List<Long> locationIds;
+    String vehicle;
+    double[][] distanceMeters;   // distanceMeters[i][j] giữa locationIds[i] và locationIds[j]
+    long[][] durationMillis;
+    Integer cachedPairs;         // Số cặp lấy từ cache
+    Integer fetchedPairs;        // Số cặp vừa lấy từ Vietmap
+    Integer estimatedPairs;      // Số cặp ước lượng bằng đường chim bay
+}
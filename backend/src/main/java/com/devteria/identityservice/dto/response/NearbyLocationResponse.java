@@ -0,0 +1,14 @@
+package com.devteria.identityservice.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class NearbyLocationResponse {
+    LocationResponse location;
+    Double distanceMeters;
+}
@@ -0,0 +1,25 @@
+package com.devteria.identityservice.dto.response;
+
+import java.time.LocalDateTime;
+
+import com.devteria.identityservice.enums.BroadcastStatus;
+import com.devteria.identityservice.enums.BroadcastTarget;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class NotificationBroadcastResponse {
+    String broadcastId;
+    BroadcastTarget target;
+    BroadcastStatus status;
+    Integer totalRecipients;
+    Integer inserted;  // Số notification đã ghi vào DB
+    Integer queued;    // Số notification đã vào outbox chờ gửi WebSocket (dispatcher gửi và retry)
+    LocalDateTime startedAt;
+    LocalDateTime finishedAt;
+}
@@ -0,0 +1,17 @@
+package com.devteria.identityservice.dto.response;
+
+import java.util.List;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class NotificationFeedResponse {
+    List<NotificationResponse> items;
+    Long nextCursor;   // Truyền lại qua ?cursor= để lấy trang tiếp theo (null nếu hết)
+    Boolean hasMore;
+}
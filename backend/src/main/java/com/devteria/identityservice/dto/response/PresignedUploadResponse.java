@@ -0,0 +1,22 @@
+package com.devteria.identityservice.dto.response;
+
+import java.time.Instant;
+import java.util.Map;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class PresignedUploadResponse {
+    Boolean duplicate; // true: nội dung đã có, dùng luôn fileUrl, không cần PUT/complete
+    String uploadUrl; // Presigned PUT URL, browser upload thẳng lên bucket
+    String method; // PUT
+    Map<String, String> headers; // Header đã ký, phải gửi kèm y nguyên (Content-Type, x-amz-checksum-sha256)
+    String key;
+    String fileUrl; // Public URL sau khi gọi /upload/complete thành công
+    Instant expiresAt;
+}
@@ -0,0 +1,28 @@
+package com.devteria.identityservice.dto.response;
+
+import java.time.LocalDateTime;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Kết quả một lần dọn object S3 mồ côi
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class StorageGcRunResponse {
+    LocalDateTime startedAt;
+    Long durationMs;
+    Boolean dryRun;
+    Integer referencedKeys; // Số key đang được DB tham chiếu (kể cả bản thu nhỏ suy ra)
+    Long scannedObjects;
+    Long skippedRecent; // Mới hơn grace period
+    Long orphanObjects;
+    Long orphanBytes;
+    Long deletedObjects; // 0 khi dry-run
+    Long failedDeletes;
+    String error; // Lỗi khiến lần chạy dừng giữa chừng, null nếu thành công
+}
@@ -0,0 +1,17 @@
+package com.devteria.identityservice.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class TourDayRouteResponse {
+    Integer dayNumber;
+    Integer pointCount;
+    Double totalDistance; // meters
+    Long totalTime; // milliseconds
+    String routePolyline;
+}
@@ -23,6 +23,9 @@ public class TourResponse {
     Long totalTime; // milliseconds
     String routePolyline;
     String imageUrl; // S3 URL for tour thumbnail (kept for backward compatibility)
+    String thumbnailUrl; // 320px JPEG of imageUrl, null until generated
+    String cardImageUrl; // 800px JPEG of imageUrl
+    String fullImageUrl; // 1600px JPEG of imageUrl
     List<String> imageUrls; // List of S3 URLs for multiple tour images
     List<TourPointResponse> points;
     String createdByUsername;
@@ -60,6 +63,9 @@ public class TourResponse {
         String startTime; // Time slot, e.g., "08:00"
         String activity; // What to do at this location
         String imageUrl; // S3 URL for tour point image
+        String thumbnailUrl; // 320px JPEG of imageUrl, null until generated
+        String cardImageUrl; // 800px JPEG of imageUrl
+        String fullImageUrl; // 1600px JPEG of imageUrl
         // Location details
         Long locationId;
         String locationName;
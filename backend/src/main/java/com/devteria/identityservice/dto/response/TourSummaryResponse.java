@@ -0,0 +1,41 @@
+package com.devteria.identityservice.dto.response;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Tour rút gọn cho các trang danh sách. Polyline, lịch trình và chuyến chỉ có ở GET /tours/{id}
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class TourSummaryResponse {
+    Long id;
+    String name;
+    String description;
+    Double price;
+    Integer numberOfDays;
+    String vehicle;
+    Boolean isOptimized;
+    Double totalDistance; // meters
+    Long totalTime; // milliseconds
+    String imageUrl; // Thumbnail
+    String thumbnailUrl; // 320px JPEG of imageUrl, null until generated
+    String cardImageUrl; // 800px JPEG of imageUrl
+    String status;
+    LocalDateTime createdAt;
+    String createdById;
+    String createdByUsername;
+    String createdByFirstName;
+    String createdByLastName;
+    String createdByAvatar;
+    Integer pointCount; // Số điểm trong lịch trình
+    List<String> cities;
+    Double averageRating;
+    Integer reviewCount;
+}
@@ -0,0 +1,21 @@
+package com.devteria.identityservice.dto.response;
+
+import java.util.List;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class TspBenchmarkResponse {
+    Integer pointCount;
+    List<Integer> localOrder;        // Thứ tự thăm do LocalTspSolver chọn
+    Long localSolveMicros;           // Thời gian giải local
+    Double localHaversineMeters;     // Chi phí theo đường chim bay
+    Double localRoadMeters;          // Quãng đường thực tế (Route API) theo thứ tự local
+    Double remoteRoadMeters;         // Quãng đường của Vietmap /tsp/v3
+    Long remoteMillis;               // Thời gian gọi /tsp/v3
+}
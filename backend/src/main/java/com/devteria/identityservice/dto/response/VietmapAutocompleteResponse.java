@@ -27,6 +27,11 @@ public class VietmapAutocompleteResponse {
     @JsonProperty("entry_points")
     List<Object> entryPoints;
 
+    // Chỉ có với kết quả lấy từ địa điểm đã duyệt trong hệ thống
+    Long locationId;
+    Double lat;
+    Double lng;
+
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
@@ -0,0 +1,33 @@
+package com.devteria.identityservice.dto.response;
+
+import java.util.List;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class VietmapClientStatsResponse {
+    Double retryBudgetTokens;   // Số lần retry còn được phép
+    List<EndpointStats> endpoints;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class EndpointStats {
+        String endpoint;
+        String circuitState;    // CLOSED, OPEN, HALF_OPEN
+        Long calls;             // Số request thật gửi tới Vietmap (kể cả retry)
+        Long failures;
+        Long retries;
+        Long rejected;          // Bị circuit breaker chặn, không gọi Vietmap
+        Long fallbacks;         // Trả kết quả local/cache thay cho Vietmap
+        Double avgLatencyMs;
+        Long maxLatencyMs;
+    }
+}
@@ -0,0 +1,22 @@
+package com.devteria.identityservice.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class VietmapSearchCacheStatsResponse {
+    Long autocompleteHits;
+    Long autocompleteMisses;
+    Double autocompleteHitRatio;
+    Long autocompleteEntries;
+    Long reverseHits;
+    Long reverseMisses;
+    Double reverseHitRatio;
+    Long reverseEntries;
+    Long localServed;         // Autocomplete trả hoàn toàn từ LocationSearchIndex
+    Long localInsufficient;   // Autocomplete phải gọi thêm Vietmap vì ít kết quả local
+}
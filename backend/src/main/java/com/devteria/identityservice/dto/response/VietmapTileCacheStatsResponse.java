@@ -0,0 +1,24 @@
+package com.devteria.identityservice.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class VietmapTileCacheStatsResponse {
+    Long memoryHits;
+    Long diskHits;
+    Long misses;
+    Long upstreamErrors;
+    Long staleServed;   // Tile hết hạn trên disk nhưng vẫn trả về vì Vietmap lỗi
+    Double hitRatio;
+    Long memoryEntries;
+    Long memoryBytes;
+    Long memoryMaxBytes;
+    Long seededTiles;
+    Long prunedTiles;   // Tile bị xóa khỏi disk do quá hạn hoặc vượt dung lượng
+    Long coalescedMisses;  // Số miss được gộp vào request Vietmap đang chạy
+}
@@ -0,0 +1,43 @@
+package com.devteria.identityservice.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Một tin nhắn trong lịch sử hội thoại với AI chatbot, chỉ ghi khi bật ai.chat.memory.persist.
+ * Dùng để dựng lại cửa sổ hội thoại sau khi session bị đẩy khỏi bộ nhớ hoặc server khởi động lại.
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Entity
+@Table(name = "ai_chat_memory", indexes = @Index(name = "idx_ai_chat_memory_conversation", columnList = "conversationId, id"))
+public class ChatMemoryEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    Long id;
+
+    @Column(nullable = false, length = 191)
+    String conversationId;
+
+    @Column(nullable = false, length = 16)
+    String messageType; // USER, ASSISTANT
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    String content;
+
+    @Column(nullable = false)
+    LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,28 @@
+package com.devteria.identityservice.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * URL các bản thu nhỏ (JPEG) sinh từ ảnh gốc, null khi chưa xử lý xong
+ */
+@Embeddable
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ImageVariants {
+    @Column(name = "image_thumbnail_url")
+    String thumbnailUrl; // 320px, cho danh sách/thẻ nhỏ
+
+    @Column(name = "image_card_url")
+    String cardUrl; // 800px, cho thẻ tour
+
+    @Column(name = "image_full_url")
+    String fullUrl; // 1600px, cho trang chi tiết
+}
@@ -0,0 +1,53 @@
+package com.devteria.identityservice.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Chi phí di chuyển giữa 2 Location theo đường bộ (lấy từ Vietmap Route API).
+ * Đối xứng: luôn lưu với fromLocationId < toLocationId.
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Entity
+@Table(
+        name = "location_distance",
+        uniqueConstraints = @UniqueConstraint(
+                name = "uk_location_distance_pair",
+                columnNames = {"fromLocationId", "toLocationId", "vehicle"}))
+public class LocationDistance {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    Long id;
+
+    @Column(nullable = false)
+    Long fromLocationId;
+
+    @Column(nullable = false)
+    Long toLocationId;
+
+    @Column(nullable = false, length = 32)
+    String vehicle;
+
+    @Column(nullable = false)
+    Double distanceMeters;
+
+    @Column(nullable = false)
+    Long durationMillis;
+
+    @Column(nullable = false)
+    LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
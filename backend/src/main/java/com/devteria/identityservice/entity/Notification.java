@@ -25,8 +25,9 @@ public class Notification {
     @JoinColumn(name = "recipient_id", nullable = false)
     User recipient;  // Agent nhận thông báo
 
+    // VARCHAR thay vì ENUM native của MySQL: thêm loại mới (ANNOUNCEMENT...) không cần ALTER cột
     @Enumerated(EnumType.STRING)
-    @Column(nullable = false)
+    @Column(nullable = false, length = 32, columnDefinition = "varchar(32)")
     NotificationType type;
 
     @Column(nullable = false)
@@ -0,0 +1,78 @@
+package com.devteria.identityservice.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import com.devteria.identityservice.enums.OutboxChannel;
+import com.devteria.identityservice.enums.OutboxStatus;
+
+/**
+ * Bản ghi outbox được ghi cùng transaction với nghiệp vụ (booking, check-in...).
+ * NotificationOutboxDispatcher đọc và gửi sau khi transaction đã commit.
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Entity
+@Table(
+        name = "notification_outbox",
+        indexes = {
+            @Index(name = "idx_outbox_status_next_attempt", columnList = "status, nextAttemptAt"),
+            @Index(name = "idx_outbox_recipient", columnList = "recipientId, status")
+        })
+public class NotificationOutbox {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    OutboxChannel channel;
+
+    // User ID (WEBSOCKET) hoặc địa chỉ email (BOOKING_EMAIL) - dùng để giữ thứ tự gửi theo người nhận
+    @Column(nullable = false)
+    String recipientId;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    String payload;  // JSON của DTO cần gửi
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    OutboxStatus status;
+
+    @Column(nullable = false)
+    @Builder.Default
+    Integer attempts = 0;
+
+    @Column(nullable = false)
+    LocalDateTime nextAttemptAt;
+
+    @Column(length = 500)
+    String lastError;
+
+    @Column(nullable = false)
+    LocalDateTime createdAt;
+
+    LocalDateTime sentAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        if (status == null) {
+            status = OutboxStatus.PENDING;
+        }
+        if (nextAttemptAt == null) {
+            nextAttemptAt = createdAt;
+        }
+        if (attempts == null) {
+            attempts = 0;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.devteria.identityservice.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Kết quả route/TSP từ Vietmap đã được lưu lại, key là SHA-256 của tập điểm đã chuẩn hóa + tham số.
+ * Payload là JSON của VietmapRouteResponse nén gzip (polyline + instructions).
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Entity
+@Table(name = "route_cache", indexes = @Index(name = "idx_route_cache_created_at", columnList = "createdAt"))
+public class RouteCacheEntry {
+    @Id
+    @Column(length = 64)
+    String cacheKey;
+
+    @Column(nullable = false, length = 16)
+    String kind;  // ROUTE, TSP
+
+    @Column(length = 32)
+    String vehicle;
+
+    Integer pointCount;
+
+    @Lob
+    @Column(nullable = false, columnDefinition = "MEDIUMBLOB")
+    byte[] payload;
+
+    @Column(nullable = false)
+    LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+}
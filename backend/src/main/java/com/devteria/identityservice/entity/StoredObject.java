@@ -0,0 +1,58 @@
+package com.devteria.identityservice.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Một object trong bucket, định danh theo SHA-256 nội dung.
+ * issueCount đếm số lần file được cấp cho client (mỗi lần upload trùng nội dung +1, mỗi lần /upload/delete -1),
+ * không phải số tham chiếu thật từ tour/điểm dừng: thay hoặc xóa ảnh tour không giảm nó.
+ * /upload/delete chỉ xóa object khi issueCount về 0; object không còn ai tham chiếu do S3OrphanCollector dọn.
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Entity
+@Table(
+        name = "stored_object",
+        uniqueConstraints = @UniqueConstraint(name = "uk_stored_object_sha256", columnNames = "sha256"),
+        indexes = @Index(name = "idx_stored_object_key", columnList = "objectKey"))
+public class StoredObject {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    Long id;
+
+    @Column(nullable = false, length = 64)
+    String sha256; // hex
+
+    @Column(nullable = false, length = 512)
+    String objectKey;
+
+    String contentType;
+
+    @Column(nullable = false)
+    Long size; // bytes
+
+    @Column(name = "ref_count", nullable = false) // Giữ tên cột cũ
+    Integer issueCount;
+
+    @Column(nullable = false)
+    LocalDateTime createdAt;
+
+    LocalDateTime lastReferencedAt; // Lần cuối được cấp cho client (upload mới hoặc dedup)
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        if (lastReferencedAt == null) {
+            lastReferencedAt = createdAt;
+        }
+    }
+}
@@ -50,6 +50,13 @@ public class Tour {
     @Column(columnDefinition = "TEXT")
     String routeInstructions;  // JSON string of instructions
 
+    // true: lộ trình là ước lượng đường chim bay lúc Vietmap lỗi, EstimatedRouteRefresher sẽ tính lại
+    Boolean routeEstimated;
+
+    Integer routeRefreshAttempts;  // Số lần EstimatedRouteRefresher tính lại thất bại
+
+    LocalDateTime routeRefreshAfter;  // Chưa tính lại trước thời điểm này (backoff)
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "created_by_user_id", nullable = false)
     User createdBy;
@@ -58,6 +65,11 @@ public class Tour {
     @OrderBy("orderIndex ASC")
     List<TourPoint> tourPoints;
 
+    // Lộ trình riêng của từng ngày (tour nhiều ngày)
+    @OneToMany(mappedBy = "tour", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("dayNumber ASC")
+    List<TourDayRoute> dayRoutes;
+
     // Trips (Chuyến) - mỗi tour có thể có nhiều chuyến với ngày khác nhau
     @OneToMany(mappedBy = "tour", cascade = CascadeType.ALL)
     @OrderBy("startDate ASC")
@@ -76,6 +88,9 @@ public class Tour {
     String rejectionReason;  // Reason if rejected by admin
 
     String imageUrl;  // S3 URL for tour thumbnail image (kept for backward compatibility)
+
+    @Embedded
+    ImageVariants imageVariants;  // Derivatives of imageUrl, filled by ImageDerivativeService
     
     @Column(columnDefinition = "TEXT")
     String imageUrls;  // JSON array of S3 URLs for multiple tour images
@@ -0,0 +1,50 @@
+package com.devteria.identityservice.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Lộ trình riêng của từng ngày trong tour nhiều ngày (bản đồ của từng ngày)
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Entity
+@Table(
+        name = "tour_day_route",
+        uniqueConstraints = @UniqueConstraint(name = "uk_tour_day_route", columnNames = {"tour_id", "dayNumber"}))
+public class TourDayRoute {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "tour_id", nullable = false)
+    Tour tour;
+
+    @Column(nullable = false)
+    Integer dayNumber;
+
+    @Column(nullable = false)
+    Integer pointCount;  // Số địa điểm trong ngày
+
+    Double totalDistance;  // in meters
+
+    Long totalTime;  // in milliseconds
+
+    @Column(columnDefinition = "TEXT")
+    String routePolyline;  // encoded polyline của riêng ngày này
+
+    Boolean routeEstimated;  // true: ước lượng đường chim bay, sẽ được tính lại khi Vietmap hoạt động
+
+    Integer routeRefreshAttempts;  // Số lần EstimatedRouteRefresher tính lại thất bại
+
+    LocalDateTime routeRefreshAfter;  // Chưa tính lại trước thời điểm này (backoff)
+}
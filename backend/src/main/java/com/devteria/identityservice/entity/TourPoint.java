@@ -44,4 +44,7 @@ public class TourPoint {
     String activity;  // What to do at this location, e.g., "Ăn sáng tại Mì Quảng 1A"
 
     String imageUrl;  // S3 URL for tour point image
+
+    @Embedded
+    ImageVariants imageVariants;  // Derivatives of imageUrl, filled by ImageDerivativeService
 }
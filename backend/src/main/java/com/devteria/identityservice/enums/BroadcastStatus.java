@@ -0,0 +1,7 @@
+package com.devteria.identityservice.enums;
+
+public enum BroadcastStatus {
+    RUNNING,    // Đang ghi và gửi
+    COMPLETED,  // Đã xong
+    FAILED      // Dừng giữa chừng do lỗi ghi DB
+}
@@ -0,0 +1,7 @@
+package com.devteria.identityservice.enums;
+
+public enum BroadcastTarget {
+    TRIP,  // Khách đã đặt 1 chuyến (targetId = tripId)
+    TOUR,  // Khách đã đặt bất kỳ chuyến nào của tour (targetId = tourId)
+    ROLE   // Tất cả user có role (role = "USER", "AGENT", ...)
+}
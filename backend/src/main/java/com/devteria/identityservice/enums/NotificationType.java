@@ -12,5 +12,8 @@ public enum NotificationType {
     // Thông báo cho Customer
     CHECKIN_CONFIRMED,  // Xác nhận check-in thành công
     REVIEW_REPLIED,     // Agent đã phản hồi đánh giá
-    TRIP_REMINDER       // Nhắc nhở chuyến đi sắp diễn ra (1 ngày trước)
+    TRIP_REMINDER,      // Nhắc nhở chuyến đi sắp diễn ra (1 ngày trước)
+
+    // Thông báo hàng loạt
+    ANNOUNCEMENT        // Thông báo chung / thay đổi lịch trình gửi qua broadcast
 }
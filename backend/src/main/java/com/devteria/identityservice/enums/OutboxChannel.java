@@ -0,0 +1,6 @@
+package com.devteria.identityservice.enums;
+
+public enum OutboxChannel {
+    WEBSOCKET,      // Đẩy NotificationResponse qua /topic/notifications/{userId}
+    BOOKING_EMAIL   // Email xác nhận đặt tour (BookingEmailRequest)
+}
@@ -0,0 +1,7 @@
+package com.devteria.identityservice.enums;
+
+public enum OutboxStatus {
+    PENDING,  // Chờ gửi (hoặc chờ retry)
+    SENT,     // Đã gửi thành công
+    FAILED    // Hết số lần retry
+}
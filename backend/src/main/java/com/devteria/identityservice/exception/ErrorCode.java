@@ -50,6 +50,19 @@ public enum ErrorCode {
         BOOKING_ALREADY_COMPLETED(1037, "Booking đã được check-in trước đó", HttpStatus.BAD_REQUEST),
         UNAUTHORIZED_CHECKIN(1038, "Bạn không có quyền check-in cho tour này", HttpStatus.FORBIDDEN),
         INVALID_QR_CODE(1039, "Mã QR không hợp lệ", HttpStatus.BAD_REQUEST),
+        TRIP_NOT_FOUND(1040, "Không tìm thấy chuyến đi", HttpStatus.NOT_FOUND),
+        INVALID_BROADCAST_TARGET(1041, "Đối tượng nhận thông báo không hợp lệ", HttpStatus.BAD_REQUEST),
+        BROADCAST_NOT_FOUND(1042, "Không tìm thấy đợt gửi thông báo", HttpStatus.NOT_FOUND),
+        DISTANCE_MATRIX_TOO_LARGE(1043, "Số địa điểm vượt quá giới hạn của ma trận khoảng cách", HttpStatus.BAD_REQUEST),
+        TOUR_DAY_ROUTE_NOT_FOUND(1044, "Không tìm thấy lộ trình của ngày này", HttpStatus.NOT_FOUND),
+        VIETMAP_UNAVAILABLE(1045, "Dịch vụ bản đồ tạm thời không khả dụng, vui lòng thử lại sau",
+                        HttpStatus.SERVICE_UNAVAILABLE),
+        INVALID_UPLOAD(1046, "File tải lên không hợp lệ (chỉ chấp nhận ảnh, không vượt quá dung lượng cho phép)",
+                        HttpStatus.BAD_REQUEST),
+        UPLOAD_NOT_FOUND(1047, "Không tìm thấy file tải lên hoặc phiên tải lên đã hết hạn", HttpStatus.NOT_FOUND),
+        AI_RATE_LIMITED(1048, "Bạn gửi tin nhắn quá nhanh, vui lòng thử lại sau ít phút", HttpStatus.TOO_MANY_REQUESTS),
+        VIETMAP_BAD_REQUEST(1049, "Yêu cầu tới dịch vụ bản đồ không hợp lệ", HttpStatus.BAD_REQUEST),
+        INVALID_GEO_QUERY(1050, "Tọa độ, bán kính hoặc vùng tìm kiếm không hợp lệ", HttpStatus.BAD_REQUEST),
         ;
 
         ErrorCode(int code, String message, HttpStatusCode statusCode) {
@@ -9,6 +9,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.devteria.identityservice.dto.projection.NotificationRecipient;
 import com.devteria.identityservice.entity.Booking;
 import com.devteria.identityservice.entity.Tour;
 import com.devteria.identityservice.entity.Trip;
@@ -28,6 +29,15 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
            "ORDER BY b.createdAt DESC")
     List<Booking> findByUserWithDetailsOrderByCreatedAtDesc(@Param("user") User user);
 
+    // Như trên nhưng không fetch participants, dùng khi client không yêu cầu danh sách người tham gia
+    @Query("SELECT b FROM Booking b " +
+           "LEFT JOIN FETCH b.user " +
+           "LEFT JOIN FETCH b.tour " +
+           "LEFT JOIN FETCH b.trip " +
+           "WHERE b.user = :user " +
+           "ORDER BY b.createdAt DESC")
+    List<Booking> findByUserWithTourAndTripOrderByCreatedAtDesc(@Param("user") User user);
+
     // Legacy method - keep for backward compatibility
     List<Booking> findByUserOrderByCreatedAtDesc(User user);
 
@@ -76,4 +86,19 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
         @Param("startTime") LocalDateTime startTime,
         @Param("endTime") LocalDateTime endTime
     );
+
+    // Người nhận broadcast: khách đã đặt chuyến (bỏ qua booking đã hủy)
+    @Query("SELECT DISTINCT u.id AS id, u.username AS username FROM Booking b JOIN b.user u " +
+           "WHERE b.trip.id = :tripId AND b.status <> com.devteria.identityservice.enums.BookingStatus.CANCELLED")
+    List<NotificationRecipient> findRecipientsByTripId(@Param("tripId") Long tripId);
+
+    // Người nhận broadcast: khách đã đặt bất kỳ chuyến nào của tour
+    @Query("SELECT DISTINCT u.id AS id, u.username AS username FROM Booking b JOIN b.user u " +
+           "WHERE b.tour.id = :tourId AND b.status <> com.devteria.identityservice.enums.BookingStatus.CANCELLED")
+    List<NotificationRecipient> findRecipientsByTourId(@Param("tourId") Long tourId);
+
+    // QR của booking đã hủy không còn được dùng
+    @Query("SELECT b.qrCodeUrl FROM Booking b WHERE b.qrCodeUrl IS NOT NULL " +
+           "AND b.status <> com.devteria.identityservice.enums.BookingStatus.CANCELLED")
+    List<String> findActiveQrCodeUrls();
 }
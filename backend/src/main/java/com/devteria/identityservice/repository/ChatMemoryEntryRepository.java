@@ -0,0 +1,31 @@
+package com.devteria.identityservice.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.devteria.identityservice.entity.ChatMemoryEntry;
+
+@Repository
+public interface ChatMemoryEntryRepository extends JpaRepository<ChatMemoryEntry, Long> {
+
+    // Mới nhất trước, service tự đảo lại theo thứ tự thời gian
+    List<ChatMemoryEntry> findByConversationIdOrderByIdDesc(String conversationId, Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ChatMemoryEntry e WHERE e.conversationId = :conversationId")
+    int deleteByConversationId(@Param("conversationId") String conversationId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ChatMemoryEntry e WHERE e.createdAt < :before")
+    int deleteByCreatedAtBefore(@Param("before") LocalDateTime before);
+}
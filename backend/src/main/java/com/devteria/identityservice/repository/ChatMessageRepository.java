@@ -27,4 +27,7 @@ public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long>
 
     @Query("SELECT COUNT(m) FROM ChatMessage m WHERE (m.conversation.user.id = :userId OR m.conversation.agent.id = :userId) AND m.sender.id != :userId AND m.isRead = false")
     Long countAllUnreadMessages(@Param("userId") String userId);
+
+    @Query("SELECT m.imageUrl FROM ChatMessage m WHERE m.imageUrl IS NOT NULL")
+    List<String> findImageUrls();
 }
@@ -26,4 +26,7 @@ public interface FavoriteTourRepository extends JpaRepository<FavoriteTour, Long
     
     @Query("SELECT f.tour.id FROM FavoriteTour f WHERE f.user = :user")
     List<Long> findTourIdsByUser(@Param("user") User user);
+
+    @Query("SELECT f.tour.id FROM FavoriteTour f WHERE f.user = :user ORDER BY f.createdAt DESC")
+    List<Long> findTourIdsByUserOrderByCreatedAtDesc(@Param("user") User user);
 }
@@ -0,0 +1,17 @@
+package com.devteria.identityservice.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.devteria.identityservice.entity.LocationDistance;
+
+@Repository
+public interface LocationDistanceRepository extends JpaRepository<LocationDistance, Long> {
+
+    // Nạp toàn bộ chi phí của 1 loại phương tiện vào bộ nhớ
+    List<LocationDistance> findByVehicle(String vehicle);
+
+    boolean existsByFromLocationIdAndToLocationIdAndVehicle(Long fromLocationId, Long toLocationId, String vehicle);
+}
@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import com.devteria.identityservice.dto.projection.LocationIndexView;
 import com.devteria.identityservice.entity.Location;
 
 @Repository
@@ -22,4 +23,13 @@ public interface LocationRepository extends JpaRepository<Location, Long> {
     List<String> findDistinctCityNames();
 
     List<Location> findByCityNameContainingIgnoreCase(String cityName);
+
+    // Fallback khi Vietmap reverse không khả dụng: các địa điểm trong 1 bounding box nhỏ
+    List<Location> findByLatitudeBetweenAndLongitudeBetween(
+            Double minLatitude, Double maxLatitude, Double minLongitude, Double maxLongitude);
+
+    // Nạp LocationSearchIndex: chỉ các cột được index, không load description/ảnh
+    @Query("SELECT l.id AS id, l.refId AS refId, l.name AS name, l.address AS address, l.cityName AS cityName, "
+            + "l.latitude AS latitude, l.longitude AS longitude FROM Location l")
+    List<LocationIndexView> findAllIndexViews();
 }
@@ -0,0 +1,44 @@
+package com.devteria.identityservice.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.devteria.identityservice.entity.NotificationOutbox;
+import com.devteria.identityservice.enums.OutboxStatus;
+
+@Repository
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutbox, Long> {
+
+    // Lấy batch outbox sẵn sàng gửi, theo thứ tự id.
+    // Bỏ qua bản ghi nếu người nhận còn bản ghi cũ hơn đang chờ retry để giữ thứ tự theo người nhận.
+    // SELECT ... FOR UPDATE SKIP LOCKED: instance khác đang claim thì bỏ qua các dòng đó thay vì chờ/gửi trùng
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT o FROM NotificationOutbox o " +
+           "WHERE o.status = com.devteria.identityservice.enums.OutboxStatus.PENDING " +
+           "AND o.nextAttemptAt <= :now " +
+           "AND NOT EXISTS (SELECT 1 FROM NotificationOutbox p " +
+           "    WHERE p.recipientId = o.recipientId " +
+           "    AND p.status = com.devteria.identityservice.enums.OutboxStatus.PENDING " +
+           "    AND p.id < o.id " +
+           "    AND p.nextAttemptAt > :now) " +
+           "ORDER BY o.id ASC")
+    List<NotificationOutbox> lockDispatchable(@Param("now") LocalDateTime now, Pageable pageable);
+
+    // Dọn các bản ghi đã gửi xong
+    @Modifying
+    @Query("DELETE FROM NotificationOutbox o WHERE o.status = :status AND o.sentAt < :before")
+    int deleteByStatusAndSentAtBefore(@Param("status") OutboxStatus status, @Param("before") LocalDateTime before);
+}
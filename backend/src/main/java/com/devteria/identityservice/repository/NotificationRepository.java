@@ -2,6 +2,7 @@ package com.devteria.identityservice.repository;
 
 import java.util.List;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -22,9 +23,35 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
     
     // Đếm số notification chưa đọc
     Long countByRecipientAndIsReadFalse(User recipient);
+
+    // Đếm số notification chưa đọc theo username (dùng để nạp NotificationUnreadCounter)
+    @Query("SELECT COUNT(n) FROM Notification n WHERE n.recipient.username = :username AND n.isRead = false")
+    long countUnreadByRecipientUsername(@Param("username") String username);
+
+    // Feed phân trang theo cursor (id giảm dần)
+    @Query("SELECT n FROM Notification n WHERE n.recipient.username = :username ORDER BY n.id DESC")
+    List<Notification> findFeedByRecipientUsername(@Param("username") String username, Pageable pageable);
+
+    @Query("SELECT n FROM Notification n WHERE n.recipient.username = :username AND n.id < :cursor ORDER BY n.id DESC")
+    List<Notification> findFeedByRecipientUsernameBefore(
+            @Param("username") String username, @Param("cursor") Long cursor, Pageable pageable);
+
+    // Đánh dấu 1 notification là đã đọc trong 1 câu lệnh, trả về 0 nếu không thuộc user hoặc đã đọc
+    @Modifying
+    @Query("UPDATE Notification n SET n.isRead = true " +
+           "WHERE n.id = :id AND n.isRead = false " +
+           "AND n.recipient.id = (SELECT u.id FROM User u WHERE u.username = :username)")
+    int markAsReadByIdAndRecipientUsername(@Param("id") Long id, @Param("username") String username);
+
+    boolean existsByIdAndRecipientUsername(Long id, String username);
     
     // Đánh dấu tất cả notification của user là đã đọc
     @Modifying
     @Query("UPDATE Notification n SET n.isRead = true WHERE n.recipient.id = :recipientId AND n.isRead = false")
     void markAllAsReadByRecipientId(@Param("recipientId") String recipientId);
+
+    @Modifying
+    @Query("UPDATE Notification n SET n.isRead = true " +
+           "WHERE n.isRead = false AND n.recipient.id = (SELECT u.id FROM User u WHERE u.username = :username)")
+    int markAllAsReadByRecipientUsername(@Param("username") String username);
 }
@@ -0,0 +1,19 @@
+package com.devteria.identityservice.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.devteria.identityservice.entity.RouteCacheEntry;
+
+@Repository
+public interface RouteCacheRepository extends JpaRepository<RouteCacheEntry, String> {
+
+    @Modifying
+    @Query("DELETE FROM RouteCacheEntry r WHERE r.createdAt < :before")
+    int deleteByCreatedAtBefore(@Param("before") LocalDateTime before);
+}
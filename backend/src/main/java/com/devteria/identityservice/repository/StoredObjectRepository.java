@@ -0,0 +1,50 @@
+package com.devteria.identityservice.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.devteria.identityservice.entity.StoredObject;
+
+@Repository
+public interface StoredObjectRepository extends JpaRepository<StoredObject, Long> {
+
+    Optional<StoredObject> findBySha256(String sha256);
+
+    Optional<StoredObject> findByObjectKey(String objectKey);
+
+    // Tăng/giảm trực tiếp trong DB để các upload đồng thời không ghi đè nhau
+    @Transactional
+    @Modifying
+    // now theo đồng hồ JVM như @PrePersist và S3OrphanCollector, không dùng CURRENT_TIMESTAMP của DB
+    @Query("UPDATE StoredObject o SET o.issueCount = o.issueCount + 1, o.lastReferencedAt = :now "
+            + "WHERE o.sha256 = :sha256")
+    int incrementIssueCount(@Param("sha256") String sha256, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE StoredObject o SET o.issueCount = o.issueCount - 1 WHERE o.id = :id AND o.issueCount > 0")
+    int decrementIssueCount(@Param("id") Long id);
+
+    // Chỉ xóa khi mọi lần cấp đã bị xóa (tránh xóa nhầm khi có upload trùng chen vào)
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM StoredObject o WHERE o.id = :id AND o.issueCount <= 0")
+    int deleteIfNoIssues(@Param("id") Long id);
+
+    // Object vừa được cấp lại qua dedup, chưa kịp gắn vào tour thì không được coi là mồ côi
+    @Query("SELECT o.objectKey FROM StoredObject o WHERE o.lastReferencedAt >= :since")
+    List<String> findKeysReferencedSince(@Param("since") LocalDateTime since);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM StoredObject o WHERE o.objectKey IN :keys")
+    int deleteByObjectKeyIn(@Param("keys") List<String> keys);
+}
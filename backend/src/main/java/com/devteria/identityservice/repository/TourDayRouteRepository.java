@@ -0,0 +1,27 @@
+package com.devteria.identityservice.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.devteria.identityservice.entity.TourDayRoute;
+
+@Repository
+public interface TourDayRouteRepository extends JpaRepository<TourDayRoute, Long> {
+    List<TourDayRoute> findByTourIdOrderByDayNumberAsc(Long tourId);
+
+    Optional<TourDayRoute> findByTourIdAndDayNumber(Long tourId, Integer dayNumber);
+
+    // Lộ trình ngày là ước lượng đường chim bay, đến lượt tính lại, kèm tour để biết phương tiện
+    @Query("SELECT r FROM TourDayRoute r JOIN FETCH r.tour WHERE r.routeEstimated = true "
+            + "AND (r.routeRefreshAttempts IS NULL OR r.routeRefreshAttempts < :maxAttempts) "
+            + "AND (r.routeRefreshAfter IS NULL OR r.routeRefreshAfter <= :now) ORDER BY r.id ASC")
+    List<TourDayRoute> findEstimatedDue(
+            @Param("maxAttempts") int maxAttempts, @Param("now") LocalDateTime now, Pageable pageable);
+}
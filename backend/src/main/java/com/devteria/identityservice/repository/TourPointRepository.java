@@ -0,0 +1,29 @@
+package com.devteria.identityservice.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.devteria.identityservice.entity.TourPoint;
+
+@Repository
+public interface TourPointRepository extends JpaRepository<TourPoint, Long> {
+
+    // Ghi các bản thu nhỏ cho mọi điểm đang dùng ảnh gốc này
+    @Modifying
+    @Query("UPDATE TourPoint tp SET tp.imageVariants.thumbnailUrl = :thumbnailUrl, "
+            + "tp.imageVariants.cardUrl = :cardUrl, tp.imageVariants.fullUrl = :fullUrl "
+            + "WHERE tp.imageUrl = :imageUrl")
+    int updateImageVariants(
+            @Param("imageUrl") String imageUrl,
+            @Param("thumbnailUrl") String thumbnailUrl,
+            @Param("cardUrl") String cardUrl,
+            @Param("fullUrl") String fullUrl);
+
+    @Query("SELECT tp.imageUrl FROM TourPoint tp WHERE tp.imageUrl IS NOT NULL")
+    List<String> findImageUrls();
+}
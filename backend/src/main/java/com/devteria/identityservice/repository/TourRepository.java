@@ -1,53 +1,93 @@
 package com.devteria.identityservice.repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.devteria.identityservice.dto.projection.TourSummaryView;
 import com.devteria.identityservice.entity.Tour;
 import com.devteria.identityservice.entity.User;
 import com.devteria.identityservice.enums.TourStatus;
 
 @Repository
 public interface TourRepository extends JpaRepository<Tour, Long> {
+        // Cột của TourSummaryView; điểm, đánh giá tính bằng subquery nên không load tourPoints/trips/reviews
+        String SUMMARY_SELECT = "SELECT t.id AS id, t.name AS name, t.description AS description, "
+                        + "t.price AS price, t.numberOfDays AS numberOfDays, t.vehicle AS vehicle, "
+                        + "t.isOptimized AS isOptimized, t.totalDistance AS totalDistance, t.totalTime AS totalTime, "
+                        + "t.imageUrl AS imageUrl, t.imageVariants.thumbnailUrl AS thumbnailUrl, "
+                        + "t.imageVariants.cardUrl AS cardImageUrl, t.status AS status, t.createdAt AS createdAt, "
+                        + "u.id AS createdById, u.username AS createdByUsername, u.firstName AS createdByFirstName, "
+                        + "u.lastName AS createdByLastName, u.avatar AS createdByAvatar, "
+                        + "(SELECT COUNT(tp) FROM TourPoint tp WHERE tp.tour = t) AS pointCount, "
+                        + "(SELECT AVG(r.rating) FROM Review r WHERE r.tour = t) AS averageRating, "
+                        + "(SELECT COUNT(r2) FROM Review r2 WHERE r2.tour = t) AS reviewCount "
+                        + "FROM Tour t JOIN t.createdBy u ";
+
         List<Tour> findByCreatedByAndIsActiveTrueOrderByCreatedAtDesc(User user);
 
         List<Tour> findByIsActiveTrueOrderByCreatedAtDesc();
 
-        @EntityGraph(attributePaths = { "tourPoints", "tourPoints.location" })
-        @Query("SELECT DISTINCT t FROM Tour t " +
-                        "LEFT JOIN t.tourPoints tp " +
-                        "LEFT JOIN tp.location l " +
-                        "WHERE t.isActive = true " +
-                        "AND t.status = :status " +
-                        "AND (:keyword IS NULL OR " +
-                        "     LOWER(t.name) LIKE CONCAT('%', LOWER(:keyword), '%') " +
-                        "     OR (t.description IS NOT NULL AND LOWER(t.description) LIKE CONCAT('%', LOWER(:keyword), '%')) "
-                        +
-                        "     OR (l IS NOT NULL AND LOWER(l.name) LIKE CONCAT('%', LOWER(:keyword), '%'))) " +
-                        "AND (:minPrice IS NULL OR t.price IS NULL OR t.price >= :minPrice) " +
-                        "AND (:maxPrice IS NULL OR t.price IS NULL OR t.price <= :maxPrice) " +
-                        "AND (:numberOfDays IS NULL OR t.numberOfDays = :numberOfDays) " +
-                        "AND (:vehicle IS NULL OR LOWER(t.vehicle) = LOWER(:vehicle)) " +
-                        "AND (:locationId IS NULL OR l.id = :locationId) " +
-                        "ORDER BY t.createdAt DESC")
-        List<Tour> searchTours(
-                        @Param("status") TourStatus status,
+        // Tour có lộ trình ước lượng (Vietmap lỗi lúc tạo), đến lượt tính lại
+        @Query("SELECT t FROM Tour t WHERE t.routeEstimated = true "
+                        + "AND (t.routeRefreshAttempts IS NULL OR t.routeRefreshAttempts < :maxAttempts) "
+                        + "AND (t.routeRefreshAfter IS NULL OR t.routeRefreshAfter <= :now) ORDER BY t.id ASC")
+        List<Tour> findEstimatedDue(
+                        @Param("maxAttempts") int maxAttempts, @Param("now") LocalDateTime now, Pageable pageable);
+
+        // Find approved tours by agent
+        @EntityGraph(attributePaths = { "tourPoints", "tourPoints.location", "createdBy" })
+        @Query("SELECT t FROM Tour t WHERE t.isActive = true AND t.status = com.devteria.identityservice.enums.TourStatus.APPROVED AND t.createdBy.id = :agentId ORDER BY t.createdAt DESC")
+        List<Tour> findApprovedToursByAgentId(@Param("agentId") String agentId);
+
+        long countByStatusAndIsActiveTrue(TourStatus status);
+
+        @Query(SUMMARY_SELECT
+                        + "WHERE t.isActive = true AND t.status = com.devteria.identityservice.enums.TourStatus.APPROVED "
+                        + "ORDER BY t.createdAt DESC")
+        List<TourSummaryView> findApprovedSummaries();
+
+        @Query(SUMMARY_SELECT + "WHERE t.id IN :ids")
+        List<TourSummaryView> findSummariesByIdIn(@Param("ids") List<Long> ids);
+
+        @Query(SUMMARY_SELECT + "WHERE t.id IN :ids AND t.isActive = true "
+                        + "AND t.status = com.devteria.identityservice.enums.TourStatus.APPROVED")
+        List<TourSummaryView> findApprovedSummariesByIdIn(@Param("ids") List<Long> ids);
+
+        // keyword/cityName đã được escape bằng '!' (TourService.escapeLike) để % và _ khớp đúng ký tự
+        @Query(SUMMARY_SELECT
+                        + "WHERE t.isActive = true AND t.status = com.devteria.identityservice.enums.TourStatus.APPROVED "
+                        + "AND (:keyword IS NULL "
+                        + "     OR LOWER(t.name) LIKE CONCAT('%', :keyword, '%') ESCAPE '!' "
+                        + "     OR LOWER(t.description) LIKE CONCAT('%', :keyword, '%') ESCAPE '!' "
+                        + "     OR EXISTS (SELECT 1 FROM TourPoint kp JOIN kp.location kl "
+                        + "                WHERE kp.tour = t AND LOWER(kl.name) LIKE CONCAT('%', :keyword, '%') ESCAPE '!')) "
+                        + "AND (:minPrice IS NULL OR t.price >= :minPrice) "
+                        + "AND (:maxPrice IS NULL OR t.price <= :maxPrice) "
+                        + "AND (:numberOfDays IS NULL OR t.numberOfDays = :numberOfDays) "
+                        + "AND (:vehicle IS NULL OR LOWER(t.vehicle) = :vehicle) "
+                        + "AND (:cityName IS NULL "
+                        + "     OR EXISTS (SELECT 1 FROM TourPoint cp JOIN cp.location cl "
+                        + "                WHERE cp.tour = t "
+                        + "                AND LOWER(cl.cityName) LIKE CONCAT('%', LOWER(:cityName), '%') ESCAPE '!')) "
+                        + "ORDER BY t.createdAt DESC")
+        List<TourSummaryView> searchSummaries(
                         @Param("keyword") String keyword,
                         @Param("minPrice") Double minPrice,
                         @Param("maxPrice") Double maxPrice,
                         @Param("numberOfDays") Integer numberOfDays,
                         @Param("vehicle") String vehicle,
-                        @Param("locationId") Long locationId);
+                        @Param("cityName") String cityName);
 
-        // EntityGraph removed to avoid GROUP BY conflict with MySQL ONLY_FULL_GROUP_BY
-        // mode
-        // tourPoints and createdBy will be lazy loaded in service layer
-        @Query("SELECT DISTINCT t FROM Tour t " +
+        // Xếp hạng trending: lượt đặt * 3 + điểm trung bình * 2 + số review * 1.5 + lượt yêu thích
+        @Query("SELECT t.id FROM Tour t " +
                         "LEFT JOIN t.trips tr " +
                         "LEFT JOIN Booking b ON b.trip = tr " +
                         "LEFT JOIN Review r ON r.tour = t " +
@@ -59,12 +99,26 @@ public interface TourRepository extends JpaRepository<Tour, Long> {
                         "          COALESCE(AVG(r.rating), 0) * 2.0 + " +
                         "          COUNT(DISTINCT r.id) * 1.5 + " +
                         "          COUNT(DISTINCT f.id) * 1.0) DESC")
-        List<Tour> findTrendingTours();
+        List<Long> findTrendingTourIds();
 
-        // Find approved tours by agent
-        @EntityGraph(attributePaths = { "tourPoints", "tourPoints.location", "createdBy" })
-        @Query("SELECT t FROM Tour t WHERE t.isActive = true AND t.status = com.devteria.identityservice.enums.TourStatus.APPROVED AND t.createdBy.id = :agentId ORDER BY t.createdAt DESC")
-        List<Tour> findApprovedToursByAgentId(@Param("agentId") String agentId);
+        // [tourId, cityName] theo thứ tự điểm, dùng để dựng danh sách thành phố cho TourSummaryResponse
+        @Query("SELECT tp.tour.id, l.cityName FROM TourPoint tp JOIN tp.location l "
+                        + "WHERE tp.tour.id IN :tourIds AND l.cityName IS NOT NULL "
+                        + "ORDER BY tp.tour.id, tp.orderIndex")
+        List<Object[]> findCityNamesByTourIdIn(@Param("tourIds") List<Long> tourIds);
 
-        long countByStatusAndIsActiveTrue(TourStatus status);
+        // Ghi các bản thu nhỏ cho mọi tour đang dùng ảnh gốc này
+        @Modifying
+        @Query("UPDATE Tour t SET t.imageVariants.thumbnailUrl = :thumbnailUrl, "
+                        + "t.imageVariants.cardUrl = :cardUrl, t.imageVariants.fullUrl = :fullUrl "
+                        + "WHERE t.imageUrl = :imageUrl")
+        int updateImageVariants(
+                        @Param("imageUrl") String imageUrl,
+                        @Param("thumbnailUrl") String thumbnailUrl,
+                        @Param("cardUrl") String cardUrl,
+                        @Param("fullUrl") String fullUrl);
+
+        // [imageUrl, imageUrls JSON] của mọi tour, kể cả tour đã ẩn (lịch sử booking vẫn hiển thị ảnh)
+        @Query("SELECT t.imageUrl, t.imageUrls FROM Tour t")
+        List<Object[]> findImageReferences();
 }
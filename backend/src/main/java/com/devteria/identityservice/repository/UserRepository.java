@@ -1,5 +1,6 @@
 package com.devteria.identityservice.repository;
 
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.EntityGraph;
@@ -8,6 +9,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.devteria.identityservice.dto.projection.NotificationRecipient;
 import com.devteria.identityservice.entity.User;
 
 @Repository
@@ -24,4 +26,11 @@ public interface UserRepository extends JpaRepository<User, String> {
 
     @Query("SELECT COUNT(u) FROM User u JOIN u.roles r WHERE r.name = :roleName")
     Long countByRoleName(@Param("roleName") String roleName);
+
+    // Người nhận broadcast theo role
+    @Query("SELECT u.id AS id, u.username AS username FROM User u JOIN u.roles r WHERE r.name = :roleName")
+    List<NotificationRecipient> findRecipientsByRoleName(@Param("roleName") String roleName);
+
+    @Query("SELECT u.avatar FROM User u WHERE u.avatar IS NOT NULL")
+    List<String> findAvatarUrls();
 }
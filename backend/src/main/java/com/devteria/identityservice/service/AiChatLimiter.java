@@ -0,0 +1,173 @@
+package com.devteria.identityservice.service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.devteria.identityservice.exception.AppException;
+import com.devteria.identityservice.exception.ErrorCode;
+import com.devteria.identityservice.util.TokenBucket;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Giới hạn tải của AI chatbot để lời gọi LLM (vài giây/lượt) không làm cạn thread pool của Tomcat:
+ * - Lời gọi chạy trên virtual thread (aiChatExecutor), request thread được trả lại ngay
+ * - Tối đa max-concurrent lời gọi cùng lúc; phần còn lại xếp hàng FIFO (semaphore fair) tối đa max-queue,
+ *   chờ quá queue-timeout hoặc hàng đợi đầy thì trả lời bằng fallback tìm kiếm local
+ * - Rate limit theo user/IP bằng token bucket
+ */
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class AiChatLimiter {
+
+    Executor aiChatExecutor;
+    Semaphore permits;
+    int maxConcurrent;
+    int maxQueue;
+    Duration queueTimeout;
+    Cache<String, TokenBucket> buckets;
+    int burst;
+    double refillPerSecond;
+
+    AtomicInteger queued = new AtomicInteger();
+    LongAdder completed = new LongAdder();
+    LongAdder rejectedQueueFull = new LongAdder();
+    LongAdder timedOut = new LongAdder();
+    LongAdder rateLimited = new LongAdder();
+
+    public AiChatLimiter(
+            @Qualifier("aiChatExecutor") Executor aiChatExecutor,
+            @Value("${ai.chat.limit.max-concurrent:8}") int maxConcurrent,
+            @Value("${ai.chat.limit.max-queue:50}") int maxQueue,
+            @Value("${ai.chat.limit.queue-timeout-seconds:20}") long queueTimeoutSeconds,
+            @Value("${ai.chat.limit.rate-burst:5}") int burst,
+            @Value("${ai.chat.limit.rate-per-minute:10}") int ratePerMinute) {
+        this.aiChatExecutor = aiChatExecutor;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.permits = new Semaphore(this.maxConcurrent, true);
+        this.maxQueue = maxQueue;
+        this.queueTimeout = Duration.ofSeconds(queueTimeoutSeconds);
+        this.burst = burst;
+        this.refillPerSecond = ratePerMinute / 60d;
+        this.buckets = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofMinutes(10))
+                .maximumSize(50_000)
+                .build();
+    }
+
+    /**
+     * Tiêu 1 lượt của user/IP, hết lượt thì ném AI_RATE_LIMITED (429)
+     */
+    public void checkRateLimit(String key) {
+        if (!buckets.get(key, k -> new TokenBucket(burst, refillPerSecond)).tryConsume()) {
+            rateLimited.increment();
+            throw new AppException(ErrorCode.AI_RATE_LIMITED);
+        }
+    }
+
+    /**
+     * Chạy task trên virtual thread khi tới lượt; quá tải thì trả kết quả của whenBusy
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task, Supplier<T> whenBusy) {
+        return CompletableFuture.supplyAsync(() -> {
+            if (!acquire()) {
+                return whenBusy.get();
+            }
+            try {
+                return task.get();
+            } finally {
+                release();
+            }
+        }, aiChatExecutor);
+    }
+
+    /**
+     * Stream chỉ được subscribe khi tới lượt, permit được trả khi stream kết thúc/lỗi/bị hủy.
+     * Hủy giữa stream kích hoạt cả doOnCancel lẫn doFinally, nên mỗi subscription chỉ trả permit 1 lần.
+     */
+    public Flux<String> stream(Supplier<Flux<String>> source, Supplier<String> whenBusy) {
+        return Flux.defer(() -> {
+            CompletableFuture<Boolean> turn = CompletableFuture.supplyAsync(this::acquire, aiChatExecutor);
+            AtomicBoolean released = new AtomicBoolean();
+            Runnable releaseOnce = () -> {
+                if (released.compareAndSet(false, true)) {
+                    release();
+                }
+            };
+            return Mono.fromFuture(turn)
+                    // Client bỏ đi khi còn xếp hàng: nếu sau đó vẫn lấy được permit thì trả lại ngay
+                    .doOnCancel(() -> turn.thenAccept(acquired -> {
+                        if (acquired) {
+                            releaseOnce.run();
+                        }
+                    }))
+                    .flatMapMany(acquired -> acquired
+                            ? Flux.defer(source).doFinally(signal -> releaseOnce.run())
+                            : Mono.fromSupplier(whenBusy).flux());
+        });
+    }
+
+    private boolean acquire() {
+        try {
+            // tryAcquire(0, ...) vẫn tôn trọng thứ tự chờ của semaphore fair, tryAcquire() thì không
+            if (permits.tryAcquire(0, TimeUnit.SECONDS)) {
+                return true;
+            }
+            if (queued.incrementAndGet() > maxQueue) {
+                queued.decrementAndGet();
+                rejectedQueueFull.increment();
+                log.warn("AI chat queue full ({} waiting), serving fallback", maxQueue);
+                return false;
+            }
+            try {
+                if (permits.tryAcquire(queueTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+                timedOut.increment();
+                log.warn("AI chat request waited {}s without a free slot, serving fallback", queueTimeout.toSeconds());
+                return false;
+            } finally {
+                queued.decrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void release() {
+        completed.increment();
+        permits.release();
+    }
+
+    public Map<String, Long> getStats() {
+        return Map.of(
+                "maxConcurrent", (long) maxConcurrent,
+                "active", (long) (maxConcurrent - permits.availablePermits()),
+                "queueDepth", (long) queued.get(),
+                "maxQueue", (long) maxQueue,
+                "completed", completed.sum(),
+                "rejectedQueueFull", rejectedQueueFull.sum(),
+                "timedOut", timedOut.sum(),
+                "rateLimited", rateLimited.sum());
+    }
+}
@@ -0,0 +1,131 @@
+package com.devteria.identityservice.service;
+
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+import org.springframework.stereotype.Service;
+
+import com.devteria.identityservice.dto.response.TourSummaryResponse;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Trả lời câu hỏi tìm tour bằng {@link TourIntentParser} + TourService.searchTours, không gọi LLM.
+ * - Đường tắt: câu hỏi chỉ gồm tiêu chí ("tour Đà Lạt 3 ngày dưới 3 triệu") được trả lời ngay
+ * - Fallback: khi gọi OpenAI lỗi, vẫn trả kết quả tìm kiếm nếu đọc được tiêu chí nào đó
+ */
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class AiFallbackResponder {
+
+    private static final int MAX_RESULTS = 5;
+    private static final String APOLOGY = "Xin lỗi, tôi đang gặp chút trục trặc kỹ thuật. Vui lòng thử lại sau.";
+
+    TourIntentParser tourIntentParser;
+    TourService tourService;
+
+    /**
+     * Câu trả lời nếu câu hỏi là truy vấn tìm tour có cấu trúc rõ ràng, ngược lại để LLM xử lý
+     */
+    public Optional<String> answerStructured(String message) {
+        TourIntentParser.Intent intent = tourIntentParser.parse(message);
+        if (!intent.structured()) {
+            return Optional.empty();
+        }
+        log.info("AI chat fast path: {}", intent);
+        return Optional.of(answer(intent));
+    }
+
+    /**
+     * Câu trả lời khi LLM không dùng được
+     */
+    public String answerFallback(String message) {
+        try {
+            TourIntentParser.Intent intent = tourIntentParser.parse(message);
+            if (intent.isEmpty()) {
+                return APOLOGY;
+            }
+            return "Hiện trợ lý AI đang bận, đây là kết quả tìm kiếm nhanh cho bạn.\n" + answer(intent);
+        } catch (Exception e) {
+            log.warn("AI chat fallback search failed: {}", e.getMessage());
+            return APOLOGY;
+        }
+    }
+
+    private String answer(TourIntentParser.Intent intent) {
+        List<TourSummaryResponse> tours = tourService.searchTours(
+                null,
+                intent.minPrice(),
+                intent.maxPrice(),
+                intent.numberOfDays(),
+                intent.vehicle(),
+                intent.cityName(),
+                AiToolService.AI_TOUR_FIELDS);
+
+        String criteria = describe(intent);
+        if (tours.isEmpty()) {
+            return "Hiện chưa có tour nào " + criteria
+                    + ". Bạn thử thay đổi ngân sách, số ngày hoặc thành phố xem sao nhé.";
+        }
+
+        StringBuilder reply = new StringBuilder("Mình tìm thấy ").append(tours.size()).append(" tour ")
+                .append(criteria).append(":\n");
+        int index = 1;
+        for (TourSummaryResponse tour : tours.subList(0, Math.min(MAX_RESULTS, tours.size()))) {
+            reply.append(index++).append(". ").append(tour.getName());
+            if (tour.getNumberOfDays() != null) {
+                reply.append(" - ").append(tour.getNumberOfDays()).append(" ngày");
+            }
+            if (tour.getPrice() != null) {
+                reply.append(" - ").append(formatMoney(tour.getPrice()));
+            }
+            if (tour.getReviewCount() != null && tour.getReviewCount() > 0 && tour.getAverageRating() != null) {
+                reply.append(String.format(Locale.ROOT, " - %.1f/5 (%d đánh giá)",
+                        tour.getAverageRating(), tour.getReviewCount()));
+            }
+            if (tour.getCities() != null && !tour.getCities().isEmpty()) {
+                reply.append(" - ").append(String.join(", ", tour.getCities()));
+            }
+            reply.append('\n');
+        }
+        if (tours.size() > MAX_RESULTS) {
+            reply.append("Và ").append(tours.size() - MAX_RESULTS).append(" tour khác trên trang tìm kiếm.\n");
+        }
+        reply.append("Bạn muốn xem chi tiết tour nào?");
+        return reply.toString();
+    }
+
+    // "ở Đà Lạt, 3 ngày, dưới 3.000.000 ₫, đi xe máy"
+    private String describe(TourIntentParser.Intent intent) {
+        List<String> parts = new ArrayList<>();
+        if (intent.cityName() != null) {
+            parts.add("ở " + intent.cityName());
+        }
+        if (intent.numberOfDays() != null) {
+            parts.add(intent.numberOfDays() + " ngày");
+        }
+        if (intent.minPrice() != null && intent.maxPrice() != null) {
+            parts.add("từ " + formatMoney(intent.minPrice()) + " đến " + formatMoney(intent.maxPrice()));
+        } else if (intent.maxPrice() != null) {
+            parts.add("dưới " + formatMoney(intent.maxPrice()));
+        } else if (intent.minPrice() != null) {
+            parts.add("từ " + formatMoney(intent.minPrice()));
+        }
+        if (intent.vehicle() != null) {
+            parts.add("motorcycle".equals(intent.vehicle()) ? "đi xe máy" : "đi ô tô");
+        }
+        return String.join(", ", parts);
+    }
+
+    private String formatMoney(double amount) {
+        return NumberFormat.getCurrencyInstance(Locale.forLanguageTag("vi-VN")).format(amount);
+    }
+}
@@ -0,0 +1,158 @@
+package com.devteria.identityservice.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.devteria.identityservice.util.TextNormalizer;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Cache câu trả lời của AI chatbot cho các câu hỏi lặp lại ("tour Đà Lạt 3 ngày dưới 3 triệu").
+ * Câu hỏi được chuẩn hóa (bỏ dấu, bỏ từ đệm, giữ thứ tự); các câu có cùng dãy số được gom chung một bucket
+ * và so khớp theo độ tương đồng Jaccard của tập từ, nên "cho mình tìm tour Đà Lạt 3 ngày" và
+ * "tour da lat 3 ngay" dùng chung câu trả lời, còn "3 ngày" và "5 ngày" thì không.
+ * Câu trả lời gắn với generation của {@link AiToolCache}, tour thay đổi là mọi câu trả lời cũ hết hiệu lực.
+ */
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class AiResponseCache {
+
+    private static final int MAX_ENTRIES_PER_BUCKET = 32;
+    private static final int MAX_QUESTION_LENGTH = 300; // Câu dài thường mang ngữ cảnh riêng, không cache
+
+    // Từ đệm/xưng hô không đổi ý nghĩa câu hỏi (đã bỏ dấu)
+    private static final Set<String> FILLER_WORDS = Set.of(
+            "a", "ah", "oi", "nhe", "nha", "nhi", "voi", "giup", "cho", "toi", "minh", "em", "anh", "cau",
+            "xin", "duoc", "gi", "nao", "hi", "hello", "chao", "muon", "tim", "kiem", "goi", "y", "xem", "nhung", "cac");
+
+    AiToolCache aiToolCache;
+    Cache<String, Map<String, Entry>> buckets;
+    double similarityThreshold;
+
+    LongAdder hits = new LongAdder();
+    LongAdder misses = new LongAdder();
+
+    private record Entry(Set<String> words, String answer, long generation) {
+    }
+
+    // generation lấy lúc nhận câu hỏi: tour đổi trong lúc model đang trả lời thì câu trả lời không được cache
+    public record Key(String signature, String text, Set<String> words, long generation) {
+    }
+
+    public AiResponseCache(
+            AiToolCache aiToolCache,
+            @Value("${ai.chat.response-cache.ttl-minutes:30}") long ttlMinutes,
+            @Value("${ai.chat.response-cache.max-buckets:2000}") long maxBuckets,
+            @Value("${ai.chat.response-cache.similarity-threshold:0.85}") double similarityThreshold) {
+        this.aiToolCache = aiToolCache;
+        this.similarityThreshold = similarityThreshold;
+        this.buckets = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .maximumSize(maxBuckets)
+                .build();
+    }
+
+    /**
+     * Câu hỏi đã chuẩn hóa; null nếu không nên cache
+     */
+    public Key keyOf(String question) {
+        if (question == null || question.isBlank() || question.length() > MAX_QUESTION_LENGTH) {
+            return null;
+        }
+        List<String> words = new ArrayList<>();
+        StringBuilder numbers = new StringBuilder("#");
+        for (String token : TextNormalizer.tokens(question)) {
+            if (FILLER_WORDS.contains(token)) {
+                continue;
+            }
+            words.add(token);
+            if (Character.isDigit(token.charAt(0))) {
+                numbers.append(token).append('#');
+            }
+        }
+        if (words.isEmpty()) {
+            return null;
+        }
+        return new Key(numbers.toString(), String.join(" ", words), new HashSet<>(words), aiToolCache.generation());
+    }
+
+    public String get(Key key) {
+        Map<String, Entry> bucket = buckets.getIfPresent(key.signature());
+        String answer = bucket == null ? null : lookup(bucket, key);
+        if (answer == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return answer;
+    }
+
+    public void put(Key key, String answer) {
+        if (answer == null || answer.isBlank()) {
+            return;
+        }
+        Map<String, Entry> bucket = buckets.get(key.signature(), s -> new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > MAX_ENTRIES_PER_BUCKET;
+            }
+        });
+        synchronized (bucket) {
+            bucket.put(key.text(), new Entry(key.words(), answer, key.generation()));
+        }
+    }
+
+    private String lookup(Map<String, Entry> bucket, Key key) {
+        long generation = aiToolCache.generation();
+        synchronized (bucket) {
+            Entry exact = bucket.get(key.text());
+            if (exact != null) {
+                return exact.generation() == generation ? exact.answer() : null;
+            }
+            Entry best = null;
+            double bestScore = similarityThreshold;
+            for (Entry entry : bucket.values()) {
+                if (entry.generation() != generation) {
+                    continue;
+                }
+                double score = jaccard(entry.words(), key.words());
+                if (score >= bestScore) {
+                    best = entry;
+                    bestScore = score;
+                }
+            }
+            return best == null ? null : best.answer();
+        }
+    }
+
+    private static double jaccard(Set<String> a, Set<String> b) {
+        int common = 0;
+        for (String word : a) {
+            if (b.contains(word)) {
+                common++;
+            }
+        }
+        int union = a.size() + b.size() - common;
+        return union == 0 ? 0 : (double) common / union;
+    }
+
+    public Map<String, Long> getStats() {
+        return Map.of(
+                "hits", hits.sum(),
+                "misses", misses.sum(),
+                "buckets", buckets.estimatedSize());
+    }
+}
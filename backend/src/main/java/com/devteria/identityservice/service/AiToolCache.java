@@ -0,0 +1,71 @@
+package com.devteria.identityservice.service;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Cache ngắn hạn cho kết quả các tool của AI chatbot, key là tên tool + tham số đã chuẩn hóa.
+ * Model thường gọi lại cùng tool trong vài lượt chat liên tiếp; TourService xóa cache sau khi thay đổi tour commit,
+ * rating/chuyến mới thì chờ hết TTL.
+ */
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class AiToolCache {
+
+    Cache<String, Object> results;
+    AtomicLong generation = new AtomicLong(); // Tăng mỗi lần dữ liệu tour thay đổi
+
+    public AiToolCache(
+            @Value("${ai.tools.cache-ttl-seconds:120}") long ttlSeconds,
+            @Value("${ai.tools.cache-max-entries:500}") long maxEntries) {
+        this.results = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .maximumSize(maxEntries)
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, Supplier<T> loader) {
+        return (T) results.get(key, k -> loader.get());
+    }
+
+    /**
+     * Xóa toàn bộ sau khi transaction hiện tại commit (hoặc ngay nếu không có transaction)
+     */
+    public void invalidateAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate();
+            }
+        });
+    }
+
+    /**
+     * Phiên bản hiện tại của dữ liệu tour, dùng để loại các kết quả dựng từ dữ liệu cũ (AiResponseCache)
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    private void invalidate() {
+        generation.incrementAndGet();
+        results.invalidateAll();
+    }
+}
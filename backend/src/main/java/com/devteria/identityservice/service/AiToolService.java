@@ -1,20 +1,29 @@
 package com.devteria.identityservice.service;
 
+import java.time.LocalDateTime;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Description;
 
+import com.devteria.identityservice.dto.response.AiTourDetailResponse;
+import com.devteria.identityservice.dto.response.AiTourResponse;
 import com.devteria.identityservice.dto.response.LocationResponse;
 import com.devteria.identityservice.dto.response.ReviewResponse;
 import com.devteria.identityservice.dto.response.TourResponse;
+import com.devteria.identityservice.dto.response.TourSummaryResponse;
+import com.devteria.identityservice.util.FieldSelection;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * Service providing tools for the AI Chatbot via Function Calling.
+ * Tool results are serialized into the model context, so tours are returned as compact
+ * projections with hard caps and cached briefly in {@link AiToolCache}.
  */
 @Configuration
 @RequiredArgsConstructor
@@ -23,6 +32,19 @@ public class AiToolService {
     private final TourService tourService;
     private final LocationSuggestionService locationService;
     private final ReviewService reviewService;
+    private final AiToolCache aiToolCache;
+
+    static final int MAX_TOURS = 20;
+    static final int MAX_TRENDING_TOURS = 10;
+    static final int MAX_LOCATIONS = 50;
+    static final int MAX_REVIEWS = 10;
+    static final int MAX_ITINERARY_STOPS = 40;
+    static final int MAX_UPCOMING_TRIPS = 5;
+    static final int MAX_DESCRIPTION_CHARS = 600;
+
+    // Chỉ các cột AiTourResponse cần; bỏ qua dựng các field khác của summary
+    static final FieldSelection AI_TOUR_FIELDS = FieldSelection.parse(
+            "name,price,numberOfDays,vehicle,cities,averageRating,reviewCount");
 
     public record TourSearchRequest(
             String keyword,
@@ -59,71 +81,148 @@ public class AiToolService {
     }
 
     @Bean
-    @Description("Lấy tất cả các tour du lịch đang hoạt động để gợi ý cho người dùng.")
-    public java.util.function.Function<AllToursRequest, List<TourResponse>> getAllActiveToursTools() {
+    @Description("Lấy các tour du lịch đang hoạt động (tối đa 20 tour mới nhất) để gợi ý cho người dùng.")
+    public java.util.function.Function<AllToursRequest, List<AiTourResponse>> getAllActiveToursTools() {
         return request -> {
             log.info("AI calling getAllActiveToursTools");
-            return tourService.getAllActiveTours();
+            return aiToolCache.get("allActiveTours",
+                    () -> toAiTours(tourService.getApprovedTours(AI_TOUR_FIELDS), MAX_TOURS));
         };
     }
 
     @Bean
     @Description("Lấy danh sách các tour du lịch phổ biến và được đặt nhiều nhất (trending tours). Tour có nhiều booking nhất sẽ được ưu tiên hiển thị.")
-    public java.util.function.Function<TrendingToursRequest, List<TourResponse>> getTrendingToursTool() {
+    public java.util.function.Function<TrendingToursRequest, List<AiTourResponse>> getTrendingToursTool() {
         return request -> {
             log.info("AI calling getTrendingToursTool");
-            return tourService.getTrendingTours();
+            return aiToolCache.get("trendingTours",
+                    () -> toAiTours(tourService.getTrendingTours(), MAX_TRENDING_TOURS));
         };
     }
 
     @Bean
-    @Description("Tìm kiếm các tour du lịch đang hoạt động dựa trên các tiêu chí như từ khóa, giá, số ngày, phương tiện và thành phố.")
-    public java.util.function.Function<TourSearchRequest, List<TourResponse>> searchToursTool() {
+    @Description("Tìm kiếm các tour du lịch đang hoạt động dựa trên các tiêu chí như từ khóa, giá, số ngày, phương tiện và thành phố. Trả về tối đa 20 tour.")
+    public java.util.function.Function<TourSearchRequest, List<AiTourResponse>> searchToursTool() {
         return request -> {
             log.info("AI calling searchToursTool with: {}", request);
-            return tourService.searchTours(
-                    request.keyword(),
-                    request.minPrice(),
-                    request.maxPrice(),
-                    request.numberOfDays(),
-                    request.vehicle(),
-                    request.cityName());
+            return aiToolCache.get("searchTours:" + request.toString().toLowerCase(Locale.ROOT),
+                    () -> toAiTours(tourService.searchTours(
+                            request.keyword(),
+                            request.minPrice(),
+                            request.maxPrice(),
+                            request.numberOfDays(),
+                            request.vehicle(),
+                            request.cityName(),
+                            AI_TOUR_FIELDS), MAX_TOURS));
         };
     }
 
     @Bean
-    @Description("Lấy thông tin chi tiết của một tour du lịch cụ thể bằng ID.")
-    public java.util.function.Function<TourDetailRequest, TourResponse> getTourDetailsTool() {
+    @Description("Lấy thông tin chi tiết của một tour du lịch cụ thể bằng ID: mô tả, lịch trình theo ngày và các chuyến sắp khởi hành.")
+    public java.util.function.Function<TourDetailRequest, AiTourDetailResponse> getTourDetailsTool() {
         return request -> {
             log.info("AI calling getTourDetailsTool with ID: {}", request.id());
-            return tourService.getTourById(request.id());
+            return aiToolCache.get("tourDetails:" + request.id(),
+                    () -> toAiTourDetail(tourService.getTourById(request.id())));
         };
     }
 
     @Bean
-    @Description("Lấy danh sách tất cả các địa điểm du lịch khả dụng.")
+    @Description("Lấy danh sách các địa điểm du lịch khả dụng (tối đa 50).")
     public java.util.function.Function<LocationRequest, List<LocationResponse>> listLocationsTool() {
         return request -> {
             log.info("AI calling listLocationsTool");
-            return locationService.getAllLocations();
+            return aiToolCache.get("locations",
+                    () -> limit(locationService.getAllLocations(), MAX_LOCATIONS));
         };
     }
 
     @Bean
-    @Description("Lấy danh sách các địa điểm du lịch tại một thành phố cụ thể.")
+    @Description("Lấy danh sách các địa điểm du lịch tại một thành phố cụ thể (tối đa 50).")
     public java.util.function.Function<CityRequest, List<LocationResponse>> getLocationsByCityTool() {
         return request -> {
             log.info("AI calling getLocationsByCityTool for city: {}", request.cityName());
-            return locationService.getLocationsByCity(request.cityName());
+            String city = request.cityName() != null ? request.cityName().trim().toLowerCase(Locale.ROOT) : "";
+            return aiToolCache.get("locationsByCity:" + city,
+                    () -> limit(locationService.getLocationsByCity(request.cityName()), MAX_LOCATIONS));
         };
     }
 
     @Bean
-    @Description("Lấy các đánh giá của người dùng về một tour du lịch cụ thể bằng ID.")
+    @Description("Lấy các đánh giá mới nhất của người dùng (tối đa 10) về một tour du lịch cụ thể bằng ID.")
     public java.util.function.Function<TourDetailRequest, List<ReviewResponse>> getTourReviewsTool() {
         return request -> {
             log.info("AI calling getTourReviewsTool for tour ID: {}", request.id());
-            return reviewService.getReviewsByTour(request.id());
+            return aiToolCache.get("tourReviews:" + request.id(),
+                    () -> limit(reviewService.getReviewsByTour(request.id()), MAX_REVIEWS));
         };
     }
+
+    private List<AiTourResponse> toAiTours(List<TourSummaryResponse> tours, int max) {
+        return tours.stream()
+                .limit(max)
+                .map(t -> AiTourResponse.builder()
+                        .id(t.getId())
+                        .name(t.getName())
+                        .price(t.getPrice())
+                        .numberOfDays(t.getNumberOfDays())
+                        .vehicle(t.getVehicle())
+                        .cities(t.getCities())
+                        .averageRating(t.getAverageRating())
+                        .reviewCount(t.getReviewCount())
+                        .build())
+                .toList();
+    }
+
+    private AiTourDetailResponse toAiTourDetail(TourResponse tour) {
+        List<AiTourDetailResponse.Stop> itinerary = tour.getPoints() == null ? List.of()
+                : tour.getPoints().stream()
+                        .limit(MAX_ITINERARY_STOPS)
+                        .map(p -> AiTourDetailResponse.Stop.builder()
+                                .dayNumber(p.getDayNumber())
+                                .startTime(p.getStartTime())
+                                .locationName(p.getLocationName())
+                                .cityName(p.getCityName())
+                                .activity(p.getActivity())
+                                .build())
+                        .toList();
+
+        LocalDateTime now = LocalDateTime.now();
+        List<AiTourDetailResponse.UpcomingTrip> upcomingTrips = tour.getTrips() == null ? List.of()
+                : tour.getTrips().stream()
+                        .filter(trip -> Boolean.TRUE.equals(trip.getIsActive())
+                                && trip.getStartDate() != null && trip.getStartDate().isAfter(now))
+                        .sorted(Comparator.comparing(trip -> trip.getStartDate()))
+                        .limit(MAX_UPCOMING_TRIPS)
+                        .map(trip -> AiTourDetailResponse.UpcomingTrip.builder()
+                                .id(trip.getId())
+                                .startDate(trip.getStartDate())
+                                .availableSlots(trip.getAvailableSlots())
+                                .build())
+                        .toList();
+
+        String description = tour.getDescription();
+        if (description != null && description.length() > MAX_DESCRIPTION_CHARS) {
+            description = description.substring(0, MAX_DESCRIPTION_CHARS) + "...";
+        }
+
+        return AiTourDetailResponse.builder()
+                .id(tour.getId())
+                .name(tour.getName())
+                .description(description)
+                .price(tour.getPrice())
+                .numberOfDays(tour.getNumberOfDays())
+                .vehicle(tour.getVehicle())
+                .status(tour.getStatus())
+                .cities(tour.getCities())
+                .averageRating(tour.getAverageRating())
+                .reviewCount(tour.getReviewCount())
+                .itinerary(itinerary)
+                .upcomingTrips(upcomingTrips)
+                .build();
+    }
+
+    private <T> List<T> limit(List<T> items, int max) {
+        return items.size() <= max ? items : List.copyOf(items.subList(0, max));
+    }
 }
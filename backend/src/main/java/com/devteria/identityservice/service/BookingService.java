@@ -31,6 +31,7 @@ import com.devteria.identityservice.entity.Trip;
 import com.devteria.identityservice.entity.User;
 import com.devteria.identityservice.enums.BookingStatus;
 import com.devteria.identityservice.enums.NotificationType;
+import com.devteria.identityservice.enums.OutboxChannel;
 import com.devteria.identityservice.enums.PaymentStatus;
 import com.devteria.identityservice.exception.AppException;
 import com.devteria.identityservice.exception.ErrorCode;
@@ -39,6 +40,7 @@ import com.devteria.identityservice.repository.ReviewRepository;
 import com.devteria.identityservice.repository.TourRepository;
 import com.devteria.identityservice.repository.TripRepository;
 import com.devteria.identityservice.repository.UserRepository;
+import com.devteria.identityservice.util.FieldSelection;
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.client.j2se.MatrixToImageWriter;
 import com.google.zxing.common.BitMatrix;
@@ -66,7 +68,7 @@ public class BookingService {
     UserRepository userRepository;
     S3Client s3Client;
     NotificationService notificationService;
-    EmailVerify emailVerify;
+    NotificationOutboxService outboxService;
 
     @NonFinal
     @Value("${aws.s3.bucket-name}")
@@ -161,23 +163,19 @@ public class BookingService {
         log.info("Booking created: {} for trip: {} (tour: {}) by user: {}",
                 bookingCode, trip.getId(), tour.getName(), username);
 
-        // Gửi notification cho Agent owner của tour
-        try {
-            User agent = tour.getCreatedBy();
-            String userName = user.getFirstName() != null
-                    ? user.getFirstName() + " " + user.getLastName()
-                    : user.getUsername();
-            notificationService.createNotification(
-                    agent,
-                    NotificationType.NEW_BOOKING,
-                    "Đặt tour mới!",
-                    String.format("%s vừa đặt tour %s với %d người", userName, tour.getName(), numberOfParticipants),
-                    tour.getId(), // Gửi tourId để agent có thể navigate đến trang quản lý chuyến
-                    "TOUR");
-        } catch (Exception e) {
-            log.error("Failed to send notification for booking: {}", bookingCode, e);
-            // Don't fail the booking if notification fails
-        }
+        // Gửi notification cho Agent owner của tour.
+        // Chỉ ghi DB + outbox trong cùng transaction: lỗi ở đây đã đánh dấu rollback-only nên không catch
+        User agent = tour.getCreatedBy();
+        String userName = user.getFirstName() != null
+                ? user.getFirstName() + " " + user.getLastName()
+                : user.getUsername();
+        notificationService.createNotification(
+                agent,
+                NotificationType.NEW_BOOKING,
+                "Đặt tour mới!",
+                String.format("%s vừa đặt tour %s với %d người", userName, tour.getName(), numberOfParticipants),
+                tour.getId(), // Gửi tourId để agent có thể navigate đến trang quản lý chuyến
+                "TOUR");
 
         return mapToResponse(booking);
     }
@@ -186,13 +184,15 @@ public class BookingService {
      * Get bookings for current user - OPTIMIZED to avoid N+1
      */
     @Transactional(readOnly = true)
-    public List<BookingResponse> getMyBookings() {
+    public List<BookingResponse> getMyBookings(FieldSelection fields) {
         String username = SecurityContextHolder.getContext().getAuthentication().getName();
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new AppException(ErrorCode.USER_NOT_EXISTED));
 
-        // Use optimized query with JOIN FETCH
-        List<Booking> bookings = bookingRepository.findByUserWithDetailsOrderByCreatedAtDesc(user);
+        // Use optimized query with JOIN FETCH; chỉ fetch participants khi được yêu cầu
+        List<Booking> bookings = fields.includesAny("participantNames", "numberOfParticipants")
+                ? bookingRepository.findByUserWithDetailsOrderByCreatedAtDesc(user)
+                : bookingRepository.findByUserWithTourAndTripOrderByCreatedAtDesc(user);
 
         if (bookings.isEmpty()) {
             return List.of();
@@ -203,12 +203,14 @@ public class BookingService {
                 .map(Booking::getId)
                 .collect(Collectors.toList());
 
-        Set<Long> bookingsWithReviews = new HashSet<>(
-                reviewRepository.findBookingIdsWithReviews(bookingIds));
+        Set<Long> bookingsWithReviews = fields.includes("hasReview")
+                ? new HashSet<>(reviewRepository.findBookingIdsWithReviews(bookingIds))
+                : Set.of();
 
         // Map to response with pre-loaded review status
         return bookings.stream()
-                .map(booking -> mapToResponseWithReviewStatus(booking, bookingsWithReviews.contains(booking.getId())))
+                .map(booking -> mapToResponseWithReviewStatus(booking,
+                        bookingsWithReviews.contains(booking.getId()), fields))
                 .collect(Collectors.toList());
     }
 
@@ -216,7 +218,7 @@ public class BookingService {
      * Get bookings for a tour (for agent/owner)
      */
     @Transactional(readOnly = true)
-    public List<BookingResponse> getBookingsForTour(Long tourId) {
+    public List<BookingResponse> getBookingsForTour(Long tourId, FieldSelection fields) {
         String username = SecurityContextHolder.getContext().getAuthentication().getName();
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new AppException(ErrorCode.USER_NOT_EXISTED));
@@ -231,7 +233,7 @@ public class BookingService {
 
         return bookingRepository.findByTourOrderByCreatedAtDesc(tour)
                 .stream()
-                .map(this::mapToResponse)
+                .map(booking -> mapToResponse(booking, fields))
                 .collect(Collectors.toList());
     }
 
@@ -239,7 +241,7 @@ public class BookingService {
      * Get bookings for a trip (for agent/owner)
      */
     @Transactional(readOnly = true)
-    public List<BookingResponse> getBookingsForTrip(Long tripId) {
+    public List<BookingResponse> getBookingsForTrip(Long tripId, FieldSelection fields) {
         String username = SecurityContextHolder.getContext().getAuthentication().getName();
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new AppException(ErrorCode.USER_NOT_EXISTED));
@@ -256,7 +258,7 @@ public class BookingService {
 
         return bookingRepository.findByTripOrderByCreatedAtDesc(trip)
                 .stream()
-                .map(this::mapToResponse)
+                .map(booking -> mapToResponse(booking, fields))
                 .collect(Collectors.toList());
     }
 
@@ -337,27 +339,27 @@ public class BookingService {
         // Tạo DTO với dữ liệu đã load sẵn trước khi gọi async method
         // Điều này tránh LazyInitializationException khi async thread truy cập entity
         // sau khi session đóng
-        try {
-            User bookingUser = booking.getUser();
-            String fullName = (bookingUser.getFirstName() != null ? bookingUser.getFirstName() : "") + " " +
-                    (bookingUser.getLastName() != null ? bookingUser.getLastName() : "");
-            if (fullName.trim().isEmpty())
-                fullName = bookingUser.getUsername();
-
-            BookingEmailRequest emailRequest = BookingEmailRequest.builder()
-                    .recipientEmail(bookingUser.getEmail())
-                    .recipientName(fullName)
-                    .bookingCode(booking.getBookingCode())
-                    .tourName(booking.getTour().getName())
-                    .totalPrice(booking.getTotalPrice())
-                    .startDate(booking.getTrip().getStartDate().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")))
-                    .numberOfParticipants(booking.getParticipants().size())
-                    .qrCodeUrl(booking.getQrCodeUrl())
-                    .build();
+        User bookingUser = booking.getUser();
+        String fullName = (bookingUser.getFirstName() != null ? bookingUser.getFirstName() : "") + " " +
+                (bookingUser.getLastName() != null ? bookingUser.getLastName() : "");
+        if (fullName.trim().isEmpty())
+            fullName = bookingUser.getUsername();
+
+        BookingEmailRequest emailRequest = BookingEmailRequest.builder()
+                .recipientEmail(bookingUser.getEmail())
+                .recipientName(fullName)
+                .bookingCode(booking.getBookingCode())
+                .tourName(booking.getTour().getName())
+                .totalPrice(booking.getTotalPrice())
+                .startDate(booking.getTrip().getStartDate().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")))
+                .numberOfParticipants(booking.getParticipants().size())
+                .qrCodeUrl(booking.getQrCodeUrl())
+                .build();
 
-            emailVerify.sendBookingSuccessEmail(emailRequest);
-        } catch (Exception e) {
-            log.error("Failed to send booking success email for booking: {}", booking.getBookingCode(), e);
+        // Email được gửi qua outbox sau khi commit, rollback thì không gửi.
+        // Không catch: outbox lỗi thì transaction đã rollback-only, để lỗi đi lên thay vì UnexpectedRollbackException
+        if (bookingUser.getEmail() != null) {
+            outboxService.enqueue(OutboxChannel.BOOKING_EMAIL, bookingUser.getEmail(), emailRequest);
         }
 
         return mapToResponse(booking);
@@ -422,20 +424,16 @@ public class BookingService {
         log.info("Check-in completed successfully for booking: {} - User: {}, Tour: {}",
                 bookingCode, booking.getUser().getUsername(), booking.getTour().getName());
 
-        // Gửi thông báo cho khách hàng về check-in thành công
-        try {
-            User customer = booking.getUser();
-            Tour tour = booking.getTour();
-            notificationService.createNotification(
-                    customer,
-                    NotificationType.CHECKIN_CONFIRMED,
-                    "Check-in thành công!",
-                    String.format("Bạn đã check-in tour %s thành công. Chúc bạn có chuyến đi vui vẻ!", tour.getName()),
-                    booking.getId(),
-                    "BOOKING");
-        } catch (Exception e) {
-            log.error("Failed to send check-in notification for booking: {}", bookingCode, e);
-        }
+        // Gửi thông báo cho khách hàng về check-in thành công (qua outbox, cùng transaction)
+        User customer = booking.getUser();
+        Tour tour = booking.getTour();
+        notificationService.createNotification(
+                customer,
+                NotificationType.CHECKIN_CONFIRMED,
+                "Check-in thành công!",
+                String.format("Bạn đã check-in tour %s thành công. Chúc bạn có chuyến đi vui vẻ!", tour.getName()),
+                booking.getId(),
+                "BOOKING");
 
         return mapToResponse(booking);
     }
@@ -559,21 +557,31 @@ public class BookingService {
      * Map Booking entity to BookingResponse
      */
     private BookingResponse mapToResponse(Booking booking) {
-        return mapToResponseWithReviewStatus(booking, reviewRepository.existsByBookingId(booking.getId()));
+        return mapToResponse(booking, FieldSelection.ALL);
+    }
+
+    private BookingResponse mapToResponse(Booking booking, FieldSelection fields) {
+        boolean hasReview = fields.includes("hasReview") && reviewRepository.existsByBookingId(booking.getId());
+        return mapToResponseWithReviewStatus(booking, hasReview, fields);
     }
 
     /**
      * Map Booking entity to BookingResponse with pre-loaded review status (avoids
      * N+1)
      */
-    private BookingResponse mapToResponseWithReviewStatus(Booking booking, boolean hasReview) {
+    private BookingResponse mapToResponseWithReviewStatus(Booking booking, boolean hasReview,
+            FieldSelection fields) {
         Tour tour = booking.getTour();
         Trip trip = booking.getTrip();
         User user = booking.getUser();
 
-        List<String> participantNames = booking.getParticipants().stream()
-                .map(Participant::getFullName)
-                .collect(Collectors.toList());
+        // Participants là collection lazy, chỉ load khi client cần
+        boolean withParticipants = fields.includesAny("participantNames", "numberOfParticipants");
+        List<String> participantNames = withParticipants
+                ? booking.getParticipants().stream()
+                        .map(Participant::getFullName)
+                        .collect(Collectors.toList())
+                : null;
 
         return BookingResponse.builder()
                 .id(booking.getId())
@@ -590,14 +598,14 @@ public class BookingService {
                         : user.getUsername())
                 .userEmail(user.getEmail())
                 .participantNames(participantNames)
-                .numberOfParticipants(participantNames.size())
+                .numberOfParticipants(participantNames != null ? participantNames.size() : null)
                 .status(booking.getStatus().name())
                 .paymentStatus(booking.getPaymentStatus().name())
                 .totalPrice(booking.getTotalPrice())
                 .contactPhone(booking.getContactPhone())
                 .note(booking.getNote())
                 .qrCodeUrl(booking.getQrCodeUrl())
-                .hasReview(hasReview)
+                .hasReview(fields.includes("hasReview") ? hasReview : null)
                 .createdAt(booking.getCreatedAt())
                 .build();
     }
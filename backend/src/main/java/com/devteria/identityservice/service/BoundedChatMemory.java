@@ -0,0 +1,192 @@
+package com.devteria.identityservice.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.devteria.identityservice.entity.ChatMemoryEntry;
+import com.devteria.identityservice.repository.ChatMemoryEntryRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bộ nhớ hội thoại của AI chatbot, tách theo conversation id (user + phiên chat).
+ * Mỗi hội thoại chỉ giữ cửa sổ trượt các tin nhắn gần nhất trong ngân sách token ước lượng;
+ * hội thoại không hoạt động quá idle-minutes hoặc vượt max-sessions bị đẩy khỏi heap.
+ * Khi bật persist, tin nhắn được ghi nền vào bảng ai_chat_memory và nạp lại khi hội thoại quay lại.
+ */
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class BoundedChatMemory implements ChatMemory {
+
+    private static final int CHARS_PER_TOKEN = 3; // Ước lượng thận trọng cho tiếng Việt
+    private static final int TOKENS_PER_MESSAGE = 4; // Overhead role/phân tách của mỗi tin nhắn
+
+    ChatMemoryEntryRepository chatMemoryEntryRepository;
+    Executor chatMemoryPersistExecutor;
+    Cache<String, Window> windows;
+    int maxTokens;
+    int maxMessages;
+    boolean persist;
+    int retentionDays;
+
+    // Các tin nhắn gần nhất của một hội thoại và tổng token ước lượng của chúng
+    private static final class Window {
+        final Deque<Message> messages = new ArrayDeque<>();
+        int tokens;
+    }
+
+    public BoundedChatMemory(
+            ChatMemoryEntryRepository chatMemoryEntryRepository,
+            @Qualifier("chatMemoryPersistExecutor") Executor chatMemoryPersistExecutor,
+            @Value("${ai.chat.memory.max-tokens:2000}") int maxTokens,
+            @Value("${ai.chat.memory.max-messages:20}") int maxMessages,
+            @Value("${ai.chat.memory.idle-minutes:30}") long idleMinutes,
+            @Value("${ai.chat.memory.max-sessions:10000}") long maxSessions,
+            @Value("${ai.chat.memory.persist:false}") boolean persist,
+            @Value("${ai.chat.memory.retention-days:7}") int retentionDays) {
+        this.chatMemoryEntryRepository = chatMemoryEntryRepository;
+        this.chatMemoryPersistExecutor = chatMemoryPersistExecutor;
+        this.maxTokens = maxTokens;
+        this.maxMessages = maxMessages;
+        this.persist = persist;
+        this.retentionDays = retentionDays;
+        this.windows = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofMinutes(idleMinutes))
+                .maximumSize(maxSessions)
+                .build();
+    }
+
+    @Override
+    public void add(String conversationId, List<Message> messages) {
+        List<ChatMemoryEntry> entries = new ArrayList<>();
+        Window window = windows.get(conversationId, this::load);
+        synchronized (window) {
+            for (Message message : messages) {
+                // Chỉ giữ lời người dùng và câu trả lời; kết quả tool đã nằm trong câu trả lời
+                if (!isConversational(message)) {
+                    continue;
+                }
+                append(window, message);
+                if (persist) {
+                    entries.add(ChatMemoryEntry.builder()
+                            .conversationId(conversationId)
+                            .messageType(message.getMessageType().name())
+                            .content(message.getContent())
+                            .build());
+                }
+            }
+        }
+        if (!entries.isEmpty()) {
+            persistAsync(entries);
+        }
+    }
+
+    @Override
+    public List<Message> get(String conversationId, int lastN) {
+        Window window = windows.get(conversationId, this::load);
+        synchronized (window) {
+            List<Message> all = new ArrayList<>(window.messages);
+            int from = Math.max(0, all.size() - Math.max(0, lastN));
+            return Collections.unmodifiableList(all.subList(from, all.size()));
+        }
+    }
+
+    @Override
+    public void clear(String conversationId) {
+        windows.invalidate(conversationId);
+        if (persist) {
+            chatMemoryEntryRepository.deleteByConversationId(conversationId);
+        }
+    }
+
+    private boolean isConversational(Message message) {
+        MessageType type = message.getMessageType();
+        return (type == MessageType.USER || type == MessageType.ASSISTANT)
+                && message.getContent() != null && !message.getContent().isBlank();
+    }
+
+    // Thêm vào cuối rồi bỏ tin cũ nhất cho tới khi nằm trong ngân sách (luôn giữ tin mới nhất)
+    private void append(Window window, Message message) {
+        window.messages.addLast(message);
+        window.tokens += estimateTokens(message);
+        while (window.messages.size() > 1
+                && (window.tokens > maxTokens || window.messages.size() > maxMessages)) {
+            window.tokens -= estimateTokens(window.messages.removeFirst());
+        }
+    }
+
+    private int estimateTokens(Message message) {
+        return TOKENS_PER_MESSAGE + message.getContent().length() / CHARS_PER_TOKEN;
+    }
+
+    private Window load(String conversationId) {
+        Window window = new Window();
+        if (!persist) {
+            return window;
+        }
+        try {
+            List<ChatMemoryEntry> latest = new ArrayList<>(chatMemoryEntryRepository
+                    .findByConversationIdOrderByIdDesc(conversationId, PageRequest.of(0, maxMessages)));
+            Collections.reverse(latest);
+            for (ChatMemoryEntry entry : latest) {
+                append(window, MessageType.USER.name().equals(entry.getMessageType())
+                        ? new UserMessage(entry.getContent())
+                        : new AssistantMessage(entry.getContent()));
+            }
+        } catch (Exception e) {
+            log.warn("Cannot restore chat memory for {}: {}", conversationId, e.getMessage());
+        }
+        return window;
+    }
+
+    private void persistAsync(List<ChatMemoryEntry> entries) {
+        try {
+            chatMemoryPersistExecutor.execute(() -> {
+                try {
+                    chatMemoryEntryRepository.saveAll(entries);
+                } catch (Exception e) {
+                    log.warn("Failed to persist {} chat memory messages: {}", entries.size(), e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("Chat memory persist queue full, dropping {} messages", entries.size());
+        }
+    }
+
+    /**
+     * Xóa lịch sử đã lưu quá retention-days ngày
+     */
+    @Scheduled(cron = "0 15 4 * * *")
+    public void purgeExpired() {
+        if (!persist) {
+            return;
+        }
+        int deleted = chatMemoryEntryRepository.deleteByCreatedAtBefore(LocalDateTime.now().minusDays(retentionDays));
+        if (deleted > 0) {
+            log.info("Purged {} chat memory messages", deleted);
+        }
+    }
+}
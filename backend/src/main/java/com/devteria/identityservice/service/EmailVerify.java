@@ -158,35 +158,42 @@ public class EmailVerify {
     @Async("emailTaskExecutor")
     public void sendBookingSuccessEmail(BookingEmailRequest emailRequest) {
         try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(
-                    message,
-                    MimeMessageHelper.MULTIPART_MODE_MIXED_RELATED,
-                    StandardCharsets.UTF_8.name());
-
-            Context context = new Context();
-            context.setVariable("name", emailRequest.getRecipientName());
-            context.setVariable("bookingCode", emailRequest.getBookingCode());
-            context.setVariable("tourName", emailRequest.getTourName());
-            context.setVariable("totalPrice", emailRequest.getTotalPrice());
-            context.setVariable("startDate", emailRequest.getStartDate());
-            context.setVariable("participants", emailRequest.getNumberOfParticipants());
-            context.setVariable("qrCodeUrl", emailRequest.getQrCodeUrl());
-
-            String htmlContent = templateEngine.process("booking_success", context);
-
-            helper.setTo(emailRequest.getRecipientEmail());
-            helper.setFrom(fromEmail);
-            helper.setSubject("Xác nhận đặt tour thành công - " + emailRequest.getBookingCode());
-            helper.setText(htmlContent, true);
-
-            mailSender.send(message);
-            log.info("Booking success email sent successfully to: {}", emailRequest.getRecipientEmail());
-
+            deliverBookingSuccessEmail(emailRequest);
         } catch (MessagingException e) {
             log.error("Failed to send booking success email to: {}", emailRequest.getRecipientEmail(), e);
         } catch (Exception e) {
             log.error("Unexpected error while sending booking success email to: {}", emailRequest.getRecipientEmail(), e);
         }
     }
+
+    /**
+     * Gửi email đặt tour thành công một cách đồng bộ, ném exception nếu lỗi
+     * Được NotificationOutboxDispatcher dùng để có thể retry
+     */
+    public void deliverBookingSuccessEmail(BookingEmailRequest emailRequest) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(
+                message,
+                MimeMessageHelper.MULTIPART_MODE_MIXED_RELATED,
+                StandardCharsets.UTF_8.name());
+
+        Context context = new Context();
+        context.setVariable("name", emailRequest.getRecipientName());
+        context.setVariable("bookingCode", emailRequest.getBookingCode());
+        context.setVariable("tourName", emailRequest.getTourName());
+        context.setVariable("totalPrice", emailRequest.getTotalPrice());
+        context.setVariable("startDate", emailRequest.getStartDate());
+        context.setVariable("participants", emailRequest.getNumberOfParticipants());
+        context.setVariable("qrCodeUrl", emailRequest.getQrCodeUrl());
+
+        String htmlContent = templateEngine.process("booking_success", context);
+
+        helper.setTo(emailRequest.getRecipientEmail());
+        helper.setFrom(fromEmail);
+        helper.setSubject("Xác nhận đặt tour thành công - " + emailRequest.getBookingCode());
+        helper.setText(htmlContent, true);
+
+        mailSender.send(message);
+        log.info("Booking success email sent successfully to: {}", emailRequest.getRecipientEmail());
+    }
 }
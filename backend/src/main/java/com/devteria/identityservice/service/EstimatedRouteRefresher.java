@@ -0,0 +1,186 @@
+package com.devteria.identityservice.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.devteria.identityservice.dto.response.VietmapRouteResponse;
+import com.devteria.identityservice.entity.Tour;
+import com.devteria.identityservice.entity.TourDayRoute;
+import com.devteria.identityservice.repository.TourDayRouteRepository;
+import com.devteria.identityservice.repository.TourRepository;
+import com.devteria.identityservice.util.PolylineCodec;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Tính lại các lộ trình đã lưu dưới dạng ước lượng đường chim bay (Vietmap lỗi lúc tạo tour).
+ * Chỉ chạy khi circuit của Route API không mở. Polyline ước lượng đi qua đúng các điểm theo thứ tự đã chọn
+ * (kể cả thứ tự TSP), nên chỉ cần gọi lại Route API với các đỉnh của nó.
+ * Dòng tính lại thất bại khi Route API vẫn hoạt động được bỏ qua, ghi số lần thử và lùi lượt sau theo cấp số nhân;
+ * quá MAX_ATTEMPTS lần thì giữ nguyên ước lượng, không thử nữa.
+ */
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class EstimatedRouteRefresher {
+    static final int BATCH_SIZE = 20;
+    static final int MAX_ATTEMPTS = 6;
+    static final Duration BASE_BACKOFF = Duration.ofMinutes(10);
+
+    VietmapService vietmapService;
+    VietmapClient vietmapClient;
+    TourRepository tourRepository;
+    TourDayRouteRepository tourDayRouteRepository;
+    AiToolCache aiToolCache;
+    ObjectMapper objectMapper;
+    TransactionTemplate writeTransaction;
+
+    public EstimatedRouteRefresher(
+            VietmapService vietmapService,
+            VietmapClient vietmapClient,
+            TourRepository tourRepository,
+            TourDayRouteRepository tourDayRouteRepository,
+            AiToolCache aiToolCache,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager) {
+        this.vietmapService = vietmapService;
+        this.vietmapClient = vietmapClient;
+        this.tourRepository = tourRepository;
+        this.tourDayRouteRepository = tourDayRouteRepository;
+        this.aiToolCache = aiToolCache;
+        this.objectMapper = objectMapper;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(fixedDelayString = "${vietmap.route-refresh.interval-ms:300000}")
+    public void refreshEstimatedRoutes() {
+        if (!vietmapClient.isAvailable(VietmapClient.Endpoint.ROUTE)) {
+            return;
+        }
+        try {
+            int tours = refreshTours();
+            int days = refreshDayRoutes();
+            if (tours > 0) {
+                aiToolCache.invalidateAfterCommit(); // Khoảng cách/thời gian tour trong kết quả tool đã đổi
+            }
+            if (tours + days > 0) {
+                log.info("Replaced {} estimated tour routes and {} estimated day routes", tours, days);
+            }
+        } catch (Exception e) {
+            log.warn("Estimated route refresh failed: {}", e.getMessage());
+        }
+    }
+
+    private int refreshTours() {
+        int refreshed = 0;
+        List<Tour> tours = tourRepository.findEstimatedDue(
+                MAX_ATTEMPTS, LocalDateTime.now(), PageRequest.of(0, BATCH_SIZE));
+        for (Tour tour : tours) {
+            VietmapRouteResponse.RoutePath path = reroute(tour.getRoutePolyline(), tour.getVehicle());
+            if (path == null) {
+                if (!vietmapClient.isAvailable(VietmapClient.Endpoint.ROUTE)) {
+                    return refreshed; // Vietmap lỗi lại, đợi lượt sau
+                }
+                int attempts = nextAttempt(tour.getRouteRefreshAttempts(), "tour " + tour.getId());
+                writeTransaction.executeWithoutResult(status -> tourRepository.findById(tour.getId()).ifPresent(t -> {
+                    t.setRouteRefreshAttempts(attempts);
+                    t.setRouteRefreshAfter(backoffUntil(attempts));
+                }));
+                continue;
+            }
+            String instructions = toJson(path.getInstructions());
+            writeTransaction.executeWithoutResult(status -> tourRepository.findById(tour.getId()).ifPresent(t -> {
+                t.setTotalDistance(path.getDistance());
+                t.setTotalTime(path.getTime());
+                t.setRoutePolyline(path.getPoints());
+                t.setRouteInstructions(instructions);
+                t.setRouteEstimated(false);
+            }));
+            refreshed++;
+        }
+        return refreshed;
+    }
+
+    private int refreshDayRoutes() {
+        int refreshed = 0;
+        List<TourDayRoute> routes = tourDayRouteRepository.findEstimatedDue(
+                MAX_ATTEMPTS, LocalDateTime.now(), PageRequest.of(0, BATCH_SIZE));
+        for (TourDayRoute route : routes) {
+            VietmapRouteResponse.RoutePath path = reroute(route.getRoutePolyline(), route.getTour().getVehicle());
+            if (path == null) {
+                if (!vietmapClient.isAvailable(VietmapClient.Endpoint.ROUTE)) {
+                    return refreshed;
+                }
+                int attempts = nextAttempt(route.getRouteRefreshAttempts(), "day route " + route.getId());
+                writeTransaction.executeWithoutResult(status -> tourDayRouteRepository.findById(route.getId())
+                        .ifPresent(r -> {
+                            r.setRouteRefreshAttempts(attempts);
+                            r.setRouteRefreshAfter(backoffUntil(attempts));
+                        }));
+                continue;
+            }
+            writeTransaction.executeWithoutResult(status -> tourDayRouteRepository.findById(route.getId())
+                    .ifPresent(r -> {
+                        r.setTotalDistance(path.getDistance());
+                        r.setTotalTime(path.getTime());
+                        r.setRoutePolyline(path.getPoints());
+                        r.setRouteEstimated(false);
+                    }));
+            refreshed++;
+        }
+        return refreshed;
+    }
+
+    private int nextAttempt(Integer attempts, String row) {
+        int next = attempts != null ? attempts + 1 : 1;
+        if (next >= MAX_ATTEMPTS) {
+            log.warn("Giving up refreshing estimated route of {} after {} attempts", row, next);
+        }
+        return next;
+    }
+
+    // 10 phút, 20 phút, 40 phút... sau mỗi lần thất bại
+    private LocalDateTime backoffUntil(int attempts) {
+        return LocalDateTime.now().plus(BASE_BACKOFF.multipliedBy(1L << (attempts - 1)));
+    }
+
+    // null nếu Route API vẫn chỉ trả được ước lượng
+    private VietmapRouteResponse.RoutePath reroute(String estimatedPolyline, String vehicle) {
+        List<String> points = PolylineCodec.decode(estimatedPolyline).stream()
+                .map(point -> point[0] + "," + point[1])
+                .collect(Collectors.toList());
+        if (points.size() < 2) {
+            return null;
+        }
+        VietmapRouteResponse response = vietmapService.getRoute(points, vehicle);
+        if (TourDayRouteService.isEstimate(response) || response == null
+                || response.getPaths() == null || response.getPaths().isEmpty()) {
+            return null;
+        }
+        return response.getPaths().get(0);
+    }
+
+    private String toJson(Object instructions) {
+        if (instructions == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(instructions);
+        } catch (JsonProcessingException e) {
+            log.warn("Failed to serialize instructions", e);
+            return null;
+        }
+    }
+}
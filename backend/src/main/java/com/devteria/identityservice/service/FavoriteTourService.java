@@ -1,26 +1,26 @@
 package com.devteria.identityservice.service;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import com.devteria.identityservice.dto.response.TourResponse;
+import com.devteria.identityservice.dto.projection.TourSummaryView;
+import com.devteria.identityservice.dto.response.TourSummaryResponse;
 import com.devteria.identityservice.entity.FavoriteTour;
-import com.devteria.identityservice.entity.Location;
 import com.devteria.identityservice.entity.Tour;
 import com.devteria.identityservice.entity.User;
 import com.devteria.identityservice.exception.AppException;
 import com.devteria.identityservice.exception.ErrorCode;
 import com.devteria.identityservice.repository.FavoriteTourRepository;
-import com.devteria.identityservice.repository.ReviewRepository;
 import com.devteria.identityservice.repository.TourRepository;
 import com.devteria.identityservice.repository.UserRepository;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.devteria.identityservice.util.FieldSelection;
 
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
@@ -35,8 +35,7 @@ public class FavoriteTourService {
     FavoriteTourRepository favoriteTourRepository;
     TourRepository tourRepository;
     UserRepository userRepository;
-    ReviewRepository reviewRepository;
-    ObjectMapper objectMapper;
+    TourService tourService;
 
     private User getCurrentUser() {
         var context = SecurityContextHolder.getContext();
@@ -76,13 +75,22 @@ public class FavoriteTourService {
         log.info("Removed tour {} from favorites for user {}", tourId, user.getUsername());
     }
 
-    public List<TourResponse> getMyFavorites() {
+    @Transactional(readOnly = true)
+    public List<TourSummaryResponse> getMyFavorites(FieldSelection fields) {
         User user = getCurrentUser();
-        List<FavoriteTour> favorites = favoriteTourRepository.findByUserWithTour(user);
-        
-        return favorites.stream()
-                .map(fav -> mapToResponse(fav.getTour()))
+        List<Long> tourIds = favoriteTourRepository.findTourIdsByUserOrderByCreatedAtDesc(user);
+        if (tourIds.isEmpty()) {
+            return List.of();
+        }
+
+        // Giữ thứ tự yêu thích mới nhất trước
+        Map<Long, TourSummaryView> byId = tourRepository.findSummariesByIdIn(tourIds).stream()
+                .collect(Collectors.toMap(TourSummaryView::getId, Function.identity()));
+        List<TourSummaryView> ordered = tourIds.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
+        return tourService.toSummaryResponses(ordered, fields);
     }
 
     public boolean isFavorite(Long tourId) {
@@ -97,71 +105,4 @@ public class FavoriteTourService {
         User user = getCurrentUser();
         return favoriteTourRepository.findTourIdsByUser(user);
     }
-
-    private TourResponse mapToResponse(Tour tour) {
-        List<TourResponse.TourPointResponse> pointResponses = tour.getTourPoints() != null
-                ? tour.getTourPoints().stream()
-                        .map(point -> {
-                            Location loc = point.getLocation();
-                            return TourResponse.TourPointResponse.builder()
-                                    .id(point.getId())
-                                    .orderIndex(point.getOrderIndex())
-                                    .note(point.getNote())
-                                    .stayDurationMinutes(point.getStayDurationMinutes())
-                                    .dayNumber(point.getDayNumber())
-                                    .startTime(point.getStartTime())
-                                    .activity(point.getActivity())
-                                    .imageUrl(point.getImageUrl())
-                                    .locationId(loc != null ? loc.getId() : null)
-                                    .locationName(loc != null ? loc.getName() : null)
-                                    .locationAddress(loc != null ? loc.getAddress() : null)
-                                    .latitude(loc != null ? loc.getLatitude() : null)
-                                    .longitude(loc != null ? loc.getLongitude() : null)
-                                    .build();
-                        })
-                        .collect(Collectors.toList())
-                : List.of();
-
-        // Parse imageUrls from JSON
-        List<String> imageUrlsList = new ArrayList<>();
-        if (tour.getImageUrls() != null && !tour.getImageUrls().isEmpty()) {
-            try {
-                imageUrlsList = objectMapper.readValue(tour.getImageUrls(), 
-                    objectMapper.getTypeFactory().constructCollectionType(List.class, String.class));
-            } catch (JsonProcessingException e) {
-                log.warn("Failed to parse imageUrls", e);
-            }
-        }
-        // Fallback: if imageUrls is empty but imageUrl exists, add it
-        if (imageUrlsList.isEmpty() && tour.getImageUrl() != null) {
-            imageUrlsList.add(tour.getImageUrl());
-        }
-
-        return TourResponse.builder()
-                .id(tour.getId())
-                .name(tour.getName())
-                .description(tour.getDescription())
-                .price(tour.getPrice())
-                .numberOfDays(tour.getNumberOfDays())
-                .vehicle(tour.getVehicle())
-                .isOptimized(tour.getIsOptimized())
-                .totalDistance(tour.getTotalDistance())
-                .totalTime(tour.getTotalTime())
-                .routePolyline(tour.getRoutePolyline())
-                .imageUrl(tour.getImageUrl())
-                .imageUrls(imageUrlsList)
-                .points(pointResponses)
-                .createdByUsername(tour.getCreatedBy() != null ? tour.getCreatedBy().getUsername() : null)
-                .createdById(tour.getCreatedBy() != null ? tour.getCreatedBy().getId() : null)
-                .createdByAvatar(tour.getCreatedBy() != null ? tour.getCreatedBy().getAvatar() : null)
-                .createdByFirstName(tour.getCreatedBy() != null ? tour.getCreatedBy().getFirstName() : null)
-                .createdByLastName(tour.getCreatedBy() != null ? tour.getCreatedBy().getLastName() : null)
-                .createdAt(tour.getCreatedAt())
-                .isActive(tour.getIsActive())
-                .status(tour.getStatus() != null ? tour.getStatus().name() : null)
-                .rejectionReason(tour.getRejectionReason())
-                .averageRating(reviewRepository.findAverageRatingByTourId(tour.getId()))
-                .reviewCount(reviewRepository.countByTourId(tour.getId()))
-                .build();
-    }
 }
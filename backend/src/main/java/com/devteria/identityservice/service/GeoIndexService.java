@@ -0,0 +1,211 @@
+package com.devteria.identityservice.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.devteria.identityservice.entity.Location;
+import com.devteria.identityservice.entity.Tour;
+import com.devteria.identityservice.entity.TourPoint;
+import com.devteria.identityservice.enums.TourStatus;
+import com.devteria.identityservice.exception.AppException;
+import com.devteria.identityservice.exception.ErrorCode;
+import com.devteria.identityservice.repository.LocationRepository;
+import com.devteria.identityservice.repository.TourRepository;
+import com.devteria.identityservice.util.GeoGrid;
+import com.devteria.identityservice.util.PolylineCodec;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Index không gian in-memory (lưới 0.05° ≈ 5km):
+ * - Location: mỗi địa điểm 1 điểm
+ * - Tour đã duyệt và đang active: các điểm dừng + polyline lộ trình (lấy mẫu mỗi ~250m)
+ * Nạp toàn bộ ở lần truy vấn đầu tiên, sau đó cập nhật từng đối tượng sau khi transaction commit.
+ * Tham số truy vấn đến thẳng từ endpoint public nên được kiểm tra trước khi giữ read lock.
+ */
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class GeoIndexService {
+    static final double CELL_DEGREES = 0.05;
+    static final double POLYLINE_SAMPLE_METERS = 250;
+    static final double MAX_BOX_SPAN_DEGREES = 20; // Đủ cho viewport cả Việt Nam
+
+    LocationRepository locationRepository;
+    TourRepository tourRepository;
+
+    GeoGrid locations = new GeoGrid(CELL_DEGREES);
+    GeoGrid tours = new GeoGrid(CELL_DEGREES);
+    ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @NonFinal
+    volatile boolean loaded;
+
+    @Transactional(readOnly = true)
+    public List<GeoGrid.Hit> locationsWithinRadius(double lat, double lng, double radiusMeters) {
+        requireValidRadiusQuery(lat, lng, radiusMeters);
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return locations.withinRadius(lat, lng, radiusMeters);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public List<Long> locationsWithinBox(double minLat, double maxLat, double minLng, double maxLng) {
+        requireValidBox(minLat, maxLat, minLng, maxLng);
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return locations.withinBox(minLat, maxLat, minLng, maxLng);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Tour có điểm dừng hoặc lộ trình đi qua trong bán kính, gần nhất trước
+     */
+    @Transactional(readOnly = true)
+    public List<GeoGrid.Hit> toursWithinRadius(double lat, double lng, double radiusMeters) {
+        requireValidRadiusQuery(lat, lng, radiusMeters);
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return tours.withinRadius(lat, lng, radiusMeters);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void indexLocationAfterCommit(Location location) {
+        long id = location.getId();
+        double[][] points = {{location.getLatitude(), location.getLongitude()}};
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                locations.put(id, points);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Gọi sau mọi thay đổi trạng thái tour: tour đã duyệt và active thì index, ngược lại gỡ khỏi index
+     */
+    public void refreshTourAfterCommit(Tour tour) {
+        long id = tour.getId();
+        double[][] points = isSearchable(tour) ? tourPoints(tour) : new double[0][];
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                tours.put(id, points);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    private static void requireValidRadiusQuery(double lat, double lng, double radiusMeters) {
+        if (!Double.isFinite(lat) || !Double.isFinite(lng) || Math.abs(lat) > 90 || Math.abs(lng) > 180
+                || !Double.isFinite(radiusMeters) || radiusMeters < 0) {
+            throw new AppException(ErrorCode.INVALID_GEO_QUERY);
+        }
+    }
+
+    private static void requireValidBox(double minLat, double maxLat, double minLng, double maxLng) {
+        if (!Double.isFinite(minLat) || !Double.isFinite(maxLat) || !Double.isFinite(minLng)
+                || !Double.isFinite(maxLng) || minLat > maxLat || minLng > maxLng
+                || maxLat - minLat > MAX_BOX_SPAN_DEGREES || maxLng - minLng > MAX_BOX_SPAN_DEGREES) {
+            throw new AppException(ErrorCode.INVALID_GEO_QUERY);
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            List<Location> allLocations = locationRepository.findAll();
+            List<Tour> activeTours = tourRepository.findByIsActiveTrueOrderByCreatedAtDesc();
+            lock.writeLock().lock();
+            try {
+                allLocations.forEach(location -> locations.put(
+                        location.getId(), new double[][] {{location.getLatitude(), location.getLongitude()}}));
+                activeTours.stream()
+                        .filter(this::isSearchable)
+                        .forEach(tour -> tours.put(tour.getId(), tourPoints(tour)));
+            } finally {
+                lock.writeLock().unlock();
+            }
+            loaded = true;
+            log.info("Geo index loaded: {} locations, {} tours", locations.size(), tours.size());
+        }
+    }
+
+    private boolean isSearchable(Tour tour) {
+        return Boolean.TRUE.equals(tour.getIsActive()) && tour.getStatus() == TourStatus.APPROVED;
+    }
+
+    private double[][] tourPoints(Tour tour) {
+        List<double[]> points = new ArrayList<>();
+        if (tour.getTourPoints() != null) {
+            for (TourPoint point : tour.getTourPoints()) {
+                if (point.getLocation() != null) {
+                    points.add(new double[] {point.getLocation().getLatitude(), point.getLocation().getLongitude()});
+                }
+            }
+        }
+        if (tour.getRoutePolyline() != null && !tour.getRoutePolyline().isEmpty()) {
+            try {
+                double[] last = null;
+                for (double[] vertex : PolylineCodec.decode(tour.getRoutePolyline())) {
+                    if (last == null || LocalTspSolver.haversine(last, vertex) >= POLYLINE_SAMPLE_METERS) {
+                        points.add(vertex);
+                        last = vertex;
+                    }
+                }
+            } catch (RuntimeException e) {
+                log.warn("Cannot decode route polyline of tour {}: {}", tour.getId(), e.getMessage());
+            }
+        }
+        return points.toArray(double[][]::new);
+    }
+
+    private void afterCommit(Runnable action) {
+        Runnable guarded = () -> {
+            // Chưa nạp thì bỏ qua, lần nạp đầu tiên sẽ đọc trạng thái mới nhất từ DB
+            if (loaded) {
+                action.run();
+            }
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            guarded.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                guarded.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,294 @@
+package com.devteria.identityservice.service;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.devteria.identityservice.entity.ImageVariants;
+import com.devteria.identityservice.repository.TourPointRepository;
+import com.devteria.identityservice.repository.TourRepository;
+import com.devteria.identityservice.util.SingleFlight;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Sinh các bản thu nhỏ (thumbnail/card/full, JPEG) cho ảnh đã upload lên S3, chạy nền trên pool giới hạn.
+ * Key của bản thu nhỏ suy ra từ key gốc: {@code derived/{variant}/{key gốc bỏ đuôi}.jpg}, nên xử lý lại là idempotent.
+ * Sau khi sinh xong, URL được ghi vào Tour/TourPoint đang dùng ảnh gốc đó.
+ * Lúc upload chỉ sinh sẵn cho các folder của tour (image.derivatives.folders); ảnh ở folder khác (avatar, chat)
+ * chỉ được xử lý nếu sau đó thực sự được gắn vào tour (recordAfterCommit).
+ */
+@Service
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class ImageDerivativeService {
+
+    public static final String DERIVED_PREFIX = "derived/";
+    private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    public enum Variant {
+        THUMBNAIL(320),
+        CARD(800),
+        FULL(1600);
+
+        final int width;
+
+        Variant(int width) {
+            this.width = width;
+        }
+    }
+
+    S3Service s3Service;
+    TourRepository tourRepository;
+    TourPointRepository tourPointRepository;
+    Executor imageDerivativeExecutor;
+    TransactionTemplate writeTransaction;
+    SingleFlight<String, ImageVariants> flights = new SingleFlight<>();
+    Set<String> eagerFolders;
+    long maxSourceBytes;
+    long maxSourcePixels;
+    float jpegQuality;
+
+    public ImageDerivativeService(
+            S3Service s3Service,
+            TourRepository tourRepository,
+            TourPointRepository tourPointRepository,
+            @Qualifier("imageDerivativeExecutor") Executor imageDerivativeExecutor,
+            PlatformTransactionManager transactionManager,
+            @Value("${image.derivatives.folders:tours,tour-points}") Set<String> eagerFolders,
+            @Value("${aws.s3.upload.max-size-bytes:10485760}") long maxSourceBytes,
+            @Value("${image.derivatives.max-source-megapixels:40}") long maxSourceMegapixels,
+            @Value("${image.derivatives.jpeg-quality:0.8}") float jpegQuality) {
+        this.s3Service = s3Service;
+        this.tourRepository = tourRepository;
+        this.tourPointRepository = tourPointRepository;
+        this.imageDerivativeExecutor = imageDerivativeExecutor;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.eagerFolders = Set.copyOf(eagerFolders);
+        this.maxSourceBytes = maxSourceBytes;
+        this.maxSourcePixels = maxSourceMegapixels * 1_000_000;
+        this.jpegQuality = jpegQuality;
+    }
+
+    /**
+     * Key của một bản thu nhỏ, suy ra từ key ảnh gốc
+     */
+    public static String derivedKey(String sourceKey, Variant variant) {
+        int slash = sourceKey.lastIndexOf('/');
+        int dot = sourceKey.lastIndexOf('.');
+        String base = dot > slash ? sourceKey.substring(0, dot) : sourceKey;
+        return DERIVED_PREFIX + variant.name().toLowerCase() + "/" + base + ".jpg";
+    }
+
+    /**
+     * Đưa ảnh vừa upload vào hàng đợi xử lý, nếu nằm trong folder có dùng bản thu nhỏ
+     */
+    public void generateAsync(String imageUrl) {
+        String key = s3Service.keyFromUrl(imageUrl);
+        int slash = key != null ? key.indexOf('/') : -1;
+        if (slash < 0 || !eagerFolders.contains(key.substring(0, slash))) {
+            return;
+        }
+        submit(imageUrl);
+    }
+
+    /**
+     * Sau khi transaction lưu tour commit, đảm bảo các ảnh đang dùng có bản thu nhỏ và ghi URL vào DB.
+     * Ảnh đã xử lý lúc upload thì chỉ kiểm tra tồn tại rồi ghi URL.
+     */
+    public void recordAfterCommit(Collection<String> imageUrls) {
+        Set<String> urls = new LinkedHashSet<>();
+        imageUrls.stream().filter(Objects::nonNull).forEach(urls::add);
+        if (urls.isEmpty()) {
+            return;
+        }
+        Runnable action = () -> urls.forEach(this::submit);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private void submit(String imageUrl) {
+        String key = s3Service.keyFromUrl(imageUrl);
+        if (key == null || key.startsWith(DERIVED_PREFIX)) {
+            return; // Ảnh ngoài bucket hoặc chính là bản thu nhỏ
+        }
+        try {
+            imageDerivativeExecutor.execute(() -> processAndRecord(imageUrl, key));
+        } catch (RejectedExecutionException e) {
+            log.warn("Image derivative queue full, skipping {}", key);
+        }
+    }
+
+    private void processAndRecord(String imageUrl, String key) {
+        try {
+            ImageVariants variants = flights.execute(key, () -> generate(key));
+            if (variants == null) {
+                return;
+            }
+            writeTransaction.executeWithoutResult(status -> {
+                tourRepository.updateImageVariants(imageUrl,
+                        variants.getThumbnailUrl(), variants.getCardUrl(), variants.getFullUrl());
+                tourPointRepository.updateImageVariants(imageUrl,
+                        variants.getThumbnailUrl(), variants.getCardUrl(), variants.getFullUrl());
+            });
+        } catch (Exception e) {
+            log.warn("Failed to build image derivatives for {}: {}", key, e.getMessage());
+        }
+    }
+
+    private ImageVariants generate(String key) {
+        // FULL được ghi sau cùng, đã có thì các bản nhỏ hơn cũng đã có
+        if (!s3Service.exists(derivedKey(key, Variant.FULL))) {
+            BufferedImage source = readSource(key);
+            if (source == null) {
+                return null;
+            }
+            for (Variant variant : Variant.values()) {
+                byte[] jpeg = encodeJpeg(resize(source, variant.width));
+                s3Service.putObject(derivedKey(key, variant), jpeg, "image/jpeg", CACHE_CONTROL);
+            }
+            log.info("Built image derivatives for {} ({}x{})", key, source.getWidth(), source.getHeight());
+        }
+        return ImageVariants.builder()
+                .thumbnailUrl(s3Service.urlForKey(derivedKey(key, Variant.THUMBNAIL)))
+                .cardUrl(s3Service.urlForKey(derivedKey(key, Variant.CARD)))
+                .fullUrl(s3Service.urlForKey(derivedKey(key, Variant.FULL)))
+                .build();
+    }
+
+    // Đọc kích thước trước khi giải mã để không bung ảnh quá lớn vào heap
+    private BufferedImage readSource(String key) {
+        try {
+            byte[] bytes = s3Service.readObject(key, maxSourceBytes);
+            if (bytes == null) {
+                log.warn("Skipping derivatives for {}: source larger than {} bytes", key, maxSourceBytes);
+                return null;
+            }
+            try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+                Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+                if (!readers.hasNext()) {
+                    log.info("Skipping derivatives for {}: unsupported image format", key);
+                    return null;
+                }
+                ImageReader reader = readers.next();
+                try {
+                    reader.setInput(input, true, true);
+                    long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                    if (pixels > maxSourcePixels) {
+                        log.warn("Skipping derivatives for {}: {} pixels", key, pixels);
+                        return null;
+                    }
+                    return reader.read(0);
+                } finally {
+                    reader.dispose();
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Cannot read source image {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Thu nhỏ về chiều rộng targetWidth (không phóng to), giảm một nửa nhiều lần để giữ chất lượng.
+     * Kết quả luôn là TYPE_INT_RGB, nền trắng cho ảnh có kênh alpha.
+     */
+    private BufferedImage resize(BufferedImage source, int targetWidth) {
+        int width = Math.min(targetWidth, source.getWidth());
+        int height = Math.max(1, (int) Math.round((double) source.getHeight() * width / source.getWidth()));
+
+        BufferedImage current = toRgb(source);
+        int currentWidth = current.getWidth();
+        int currentHeight = current.getHeight();
+        while (currentWidth / 2 >= width) {
+            currentWidth /= 2;
+            currentHeight = Math.max(1, currentHeight / 2);
+            current = draw(current, currentWidth, currentHeight);
+        }
+        if (currentWidth != width || currentHeight != height) {
+            current = draw(current, width, height);
+        }
+        return current;
+    }
+
+    private BufferedImage toRgb(BufferedImage source) {
+        if (source.getType() == BufferedImage.TYPE_INT_RGB) {
+            return source;
+        }
+        return draw(source, source.getWidth(), source.getHeight());
+    }
+
+    private BufferedImage draw(BufferedImage source, int width, int height) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            if (param.canWriteProgressive()) {
+                param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot encode JPEG", e);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+}
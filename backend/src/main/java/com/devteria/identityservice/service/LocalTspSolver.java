@@ -0,0 +1,195 @@
+package com.devteria.identityservice.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Giải TSP trong process: seed bằng nearest-neighbour rồi cải thiện bằng 2-opt và Or-opt.
+ * Cùng ngữ nghĩa với Vietmap /tsp/v3 mà VietmapService đang dùng:
+ * - Điểm 0 luôn là điểm xuất phát (sources=0)
+ * - Không roundtrip: điểm cuối (n-1) cố định là đích (destinations=n-1)
+ * - Roundtrip: quay về điểm 0
+ * Ma trận chi phí phải đối xứng (haversine hoặc khoảng cách đường đã cache).
+ */
+@Component
+public class LocalTspSolver {
+
+    private static final double EARTH_RADIUS_METERS = 6_371_000;
+    private static final double EPSILON = 1e-9;
+    private static final int MAX_OR_OPT_SEGMENT = 3;
+    private static final int MAX_IMPROVEMENT_ROUNDS = 1000;
+
+    /**
+     * Với n <= 3 chỉ có 1 thứ tự hợp lệ (hoặc các thứ tự có cùng chi phí), không cần giải
+     */
+    public boolean isOrderFixed(int pointCount) {
+        return pointCount <= 3;
+    }
+
+    /**
+     * @return thứ tự thăm các điểm (index trong ma trận), bắt đầu bằng 0, không lặp lại điểm 0 ở cuối khi roundtrip
+     */
+    public int[] solve(double[][] cost, boolean roundtrip) {
+        int n = cost.length;
+        if (n <= 3) {
+            int[] identity = new int[n];
+            for (int i = 0; i < n; i++) {
+                identity[i] = i;
+            }
+            return identity;
+        }
+
+        List<Integer> route = nearestNeighbour(cost, roundtrip);
+        int rounds = 0;
+        boolean improved = true;
+        while (improved && rounds++ < MAX_IMPROVEMENT_ROUNDS) {
+            improved = twoOpt(route, cost, roundtrip) | orOpt(route, cost, roundtrip);
+        }
+        return route.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    public double routeCost(int[] order, double[][] cost, boolean roundtrip) {
+        double total = 0;
+        for (int i = 0; i + 1 < order.length; i++) {
+            total += cost[order[i]][order[i + 1]];
+        }
+        if (roundtrip && order.length > 1) {
+            total += cost[order[order.length - 1]][order[0]];
+        }
+        return total;
+    }
+
+    /**
+     * Ma trận khoảng cách đường chim bay (mét) từ danh sách {lat, lng}
+     */
+    public double[][] haversineMatrix(List<double[]> coordinates) {
+        int n = coordinates.size();
+        double[][] matrix = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                double d = haversine(coordinates.get(i), coordinates.get(j));
+                matrix[i][j] = d;
+                matrix[j][i] = d;
+            }
+        }
+        return matrix;
+    }
+
+    public static double haversine(double[] a, double[] b) {
+        double dLat = Math.toRadians(b[0] - a[0]);
+        double dLng = Math.toRadians(b[1] - a[1]);
+        double h = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(a[0])) * Math.cos(Math.toRadians(b[0]))
+                * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(h)));
+    }
+
+    private List<Integer> nearestNeighbour(double[][] cost, boolean roundtrip) {
+        int n = cost.length;
+        int fixedEnd = roundtrip ? -1 : n - 1;
+        boolean[] visited = new boolean[n];
+        List<Integer> route = new ArrayList<>(n);
+        route.add(0);
+        visited[0] = true;
+        if (fixedEnd >= 0) {
+            visited[fixedEnd] = true;
+        }
+
+        int current = 0;
+        int remaining = n - (fixedEnd >= 0 ? 2 : 1);
+        while (remaining-- > 0) {
+            int best = -1;
+            for (int candidate = 0; candidate < n; candidate++) {
+                if (!visited[candidate] && (best < 0 || cost[current][candidate] < cost[current][best])) {
+                    best = candidate;
+                }
+            }
+            visited[best] = true;
+            route.add(best);
+            current = best;
+        }
+        if (fixedEnd >= 0) {
+            route.add(fixedEnd);
+        }
+        return route;
+    }
+
+    // Index cuối cùng được phép di chuyển (không roundtrip thì điểm cuối cố định)
+    private int lastMovable(List<Integer> route, boolean roundtrip) {
+        return roundtrip ? route.size() - 1 : route.size() - 2;
+    }
+
+    // Điểm kế tiếp của vị trí k (roundtrip: vị trí cuối nối về điểm 0)
+    private int nextOf(List<Integer> route, int k) {
+        return k + 1 < route.size() ? route.get(k + 1) : route.get(0);
+    }
+
+    private boolean twoOpt(List<Integer> route, double[][] cost, boolean roundtrip) {
+        boolean improved = false;
+        int last = lastMovable(route, roundtrip);
+        for (int i = 1; i < last; i++) {
+            for (int k = i + 1; k <= last; k++) {
+                int a = route.get(i - 1);
+                int b = route.get(i);
+                int c = route.get(k);
+                int e = nextOf(route, k);
+                double delta = cost[a][c] + cost[b][e] - cost[a][b] - cost[c][e];
+                if (delta < -EPSILON) {
+                    reverse(route, i, k);
+                    improved = true;
+                }
+            }
+        }
+        return improved;
+    }
+
+    private boolean orOpt(List<Integer> route, double[][] cost, boolean roundtrip) {
+        boolean improved = false;
+        for (int length = 1; length <= MAX_OR_OPT_SEGMENT; length++) {
+            int last = lastMovable(route, roundtrip);
+            for (int i = 1; i + length - 1 <= last; i++) {
+                int segmentEnd = i + length - 1;
+                int prev = route.get(i - 1);
+                int first = route.get(i);
+                int tail = route.get(segmentEnd);
+                int next = nextOf(route, segmentEnd);
+                double removeGain = cost[prev][first] + cost[tail][next] - cost[prev][next];
+
+                for (int j = 0; j <= last; j++) {
+                    if (j >= i - 1 && j <= segmentEnd) {
+                        continue; // Chèn vào chính vị trí cũ
+                    }
+                    int u = route.get(j);
+                    int v = nextOf(route, j);
+                    double insertCost = cost[u][first] + cost[tail][v] - cost[u][v];
+                    if (insertCost < removeGain - EPSILON) {
+                        moveSegment(route, i, length, j);
+                        improved = true;
+                        break;
+                    }
+                }
+            }
+        }
+        return improved;
+    }
+
+    private void reverse(List<Integer> route, int from, int to) {
+        while (from < to) {
+            Integer tmp = route.get(from);
+            route.set(from, route.get(to));
+            route.set(to, tmp);
+            from++;
+            to--;
+        }
+    }
+
+    // Chuyển đoạn [from, from+length) ra sau vị trí j (j tính theo route trước khi di chuyển)
+    private void moveSegment(List<Integer> route, int from, int length, int j) {
+        List<Integer> segment = new ArrayList<>(route.subList(from, from + length));
+        route.subList(from, from + length).clear();
+        int insertAt = j < from ? j + 1 : j + 1 - length;
+        route.addAll(insertAt, segment);
+    }
+}
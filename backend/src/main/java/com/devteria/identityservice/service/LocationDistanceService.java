@@ -0,0 +1,259 @@
+package com.devteria.identityservice.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import com.devteria.identityservice.dto.response.LocationDistanceMatrixResponse;
+import com.devteria.identityservice.dto.response.VietmapRouteResponse;
+import com.devteria.identityservice.entity.Location;
+import com.devteria.identityservice.entity.LocationDistance;
+import com.devteria.identityservice.exception.AppException;
+import com.devteria.identityservice.exception.ErrorCode;
+import com.devteria.identityservice.repository.LocationDistanceRepository;
+import com.devteria.identityservice.repository.LocationRepository;
+import com.devteria.identityservice.util.LongPairCostTable;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cache ma trận khoảng cách đường bộ giữa các cặp Location.
+ * Thứ tự tra cứu: bộ nhớ (LongPairCostTable theo phương tiện) → bảng location_distance → Vietmap Route API.
+ * Cặp chưa có dữ liệu được ước lượng bằng đường chim bay nhân hệ số đường vòng.
+ */
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class LocationDistanceService {
+    static final int MAX_MATRIX_LOCATIONS = 50;
+    static final int MAX_REMOTE_PAIRS_PER_REQUEST = 50;
+    static final double DETOUR_FACTOR = 1.3; // Đường bộ thường dài hơn đường chim bay ~30%
+
+    LocationDistanceRepository locationDistanceRepository;
+    LocationRepository locationRepository;
+    VietmapService vietmapService;
+
+    Map<String, LongPairCostTable> tables = new ConcurrentHashMap<>();
+    ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Ma trận khoảng cách/thời gian cho danh sách location.
+     * allowRemote = true sẽ gọi Vietmap cho tối đa MAX_REMOTE_PAIRS_PER_REQUEST cặp còn thiếu,
+     * chỉ áp dụng cho AGENT/ADMIN; user khác chỉ nhận giá trị đã cache hoặc ước lượng.
+     */
+    public LocationDistanceMatrixResponse getMatrix(List<Long> locationIds, String vehicle, boolean allowRemote) {
+        if (locationIds.size() > MAX_MATRIX_LOCATIONS) {
+            throw new AppException(ErrorCode.DISTANCE_MATRIX_TOO_LARGE);
+        }
+        allowRemote = allowRemote && canFetchRemote();
+        String normalizedVehicle = normalizeVehicle(vehicle);
+        Map<Long, Location> locations = loadLocations(locationIds);
+        LongPairCostTable table = table(normalizedVehicle);
+
+        int n = locationIds.size();
+        double[][] distances = new double[n][n];
+        long[][] durations = new long[n][n];
+        int cached = 0;
+        int fetched = 0;
+        int estimated = 0;
+
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                Location from = locations.get(locationIds.get(i));
+                Location to = locations.get(locationIds.get(j));
+                double distance;
+                long duration;
+
+                double[] cost = lookup(table, from.getId(), to.getId());
+                if (from.getId().equals(to.getId())) {
+                    distance = 0;
+                    duration = 0;
+                } else if (cost != null) {
+                    distance = cost[0];
+                    duration = (long) cost[1] * 1000L;
+                    cached++;
+                } else if (allowRemote
+                        && fetched < MAX_REMOTE_PAIRS_PER_REQUEST
+                        && (cost = fetchAndStore(from, to, normalizedVehicle)) != null) {
+                    distance = cost[0];
+                    duration = (long) cost[1] * 1000L;
+                    fetched++;
+                } else {
+                    distance = estimateMeters(from, to);
+                    duration = (long) (distance / speedMetersPerSecond(normalizedVehicle) * 1000);
+                    estimated++;
+                }
+                distances[i][j] = distances[j][i] = distance;
+                durations[i][j] = durations[j][i] = duration;
+            }
+        }
+
+        return LocationDistanceMatrixResponse.builder()
+                .locationIds(locationIds)
+                .vehicle(normalizedVehicle)
+                .distanceMeters(distances)
+                .durationMillis(durations)
+                .cachedPairs(cached)
+                .fetchedPairs(fetched)
+                .estimatedPairs(estimated)
+                .build();
+    }
+
+    /**
+     * Ma trận chi phí (mét) chỉ dùng dữ liệu đã cache, không gọi Vietmap.
+     * Dùng cho LocalTspSolver khi tạo tour.
+     */
+    public double[][] cachedCostMatrix(List<Location> locations, String vehicle) {
+        LongPairCostTable table = table(normalizeVehicle(vehicle));
+        int n = locations.size();
+        double[][] matrix = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                Location from = locations.get(i);
+                Location to = locations.get(j);
+                if (from.getId().equals(to.getId())) {
+                    continue;
+                }
+                double[] cost = lookup(table, from.getId(), to.getId());
+                matrix[i][j] = matrix[j][i] = cost != null ? cost[0] : estimateMeters(from, to);
+            }
+        }
+        return matrix;
+    }
+
+    public int cachedPairCount(String vehicle) {
+        LongPairCostTable table = table(normalizeVehicle(vehicle));
+        lock.readLock().lock();
+        try {
+            return table.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return {mét, giây} của cặp vừa lấy từ Vietmap, null nếu không lấy được
+     */
+    private boolean canFetchRemote() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null
+                && authentication.getAuthorities().stream()
+                        .map(GrantedAuthority::getAuthority)
+                        .anyMatch(authority -> authority.equals("ROLE_AGENT") || authority.equals("ROLE_ADMIN"));
+    }
+
+    private double[] fetchAndStore(Location from, Location to, String vehicle) {
+        VietmapRouteResponse response;
+        try {
+            response = vietmapService.getRoute(
+                    List.of(from.getLatitude() + "," + from.getLongitude(), to.getLatitude() + "," + to.getLongitude()),
+                    vehicle);
+        } catch (RuntimeException e) {
+            log.warn("Failed to fetch distance {} -> {}: {}", from.getId(), to.getId(), e.getMessage());
+            return null;
+        }
+        if (response == null || response.getPaths() == null || response.getPaths().isEmpty()) {
+            return null;
+        }
+        if (VietmapService.LOCAL_ESTIMATE_CODE.equals(response.getCode())) {
+            return null; // Vietmap lỗi, không lưu ước lượng như khoảng cách đường bộ
+        }
+        VietmapRouteResponse.RoutePath path = response.getPaths().get(0);
+        if (path.getDistance() == null || path.getTime() == null) {
+            return null;
+        }
+
+        long low = Math.min(from.getId(), to.getId());
+        long high = Math.max(from.getId(), to.getId());
+        try {
+            if (!locationDistanceRepository.existsByFromLocationIdAndToLocationIdAndVehicle(low, high, vehicle)) {
+                locationDistanceRepository.save(LocationDistance.builder()
+                        .fromLocationId(low)
+                        .toLocationId(high)
+                        .vehicle(vehicle)
+                        .distanceMeters(path.getDistance())
+                        .durationMillis(path.getTime())
+                        .build());
+            }
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Distance {} -> {} already stored by another request", low, high);
+        }
+
+        LongPairCostTable table = table(vehicle);
+        lock.writeLock().lock();
+        try {
+            table.put(low, high, path.getDistance().floatValue(), (int) (path.getTime() / 1000));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return new double[] {path.getDistance(), path.getTime() / 1000};
+    }
+
+    private Map<Long, Location> loadLocations(List<Long> locationIds) {
+        Map<Long, Location> locations = new HashMap<>();
+        locationRepository.findAllById(locationIds).forEach(location -> locations.put(location.getId(), location));
+        for (Long id : locationIds) {
+            if (!locations.containsKey(id)) {
+                throw new AppException(ErrorCode.LOCATION_NOT_FOUND);
+            }
+        }
+        return locations;
+    }
+
+    /**
+     * Nạp lười toàn bộ chi phí của 1 loại phương tiện từ DB ở lần truy cập đầu tiên
+     */
+    private LongPairCostTable table(String vehicle) {
+        return tables.computeIfAbsent(vehicle, key -> {
+            List<LocationDistance> rows = locationDistanceRepository.findByVehicle(key);
+            LongPairCostTable table = new LongPairCostTable(rows.size());
+            for (LocationDistance row : rows) {
+                table.put(row.getFromLocationId(), row.getToLocationId(),
+                        row.getDistanceMeters().floatValue(), (int) (row.getDurationMillis() / 1000));
+            }
+            log.info("Loaded {} cached location distances for vehicle {}", rows.size(), key);
+            return table;
+        });
+    }
+
+    /**
+     * @return {mét, giây} nếu cặp đã có trong bộ nhớ, null nếu chưa
+     */
+    private double[] lookup(LongPairCostTable table, long a, long b) {
+        lock.readLock().lock();
+        try {
+            int index = table.indexOf(a, b);
+            return index >= 0 ? new double[] {table.distanceAt(index), table.durationAt(index)} : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private double estimateMeters(Location from, Location to) {
+        return LocalTspSolver.haversine(
+                        new double[] {from.getLatitude(), from.getLongitude()},
+                        new double[] {to.getLatitude(), to.getLongitude()})
+                * DETOUR_FACTOR;
+    }
+
+    private double speedMetersPerSecond(String vehicle) {
+        return "motorcycle".equals(vehicle) ? 8.3 : 11.1; // ~30 / ~40 km/h
+    }
+
+    private String normalizeVehicle(String vehicle) {
+        return vehicle == null || vehicle.isBlank() ? "car" : vehicle.trim().toLowerCase();
+    }
+}
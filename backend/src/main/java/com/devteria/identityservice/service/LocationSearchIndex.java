@@ -0,0 +1,234 @@
+package com.devteria.identityservice.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.devteria.identityservice.dto.projection.LocationIndexView;
+import com.devteria.identityservice.entity.Location;
+import com.devteria.identityservice.repository.LocationRepository;
+import com.devteria.identityservice.util.PrefixTrie;
+import com.devteria.identityservice.util.TextNormalizer;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Index tiền tố in-memory trên các Location đã duyệt (name, address, cityName), so khớp không phân biệt dấu.
+ * Mỗi token trong query phải là tiền tố của 1 token của địa điểm. Kết quả xếp theo mức khớp tên rồi khoảng cách tới focus.
+ * Nạp toàn bộ ở lần tìm đầu tiên, sau đó cập nhật từng địa điểm khi được duyệt/tạo.
+ */
+@Component
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class LocationSearchIndex {
+    static final int CANDIDATE_LIMIT = 500;
+
+    LocationRepository locationRepository;
+
+    PrefixTrie trie = new PrefixTrie();
+    List<Entry> entries = new ArrayList<>();
+    Map<Long, Integer> slotByLocationId = new HashMap<>();
+    ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @NonFinal
+    volatile boolean loaded;
+
+    /**
+     * @param focus [lat, lng] hoặc null
+     */
+    public List<Hit> search(String query, double[] focus, int limit) {
+        List<String> queryTokens = TextNormalizer.tokens(query);
+        if (queryTokens.isEmpty()) {
+            return List.of();
+        }
+        ensureLoaded();
+
+        // Token dài nhất thường chọn lọc nhất
+        String seed = queryTokens.stream().max(Comparator.comparingInt(String::length)).orElseThrow();
+        List<Hit> hits = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Integer slot : trie.collect(seed, CANDIDATE_LIMIT)) {
+                Entry entry = entries.get(slot);
+                if (entry == null) {
+                    continue;
+                }
+                int tier = matchTier(entry, queryTokens);
+                if (tier >= 0) {
+                    double distance = focus != null
+                            ? LocalTspSolver.haversine(focus, new double[] {entry.latitude, entry.longitude})
+                            : 0;
+                    hits.add(new Hit(entry.locationId, entry.refId, entry.name, entry.address, entry.cityName,
+                            entry.latitude, entry.longitude, distance, tier));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return hits.stream()
+                .sorted(Comparator.comparingInt(Hit::getTier)
+                        .thenComparingDouble(Hit::getDistanceMeters)
+                        .thenComparingInt(hit -> hit.getName().length()))
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * Thêm/cập nhật 1 địa điểm sau khi transaction commit (chưa nạp thì bỏ qua, lần nạp đầu sẽ có)
+     */
+    public void indexAfterCommit(Location location) {
+        Entry entry = toEntry(location.getId(), location.getRefId(), location.getName(), location.getAddress(),
+                location.getCityName(), location.getLatitude(), location.getLongitude());
+        Runnable action = () -> {
+            if (loaded) {
+                put(entry);
+            }
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotByLocationId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            List<LocationIndexView> locations = locationRepository.findAllIndexViews();
+            locations.forEach(location -> put(toEntry(location.getId(), location.getRefId(), location.getName(),
+                    location.getAddress(), location.getCityName(), location.getLatitude(), location.getLongitude())));
+            loaded = true;
+            log.info("Location search index loaded with {} locations", locations.size());
+        }
+    }
+
+    private void put(Entry entry) {
+        lock.writeLock().lock();
+        try {
+            Integer existing = slotByLocationId.get(entry.locationId);
+            int slot;
+            if (existing != null) {
+                slot = existing;
+                allTokens(entries.get(slot)).forEach(token -> trie.remove(token, existing));
+                entries.set(slot, entry);
+            } else {
+                slot = entries.size();
+                entries.add(entry);
+                slotByLocationId.put(entry.locationId, slot);
+            }
+            allTokens(entry).forEach(token -> trie.insert(token, slot));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 0: khớp tên và token đầu tiên là tiền tố của tên; 1: khớp tên; 2: khớp địa chỉ/thành phố; -1: không khớp
+     */
+    private int matchTier(Entry entry, List<String> queryTokens) {
+        boolean allInName = true;
+        for (String token : queryTokens) {
+            boolean inName = hasPrefix(entry.nameTokens, token);
+            if (!inName && !hasPrefix(entry.otherTokens, token)) {
+                return -1;
+            }
+            allInName &= inName;
+        }
+        if (!allInName) {
+            return 2;
+        }
+        return entry.nameTokens.length > 0 && entry.nameTokens[0].startsWith(queryTokens.get(0)) ? 0 : 1;
+    }
+
+    private boolean hasPrefix(String[] tokens, String prefix) {
+        for (String token : tokens) {
+            if (token.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Stream<String> allTokens(Entry entry) {
+        return Stream.concat(Stream.of(entry.nameTokens), Stream.of(entry.otherTokens)).distinct();
+    }
+
+    private Entry toEntry(Long id, String refId, String name, String address, String cityName,
+            Double latitude, Double longitude) {
+        List<String> other = new ArrayList<>(TextNormalizer.tokens(address));
+        other.addAll(TextNormalizer.tokens(cityName));
+        return new Entry(
+                id,
+                refId,
+                name,
+                address,
+                cityName,
+                latitude,
+                longitude,
+                TextNormalizer.tokens(name).toArray(String[]::new),
+                other.toArray(String[]::new));
+    }
+
+    @AllArgsConstructor
+    private static class Entry {
+        final long locationId;
+        final String refId;
+        final String name;
+        final String address;
+        final String cityName;
+        final double latitude;
+        final double longitude;
+        final String[] nameTokens;
+        final String[] otherTokens;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Hit {
+        private final Long locationId;
+        private final String refId;
+        private final String name;
+        private final String address;
+        private final String cityName;
+        private final double latitude;
+        private final double longitude;
+        private final double distanceMeters;
+        private final int tier;
+    }
+}
@@ -2,6 +2,8 @@ package com.devteria.identityservice.service;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -11,6 +13,7 @@ import org.springframework.transaction.annotation.Transactional;
 import com.devteria.identityservice.dto.request.LocationSuggestionRequest;
 import com.devteria.identityservice.dto.response.LocationResponse;
 import com.devteria.identityservice.dto.response.LocationSuggestionResponse;
+import com.devteria.identityservice.dto.response.NearbyLocationResponse;
 import com.devteria.identityservice.entity.Location;
 import com.devteria.identityservice.entity.LocationSuggestion;
 import com.devteria.identityservice.entity.User;
@@ -21,6 +24,7 @@ import com.devteria.identityservice.mapper.LocationMapper;
 import com.devteria.identityservice.repository.LocationRepository;
 import com.devteria.identityservice.repository.LocationSuggestionRepository;
 import com.devteria.identityservice.repository.UserRepository;
+import com.devteria.identityservice.util.GeoGrid;
 
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
@@ -32,10 +36,15 @@ import lombok.extern.slf4j.Slf4j;
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 @Slf4j
 public class LocationSuggestionService {
+    static final double MAX_NEARBY_RADIUS_KM = 100;
+    static final int MAX_GEO_RESULTS = 500;
+
     LocationSuggestionRepository locationSuggestionRepository;
     LocationRepository locationRepository;
     UserRepository userRepository;
     LocationMapper locationMapper;
+    LocationSearchIndex locationSearchIndex;
+    GeoIndexService geoIndexService;
 
     /**
      * UC_10: Agent/Customer submits a location suggestion
@@ -105,6 +114,8 @@ public class LocationSuggestionService {
 
         // Save location
         location = locationRepository.save(location);
+        locationSearchIndex.indexAfterCommit(location);
+        geoIndexService.indexLocationAfterCommit(location);
 
         // Update suggestion status
         suggestion.setStatus(SuggestionStatus.APPROVED);
@@ -218,6 +229,42 @@ public class LocationSuggestionService {
                 .toList();
     }
 
+    /**
+     * Locations within a radius of a point, nearest first (GeoIndexService)
+     */
+    @Transactional(readOnly = true)
+    public List<NearbyLocationResponse> getNearbyLocations(double lat, double lng, double radiusKm, int limit) {
+        List<GeoGrid.Hit> hits = geoIndexService.locationsWithinRadius(
+                lat, lng, Math.min(radiusKm, MAX_NEARBY_RADIUS_KM) * 1000).stream()
+                .limit(Math.max(1, Math.min(limit, MAX_GEO_RESULTS)))
+                .toList();
+        Map<Long, Location> locations = locationRepository
+                .findAllById(hits.stream().map(GeoGrid.Hit::id).toList())
+                .stream()
+                .collect(Collectors.toMap(Location::getId, location -> location));
+
+        return hits.stream()
+                .filter(hit -> locations.containsKey(hit.id()))
+                .map(hit -> NearbyLocationResponse.builder()
+                        .location(locationMapper.toLocationResponse(locations.get(hit.id())))
+                        .distanceMeters(hit.distanceMeters())
+                        .build())
+                .toList();
+    }
+
+    /**
+     * Locations inside a bounding box (map viewport), at most MAX_GEO_RESULTS
+     */
+    @Transactional(readOnly = true)
+    public List<LocationResponse> getLocationsInBox(double minLat, double minLng, double maxLat, double maxLng) {
+        List<Long> ids = geoIndexService.locationsWithinBox(minLat, maxLat, minLng, maxLng).stream()
+                .limit(MAX_GEO_RESULTS)
+                .toList();
+        return locationRepository.findAllById(ids).stream()
+                .map(locationMapper::toLocationResponse)
+                .toList();
+    }
+
     /**
      * Get locations by city name
      */
@@ -296,6 +343,8 @@ public class LocationSuggestionService {
 
         // Save location
         location = locationRepository.save(location);
+        locationSearchIndex.indexAfterCommit(location);
+        geoIndexService.indexLocationAfterCommit(location);
         log.info("Location created directly by admin: {} with id: {} at coordinates ({}, {})",
                 username, location.getId(), location.getLatitude(), location.getLongitude());
 
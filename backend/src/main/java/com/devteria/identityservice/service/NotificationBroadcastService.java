@@ -0,0 +1,356 @@
+package com.devteria.identityservice.service;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.devteria.identityservice.constant.PredefinedRole;
+import com.devteria.identityservice.dto.projection.NotificationRecipient;
+import com.devteria.identityservice.dto.request.NotificationBroadcastRequest;
+import com.devteria.identityservice.dto.response.NotificationBroadcastResponse;
+import com.devteria.identityservice.dto.response.NotificationResponse;
+import com.devteria.identityservice.entity.Tour;
+import com.devteria.identityservice.entity.Trip;
+import com.devteria.identityservice.enums.BroadcastStatus;
+import com.devteria.identityservice.enums.BroadcastTarget;
+import com.devteria.identityservice.enums.NotificationType;
+import com.devteria.identityservice.enums.OutboxChannel;
+import com.devteria.identityservice.enums.OutboxStatus;
+import com.devteria.identityservice.exception.AppException;
+import com.devteria.identityservice.exception.ErrorCode;
+import com.devteria.identityservice.repository.BookingRepository;
+import com.devteria.identityservice.repository.TourRepository;
+import com.devteria.identityservice.repository.TripRepository;
+import com.devteria.identityservice.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Gửi notification hàng loạt cho người tham gia 1 chuyến, khách của 1 tour hoặc tất cả user có 1 role.
+ * - Ghi DB bằng JDBC batch, mỗi chunk một transaction ngắn (không giữ transaction dài với 10k người nhận)
+ * - Bản ghi outbox WebSocket được ghi cùng transaction của chunk; NotificationOutboxDispatcher gửi và retry
+ * - Chỉ gửi được thông báo loại ANNOUNCEMENT, không giả được thông báo booking/hệ thống
+ * - Tiến độ được giữ trong bộ nhớ và xem qua GET /notifications/broadcasts/{id}
+ */
+@Service
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class NotificationBroadcastService {
+
+    private static final int CHUNK_SIZE = 500;
+    private static final String INSERT_SQL = "INSERT INTO notification "
+            + "(recipient_id, type, title, message, reference_id, reference_type, is_read, created_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, false, ?)";
+    private static final String OUTBOX_INSERT_SQL = "INSERT INTO notification_outbox "
+            + "(channel, recipient_id, payload, status, attempts, next_attempt_at, created_at) "
+            + "VALUES (?, ?, ?, ?, 0, ?, ?)";
+
+    BookingRepository bookingRepository;
+    TourRepository tourRepository;
+    TripRepository tripRepository;
+    UserRepository userRepository;
+    JdbcTemplate jdbcTemplate;
+    PlatformTransactionManager transactionManager;
+    NotificationOutboxDispatcher outboxDispatcher;
+    ObjectMapper objectMapper;
+    NotificationUnreadCounter unreadCounter;
+    Executor broadcastTaskExecutor;
+
+    Cache<String, BroadcastJob> jobs = Caffeine.newBuilder()
+            .maximumSize(1000)
+            .expireAfterWrite(Duration.ofDays(1))
+            .build();
+
+    public NotificationBroadcastService(
+            BookingRepository bookingRepository,
+            TourRepository tourRepository,
+            TripRepository tripRepository,
+            UserRepository userRepository,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            NotificationOutboxDispatcher outboxDispatcher,
+            ObjectMapper objectMapper,
+            NotificationUnreadCounter unreadCounter,
+            @Qualifier("broadcastTaskExecutor") Executor broadcastTaskExecutor) {
+        this.bookingRepository = bookingRepository;
+        this.tourRepository = tourRepository;
+        this.tripRepository = tripRepository;
+        this.userRepository = userRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionManager = transactionManager;
+        this.outboxDispatcher = outboxDispatcher;
+        this.objectMapper = objectMapper;
+        this.unreadCounter = unreadCounter;
+        this.broadcastTaskExecutor = broadcastTaskExecutor;
+    }
+
+    /**
+     * Kiểm tra quyền, xác định người nhận rồi chạy broadcast ở background
+     */
+    public NotificationBroadcastResponse startBroadcast(NotificationBroadcastRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String username = authentication.getName();
+        boolean isAdmin = hasRole(authentication, PredefinedRole.ADMIN_ROLE);
+
+        List<NotificationRecipient> recipients = resolveRecipients(request, username, isAdmin);
+
+        BroadcastJob job = new BroadcastJob(UUID.randomUUID().toString(), username, request.getTarget(), recipients.size());
+        jobs.put(job.id, job);
+
+        log.info("Starting broadcast {} ({}) to {} recipients by {}",
+                job.id, request.getTarget(), recipients.size(), username);
+        broadcastTaskExecutor.execute(() -> runBroadcast(job, request, recipients));
+
+        return job.toResponse();
+    }
+
+    /**
+     * Xem tiến độ broadcast (người tạo hoặc admin)
+     */
+    public NotificationBroadcastResponse getBroadcastProgress(String broadcastId) {
+        BroadcastJob job = jobs.getIfPresent(broadcastId);
+        if (job == null) {
+            throw new AppException(ErrorCode.BROADCAST_NOT_FOUND);
+        }
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (!job.startedBy.equals(authentication.getName()) && !hasRole(authentication, PredefinedRole.ADMIN_ROLE)) {
+            throw new AppException(ErrorCode.UNAUTHORIZED);
+        }
+        return job.toResponse();
+    }
+
+    private List<NotificationRecipient> resolveRecipients(
+            NotificationBroadcastRequest request, String username, boolean isAdmin) {
+        switch (request.getTarget()) {
+            case TRIP -> {
+                Trip trip = tripRepository.findById(requireTargetId(request))
+                        .orElseThrow(() -> new AppException(ErrorCode.TRIP_NOT_FOUND));
+                requireOwnerOrAdmin(trip.getTour(), username, isAdmin);
+                return bookingRepository.findRecipientsByTripId(trip.getId());
+            }
+            case TOUR -> {
+                Tour tour = tourRepository.findById(requireTargetId(request))
+                        .orElseThrow(() -> new AppException(ErrorCode.TOUR_NOT_FOUND));
+                requireOwnerOrAdmin(tour, username, isAdmin);
+                return bookingRepository.findRecipientsByTourId(tour.getId());
+            }
+            case ROLE -> {
+                if (!isAdmin) {
+                    throw new AppException(ErrorCode.UNAUTHORIZED);
+                }
+                if (request.getRole() == null || request.getRole().isBlank()) {
+                    throw new AppException(ErrorCode.INVALID_BROADCAST_TARGET);
+                }
+                return userRepository.findRecipientsByRoleName(request.getRole());
+            }
+            default -> throw new AppException(ErrorCode.INVALID_BROADCAST_TARGET);
+        }
+    }
+
+    private void runBroadcast(BroadcastJob job, NotificationBroadcastRequest request,
+            List<NotificationRecipient> recipients) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Long referenceId = request.getReferenceId() != null ? request.getReferenceId() : request.getTargetId();
+        String referenceType = request.getReferenceType() != null
+                ? request.getReferenceType()
+                : (request.getTarget() == BroadcastTarget.ROLE ? null : request.getTarget().name());
+
+        try {
+            for (int from = 0; from < recipients.size(); from += CHUNK_SIZE) {
+                List<NotificationRecipient> chunk =
+                        recipients.subList(from, Math.min(from + CHUNK_SIZE, recipients.size()));
+                LocalDateTime createdAt = LocalDateTime.now();
+
+                transactionTemplate.executeWithoutResult(status -> {
+                    List<Long> ids = insertChunk(chunk, request.getTitle(), request.getMessage(),
+                            referenceId, referenceType, createdAt);
+                    enqueuePushes(chunk, ids, request, referenceId, referenceType, createdAt);
+                    chunk.forEach(recipient -> unreadCounter.incrementAfterCommit(recipient.getUsername()));
+                    wakeDispatcherAfterCommit();
+                });
+                job.inserted.addAndGet(chunk.size());
+                job.queued.addAndGet(chunk.size());
+            }
+
+            job.finish(BroadcastStatus.COMPLETED);
+            log.info("Broadcast {} completed: {} inserted and queued for delivery", job.id, job.inserted.get());
+        } catch (Exception e) {
+            job.finish(BroadcastStatus.FAILED);
+            log.error("Broadcast {} failed after {} inserted notifications", job.id, job.inserted.get(), e);
+        }
+    }
+
+    private List<Long> insertChunk(List<NotificationRecipient> chunk, String title,
+            String message, Long referenceId, String referenceType, LocalDateTime createdAt) {
+        return jdbcTemplate.execute((ConnectionCallback<List<Long>>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                Timestamp timestamp = Timestamp.valueOf(createdAt);
+                for (NotificationRecipient recipient : chunk) {
+                    ps.setString(1, recipient.getId());
+                    ps.setString(2, NotificationType.ANNOUNCEMENT.name());
+                    ps.setString(3, title);
+                    ps.setString(4, message);
+                    if (referenceId != null) {
+                        ps.setLong(5, referenceId);
+                    } else {
+                        ps.setNull(5, Types.BIGINT);
+                    }
+                    ps.setString(6, referenceType);
+                    ps.setTimestamp(7, timestamp);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+
+                List<Long> ids = new ArrayList<>(chunk.size());
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    while (keys.next()) {
+                        ids.add(keys.getLong(1));
+                    }
+                }
+                return ids;
+            }
+        });
+    }
+
+    // Cùng transaction với chunk: notification đã ghi thì chắc chắn có bản ghi outbox để gửi/retry
+    private void enqueuePushes(List<NotificationRecipient> chunk, List<Long> ids, NotificationBroadcastRequest request,
+            Long referenceId, String referenceType, LocalDateTime createdAt) {
+        Timestamp timestamp = Timestamp.valueOf(createdAt);
+        jdbcTemplate.batchUpdate(OUTBOX_INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int index) throws SQLException {
+                NotificationRecipient recipient = chunk.get(index);
+                NotificationResponse response = NotificationResponse.builder()
+                        .id(index < ids.size() ? ids.get(index) : null)
+                        .type(NotificationType.ANNOUNCEMENT)
+                        .title(request.getTitle())
+                        .message(request.getMessage())
+                        .referenceId(referenceId)
+                        .referenceType(referenceType)
+                        .isRead(false)
+                        .createdAt(createdAt)
+                        .build();
+                ps.setString(1, OutboxChannel.WEBSOCKET.name());
+                ps.setString(2, recipient.getId());
+                ps.setString(3, toJson(response));
+                ps.setString(4, OutboxStatus.PENDING.name());
+                ps.setTimestamp(5, timestamp);
+                ps.setTimestamp(6, timestamp);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return chunk.size();
+            }
+        });
+    }
+
+    private String toJson(NotificationResponse response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot serialize broadcast notification", e);
+        }
+    }
+
+    private void wakeDispatcherAfterCommit() {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    outboxDispatcher.dispatchAsync();
+                } catch (Exception e) {
+                    // Scheduled sweep sẽ gửi các bản ghi còn PENDING
+                    log.warn("Could not wake outbox dispatcher: {}", e.getMessage());
+                }
+            }
+        });
+    }
+
+    private Long requireTargetId(NotificationBroadcastRequest request) {
+        if (request.getTargetId() == null) {
+            throw new AppException(ErrorCode.INVALID_BROADCAST_TARGET);
+        }
+        return request.getTargetId();
+    }
+
+    private void requireOwnerOrAdmin(Tour tour, String username, boolean isAdmin) {
+        if (!isAdmin && !tour.getCreatedBy().getUsername().equals(username)) {
+            throw new AppException(ErrorCode.UNAUTHORIZED);
+        }
+    }
+
+    private boolean hasRole(Authentication authentication, String role) {
+        return authentication.getAuthorities().stream()
+                .anyMatch(authority -> ("ROLE_" + role).equals(authority.getAuthority()));
+    }
+
+    /**
+     * Trạng thái của 1 lần broadcast, được cập nhật đồng thời bởi luồng ghi và pool fan-out
+     */
+    private static class BroadcastJob {
+        final String id;
+        final String startedBy;
+        final BroadcastTarget target;
+        final int totalRecipients;
+        final LocalDateTime startedAt = LocalDateTime.now();
+        final AtomicInteger inserted = new AtomicInteger();
+        final AtomicInteger queued = new AtomicInteger();
+        volatile BroadcastStatus status = BroadcastStatus.RUNNING;
+        volatile LocalDateTime finishedAt;
+
+        BroadcastJob(String id, String startedBy, BroadcastTarget target, int totalRecipients) {
+            this.id = id;
+            this.startedBy = startedBy;
+            this.target = target;
+            this.totalRecipients = totalRecipients;
+        }
+
+        void finish(BroadcastStatus finalStatus) {
+            finishedAt = LocalDateTime.now();
+            status = finalStatus;
+        }
+
+        NotificationBroadcastResponse toResponse() {
+            return NotificationBroadcastResponse.builder()
+                    .broadcastId(id)
+                    .target(target)
+                    .status(status)
+                    .totalRecipients(totalRecipients)
+                    .inserted(inserted.get())
+                    .queued(queued.get())
+                    .startedAt(startedAt)
+                    .finishedAt(finishedAt)
+                    .build();
+        }
+    }
+}
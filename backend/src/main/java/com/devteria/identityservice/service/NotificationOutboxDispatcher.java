@@ -0,0 +1,182 @@
+package com.devteria.identityservice.service;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.devteria.identityservice.dto.request.BookingEmailRequest;
+import com.devteria.identityservice.dto.response.NotificationResponse;
+import com.devteria.identityservice.entity.NotificationOutbox;
+import com.devteria.identityservice.enums.OutboxStatus;
+import com.devteria.identityservice.repository.NotificationOutboxRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Background dispatcher cho notification outbox.
+ * - Được đánh thức ngay sau commit (dispatchAsync) và quét định kỳ để retry
+ * - Gửi theo batch, theo thứ tự id; nếu 1 bản ghi lỗi thì các bản ghi sau của cùng người nhận sẽ chờ
+ * - Retry với exponential backoff, quá MAX_ATTEMPTS thì chuyển sang FAILED
+ * - Nhiều instance: batch được claim bằng SELECT ... FOR UPDATE SKIP LOCKED và đẩy nextAttemptAt ra sau
+ *   CLAIM_LEASE_SECONDS trước khi gửi, nên mỗi bản ghi chỉ 1 instance gửi; instance chết giữa chừng thì
+ *   bản ghi được instance khác nhận lại khi hết lease
+ */
+@Service
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class NotificationOutboxDispatcher {
+
+    NotificationOutboxRepository outboxRepository;
+    SimpMessagingTemplate messagingTemplate;
+    EmailVerify emailVerify;
+    ObjectMapper objectMapper;
+    TransactionTemplate claimTransaction;
+
+    // Chỉ 1 luồng drain tại 1 thời điểm trên mỗi instance để giữ thứ tự gửi
+    ReentrantLock drainLock = new ReentrantLock();
+
+    private static final int BATCH_SIZE = 100;
+    private static final int MAX_ATTEMPTS = 8;
+    private static final long MAX_BACKOFF_SECONDS = 600;
+    private static final int SENT_RETENTION_DAYS = 3;
+    private static final long CLAIM_LEASE_SECONDS = 600;
+
+    public NotificationOutboxDispatcher(
+            NotificationOutboxRepository outboxRepository,
+            SimpMessagingTemplate messagingTemplate,
+            EmailVerify emailVerify,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager) {
+        this.outboxRepository = outboxRepository;
+        this.messagingTemplate = messagingTemplate;
+        this.emailVerify = emailVerify;
+        this.objectMapper = objectMapper;
+        this.claimTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Gọi từ afterCommit của transaction đã ghi outbox
+     */
+    @Async("notificationTaskExecutor")
+    public void dispatchAsync() {
+        dispatchPending();
+    }
+
+    /**
+     * Quét định kỳ để gửi các bản ghi đến hạn retry (hoặc bị bỏ lỡ khi wake-up thất bại)
+     */
+    @Scheduled(fixedDelay = 5000)
+    public void dispatchPending() {
+        if (!drainLock.tryLock()) {
+            return; // Đang có luồng khác drain
+        }
+        try {
+            List<NotificationOutbox> batch;
+            do {
+                batch = claimBatch();
+                if (!batch.isEmpty()) {
+                    dispatchBatch(batch);
+                }
+            } while (batch.size() == BATCH_SIZE);
+        } catch (Exception e) {
+            log.error("Outbox dispatch failed", e);
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    // Khóa batch (bỏ qua dòng instance khác đang giữ) và đặt lease, commit ngay để nhả khóa trước khi gửi
+    private List<NotificationOutbox> claimBatch() {
+        return claimTransaction.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<NotificationOutbox> claimed =
+                    outboxRepository.lockDispatchable(now, PageRequest.of(0, BATCH_SIZE));
+            claimed.forEach(entry -> entry.setNextAttemptAt(now.plusSeconds(CLAIM_LEASE_SECONDS)));
+            return outboxRepository.saveAll(claimed);
+        });
+    }
+
+    private void dispatchBatch(List<NotificationOutbox> batch) {
+        Set<String> blockedRecipients = new HashSet<>();
+        LocalDateTime now = LocalDateTime.now();
+
+        for (NotificationOutbox entry : batch) {
+            if (blockedRecipients.contains(entry.getRecipientId())) {
+                // Bản ghi trước của cùng người nhận vừa lỗi, đợi lượt sau để giữ thứ tự
+                entry.setNextAttemptAt(now.plusSeconds(1));
+                continue;
+            }
+            try {
+                deliver(entry);
+                entry.setStatus(OutboxStatus.SENT);
+                entry.setSentAt(now);
+                entry.setLastError(null);
+            } catch (Exception e) {
+                blockedRecipients.add(entry.getRecipientId());
+                markFailedAttempt(entry, e, now);
+            }
+        }
+
+        outboxRepository.saveAll(batch);
+        log.debug("Dispatched outbox batch of {} entries ({} recipients deferred)",
+                batch.size(), blockedRecipients.size());
+    }
+
+    private void deliver(NotificationOutbox entry) throws Exception {
+        switch (entry.getChannel()) {
+            case WEBSOCKET -> {
+                NotificationResponse notification =
+                        objectMapper.readValue(entry.getPayload(), NotificationResponse.class);
+                messagingTemplate.convertAndSend("/topic/notifications/" + entry.getRecipientId(), notification);
+            }
+            case BOOKING_EMAIL -> emailVerify.deliverBookingSuccessEmail(
+                    objectMapper.readValue(entry.getPayload(), BookingEmailRequest.class));
+        }
+    }
+
+    private void markFailedAttempt(NotificationOutbox entry, Exception e, LocalDateTime now) {
+        int attempts = entry.getAttempts() + 1;
+        entry.setAttempts(attempts);
+        String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        entry.setLastError(error.length() > 500 ? error.substring(0, 500) : error);
+
+        if (attempts >= MAX_ATTEMPTS) {
+            entry.setStatus(OutboxStatus.FAILED);
+            log.error("Outbox entry {} ({}) for {} failed permanently after {} attempts",
+                    entry.getId(), entry.getChannel(), entry.getRecipientId(), attempts, e);
+            return;
+        }
+
+        long backoffSeconds = Math.min(MAX_BACKOFF_SECONDS, 1L << attempts);
+        entry.setNextAttemptAt(now.plusSeconds(backoffSeconds));
+        log.warn("Outbox entry {} ({}) for {} failed (attempt {}), retrying in {}s: {}",
+                entry.getId(), entry.getChannel(), entry.getRecipientId(), attempts, backoffSeconds, error);
+    }
+
+    /**
+     * Xóa các bản ghi đã gửi sau SENT_RETENTION_DAYS ngày
+     */
+    @Scheduled(cron = "0 30 3 * * *")
+    @Transactional
+    public void purgeSentEntries() {
+        int deleted = outboxRepository.deleteByStatusAndSentAtBefore(
+                OutboxStatus.SENT, LocalDateTime.now().minusDays(SENT_RETENTION_DAYS));
+        if (deleted > 0) {
+            log.info("Purged {} sent outbox entries", deleted);
+        }
+    }
+}
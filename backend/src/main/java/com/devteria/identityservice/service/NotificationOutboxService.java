@@ -0,0 +1,74 @@
+package com.devteria.identityservice.service;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.devteria.identityservice.entity.NotificationOutbox;
+import com.devteria.identityservice.enums.OutboxChannel;
+import com.devteria.identityservice.enums.OutboxStatus;
+import com.devteria.identityservice.repository.NotificationOutboxRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Ghi các lần gửi realtime/email vào outbox trong transaction hiện tại.
+ * Nếu transaction rollback thì bản ghi outbox cũng bị rollback, không có gì được gửi đi.
+ */
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class NotificationOutboxService {
+
+    NotificationOutboxRepository outboxRepository;
+    NotificationOutboxDispatcher outboxDispatcher;
+    ObjectMapper objectMapper;
+
+    /**
+     * Thêm 1 bản ghi vào outbox, dispatcher sẽ được đánh thức sau khi commit
+     */
+    @Transactional
+    public void enqueue(OutboxChannel channel, String recipientId, Object payload) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot serialize outbox payload for channel " + channel, e);
+        }
+
+        outboxRepository.save(NotificationOutbox.builder()
+                .channel(channel)
+                .recipientId(recipientId)
+                .payload(json)
+                .status(OutboxStatus.PENDING)
+                .build());
+        log.debug("Enqueued {} outbox entry for {}", channel, recipientId);
+
+        wakeDispatcherAfterCommit();
+    }
+
+    private void wakeDispatcherAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            outboxDispatcher.dispatchAsync();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    outboxDispatcher.dispatchAsync();
+                } catch (Exception e) {
+                    // Scheduled sweep sẽ gửi lại, không ảnh hưởng tới request
+                    log.warn("Could not wake outbox dispatcher: {}", e.getMessage());
+                }
+            }
+        });
+    }
+}
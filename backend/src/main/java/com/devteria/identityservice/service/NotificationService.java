@@ -3,15 +3,17 @@ package com.devteria.identityservice.service;
 import java.util.List;
 import java.util.stream.Collectors;
 
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.devteria.identityservice.dto.response.NotificationFeedResponse;
 import com.devteria.identityservice.dto.response.NotificationResponse;
 import com.devteria.identityservice.entity.Notification;
 import com.devteria.identityservice.entity.User;
 import com.devteria.identityservice.enums.NotificationType;
+import com.devteria.identityservice.enums.OutboxChannel;
 import com.devteria.identityservice.exception.AppException;
 import com.devteria.identityservice.exception.ErrorCode;
 import com.devteria.identityservice.repository.NotificationRepository;
@@ -30,10 +32,13 @@ public class NotificationService {
 
     NotificationRepository notificationRepository;
     UserRepository userRepository;
-    SimpMessagingTemplate messagingTemplate;
+    NotificationOutboxService outboxService;
+    NotificationUnreadCounter unreadCounter;
+
+    private static final int MAX_FEED_PAGE_SIZE = 50;
 
     /**
-     * Tạo notification và gửi qua WebSocket
+     * Tạo notification và ghi vào outbox để gửi qua WebSocket sau khi commit
      */
     @Transactional
     public NotificationResponse createNotification(
@@ -58,25 +63,13 @@ public class NotificationService {
         
         NotificationResponse response = mapToResponse(notification);
         
-        // Gửi realtime notification qua WebSocket
-        sendRealtimeNotification(recipient.getId(), response);
+        // Realtime notification được gửi qua outbox sau khi transaction commit
+        outboxService.enqueue(OutboxChannel.WEBSOCKET, recipient.getId(), response);
+        unreadCounter.incrementAfterCommit(recipient.getUsername());
         
         return response;
     }
 
-    /**
-     * Gửi notification qua WebSocket đến user cụ thể
-     */
-    private void sendRealtimeNotification(String recipientId, NotificationResponse notification) {
-        try {
-            String destination = "/topic/notifications/" + recipientId;
-            messagingTemplate.convertAndSend(destination, notification);
-            log.info("Sent realtime notification to {}: {}", destination, notification.getTitle());
-        } catch (Exception e) {
-            log.error("Failed to send realtime notification to user {}", recipientId, e);
-        }
-    }
-
     /**
      * Lấy danh sách notifications của user hiện tại
      */
@@ -92,12 +85,36 @@ public class NotificationService {
     }
 
     /**
-     * Đếm số notification chưa đọc
+     * Lấy feed notifications theo cursor (id của notification cuối cùng ở trang trước)
      */
     @Transactional(readOnly = true)
+    public NotificationFeedResponse getMyNotificationFeed(Long cursor, int size) {
+        String username = getCurrentUsername();
+        int pageSize = Math.max(1, Math.min(size, MAX_FEED_PAGE_SIZE));
+        // Lấy thêm 1 bản ghi để biết còn trang sau hay không
+        PageRequest page = PageRequest.of(0, pageSize + 1);
+
+        List<Notification> notifications = cursor == null
+                ? notificationRepository.findFeedByRecipientUsername(username, page)
+                : notificationRepository.findFeedByRecipientUsernameBefore(username, cursor, page);
+
+        boolean hasMore = notifications.size() > pageSize;
+        if (hasMore) {
+            notifications = notifications.subList(0, pageSize);
+        }
+
+        return NotificationFeedResponse.builder()
+                .items(notifications.stream().map(this::mapToResponse).collect(Collectors.toList()))
+                .nextCursor(hasMore ? notifications.get(notifications.size() - 1).getId() : null)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    /**
+     * Đếm số notification chưa đọc (đọc từ bộ đếm trong bộ nhớ, chỉ nạp từ DB lần đầu)
+     */
     public Long getUnreadCount() {
-        User currentUser = getCurrentUser();
-        return notificationRepository.countByRecipientAndIsReadFalse(currentUser);
+        return unreadCounter.get(getCurrentUsername());
     }
 
     /**
@@ -105,16 +122,21 @@ public class NotificationService {
      */
     @Transactional
     public void markAsRead(Long notificationId) {
-        Notification notification = notificationRepository.findById(notificationId)
-                .orElseThrow(() -> new AppException(ErrorCode.NOTIFICATION_NOT_FOUND));
-        
-        User currentUser = getCurrentUser();
-        if (!notification.getRecipient().getId().equals(currentUser.getId())) {
-            throw new AppException(ErrorCode.UNAUTHORIZED);
+        String username = getCurrentUsername();
+        int updated = notificationRepository.markAsReadByIdAndRecipientUsername(notificationId, username);
+
+        if (updated == 0) {
+            // Không cập nhật được: hoặc đã đọc, hoặc không thuộc user, hoặc không tồn tại
+            if (notificationRepository.existsByIdAndRecipientUsername(notificationId, username)) {
+                return;
+            }
+            if (notificationRepository.existsById(notificationId)) {
+                throw new AppException(ErrorCode.UNAUTHORIZED);
+            }
+            throw new AppException(ErrorCode.NOTIFICATION_NOT_FOUND);
         }
-        
-        notification.setIsRead(true);
-        notificationRepository.save(notification);
+
+        unreadCounter.decrementAfterCommit(username);
         log.info("Marked notification {} as read", notificationId);
     }
 
@@ -123,9 +145,14 @@ public class NotificationService {
      */
     @Transactional
     public void markAllAsRead() {
-        User currentUser = getCurrentUser();
-        notificationRepository.markAllAsReadByRecipientId(currentUser.getId());
-        log.info("Marked all notifications as read for user {}", currentUser.getId());
+        String username = getCurrentUsername();
+        int updated = notificationRepository.markAllAsReadByRecipientUsername(username);
+        unreadCounter.resetAfterCommit(username);
+        log.info("Marked {} notifications as read for user {}", updated, username);
+    }
+
+    private String getCurrentUsername() {
+        return SecurityContextHolder.getContext().getAuthentication().getName();
     }
 
     private User getCurrentUser() {
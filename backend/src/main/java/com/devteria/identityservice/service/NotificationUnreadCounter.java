@@ -0,0 +1,84 @@
+package com.devteria.identityservice.service;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.devteria.identityservice.repository.NotificationRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bộ đếm notification chưa đọc trong bộ nhớ, key theo username (subject của JWT)
+ * để badge poll không cần truy vấn MySQL.
+ * - Nạp lười từ DB khi chưa có trong cache
+ * - Tăng/giảm sau khi transaction commit
+ * - Hết hạn sau COUNTER_TTL để tự đồng bộ lại với DB (ví dụ khi chạy nhiều instance)
+ */
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class NotificationUnreadCounter {
+
+    private static final Duration COUNTER_TTL = Duration.ofMinutes(10);
+    private static final long MAX_USERS = 50_000;
+
+    NotificationRepository notificationRepository;
+    Cache<String, AtomicLong> counters;
+
+    public NotificationUnreadCounter(NotificationRepository notificationRepository) {
+        this.notificationRepository = notificationRepository;
+        this.counters = Caffeine.newBuilder()
+                .maximumSize(MAX_USERS)
+                .expireAfterWrite(COUNTER_TTL)
+                .build();
+    }
+
+    public long get(String username) {
+        return counters
+                .get(username, key -> new AtomicLong(notificationRepository.countUnreadByRecipientUsername(key)))
+                .get();
+    }
+
+    public void incrementAfterCommit(String username) {
+        afterCommit(() -> {
+            AtomicLong counter = counters.getIfPresent(username);
+            if (counter != null) {
+                counter.incrementAndGet();
+            }
+        });
+    }
+
+    public void decrementAfterCommit(String username) {
+        afterCommit(() -> {
+            AtomicLong counter = counters.getIfPresent(username);
+            if (counter != null) {
+                counter.updateAndGet(value -> Math.max(0, value - 1));
+            }
+        });
+    }
+
+    public void resetAfterCommit(String username) {
+        afterCommit(() -> counters.put(username, new AtomicLong(0)));
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -152,28 +152,25 @@ public class ReportService {
         }
     }
 
+    // Ghi notification + outbox trong transaction xử lý report; lỗi DB phải rollback cả report
     private void sendWarningNotification(Report report) {
-        try {
-            if (report.getTargetType() == ReportTargetType.AGENT) {
-                User agent = userRepository.findById(report.getTargetId())
-                        .orElse(null);
-                if (agent != null) {
-                    String message = "Tài khoản của bạn đã nhận được cảnh báo vi phạm.";
-                    if (report.getAdminNote() != null && !report.getAdminNote().isEmpty()) {
-                        message += " Lý do: " + report.getAdminNote();
-                    }
-                    notificationService.createNotification(
-                            agent,
-                            NotificationType.REPORT_WARNING,
-                            "Cảnh báo vi phạm",
-                            message,
-                            report.getId(),
-                            "REPORT"
-                    );
+        if (report.getTargetType() == ReportTargetType.AGENT) {
+            User agent = userRepository.findById(report.getTargetId())
+                    .orElse(null);
+            if (agent != null) {
+                String message = "Tài khoản của bạn đã nhận được cảnh báo vi phạm.";
+                if (report.getAdminNote() != null && !report.getAdminNote().isEmpty()) {
+                    message += " Lý do: " + report.getAdminNote();
                 }
+                notificationService.createNotification(
+                        agent,
+                        NotificationType.REPORT_WARNING,
+                        "Cảnh báo vi phạm",
+                        message,
+                        report.getId(),
+                        "REPORT"
+                );
             }
-        } catch (Exception e) {
-            log.error("Failed to send warning notification for report {}", report.getId(), e);
         }
     }
 
@@ -88,7 +88,9 @@ public class ReviewService {
     
     /**
      * Get reviews for a specific tour (public)
+     * Cũng được gọi từ tool của chatbot trên virtual thread, ngoài open-in-view, nên cần transaction riêng
      */
+    @Transactional(readOnly = true)
     public List<ReviewResponse> getReviewsByTour(Long tourId) {
         return reviewRepository.findByTourIdOrderByCreatedAtDesc(tourId)
                 .stream()
@@ -148,20 +150,16 @@ public class ReviewService {
         review = reviewRepository.save(review);
         log.info("Agent {} replied to review {}", agent.getUsername(), reviewId);
         
-        // Gửi thông báo cho khách hàng khi agent phản hồi đánh giá
-        try {
-            User customer = review.getUser();
-            notificationService.createNotification(
-                    customer,
-                    NotificationType.REVIEW_REPLIED,
-                    "Đã có phản hồi đánh giá!",
-                    String.format("Đại lý đã phản hồi đánh giá của bạn về tour %s", review.getTour().getName()),
-                    review.getTour().getId(),
-                    "TOUR"
-            );
-        } catch (Exception e) {
-            log.error("Failed to send review reply notification for review: {}", reviewId, e);
-        }
+        // Gửi thông báo cho khách hàng khi agent phản hồi đánh giá (qua outbox, cùng transaction)
+        User customer = review.getUser();
+        notificationService.createNotification(
+                customer,
+                NotificationType.REVIEW_REPLIED,
+                "Đã có phản hồi đánh giá!",
+                String.format("Đại lý đã phản hồi đánh giá của bạn về tour %s", review.getTour().getName()),
+                review.getTour().getId(),
+                "TOUR"
+        );
         
         return mapToResponse(review);
     }
@@ -0,0 +1,271 @@
+package com.devteria.identityservice.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.ListPartsRequest;
+import software.amazon.awssdk.services.s3.model.ListPartsResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchUploadException;
+import software.amazon.awssdk.services.s3.model.Part;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+/**
+ * Upload file lớn lên S3 bằng multipart upload, các part chạy song song trên pool giới hạn.
+ * Trạng thái (uploadId + part đã xong) được giữ theo object key; vì key đặt theo hash nội dung,
+ * upload lại cùng file sau khi lỗi sẽ tiếp tục từ các part còn thiếu thay vì làm lại từ đầu.
+ * Chỉ dùng cho upload qua backend (/upload). Upload thẳng từ browser (presigned) là 1 PUT duy nhất:
+ * với giới hạn 10MB hiện tại một file có nhiều nhất 2 part, nên presigned multipart không đáng thêm vòng gọi.
+ * Nâng giới hạn dung lượng đáng kể thì cần thêm presigned multipart cho luồng đó.
+ */
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class S3MultipartUploader {
+
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024; // Giới hạn của S3 (trừ part cuối)
+    private static final int MAX_ATTEMPTS_PER_PART = 2;
+
+    S3Client s3Client;
+    Executor s3PartUploadExecutor;
+    String bucketName;
+    long thresholdBytes;
+    long partSizeBytes;
+    Cache<String, UploadState> states;
+
+    LongAdder uploadsCompleted = new LongAdder();
+    LongAdder uploadsFailed = new LongAdder();
+    LongAdder partsUploaded = new LongAdder();
+    LongAdder partsResumed = new LongAdder();
+    LongAdder partRetries = new LongAdder();
+
+    // uploadId của một multipart upload đang dở và các part đã lên S3
+    private record UploadState(String uploadId, long size, long partSize, Map<Integer, CompletedPart> parts) {
+    }
+
+    @Autowired
+    public S3MultipartUploader(
+            S3Client s3Client,
+            @Qualifier("s3PartUploadExecutor") Executor s3PartUploadExecutor,
+            @Value("${aws.s3.bucket-name}") String bucketName,
+            @Value("${aws.s3.multipart.threshold-bytes:8388608}") long thresholdBytes,
+            @Value("${aws.s3.multipart.part-size-bytes:5242880}") long partSizeBytes,
+            @Value("${aws.s3.multipart.resume-ttl-hours:24}") long resumeTtlHours) {
+        this(s3Client, s3PartUploadExecutor, bucketName, thresholdBytes, partSizeBytes,
+                Duration.ofHours(resumeTtlHours), Ticker.systemTicker());
+    }
+
+    S3MultipartUploader(
+            S3Client s3Client,
+            Executor s3PartUploadExecutor,
+            String bucketName,
+            long thresholdBytes,
+            long partSizeBytes,
+            Duration resumeTtl,
+            Ticker ticker) {
+        this.s3Client = s3Client;
+        this.s3PartUploadExecutor = s3PartUploadExecutor;
+        this.bucketName = bucketName;
+        this.partSizeBytes = Math.max(MIN_PART_SIZE, partSizeBytes);
+        this.thresholdBytes = Math.max(this.partSizeBytes + 1, thresholdBytes);
+        // Upload dở quá hạn thì abort để S3 giải phóng các part đã lưu
+        this.states = Caffeine.newBuilder()
+                .expireAfterWrite(resumeTtl)
+                .ticker(ticker)
+                .maximumSize(1_000)
+                .removalListener((String key, UploadState state, RemovalCause cause) -> {
+                    if (state != null && cause.wasEvicted()) {
+                        abortQuietly(key, state.uploadId());
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Caffeine chỉ dọn entry hết hạn khi cache có hoạt động; chạy định kỳ để upload dở không nằm mãi trên S3
+     */
+    @Scheduled(fixedDelayString = "${aws.s3.multipart.stale-check-interval-ms:3600000}")
+    public void abortStaleUploads() {
+        states.cleanUp();
+    }
+
+    public boolean shouldUseMultipart(long size) {
+        return size >= thresholdBytes;
+    }
+
+    /**
+     * Upload toàn bộ nội dung vào key. Mỗi part mở lại source và đọc từ offset của nó,
+     * nên chỉ tối đa (số thread) part nằm trong bộ nhớ cùng lúc.
+     */
+    public void upload(String key, String contentType, long size, InputStreamSource source) {
+        UploadState state = resumeOrStart(key, contentType, size);
+        int partCount = (int) ((size + state.partSize() - 1) / state.partSize());
+
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        for (int partNumber = 1; partNumber <= partCount; partNumber++) {
+            if (state.parts().containsKey(partNumber)) {
+                partsResumed.increment();
+                continue;
+            }
+            int number = partNumber;
+            pending.add(CompletableFuture.runAsync(() -> uploadPart(key, state, number, source), s3PartUploadExecutor));
+        }
+
+        try {
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            // Giữ state để lần upload sau tiếp tục từ các part đã xong
+            uploadsFailed.increment();
+            log.warn("Multipart upload {} failed with {}/{} parts done, can be resumed",
+                    key, state.parts().size(), partCount);
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : e;
+        }
+
+        List<CompletedPart> parts = new ArrayList<>(state.parts().values());
+        parts.sort(Comparator.comparing(CompletedPart::partNumber));
+        s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .uploadId(state.uploadId())
+                .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                .build());
+        states.asMap().remove(key, state);
+        uploadsCompleted.increment();
+        log.info("Multipart upload {} completed: {} bytes in {} parts", key, size, partCount);
+    }
+
+    private UploadState resumeOrStart(String key, String contentType, long size) {
+        UploadState previous = states.getIfPresent(key);
+        if (previous != null && previous.size() == size) {
+            try {
+                // Đối chiếu với S3: chỉ tin các part S3 còn giữ
+                ListPartsResponse listed = s3Client.listParts(ListPartsRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .uploadId(previous.uploadId())
+                        .build());
+                Map<Integer, CompletedPart> parts = new ConcurrentHashMap<>();
+                for (Part part : listed.parts()) {
+                    parts.put(part.partNumber(), CompletedPart.builder()
+                            .partNumber(part.partNumber())
+                            .eTag(part.eTag())
+                            .build());
+                }
+                UploadState resumed = new UploadState(previous.uploadId(), size, previous.partSize(), parts);
+                states.put(key, resumed);
+                log.info("Resuming multipart upload {} with {} parts already stored", key, parts.size());
+                return resumed;
+            } catch (NoSuchUploadException e) {
+                log.info("Previous multipart upload for {} no longer exists, starting over", key);
+            }
+        }
+
+        String uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .contentType(contentType)
+                        .build())
+                .uploadId();
+        UploadState state = new UploadState(uploadId, size, partSizeBytes, new ConcurrentHashMap<>());
+        states.put(key, state);
+        return state;
+    }
+
+    private void uploadPart(String key, UploadState state, int partNumber, InputStreamSource source) {
+        long offset = (partNumber - 1) * state.partSize();
+        int length = (int) Math.min(state.partSize(), state.size() - offset);
+
+        RuntimeException lastError = null;
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS_PER_PART; attempt++) {
+            try {
+                byte[] bytes;
+                try (InputStream in = source.getInputStream()) {
+                    in.skipNBytes(offset);
+                    bytes = in.readNBytes(length);
+                }
+                if (bytes.length != length) {
+                    throw new IllegalStateException("Source shorter than declared size");
+                }
+
+                String eTag = s3Client.uploadPart(UploadPartRequest.builder()
+                                        .bucket(bucketName)
+                                        .key(key)
+                                        .uploadId(state.uploadId())
+                                        .partNumber(partNumber)
+                                        .contentLength((long) length)
+                                        .build(),
+                                RequestBody.fromBytes(bytes))
+                        .eTag();
+                state.parts().put(partNumber, CompletedPart.builder()
+                        .partNumber(partNumber)
+                        .eTag(eTag)
+                        .build());
+                partsUploaded.increment();
+                return;
+            } catch (IOException e) {
+                lastError = new IllegalStateException("Cannot read part " + partNumber + ": " + e.getMessage(), e);
+            } catch (RuntimeException e) {
+                lastError = e;
+            }
+            if (attempt < MAX_ATTEMPTS_PER_PART) {
+                partRetries.increment();
+                log.warn("Retrying part {} of {}: {}", partNumber, key, lastError.getMessage());
+            }
+        }
+        throw lastError;
+    }
+
+    private void abortQuietly(String key, String uploadId) {
+        try {
+            s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .build());
+            log.info("Aborted stale multipart upload {} ({})", key, uploadId);
+        } catch (Exception e) {
+            log.warn("Failed to abort multipart upload {}: {}", key, e.getMessage());
+        }
+    }
+
+    public Map<String, Long> getStats() {
+        return Map.of(
+                "uploadsCompleted", uploadsCompleted.sum(),
+                "uploadsFailed", uploadsFailed.sum(),
+                "partsUploaded", partsUploaded.sum(),
+                "partsResumed", partsResumed.sum(),
+                "partRetries", partRetries.sum(),
+                "resumableUploads", states.estimatedSize());
+    }
+}
@@ -0,0 +1,269 @@
+package com.devteria.identityservice.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.devteria.identityservice.dto.response.StorageGcRunResponse;
+import com.devteria.identityservice.repository.BookingRepository;
+import com.devteria.identityservice.repository.ChatMessageRepository;
+import com.devteria.identityservice.repository.StoredObjectRepository;
+import com.devteria.identityservice.repository.TourPointRepository;
+import com.devteria.identityservice.repository.TourRepository;
+import com.devteria.identityservice.repository.UserRepository;
+import com.devteria.identityservice.util.KeyFingerprintSet;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.Delete;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.S3Error;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+/**
+ * Dọn object S3 không còn được tham chiếu: ảnh tour/điểm cũ sau khi sửa, ảnh upload rồi bỏ dở,
+ * QR của booking đã hủy...
+ * Tập key đang dùng (Tour, TourPoint, User.avatar, Booking.qrCodeUrl, ChatMessage) được nạp vào
+ * {@link KeyFingerprintSet}, sau đó duyệt bucket từng trang và xóa theo lô các object cũ hơn grace period.
+ * Mặc định chạy dry-run: chỉ đếm và log, không xóa.
+ */
+@Service
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class S3OrphanCollector {
+
+    private static final int DELETE_BATCH_SIZE = 1000; // Giới hạn của DeleteObjects
+
+    S3Client s3Client;
+    S3Service s3Service;
+    TourRepository tourRepository;
+    TourPointRepository tourPointRepository;
+    UserRepository userRepository;
+    BookingRepository bookingRepository;
+    ChatMessageRepository chatMessageRepository;
+    StoredObjectRepository storedObjectRepository;
+    ObjectMapper objectMapper;
+    String bucketName;
+    boolean enabled;
+    boolean defaultDryRun;
+    Duration gracePeriod;
+
+    AtomicBoolean running = new AtomicBoolean(false);
+    AtomicReference<StorageGcRunResponse> lastRun = new AtomicReference<>();
+
+    public S3OrphanCollector(
+            S3Client s3Client,
+            S3Service s3Service,
+            TourRepository tourRepository,
+            TourPointRepository tourPointRepository,
+            UserRepository userRepository,
+            BookingRepository bookingRepository,
+            ChatMessageRepository chatMessageRepository,
+            StoredObjectRepository storedObjectRepository,
+            ObjectMapper objectMapper,
+            @Value("${aws.s3.bucket-name}") String bucketName,
+            @Value("${aws.s3.gc.enabled:true}") boolean enabled,
+            @Value("${aws.s3.gc.dry-run:true}") boolean defaultDryRun,
+            @Value("${aws.s3.gc.grace-hours:72}") long graceHours) {
+        this.s3Client = s3Client;
+        this.s3Service = s3Service;
+        this.tourRepository = tourRepository;
+        this.tourPointRepository = tourPointRepository;
+        this.userRepository = userRepository;
+        this.bookingRepository = bookingRepository;
+        this.chatMessageRepository = chatMessageRepository;
+        this.storedObjectRepository = storedObjectRepository;
+        this.objectMapper = objectMapper;
+        this.bucketName = bucketName;
+        this.enabled = enabled;
+        this.defaultDryRun = defaultDryRun;
+        this.gracePeriod = Duration.ofHours(Math.max(1, graceHours));
+    }
+
+    @Scheduled(cron = "${aws.s3.gc.cron:0 45 4 * * *}")
+    public void scheduledRun() {
+        if (enabled) {
+            run(defaultDryRun);
+        }
+    }
+
+    /**
+     * Chạy một lần; trả null nếu đang có lần chạy khác
+     */
+    public StorageGcRunResponse run(boolean dryRun) {
+        if (!running.compareAndSet(false, true)) {
+            log.info("Storage GC already running, skipping");
+            return null;
+        }
+        try {
+            StorageGcRunResponse result = collect(dryRun);
+            lastRun.set(result);
+            log.info("Storage GC finished (dryRun={}): scanned={}, orphans={} ({} bytes), deleted={}, failed={}",
+                    dryRun, result.getScannedObjects(), result.getOrphanObjects(), result.getOrphanBytes(),
+                    result.getDeletedObjects(), result.getFailedDeletes());
+            return result;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public StorageGcRunResponse getLastRun() {
+        return lastRun.get();
+    }
+
+    private StorageGcRunResponse collect(boolean dryRun) {
+        LocalDateTime startedAt = LocalDateTime.now();
+        long startNanos = System.nanoTime();
+        Instant cutoff = Instant.now().minus(gracePeriod);
+
+        KeyFingerprintSet referenced = loadReferencedKeys(startedAt.minus(gracePeriod));
+        long scanned = 0;
+        long skippedRecent = 0;
+        long orphans = 0;
+        long orphanBytes = 0;
+        long[] deleteCounts = new long[2]; // [deleted, failed]
+        String error = null;
+
+        List<String> batch = new ArrayList<>(DELETE_BATCH_SIZE);
+        try {
+            String continuationToken = null;
+            do {
+                ListObjectsV2Response page = s3Client.listObjectsV2(ListObjectsV2Request.builder()
+                        .bucket(bucketName)
+                        .continuationToken(continuationToken)
+                        .build());
+                for (S3Object object : page.contents()) {
+                    scanned++;
+                    if (object.lastModified() != null && object.lastModified().isAfter(cutoff)) {
+                        skippedRecent++;
+                        continue;
+                    }
+                    if (referenced.contains(object.key())) {
+                        continue;
+                    }
+                    orphans++;
+                    orphanBytes += object.size() != null ? object.size() : 0;
+                    if (!dryRun) {
+                        batch.add(object.key());
+                        if (batch.size() == DELETE_BATCH_SIZE) {
+                            deleteBatch(batch, startedAt, deleteCounts);
+                        }
+                    } else if (log.isDebugEnabled()) {
+                        log.debug("Storage GC dry-run orphan: {}", object.key());
+                    }
+                }
+                continuationToken = Boolean.TRUE.equals(page.isTruncated()) ? page.nextContinuationToken() : null;
+            } while (continuationToken != null);
+
+            if (!batch.isEmpty()) {
+                deleteBatch(batch, startedAt, deleteCounts);
+            }
+        } catch (Exception e) {
+            log.error("Storage GC aborted", e);
+            error = e.getMessage();
+        }
+
+        return StorageGcRunResponse.builder()
+                .startedAt(startedAt)
+                .durationMs((System.nanoTime() - startNanos) / 1_000_000)
+                .dryRun(dryRun)
+                .referencedKeys(referenced.size())
+                .scannedObjects(scanned)
+                .skippedRecent(skippedRecent)
+                .orphanObjects(orphans)
+                .orphanBytes(orphanBytes)
+                .deletedObjects(deleteCounts[0])
+                .failedDeletes(deleteCounts[1])
+                .error(error)
+                .build();
+    }
+
+    /**
+     * Key đang dùng, kèm key các bản thu nhỏ suy ra từ chúng
+     */
+    private KeyFingerprintSet loadReferencedKeys(LocalDateTime recentSince) {
+        KeyFingerprintSet keys = new KeyFingerprintSet();
+        for (Object[] row : tourRepository.findImageReferences()) {
+            addUrl(keys, (String) row[0]);
+            String imageUrlsJson = (String) row[1];
+            if (imageUrlsJson != null && !imageUrlsJson.isEmpty()) {
+                try {
+                    for (String url : objectMapper.readValue(imageUrlsJson, String[].class)) {
+                        addUrl(keys, url);
+                    }
+                } catch (JsonProcessingException e) {
+                    // Không đọc được danh sách ảnh thì không dám dọn: dừng cả lần chạy
+                    throw new IllegalStateException("Unreadable tour imageUrls, aborting GC", e);
+                }
+            }
+        }
+        tourPointRepository.findImageUrls().forEach(url -> addUrl(keys, url));
+        userRepository.findAvatarUrls().forEach(url -> addUrl(keys, url));
+        bookingRepository.findActiveQrCodeUrls().forEach(url -> addUrl(keys, url));
+        chatMessageRepository.findImageUrls().forEach(url -> addUrl(keys, url));
+        storedObjectRepository.findKeysReferencedSince(recentSince).forEach(key -> addKey(keys, key));
+        return keys.seal();
+    }
+
+    private void addUrl(KeyFingerprintSet keys, String url) {
+        String key = s3Service.keyFromUrl(url);
+        if (key != null) {
+            addKey(keys, key);
+        }
+    }
+
+    private void addKey(KeyFingerprintSet keys, String key) {
+        keys.add(key);
+        if (!key.startsWith(ImageDerivativeService.DERIVED_PREFIX)) {
+            for (ImageDerivativeService.Variant variant : ImageDerivativeService.Variant.values()) {
+                keys.add(ImageDerivativeService.derivedKey(key, variant));
+            }
+        }
+    }
+
+    private void deleteBatch(List<String> batch, LocalDateTime startedAt, long[] deleteCounts) {
+        // Object có thể vừa được cấp lại qua dedup trong lúc đang duyệt bucket
+        List<String> reused = storedObjectRepository.findKeysReferencedSince(startedAt);
+        batch.removeAll(reused);
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<ObjectIdentifier> identifiers = batch.stream()
+                .map(key -> ObjectIdentifier.builder().key(key).build())
+                .toList();
+        DeleteObjectsResponse response = s3Client.deleteObjects(DeleteObjectsRequest.builder()
+                .bucket(bucketName)
+                .delete(Delete.builder().objects(identifiers).quiet(true).build())
+                .build());
+        Set<String> failedKeys = response.errors().stream().map(S3Error::key).collect(Collectors.toSet());
+        deleteCounts[0] += batch.size() - failedKeys.size();
+        deleteCounts[1] += failedKeys.size();
+        response.errors().forEach(e -> log.warn("Storage GC failed to delete {}: {}", e.key(), e.message()));
+
+        // Object xóa lỗi vẫn còn trên bucket: giữ bản ghi stored_object để dedup không trỏ vào object đã mất
+        List<String> deleted = batch.stream().filter(key -> !failedKeys.contains(key)).toList();
+        if (!deleted.isEmpty()) {
+            storedObjectRepository.deleteByObjectKeyIn(deleted);
+        }
+        batch.clear();
+    }
+}
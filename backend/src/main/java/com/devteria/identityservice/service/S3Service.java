@@ -1,25 +1,75 @@
 package com.devteria.identityservice.service;
 
 import java.io.IOException;
-import java.util.UUID;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.devteria.identityservice.dto.request.PresignedUploadRequest;
+import com.devteria.identityservice.dto.response.PresignedUploadResponse;
+import com.devteria.identityservice.entity.StoredObject;
+import com.devteria.identityservice.exception.AppException;
+import com.devteria.identityservice.exception.ErrorCode;
+import com.devteria.identityservice.repository.StoredObjectRepository;
+import com.devteria.identityservice.util.SingleFlight;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.ChecksumMode;
 import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class S3Service {
 
+    private static final Pattern FOLDER_PATTERN = Pattern.compile("[a-z0-9-]{1,40}");
+    private static final Pattern EXTENSION_PATTERN = Pattern.compile("\\.[A-Za-z0-9]{1,5}");
+    private static final Pattern SHA256_PATTERN = Pattern.compile("[0-9a-f]{64}");
+    private static final Duration MAX_PRESIGN_EXPIRY = Duration.ofHours(1);
+
     private final S3Client s3Client;
+    private final S3Presigner s3Presigner;
+    private final StoredObjectRepository storedObjectRepository;
+    private final S3MultipartUploader multipartUploader;
+    private final Object[] hashLocks = newLocks(64);
+    private final SingleFlight<String, String> uploadFlights = new SingleFlight<>();
+
+    // username|key -> phiên upload đã cấp URL, chờ /upload/complete (key theo nội dung nên nhiều user có thể trùng key)
+    private final Cache<String, PendingUpload> pendingUploads = Caffeine.newBuilder()
+            .expireAfterWrite(MAX_PRESIGN_EXPIRY)
+            .maximumSize(10_000)
+            .build();
 
     @Value("${aws.s3.bucket-name}")
     private String bucketName;
@@ -27,62 +77,341 @@ public class S3Service {
     @Value("${aws.s3.endpoint}")
     private String endpoint;
 
+    @Value("${aws.s3.upload.max-size-bytes:10485760}")
+    private long maxUploadBytes;
+
+    @Value("${aws.s3.upload.presign-expiry-minutes:10}")
+    private long presignExpiryMinutes;
+
+    private static Object[] newLocks(int count) {
+        Object[] locks = new Object[count];
+        for (int i = 0; i < count; i++) {
+            locks[i] = new Object();
+        }
+        return locks;
+    }
+
+    private record PendingUpload(String contentType, long contentLength, String sha256) {
+    }
+
     /**
-     * Upload a file to S3 and return the public URL
+     * Upload a file to S3 and return the public URL.
+     * Key theo SHA-256 nội dung; nếu nội dung đã có trong bucket thì bỏ qua PUT và trả URL cũ.
      * @param file MultipartFile to upload
      * @param folder Folder/prefix in the bucket (e.g., "tours", "tour-points")
      * @return Public URL of the uploaded file
      */
     public String uploadFile(MultipartFile file, String folder) {
         try {
-            // Generate unique filename
+            String sha256;
+            try (InputStream in = file.getInputStream()) {
+                sha256 = sha256Hex(in);
+            }
+
             String originalFilename = file.getOriginalFilename();
             String extension = "";
             if (originalFilename != null && originalFilename.contains(".")) {
-                extension = originalFilename.substring(originalFilename.lastIndexOf("."));
+                String candidate = originalFilename.substring(originalFilename.lastIndexOf("."));
+                if (EXTENSION_PATTERN.matcher(candidate).matches()) {
+                    extension = candidate.toLowerCase();
+                }
             }
-            String key = folder + "/" + UUID.randomUUID().toString() + extension;
+            String key = folder + "/" + sha256 + extension;
 
-            // Upload to S3
-            PutObjectRequest putObjectRequest = PutObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(key)
-                    .contentType(file.getContentType())
-                    .build();
+            synchronized (lockFor(sha256)) {
+                String existingUrl = reuseExisting(sha256);
+                if (existingUrl != null) {
+                    log.info("Upload deduplicated, reusing {}", existingUrl);
+                    return existingUrl;
+                }
+            }
 
-            s3Client.putObject(putObjectRequest, RequestBody.fromInputStream(file.getInputStream(), file.getSize()));
+            // Upload không giữ lock theo hash (dài với file lớn); cùng key thì chỉ 1 luồng upload, các luồng khác chờ.
+            // Luồng khác upload cùng nội dung dưới key khác thì register() giữ bản đăng ký trước.
+            uploadFlights.execute(key, () -> {
+                putContent(key, file);
+                return key;
+            });
+            String registeredKey;
+            synchronized (lockFor(sha256)) {
+                registeredKey = register(sha256, key, file.getContentType(), file.getSize());
+            }
 
             // Return the public URL
-            String fileUrl = endpoint + "/" + bucketName + "/" + key;
+            String fileUrl = urlForKey(registeredKey);
             log.info("File uploaded successfully: {}", fileUrl);
             return fileUrl;
 
         } catch (IOException e) {
             log.error("Failed to upload file to S3", e);
             throw new RuntimeException("Failed to upload file: " + e.getMessage());
+        } catch (UncheckedIOException e) {
+            log.error("Failed to upload file to S3", e.getCause());
+            throw new RuntimeException("Failed to upload file: " + e.getCause().getMessage());
+        }
+    }
+
+    private void putContent(String key, MultipartFile file) {
+        if (multipartUploader.shouldUseMultipart(file.getSize())) {
+            // File lớn: các part song song, lỗi giữa chừng thì lần sau upload tiếp phần còn thiếu
+            multipartUploader.upload(key, file.getContentType(), file.getSize(), file);
+            return;
+        }
+        try (InputStream in = file.getInputStream()) {
+            s3Client.putObject(PutObjectRequest.builder()
+                            .bucket(bucketName)
+                            .key(key)
+                            .contentType(file.getContentType())
+                            .build(),
+                    RequestBody.fromInputStream(in, file.getSize()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Cấp presigned PUT URL để browser upload ảnh thẳng lên bucket.
+     * Content-Type, Content-Length và checksum SHA-256 được ký vào URL, nên S3 từ chối nếu client gửi khác đi;
+     * key theo SHA-256 nội dung như uploadFile.
+     */
+    public PresignedUploadResponse presignUpload(PresignedUploadRequest request) {
+        String contentType = request.getContentType().trim().toLowerCase();
+        long contentLength = request.getContentLength();
+        if (!isAllowedImageType(contentType) || contentLength <= 0 || contentLength > maxUploadBytes) {
+            throw new AppException(ErrorCode.INVALID_UPLOAD);
+        }
+
+        String folder = request.getFolder() == null || request.getFolder().isBlank() ? "images" : request.getFolder();
+        if (!FOLDER_PATTERN.matcher(folder).matches()) {
+            throw new AppException(ErrorCode.INVALID_UPLOAD);
+        }
+
+        // Hash của client được ký vào URL, S3 kiểm tra lại khi nhận nội dung
+        String sha256 = request.getSha256() != null ? request.getSha256().trim().toLowerCase() : "";
+        if (!SHA256_PATTERN.matcher(sha256).matches()) {
+            throw new AppException(ErrorCode.INVALID_UPLOAD);
         }
+
+        // Nội dung đã có: không cần upload lại
+        synchronized (lockFor(sha256)) {
+            String existingUrl = reuseExisting(sha256);
+            if (existingUrl != null) {
+                log.info("Presigned upload deduplicated, reusing {}", existingUrl);
+                return PresignedUploadResponse.builder()
+                        .duplicate(true)
+                        .key(keyFromUrl(existingUrl))
+                        .fileUrl(existingUrl)
+                        .build();
+            }
+        }
+
+        String extension = "";
+        String fileName = request.getFileName();
+        if (fileName != null && fileName.contains(".")) {
+            String candidate = fileName.substring(fileName.lastIndexOf("."));
+            if (EXTENSION_PATTERN.matcher(candidate).matches()) {
+                extension = candidate.toLowerCase();
+            }
+        }
+        String key = folder + "/" + sha256 + extension;
+
+        Duration expiry = Duration.ofMinutes(Math.max(1, presignExpiryMinutes));
+        if (expiry.compareTo(MAX_PRESIGN_EXPIRY) > 0) {
+            expiry = MAX_PRESIGN_EXPIRY;
+        }
+
+        PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .contentType(contentType)
+                .contentLength(contentLength)
+                .checksumSHA256(base64Sha256(sha256))
+                .build();
+        PresignedPutObjectRequest presigned = s3Presigner.presignPutObject(PutObjectPresignRequest.builder()
+                .signatureDuration(expiry)
+                .putObjectRequest(putObjectRequest)
+                .build());
+
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        pendingUploads.put(pendingKey(username, key), new PendingUpload(contentType, contentLength, sha256));
+
+        log.info("Issued presigned upload for {} ({} bytes, {}) to {}", key, contentLength, contentType, username);
+        return PresignedUploadResponse.builder()
+                .duplicate(false)
+                .uploadUrl(presigned.url().toString())
+                .method("PUT")
+                .headers(requiredHeaders(presigned))
+                .key(key)
+                .fileUrl(endpoint + "/" + bucketName + "/" + key)
+                .expiresAt(Instant.now().plus(expiry))
+                .build();
+    }
+
+    /**
+     * Callback sau khi browser PUT xong: kiểm tra object thực sự tồn tại, đúng kích thước, loại ảnh và checksum đã ký.
+     * Nội dung đã được S3 xác thực theo checksum nên không cần tải object về để băm lại.
+     * @return Public URL của file
+     */
+    public String completeUpload(String key) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        PendingUpload pending = pendingUploads.getIfPresent(pendingKey(username, key));
+        if (pending == null) {
+            throw new AppException(ErrorCode.UPLOAD_NOT_FOUND);
+        }
+
+        HeadObjectResponse head;
+        try {
+            head = s3Client.headObject(HeadObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .checksumMode(ChecksumMode.ENABLED)
+                    .build());
+        } catch (NoSuchKeyException e) {
+            throw new AppException(ErrorCode.UPLOAD_NOT_FOUND);
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                throw new AppException(ErrorCode.UPLOAD_NOT_FOUND);
+            }
+            throw e;
+        }
+
+        boolean valid = head.contentLength() != null
+                && head.contentLength() == pending.contentLength()
+                && head.contentLength() <= maxUploadBytes
+                && pending.contentType().equalsIgnoreCase(head.contentType())
+                // Store không trả checksum (không hỗ trợ checksumMode) thì dựa vào việc S3 đã kiểm tra lúc PUT
+                && (head.checksumSHA256() == null || head.checksumSHA256().equals(base64Sha256(pending.sha256())));
+        pendingUploads.invalidate(pendingKey(username, key));
+
+        String sha256 = pending.sha256();
+        synchronized (lockFor(sha256)) {
+            if (!valid) {
+                log.warn("Rejected direct upload {}: expected {} bytes {}, got {} bytes {}", key,
+                        pending.contentLength(), pending.contentType(), head.contentLength(), head.contentType());
+                // Key theo nội dung: không xóa nếu đã có bản hợp lệ đăng ký dưới key này
+                if (storedObjectRepository.findByObjectKey(key).isEmpty()) {
+                    deleteObject(key);
+                }
+                throw new AppException(ErrorCode.INVALID_UPLOAD);
+            }
+
+            String existingUrl = reuseExisting(sha256);
+            if (existingUrl != null) {
+                if (!key.equals(keyFromUrl(existingUrl))) {
+                    deleteObject(key);
+                }
+                log.info("Direct upload {} deduplicated, reusing {}", key, existingUrl);
+                return existingUrl;
+            }
+            key = register(sha256, key, pending.contentType(), pending.contentLength());
+        }
+
+        String fileUrl = urlForKey(key);
+        log.info("Direct upload completed: {}", fileUrl);
+        return fileUrl;
     }
 
     /**
-     * Delete a file from S3
+     * Public URL của một object trong bucket
+     */
+    public String urlForKey(String key) {
+        return endpoint + "/" + bucketName + "/" + key;
+    }
+
+    /**
+     * Object key từ public URL, null nếu URL không thuộc bucket này
+     */
+    public String keyFromUrl(String fileUrl) {
+        String prefix = endpoint + "/" + bucketName + "/";
+        if (fileUrl == null || !fileUrl.startsWith(prefix) || fileUrl.length() == prefix.length()) {
+            return null;
+        }
+        return fileUrl.substring(prefix.length());
+    }
+
+    public boolean exists(String key) {
+        try {
+            s3Client.headObject(HeadObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .build());
+            return true;
+        } catch (NoSuchKeyException e) {
+            return false;
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Đọc object, trả về null nếu lớn hơn maxBytes
+     */
+    public byte[] readObject(String key, long maxBytes) throws IOException {
+        try (ResponseInputStream<GetObjectResponse> in = s3Client.getObject(GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .build())) {
+            Long length = in.response().contentLength();
+            if (length != null && length > maxBytes) {
+                in.abort();
+                return null;
+            }
+            return in.readAllBytes();
+        }
+    }
+
+    public void putObject(String key, byte[] bytes, String contentType, String cacheControl) {
+        s3Client.putObject(PutObjectRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .contentType(contentType)
+                        .cacheControl(cacheControl)
+                        .build(),
+                RequestBody.fromBytes(bytes));
+    }
+
+    // SVG có thể chứa script nên không cho upload thẳng
+    private boolean isAllowedImageType(String contentType) {
+        return contentType.startsWith("image/") && !contentType.contains("svg");
+    }
+
+    /**
+     * Delete a file from S3.
+     * File đã đăng ký trong stored_object chỉ giảm issueCount; object (và các bản thu nhỏ) bị xóa khi mọi lần cấp
+     * đều đã được xóa. Tham chiếu bị bỏ mà không gọi hàm này (thay ảnh tour...) do S3OrphanCollector dọn.
      * @param fileUrl The full URL of the file to delete
      */
     public void deleteFile(String fileUrl) {
         try {
             // Extract key from URL
-            String prefix = endpoint + "/" + bucketName + "/";
-            if (!fileUrl.startsWith(prefix)) {
+            String key = keyFromUrl(fileUrl);
+            if (key == null) {
                 log.warn("Invalid S3 URL format: {}", fileUrl);
                 return;
             }
-            String key = fileUrl.substring(prefix.length());
 
-            DeleteObjectRequest deleteObjectRequest = DeleteObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(key)
-                    .build();
+            StoredObject stored = storedObjectRepository.findByObjectKey(key).orElse(null);
+            if (stored == null) {
+                // File cũ trước khi có stored_object
+                deleteObject(key);
+                log.info("File deleted successfully: {}", fileUrl);
+                return;
+            }
 
-            s3Client.deleteObject(deleteObjectRequest);
+            synchronized (lockFor(stored.getSha256())) {
+                storedObjectRepository.decrementIssueCount(stored.getId());
+                if (storedObjectRepository.deleteIfNoIssues(stored.getId()) == 0) {
+                    log.info("File {} still referenced, keeping object", fileUrl);
+                    return;
+                }
+                deleteObject(key);
+                for (ImageDerivativeService.Variant variant : ImageDerivativeService.Variant.values()) {
+                    deleteObject(ImageDerivativeService.derivedKey(key, variant));
+                }
+            }
             log.info("File deleted successfully: {}", fileUrl);
 
         } catch (Exception e) {
@@ -90,4 +419,95 @@ public class S3Service {
             throw new RuntimeException("Failed to delete file: " + e.getMessage());
         }
     }
+
+    private void deleteObject(String key) {
+        s3Client.deleteObject(DeleteObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .build());
+    }
+
+    /**
+     * Nội dung đã có trong bucket: tăng issueCount và trả URL cũ, ngược lại null.
+     * Phải gọi trong lockFor(sha256).
+     */
+    private String reuseExisting(String sha256) {
+        StoredObject existing = storedObjectRepository.findBySha256(sha256).orElse(null);
+        if (existing == null) {
+            return null;
+        }
+        if (!exists(existing.getObjectKey())) {
+            // Object bị xóa ngoài hệ thống, bỏ bản ghi để upload lại
+            storedObjectRepository.delete(existing);
+            return null;
+        }
+        storedObjectRepository.incrementIssueCount(sha256, LocalDateTime.now());
+        return urlForKey(existing.getObjectKey());
+    }
+
+    /**
+     * Đăng ký object vừa upload, trả về key được dùng.
+     * Instance khác vừa đăng ký cùng nội dung (có thể dưới key khác): bỏ bản vừa upload, trả key đã đăng ký.
+     */
+    private String register(String sha256, String key, String contentType, long size) {
+        try {
+            storedObjectRepository.save(StoredObject.builder()
+                    .sha256(sha256)
+                    .objectKey(key)
+                    .contentType(contentType)
+                    .size(size)
+                    .issueCount(1)
+                    .build());
+            return key;
+        } catch (DataIntegrityViolationException e) {
+            storedObjectRepository.incrementIssueCount(sha256, LocalDateTime.now());
+            String registeredKey = storedObjectRepository.findBySha256(sha256)
+                    .map(StoredObject::getObjectKey)
+                    .orElse(key);
+            if (!registeredKey.equals(key)) {
+                deleteObject(key);
+                log.info("Upload {} registered concurrently as {}, duplicate removed", key, registeredKey);
+            }
+            return registeredKey;
+        }
+    }
+
+    private static String pendingKey(String username, String key) {
+        return username + "|" + key;
+    }
+
+    private static String base64Sha256(String sha256Hex) {
+        return Base64.getEncoder().encodeToString(HexFormat.of().parseHex(sha256Hex));
+    }
+
+    // Header đã ký mà browser phải gửi y nguyên (Host và Content-Length do browser tự đặt)
+    private static Map<String, String> requiredHeaders(PresignedPutObjectRequest presigned) {
+        Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        presigned.signedHeaders().forEach((name, values) -> {
+            if (!name.equalsIgnoreCase("host") && !name.equalsIgnoreCase("content-length")) {
+                headers.put(name, String.join(",", values));
+            }
+        });
+        return headers;
+    }
+
+    // Khóa theo hash (striped) để kiểm tra-rồi-ghi của cùng một nội dung không chen nhau trong instance này
+    private Object lockFor(String sha256) {
+        return hashLocks[Math.floorMod(sha256.hashCode(), hashLocks.length)];
+    }
+
+    private static String sha256Hex(InputStream in) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
 }
@@ -0,0 +1,311 @@
+package com.devteria.identityservice.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.devteria.identityservice.dto.response.TourDayRouteResponse;
+import com.devteria.identityservice.dto.response.VietmapRouteResponse;
+import com.devteria.identityservice.entity.Location;
+import com.devteria.identityservice.entity.Tour;
+import com.devteria.identityservice.entity.TourDayRoute;
+import com.devteria.identityservice.entity.TourPoint;
+import com.devteria.identityservice.exception.AppException;
+import com.devteria.identityservice.exception.ErrorCode;
+import com.devteria.identityservice.repository.TourDayRouteRepository;
+import com.devteria.identityservice.repository.TourRepository;
+import com.devteria.identityservice.util.PolylineCodec;
+import com.devteria.identityservice.util.SingleFlight;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Tính lộ trình riêng cho từng ngày của tour nhiều ngày.
+ * Mỗi ngày là 1 lời gọi Route API, chạy song song trên routeSegmentExecutor (bounded).
+ * Route được tính khi tạo tour; tour cũ chưa có dữ liệu được tính bù ở lần đọc đầu tiên, mỗi tour 1 lần
+ * (single-flight trong instance, unique constraint uk_tour_day_route giữa các instance).
+ * Luồng tính route chỉ nhận tọa độ {lat, lng}, không nhận entity, để không chạm lazy proxy ngoài session.
+ */
+@Service
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class TourDayRouteService {
+    static final long DAY_ROUTES_TIMEOUT_SECONDS = 30;
+
+    VietmapService vietmapService;
+    TourRepository tourRepository;
+    TourDayRouteRepository tourDayRouteRepository;
+    Executor routeSegmentExecutor;
+    TransactionTemplate readTransaction;
+    TransactionTemplate writeTransaction;
+    SingleFlight<Long, List<TourDayRoute>> backfillFlights = new SingleFlight<>();
+
+    // Dữ liệu của tour cần để tính bù, chép ra giá trị thuần trong transaction ngắn rồi gọi Vietmap ngoài transaction
+    private record BackfillSource(Map<Integer, List<double[]>> coordinatesByDay, String vehicle,
+            Double totalDistance, Long totalTime, String routePolyline, Boolean routeEstimated) {
+    }
+
+    public TourDayRouteService(
+            VietmapService vietmapService,
+            TourRepository tourRepository,
+            TourDayRouteRepository tourDayRouteRepository,
+            @Qualifier("routeSegmentExecutor") Executor routeSegmentExecutor,
+            PlatformTransactionManager transactionManager) {
+        this.vietmapService = vietmapService;
+        this.tourRepository = tourRepository;
+        this.tourDayRouteRepository = tourDayRouteRepository;
+        this.routeSegmentExecutor = routeSegmentExecutor;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Bắt đầu tính route cho từng ngày song song, trả về future để caller làm việc khác trong lúc chờ.
+     * Ngày có ít hơn 2 địa điểm chỉ lưu số điểm, không có polyline.
+     * Ngày gọi Vietmap lỗi sẽ bị bỏ qua (tour vẫn được tạo, có thể tính lại sau).
+     */
+    public CompletableFuture<List<TourDayRoute>> computeAsync(
+            Map<Integer, List<double[]>> coordinatesByDay, String vehicle) {
+        List<CompletableFuture<TourDayRoute>> futures = new ArrayList<>(coordinatesByDay.size());
+        coordinatesByDay.forEach((dayNumber, coordinates) -> futures.add(
+                CompletableFuture.supplyAsync(() -> computeDay(dayNumber, coordinates, vehicle), routeSegmentExecutor)
+                        .exceptionally(e -> {
+                            log.warn("Failed to compute route for day {}: {}", dayNumber, e.getMessage());
+                            return null;
+                        })));
+
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                .orTimeout(DAY_ROUTES_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .handle((ignored, e) -> {
+                    if (e != null) {
+                        log.warn("Day routes not completed within {}s, keeping finished days only",
+                                DAY_ROUTES_TIMEOUT_SECONDS);
+                    }
+                    return futures.stream()
+                            .filter(future -> future.isDone() && !future.isCompletedExceptionally())
+                            .map(CompletableFuture::join)
+                            .filter(Objects::nonNull)
+                            .collect(Collectors.toList());
+                });
+    }
+
+    /**
+     * Lộ trình từng ngày của tour. Tour cũ chưa có dữ liệu sẽ được tính và lưu ở lần gọi đầu tiên.
+     */
+    public List<TourDayRouteResponse> getDayRoutes(Long tourId) {
+        return loadOrBackfill(tourId).stream().map(this::toResponse).collect(Collectors.toList());
+    }
+
+    public TourDayRouteResponse getDayRoute(Long tourId, Integer dayNumber) {
+        return tourDayRouteRepository.findByTourIdAndDayNumber(tourId, dayNumber)
+                .or(() -> loadOrBackfill(tourId).stream()
+                        .filter(route -> route.getDayNumber().equals(dayNumber))
+                        .findFirst())
+                .map(this::toResponse)
+                .orElseThrow(() -> new AppException(ErrorCode.TOUR_DAY_ROUTE_NOT_FOUND));
+    }
+
+    /**
+     * Gom tọa độ địa điểm của các điểm tour theo ngày, giữ thứ tự orderIndex trong ngày.
+     * Gọi trong transaction: location là quan hệ LAZY.
+     */
+    public Map<Integer, List<double[]>> groupByDay(List<TourPoint> tourPoints) {
+        Map<Integer, List<double[]>> coordinatesByDay = new TreeMap<>();
+        tourPoints.stream()
+                .filter(point -> point.getLocation() != null)
+                .sorted(Comparator.comparing(TourPoint::getOrderIndex))
+                .forEach(point -> coordinatesByDay
+                        .computeIfAbsent(point.getDayNumber(), day -> new ArrayList<>())
+                        .add(coordinates(point.getLocation())));
+        return coordinatesByDay;
+    }
+
+    /**
+     * Chép tọa độ địa điểm theo ngày ra mảng {lat, lng} trước khi giao cho routeSegmentExecutor
+     */
+    public Map<Integer, List<double[]>> toCoordinates(Map<Integer, List<Location>> locationsByDay) {
+        Map<Integer, List<double[]>> coordinatesByDay = new TreeMap<>();
+        locationsByDay.forEach((dayNumber, locations) -> coordinatesByDay.put(dayNumber,
+                locations.stream().map(TourDayRouteService::coordinates).collect(Collectors.toList())));
+        return coordinatesByDay;
+    }
+
+    private static double[] coordinates(Location location) {
+        return new double[] {location.getLatitude(), location.getLongitude()};
+    }
+
+    /**
+     * Tour 1 ngày: lộ trình của ngày chính là lộ trình cả tour, không cần gọi lại Vietmap
+     */
+    public TourDayRoute singleDayRoute(Integer dayNumber, int pointCount, VietmapRouteResponse response) {
+        VietmapRouteResponse.RoutePath path = firstPath(response);
+        return TourDayRoute.builder()
+                .dayNumber(dayNumber)
+                .pointCount(pointCount)
+                .totalDistance(path != null ? path.getDistance() : null)
+                .totalTime(path != null ? path.getTime() : null)
+                .routePolyline(path != null ? path.getPoints() : null)
+                .routeEstimated(isEstimate(response))
+                .build();
+    }
+
+    /**
+     * Tour đã tối ưu (TSP): điểm tour giữ thứ tự agent nhập, còn lộ trình cả tour đi theo thứ tự tối ưu.
+     * Sắp lại địa điểm trong mỗi ngày theo vị trí xuất hiện trên polyline của cả tour.
+     */
+    public Map<Integer, List<double[]>> orderAlongRoute(
+            Map<Integer, List<double[]>> coordinatesByDay, String routePolyline) {
+        List<double[]> route = PolylineCodec.decode(routePolyline);
+        if (route.isEmpty()) {
+            return coordinatesByDay;
+        }
+        Map<Integer, List<double[]>> ordered = new TreeMap<>();
+        coordinatesByDay.forEach((dayNumber, coordinates) -> {
+            Map<double[], Integer> position = new IdentityHashMap<>();
+            coordinates.forEach(point -> position.put(point, nearestVertex(route, point)));
+            List<double[]> sorted = new ArrayList<>(coordinates);
+            sorted.sort(Comparator.comparing(position::get));
+            ordered.put(dayNumber, sorted);
+        });
+        return ordered;
+    }
+
+    // Đỉnh gần nhất của polyline; roundtrip đi qua điểm xuất phát 2 lần thì lấy lần đầu
+    private int nearestVertex(List<double[]> route, double[] point) {
+        double cosLat = Math.cos(Math.toRadians(point[0]));
+        int best = 0;
+        double bestDistance = Double.MAX_VALUE;
+        for (int i = 0; i < route.size(); i++) {
+            double dLat = route.get(i)[0] - point[0];
+            double dLng = (route.get(i)[1] - point[1]) * cosLat;
+            double distance = dLat * dLat + dLng * dLng;
+            if (distance < bestDistance) {
+                best = i;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    private List<TourDayRoute> loadOrBackfill(Long tourId) {
+        List<TourDayRoute> routes = tourDayRouteRepository.findByTourIdOrderByDayNumberAsc(tourId);
+        return routes.isEmpty() ? backfillFlights.execute(tourId, () -> backfill(tourId)) : routes;
+    }
+
+    private List<TourDayRoute> backfill(Long tourId) {
+        // Luồng vừa chờ sau 1 lần tính bù khác đã lưu xong
+        List<TourDayRoute> existing = tourDayRouteRepository.findByTourIdOrderByDayNumberAsc(tourId);
+        if (!existing.isEmpty()) {
+            return existing;
+        }
+
+        BackfillSource source = readTransaction.execute(status -> {
+            Tour tour = tourRepository.findById(tourId)
+                    .orElseThrow(() -> new AppException(ErrorCode.TOUR_NOT_FOUND));
+            Map<Integer, List<double[]>> coordinatesByDay = groupByDay(tour.getTourPoints());
+            if (Boolean.TRUE.equals(tour.getIsOptimized())) {
+                coordinatesByDay = orderAlongRoute(coordinatesByDay, tour.getRoutePolyline());
+            }
+            return new BackfillSource(coordinatesByDay, tour.getVehicle(), tour.getTotalDistance(),
+                    tour.getTotalTime(), tour.getRoutePolyline(), tour.getRouteEstimated());
+        });
+        if (source.coordinatesByDay().isEmpty()) {
+            return List.of();
+        }
+
+        List<TourDayRoute> routes;
+        if (source.coordinatesByDay().size() == 1) {
+            Map.Entry<Integer, List<double[]>> day = source.coordinatesByDay().entrySet().iterator().next();
+            routes = List.of(TourDayRoute.builder()
+                    .dayNumber(day.getKey())
+                    .pointCount(day.getValue().size())
+                    .totalDistance(source.totalDistance())
+                    .totalTime(source.totalTime())
+                    .routePolyline(source.routePolyline())
+                    .routeEstimated(source.routeEstimated())
+                    .build());
+        } else {
+            routes = computeAsync(source.coordinatesByDay(), source.vehicle()).join();
+        }
+        if (routes.size() < source.coordinatesByDay().size()) {
+            // Thiếu ngày do Vietmap lỗi: trả tạm kết quả, không lưu để lần đọc sau tính lại đủ các ngày
+            log.warn("Backfill of tour {} computed {}/{} day routes, not saving",
+                    tourId, routes.size(), source.coordinatesByDay().size());
+            return routes;
+        }
+
+        try {
+            List<TourDayRoute> saved = writeTransaction.execute(status -> {
+                Tour tour = tourRepository.getReferenceById(tourId);
+                routes.forEach(route -> route.setTour(tour));
+                return tourDayRouteRepository.saveAll(routes);
+            });
+            log.info("Backfilled {} day routes for tour {}", saved.size(), tourId);
+            return saved;
+        } catch (DataIntegrityViolationException e) {
+            // Instance khác đã lưu trước (uk_tour_day_route), dùng bản đã lưu
+            log.debug("Day routes of tour {} were backfilled concurrently", tourId);
+            return tourDayRouteRepository.findByTourIdOrderByDayNumberAsc(tourId);
+        }
+    }
+
+    private TourDayRoute computeDay(Integer dayNumber, List<double[]> coordinates, String vehicle) {
+        TourDayRoute.TourDayRouteBuilder route = TourDayRoute.builder()
+                .dayNumber(dayNumber)
+                .pointCount(coordinates.size());
+        if (coordinates.size() < 2) {
+            return route.build();
+        }
+
+        List<String> points = coordinates.stream()
+                .map(point -> point[0] + "," + point[1])
+                .collect(Collectors.toList());
+        VietmapRouteResponse response = vietmapService.getRoute(points, vehicle);
+        VietmapRouteResponse.RoutePath path = firstPath(response);
+        if (path == null) {
+            throw new IllegalStateException("No route path returned for day " + dayNumber);
+        }
+        return route.totalDistance(path.getDistance())
+                .totalTime(path.getTime())
+                .routePolyline(path.getPoints())
+                .routeEstimated(isEstimate(response))
+                .build();
+    }
+
+    static boolean isEstimate(VietmapRouteResponse response) {
+        return response != null && VietmapService.LOCAL_ESTIMATE_CODE.equals(response.getCode());
+    }
+
+    private VietmapRouteResponse.RoutePath firstPath(VietmapRouteResponse response) {
+        return response != null && response.getPaths() != null && !response.getPaths().isEmpty()
+                ? response.getPaths().get(0)
+                : null;
+    }
+
+    private TourDayRouteResponse toResponse(TourDayRoute route) {
+        return TourDayRouteResponse.builder()
+                .dayNumber(route.getDayNumber())
+                .pointCount(route.getPointCount())
+                .totalDistance(route.getTotalDistance())
+                .totalTime(route.getTotalTime())
+                .routePolyline(route.getRoutePolyline())
+                .build();
+    }
+}
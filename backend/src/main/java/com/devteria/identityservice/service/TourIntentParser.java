@@ -0,0 +1,206 @@
+package com.devteria.identityservice.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.stereotype.Component;
+
+import com.devteria.identityservice.util.TextNormalizer;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Bộ phân tích câu hỏi tìm tour chạy local, không cần LLM: thành phố, ngân sách, số ngày, phương tiện.
+ * "tour Đà Lạt 3 ngày dưới 3 triệu đi xe máy" → cityName=Đà Lạt, maxPrice=3000000, numberOfDays=3, vehicle=motorcycle.
+ * Kết quả hoàn toàn xác định theo câu hỏi và danh sách thành phố, nên dùng được làm đường tắt và fallback.
+ */
+@Component
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class TourIntentParser {
+
+    // Số thập phân/ngăn cách hàng nghìn được giữ lại dưới dạng "3p5", "2p500p000" trước khi bỏ dấu câu
+    private static final Pattern DECIMAL_SEPARATOR = Pattern.compile("(\\d)[.,](?=\\d)");
+    private static final String NUMBER = "(\\d+(?:p\\d+)*)";
+
+    private static final Pattern RANGE = Pattern.compile(
+            "(?:tu\\s+)?" + NUMBER + "\\s*(trieu|tr|m|k|nghin|ngan)?\\s+(?:den|toi)\\s+" + NUMBER
+                    + "\\s*(trieu|tr|m|k|nghin|ngan)\\b");
+    private static final Pattern AMOUNT = Pattern.compile(
+            "(?:(duoi|toi da|khong qua|max|re hon|tren|hon|tu|it nhat|toi thieu|min|khoang|tam|gia|ngan sach)\\s+)?"
+                    + NUMBER + "\\s*(trieu|tr|m|k|nghin|ngan|d|dong|vnd)?\\b");
+    private static final Pattern DAYS = Pattern.compile(
+            "\\b(\\d+)\\s*(?:ngay|n)(?:\\s*(\\d+)\\s*(?:dem|d))?\\b");
+    private static final Pattern MOTORCYCLE = Pattern.compile("\\b(xe may|moto|motor|motorcycle|phuot)\\b");
+    private static final Pattern CAR = Pattern.compile("\\b(o to|oto|xe hoi|xe khach|car)\\b");
+    private static final Pattern CITY_PREFIX = Pattern.compile("^(thanh pho|tinh|tp)\\s+");
+
+    // Cách gọi tắt phổ biến → tên chuẩn hóa của thành phố
+    private static final Map<String, String> CITY_ALIASES = new TreeMap<>(Map.of(
+            "sai gon", "ho chi minh",
+            "sg", "ho chi minh",
+            "hcm", "ho chi minh",
+            "tphcm", "ho chi minh",
+            "hn", "ha noi",
+            "dn", "da nang"));
+
+    // Những từ không mang tiêu chí; câu chỉ gồm các từ này + tiêu chí mới được coi là "có cấu trúc"
+    private static final Set<String> NEUTRAL_WORDS = Set.of(
+            "tour", "tours", "du", "lich", "di", "o", "tai", "den", "toi", "cho", "minh", "em", "anh", "ban",
+            "tim", "kiem", "goi", "y", "xem", "co", "nao", "a", "nhe", "nha", "oi", "voi", "giup",
+            "muon", "can", "hay", "list", "danh", "sach", "cac", "nhung", "gia", "re", "chuyen", "trip", "va", "bang");
+
+    AiToolCache aiToolCache;
+    LocationSuggestionService locationSuggestionService;
+
+    /**
+     * Tiêu chí tìm tour; structured = câu hỏi không còn từ nào ngoài tiêu chí và từ trung tính
+     */
+    public record Intent(String cityName, Double minPrice, Double maxPrice, Integer numberOfDays, String vehicle,
+            boolean structured) {
+
+        public boolean isEmpty() {
+            return cityName == null && minPrice == null && maxPrice == null && numberOfDays == null
+                    && vehicle == null;
+        }
+    }
+
+    public Intent parse(String message) {
+        List<String> cityNames = aiToolCache.get("cityNames", locationSuggestionService::getDistinctCityNames);
+        return parse(message, cityNames);
+    }
+
+    public Intent parse(String message, List<String> cityNames) {
+        String marked = DECIMAL_SEPARATOR.matcher(message == null ? "" : message).replaceAll("$1p");
+        String text = " " + TextNormalizer.normalize(marked) + " ";
+
+        // City trước để tên thành phố có số/đơn vị không bị hiểu nhầm
+        String cityName = null;
+        String cityKey = null;
+        for (String city : cityNamesLongestFirst(cityNames)) {
+            String key = cityKey(city);
+            if (!key.isEmpty() && text.contains(" " + key + " ")) {
+                cityName = city;
+                cityKey = key;
+                break;
+            }
+        }
+        if (cityName == null) {
+            for (Map.Entry<String, String> alias : CITY_ALIASES.entrySet()) {
+                String city = text.contains(" " + alias.getKey() + " ") ? findCity(cityNames, alias.getValue()) : null;
+                if (city != null) {
+                    cityName = city;
+                    cityKey = alias.getKey();
+                    break;
+                }
+            }
+        }
+        if (cityKey != null) {
+            text = text.replace(" " + cityKey + " ", "  ");
+        }
+
+        String vehicle = null;
+        Matcher motorcycle = MOTORCYCLE.matcher(text);
+        Matcher car = CAR.matcher(text);
+        if (motorcycle.find()) {
+            vehicle = "motorcycle";
+            text = motorcycle.replaceAll(" ");
+        } else if (car.find()) {
+            vehicle = "car";
+            text = car.replaceAll(" ");
+        }
+
+        Integer numberOfDays = null;
+        Matcher days = DAYS.matcher(text);
+        if (days.find()) {
+            numberOfDays = Integer.parseInt(days.group(1));
+            text = days.replaceFirst(" ");
+        }
+
+        Double minPrice = null;
+        Double maxPrice = null;
+        Matcher range = RANGE.matcher(text);
+        if (range.find()) {
+            String unit = range.group(4);
+            minPrice = money(range.group(1), range.group(2) != null ? range.group(2) : unit);
+            maxPrice = money(range.group(3), unit);
+            text = range.replaceFirst(" ");
+        } else {
+            Matcher amount = AMOUNT.matcher(text);
+            while (amount.find()) {
+                String qualifier = amount.group(1);
+                String unit = amount.group(3);
+                Double value = money(amount.group(2), unit);
+                // Số trần không đơn vị (vd. "2 người") không phải giá, trừ khi đủ lớn hoặc có từ chỉ giá
+                if (value == null || (unit == null && qualifier == null && value < 10_000)) {
+                    continue;
+                }
+                if (qualifier == null || Set.of("duoi", "toi da", "khong qua", "max", "re hon", "gia", "ngan sach")
+                        .contains(qualifier)) {
+                    maxPrice = value;
+                } else if (Set.of("khoang", "tam").contains(qualifier)) {
+                    minPrice = value * 0.8;
+                    maxPrice = value * 1.2;
+                } else {
+                    minPrice = value;
+                }
+                text = text.substring(0, amount.start()) + " " + text.substring(amount.end());
+                break;
+            }
+        }
+
+        boolean structured = cityName != null;
+        for (String token : TextNormalizer.tokens(text)) {
+            if (!NEUTRAL_WORDS.contains(token)) {
+                structured = false;
+                break;
+            }
+        }
+        return new Intent(cityName, minPrice, maxPrice, numberOfDays, vehicle, structured);
+    }
+
+    private List<String> cityNamesLongestFirst(List<String> cityNames) {
+        List<String> sorted = new ArrayList<>(cityNames);
+        sorted.sort(Comparator.comparingInt((String c) -> cityKey(c).length()).reversed());
+        return sorted;
+    }
+
+    private String findCity(List<String> cityNames, String key) {
+        return cityNames.stream().filter(c -> cityKey(c).equals(key)).findFirst().orElse(null);
+    }
+
+    // "Thành phố Đà Lạt" → "da lat"
+    private static String cityKey(String cityName) {
+        return CITY_PREFIX.matcher(TextNormalizer.normalize(cityName)).replaceFirst("");
+    }
+
+    private static Double money(String number, String unit) {
+        if (number == null) {
+            return null;
+        }
+        String[] parts = number.split("p");
+        double value;
+        boolean thousands = parts.length > 2 || (parts.length == 2 && parts[1].length() == 3 && unit == null);
+        if (thousands) {
+            value = Double.parseDouble(String.join("", parts));
+        } else {
+            value = Double.parseDouble(parts.length == 2 ? parts[0] + "." + parts[1] : parts[0]);
+        }
+        if (unit == null) {
+            return value;
+        }
+        return switch (unit) {
+            case "trieu", "tr", "m" -> value * 1_000_000;
+            case "k", "nghin", "ngan" -> value * 1_000;
+            default -> value;
+        };
+    }
+}
@@ -1,20 +1,31 @@
 package com.devteria.identityservice.service;
 
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.devteria.identityservice.dto.projection.TourSummaryView;
 import com.devteria.identityservice.dto.request.TourCreationRequest;
 import com.devteria.identityservice.dto.request.TourUpdateRequest;
 import com.devteria.identityservice.dto.response.TourResponse;
+import com.devteria.identityservice.dto.response.TourSummaryResponse;
 import com.devteria.identityservice.dto.response.VietmapRouteResponse;
+import com.devteria.identityservice.entity.ImageVariants;
 import com.devteria.identityservice.entity.Location;
 import com.devteria.identityservice.entity.Tour;
+import com.devteria.identityservice.entity.TourDayRoute;
 import com.devteria.identityservice.entity.TourPoint;
 import com.devteria.identityservice.entity.User;
 import com.devteria.identityservice.enums.TourStatus;
@@ -25,6 +36,8 @@ import com.devteria.identityservice.repository.ReviewRepository;
 import com.devteria.identityservice.repository.TourRepository;
 import com.devteria.identityservice.repository.TripRepository;
 import com.devteria.identityservice.repository.UserRepository;
+import com.devteria.identityservice.util.FieldSelection;
+import com.devteria.identityservice.util.GeoGrid;
 import com.devteria.identityservice.dto.response.TripResponse;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -45,6 +58,11 @@ public class TourService {
     ReviewRepository reviewRepository;
     UserRepository userRepository;
     VietmapService vietmapService;
+    LocationDistanceService locationDistanceService;
+    TourDayRouteService tourDayRouteService;
+    GeoIndexService geoIndexService;
+    ImageDerivativeService imageDerivativeService;
+    AiToolCache aiToolCache;
     ObjectMapper objectMapper;
 
     @Transactional
@@ -65,7 +83,7 @@ public class TourService {
                 .collect(Collectors.toList());
 
         // Fetch locations for location-based points
-        Map<Long, Location> locationMap = new java.util.HashMap<>();
+        Map<Long, Location> locationMap = new HashMap<>();
         for (TourCreationRequest.TourPointRequest point : locationPoints) {
             if (!locationMap.containsKey(point.getLocationId())) {
                 Location location = locationRepository.findById(point.getLocationId())
@@ -88,9 +106,33 @@ public class TourService {
         boolean useOptimization = request.getUseOptimization() != null && request.getUseOptimization();
         boolean roundtrip = request.getRoundtrip() != null && request.getRoundtrip();
 
+        // Lộ trình từng ngày: bắt đầu song song trong lúc tính lộ trình cả tour
+        List<TourCreationRequest.TourPointRequest> allPoints = request.getPoints();
+        Map<Integer, List<Location>> locationsByDay = new TreeMap<>();
+        IntStream.range(0, allPoints.size())
+                .boxed()
+                .filter(i -> allPoints.get(i).getLocationId() != null)
+                .sorted(Comparator.comparing(i -> allPoints.get(i).getOrderIndex() != null
+                        ? allPoints.get(i).getOrderIndex()
+                        : i))
+                .forEach(i -> locationsByDay
+                        .computeIfAbsent(allPoints.get(i).getDayNumber() != null ? allPoints.get(i).getDayNumber() : 1,
+                                day -> new ArrayList<>())
+                        .add(locationMap.get(allPoints.get(i).getLocationId())));
+        Map<Integer, List<double[]>> coordinatesByDay = tourDayRouteService.toCoordinates(locationsByDay);
+        // Tour tối ưu: các ngày đi theo thứ tự TSP, chỉ biết sau khi có lộ trình cả tour
+        CompletableFuture<List<TourDayRoute>> dayRoutesFuture = locationsByDay.size() > 1 && !useOptimization
+                ? tourDayRouteService.computeAsync(coordinatesByDay, vehicle)
+                : null;
+
         if (pointStrings.size() >= 2) {
             if (useOptimization) {
-                routeResponse = vietmapService.getTspRoute(pointStrings, vehicle, roundtrip);
+                // Ưu tiên khoảng cách đường bộ đã cache cho local solver
+                List<Location> orderedLocations = locationPoints.stream()
+                        .map(p -> locationMap.get(p.getLocationId()))
+                        .collect(Collectors.toList());
+                double[][] costMatrix = locationDistanceService.cachedCostMatrix(orderedLocations, vehicle);
+                routeResponse = vietmapService.getTspRoute(pointStrings, vehicle, roundtrip, costMatrix);
             } else {
                 routeResponse = vietmapService.getRoute(pointStrings, vehicle);
             }
@@ -98,6 +140,7 @@ public class TourService {
 
         // Extract route data
         String polyline = null;
+        boolean routeEstimated = false;
         Double distance = null;
         Long time = null;
         String instructionsJson = null;
@@ -105,6 +148,7 @@ public class TourService {
         if (routeResponse != null && routeResponse.getPaths() != null && !routeResponse.getPaths().isEmpty()) {
             VietmapRouteResponse.RoutePath path = routeResponse.getPaths().get(0);
             polyline = path.getPoints();
+            routeEstimated = VietmapService.LOCAL_ESTIMATE_CODE.equals(routeResponse.getCode());
             distance = path.getDistance();
             time = path.getTime();
 
@@ -117,6 +161,11 @@ public class TourService {
             }
         }
 
+        if (dayRoutesFuture == null && locationsByDay.size() > 1) {
+            dayRoutesFuture = tourDayRouteService.computeAsync(
+                    tourDayRouteService.orderAlongRoute(coordinatesByDay, polyline), vehicle);
+        }
+
         // Create tour entity
         int numberOfDays = request.getNumberOfDays() != null ? request.getNumberOfDays() : 1;
 
@@ -148,12 +197,26 @@ public class TourService {
                 .totalTime(time)
                 .routePolyline(polyline)
                 .routeInstructions(instructionsJson)
+                .routeEstimated(routeEstimated)
                 .imageUrl(thumbnailUrl) // S3 image URL (thumbnail)
                 .imageUrls(imageUrlsJson) // JSON array of all images
                 .createdBy(user)
                 .tourPoints(new ArrayList<>())
+                .dayRoutes(new ArrayList<>())
                 .build();
 
+        List<TourDayRoute> dayRoutes = new ArrayList<>();
+        if (dayRoutesFuture != null) {
+            dayRoutes.addAll(dayRoutesFuture.join());
+        } else if (locationsByDay.size() == 1) {
+            Map.Entry<Integer, List<Location>> day = locationsByDay.entrySet().iterator().next();
+            dayRoutes.add(tourDayRouteService.singleDayRoute(day.getKey(), day.getValue().size(), routeResponse));
+        }
+        for (TourDayRoute dayRoute : dayRoutes) {
+            dayRoute.setTour(tour);
+            tour.getDayRoutes().add(dayRoute);
+        }
+
         // Create tour points (both location-based and free activities)
         for (int i = 0; i < request.getPoints().size(); i++) {
             TourCreationRequest.TourPointRequest pointReq = request.getPoints().get(i);
@@ -181,17 +244,19 @@ public class TourService {
 
         // Save and return
         tour = tourRepository.save(tour);
+        imageDerivativeService.recordAfterCommit(imageUrlsOf(tour));
+        aiToolCache.invalidateAfterCommit();
         return mapToResponse(tour);
     }
 
-    public List<TourResponse> getMyTours() {
+    public List<TourResponse> getMyTours(FieldSelection fields) {
         String username = SecurityContextHolder.getContext().getAuthentication().getName();
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new AppException(ErrorCode.USER_NOT_EXISTED));
 
         return tourRepository.findByCreatedByAndIsActiveTrueOrderByCreatedAtDesc(user)
                 .stream()
-                .map(this::mapToResponse)
+                .map(tour -> mapToResponse(tour, fields))
                 .collect(Collectors.toList());
     }
 
@@ -230,6 +295,8 @@ public class TourService {
 
         tour.setIsActive(false);
         tourRepository.save(tour);
+        geoIndexService.refreshTourAfterCommit(tour);
+        aiToolCache.invalidateAfterCommit();
     }
 
     @Transactional
@@ -260,8 +327,10 @@ public class TourService {
                 tour.setImageUrls(imageUrlsJson);
 
                 // Update thumbnail (first image)
-                if (!request.getImageUrls().isEmpty()) {
+                if (!request.getImageUrls().isEmpty()
+                        && !request.getImageUrls().get(0).equals(tour.getImageUrl())) {
                     tour.setImageUrl(request.getImageUrls().get(0));
+                    tour.setImageVariants(null); // Bản thu nhỏ cũ không còn đúng
                 }
             } catch (JsonProcessingException e) {
                 log.warn("Failed to serialize imageUrls during update", e);
@@ -283,29 +352,40 @@ public class TourService {
                     if (update.getNote() != null) {
                         point.setNote(update.getNote());
                     }
-                    if (update.getImageUrl() != null) {
+                    if (update.getImageUrl() != null && !update.getImageUrl().equals(point.getImageUrl())) {
                         point.setImageUrl(update.getImageUrl());
+                        point.setImageVariants(null);
                     }
                 }
             }
         }
 
         tour = tourRepository.save(tour);
+        imageDerivativeService.recordAfterCommit(imageUrlsOf(tour));
+        aiToolCache.invalidateAfterCommit();
         return mapToResponse(tour);
     }
 
+    // Ảnh đại diện của tour và ảnh của từng điểm
+    private List<String> imageUrlsOf(Tour tour) {
+        List<String> urls = new ArrayList<>();
+        urls.add(tour.getImageUrl());
+        tour.getTourPoints().forEach(point -> urls.add(point.getImageUrl()));
+        return urls;
+    }
+
     // Admin: Get all pending tours
-    public List<TourResponse> getPendingTours() {
+    public List<TourResponse> getPendingTours(FieldSelection fields) {
         return tourRepository.findAll().stream()
                 .filter(tour -> tour.getStatus() == TourStatus.PENDING && tour.getIsActive())
-                .map(this::mapToResponse)
+                .map(tour -> mapToResponse(tour, fields))
                 .collect(Collectors.toList());
     }
 
     // Admin: Get all tours (any status)
-    public List<TourResponse> getAllTours() {
+    public List<TourResponse> getAllTours(FieldSelection fields) {
         return tourRepository.findByIsActiveTrueOrderByCreatedAtDesc().stream()
-                .map(this::mapToResponse)
+                .map(tour -> mapToResponse(tour, fields))
                 .collect(Collectors.toList());
     }
 
@@ -321,6 +401,8 @@ public class TourService {
 
         tour.setStatus(TourStatus.APPROVED);
         tour = tourRepository.save(tour);
+        geoIndexService.refreshTourAfterCommit(tour);
+        aiToolCache.invalidateAfterCommit();
 
         log.info("Tour {} approved by admin", id);
         return mapToResponse(tour);
@@ -339,6 +421,7 @@ public class TourService {
         tour.setStatus(TourStatus.REJECTED);
         tour.setRejectionReason(reason);
         tour = tourRepository.save(tour);
+        aiToolCache.invalidateAfterCommit();
 
         log.info("Tour {} rejected by admin. Reason: {}", id, reason);
         return mapToResponse(tour);
@@ -346,198 +429,56 @@ public class TourService {
 
     // User: Get approved tours only
     @Transactional(readOnly = true)
-    public List<TourResponse> getApprovedTours() {
-        List<Tour> allTours = tourRepository.findByIsActiveTrueOrderByCreatedAtDesc().stream()
-                .filter(tour -> tour.getStatus() == TourStatus.APPROVED)
-                .collect(Collectors.toList());
-
-        // Force load all relationships before mapping to avoid
-        // LazyInitializationException
-        allTours.forEach(tour -> {
-            // Force load tourPoints
-            if (tour.getTourPoints() != null) {
-                tour.getTourPoints().size();
-                tour.getTourPoints().forEach(tp -> {
-                    if (tp.getLocation() != null) {
-                        tp.getLocation().getName(); // Force load location
-                    }
-                });
-            }
-            // Force load createdBy
-            if (tour.getCreatedBy() != null) {
-                tour.getCreatedBy().getUsername(); // Force load user
-            }
-        });
-
-        return allTours.stream()
-                .map(this::mapToResponse)
-                .collect(Collectors.toList());
-    }
-
-    // Get all active tours for AI suggestions
-    @Transactional(readOnly = true)
-    public List<TourResponse> getAllActiveTours() {
-        log.info("Getting all active tours for AI");
-        List<Tour> activeTours = tourRepository.findByIsActiveTrueOrderByCreatedAtDesc()
-                .stream()
-                .filter(t -> t.getStatus() == TourStatus.APPROVED)
-                .collect(Collectors.toList());
-
-        // Force load lazy relationships to avoid LazyInitializationException
-        activeTours.forEach(tour -> {
-            if (tour.getTourPoints() != null) {
-                tour.getTourPoints().size();
-                tour.getTourPoints().forEach(tp -> {
-                    if (tp.getLocation() != null) {
-                        tp.getLocation().getName();
-                        tp.getLocation().getCityName();
-                    }
-                });
-            }
-            if (tour.getCreatedBy() != null) {
-                tour.getCreatedBy().getUsername();
-            }
-        });
-
-        return activeTours.stream()
-                .map(this::mapToResponse)
-                .collect(Collectors.toList());
+    public List<TourSummaryResponse> getApprovedTours(FieldSelection fields) {
+        return toSummaryResponses(tourRepository.findApprovedSummaries(), fields);
     }
 
     // Search tours with filters
     @Transactional(readOnly = true)
-    public List<TourResponse> searchTours(
+    public List<TourSummaryResponse> searchTours(
             String keyword,
             Double minPrice,
             Double maxPrice,
             Integer numberOfDays,
             String vehicle,
             String cityName) {
-        try {
-            // Normalize parameters: convert empty strings to null
-            String normalizedKeyword = (keyword != null && !keyword.trim().isEmpty()) ? keyword.trim().toLowerCase()
-                    : null;
-            Double normalizedMinPrice = minPrice;
-            Double normalizedMaxPrice = maxPrice;
-            Integer normalizedNumberOfDays = numberOfDays;
-            String normalizedVehicle = (vehicle != null && !vehicle.trim().isEmpty()) ? vehicle.trim().toLowerCase()
-                    : null;
-            String normalizedCityName = (cityName != null && !cityName.trim().isEmpty()) ? cityName.trim() : null;
-
-            log.info(
-                    "Searching tours with params - keyword: {}, minPrice: {}, maxPrice: {}, numberOfDays: {}, vehicle: {}, cityName: {}",
-                    normalizedKeyword, normalizedMinPrice, normalizedMaxPrice, normalizedNumberOfDays,
-                    normalizedVehicle, normalizedCityName);
-
-            // Get all approved tours first - use repository method that returns active
-            // tours
-            List<Tour> allTours = tourRepository.findByIsActiveTrueOrderByCreatedAtDesc().stream()
-                    .filter(t -> t.getStatus() == TourStatus.APPROVED)
-                    .collect(Collectors.toList());
-
-            log.info("Total approved tours: {}", allTours.size());
-
-            // Force load all relationships before filtering to avoid
-            // LazyInitializationException
-            allTours.forEach(tour -> {
-                // Force load tourPoints
-                if (tour.getTourPoints() != null) {
-                    tour.getTourPoints().size();
-                    tour.getTourPoints().forEach(tp -> {
-                        if (tp.getLocation() != null) {
-                            tp.getLocation().getName(); // Force load location
-                            tp.getLocation().getCityName(); // Force load cityName
-                        }
-                    });
-                }
-                // Force load createdBy
-                if (tour.getCreatedBy() != null) {
-                    tour.getCreatedBy().getUsername(); // Force load user
-                }
-            });
-
-            // Apply filters
-            List<Tour> filteredTours = allTours.stream()
-                    .filter(tour -> {
-                        // Keyword filter
-                        if (normalizedKeyword != null) {
-                            boolean matchesKeyword = false;
-                            if (tour.getName() != null && tour.getName().toLowerCase().contains(normalizedKeyword)) {
-                                matchesKeyword = true;
-                            } else if (tour.getDescription() != null
-                                    && tour.getDescription().toLowerCase().contains(normalizedKeyword)) {
-                                matchesKeyword = true;
-                            } else if (tour.getTourPoints() != null) {
-                                matchesKeyword = tour.getTourPoints().stream()
-                                        .anyMatch(tp -> tp.getLocation() != null &&
-                                                tp.getLocation().getName() != null &&
-                                                tp.getLocation().getName().toLowerCase().contains(normalizedKeyword));
-                            }
-                            if (!matchesKeyword)
-                                return false;
-                        }
-
-                        // Price filters
-                        if (normalizedMinPrice != null
-                                && (tour.getPrice() == null || tour.getPrice() < normalizedMinPrice)) {
-                            return false;
-                        }
-                        if (normalizedMaxPrice != null
-                                && (tour.getPrice() == null || tour.getPrice() > normalizedMaxPrice)) {
-                            return false;
-                        }
-
-                        // Number of days filter
-                        if (normalizedNumberOfDays != null && !normalizedNumberOfDays.equals(tour.getNumberOfDays())) {
-                            return false;
-                        }
-
-                        // Vehicle filter
-                        if (normalizedVehicle != null && (tour.getVehicle() == null
-                                || !tour.getVehicle().toLowerCase().equals(normalizedVehicle))) {
-                            return false;
-                        }
-
-                        // City name filter
-                        if (normalizedCityName != null) {
-                            boolean hasCity = tour.getTourPoints() != null && tour.getTourPoints().stream()
-                                    .anyMatch(tp -> tp.getLocation() != null
-                                            && tp.getLocation().getCityName() != null
-                                            && tp.getLocation().getCityName().toLowerCase()
-                                                    .contains(normalizedCityName.toLowerCase()));
-                            if (!hasCity)
-                                return false;
-                        }
-
-                        return true;
-                    })
-                    .sorted((a, b) -> b.getCreatedAt().compareTo(a.getCreatedAt()))
-                    .collect(Collectors.toList());
+        return searchTours(keyword, minPrice, maxPrice, numberOfDays, vehicle, cityName, FieldSelection.ALL);
+    }
 
-            log.info("Filtered tours: {}", filteredTours.size());
-
-            // All relationships should already be loaded, but ensure it
-            filteredTours.forEach(tour -> {
-                if (tour.getTourPoints() != null) {
-                    tour.getTourPoints().size();
-                    tour.getTourPoints().forEach(tp -> {
-                        if (tp.getLocation() != null) {
-                            tp.getLocation().getName();
-                        }
-                    });
-                }
-                if (tour.getCreatedBy() != null) {
-                    tour.getCreatedBy().getUsername();
-                }
-            });
+    @Transactional(readOnly = true)
+    public List<TourSummaryResponse> searchTours(
+            String keyword,
+            Double minPrice,
+            Double maxPrice,
+            Integer numberOfDays,
+            String vehicle,
+            String cityName,
+            FieldSelection fields) {
+        // Normalize parameters: convert empty strings to null
+        String normalizedKeyword = (keyword != null && !keyword.trim().isEmpty()) ? keyword.trim().toLowerCase()
+                : null;
+        String normalizedVehicle = (vehicle != null && !vehicle.trim().isEmpty()) ? vehicle.trim().toLowerCase()
+                : null;
+        String normalizedCityName = (cityName != null && !cityName.trim().isEmpty()) ? cityName.trim() : null;
+
+        log.info(
+                "Searching tours with params - keyword: {}, minPrice: {}, maxPrice: {}, numberOfDays: {}, vehicle: {}, cityName: {}",
+                normalizedKeyword, minPrice, maxPrice, numberOfDays, normalizedVehicle, normalizedCityName);
+
+        // Lọc ngay trong DB, không load tourPoints/location của mọi tour đã duyệt
+        List<TourSummaryView> views = tourRepository.searchSummaries(escapeLike(normalizedKeyword), minPrice, maxPrice,
+                numberOfDays, normalizedVehicle, escapeLike(normalizedCityName));
+
+        log.info("Filtered tours: {}", views.size());
+        return toSummaryResponses(views, fields);
+    }
 
-            return filteredTours.stream()
-                    .map(this::mapToResponse)
-                    .collect(Collectors.toList());
-        } catch (Exception e) {
-            log.error("Error in searchTours: ", e);
-            throw new RuntimeException("Error searching tours: " + e.getMessage(), e);
+    // Escape ký tự đại diện của LIKE, khớp với ESCAPE '!' trong TourRepository.searchSummaries
+    static String escapeLike(String value) {
+        if (value == null) {
+            return null;
         }
+        return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
     }
 
     // Agent: Hide tour (change status to HIDDEN)
@@ -559,6 +500,8 @@ public class TourService {
 
         tour.setStatus(TourStatus.HIDDEN);
         tour = tourRepository.save(tour);
+        geoIndexService.refreshTourAfterCommit(tour);
+        aiToolCache.invalidateAfterCommit();
 
         log.info("Tour {} hidden by agent {}", id, username);
         return mapToResponse(tour);
@@ -583,11 +526,29 @@ public class TourService {
 
         tour.setStatus(TourStatus.APPROVED);
         tour = tourRepository.save(tour);
+        geoIndexService.refreshTourAfterCommit(tour);
+        aiToolCache.invalidateAfterCommit();
 
         log.info("Tour {} unhidden by agent {}", id, username);
         return mapToResponse(tour);
     }
 
+    /**
+     * Approved tours whose stops or route pass within radiusKm of a point, nearest first
+     */
+    @Transactional(readOnly = true)
+    public List<TourSummaryResponse> getToursNearby(
+            double lat, double lng, double radiusKm, int limit, FieldSelection fields) {
+        List<Long> ids = geoIndexService.toursWithinRadius(lat, lng, Math.min(radiusKm, 100) * 1000).stream()
+                .limit(Math.max(1, Math.min(limit, 50)))
+                .map(GeoGrid.Hit::id)
+                .toList();
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return toSummaryResponses(inIdOrder(ids, tourRepository.findApprovedSummariesByIdIn(ids)), fields);
+    }
+
     /**
      * Public method to convert Tour to TourResponse
      * Used by AgentController to map tours for public agent profiles
@@ -597,8 +558,15 @@ public class TourService {
     }
 
     private TourResponse mapToResponse(Tour tour) {
+        return mapToResponse(tour, FieldSelection.ALL);
+    }
+
+    /**
+     * Chỉ chạm vào association (points, trips, reviews) khi field tương ứng được yêu cầu
+     */
+    private TourResponse mapToResponse(Tour tour, FieldSelection fields) {
         List<TourResponse.TourPointResponse> pointResponses = new ArrayList<>();
-        if (tour.getTourPoints() != null) {
+        if (fields.includesAny("points", "cities") && tour.getTourPoints() != null) {
             pointResponses = tour.getTourPoints().stream()
                     .map(point -> {
                         Location loc = point.getLocation();
@@ -612,6 +580,15 @@ public class TourService {
                                 .startTime(point.getStartTime())
                                 .activity(point.getActivity())
                                 .imageUrl(point.getImageUrl()) // S3 image URL
+                                .thumbnailUrl(point.getImageVariants() != null
+                                        ? point.getImageVariants().getThumbnailUrl()
+                                        : null)
+                                .cardImageUrl(point.getImageVariants() != null
+                                        ? point.getImageVariants().getCardUrl()
+                                        : null)
+                                .fullImageUrl(point.getImageVariants() != null
+                                        ? point.getImageVariants().getFullUrl()
+                                        : null)
                                 // Location details (can be null for free activities)
                                 .locationId(loc != null ? loc.getId() : null)
                                 .locationName(loc != null ? loc.getName() : null)
@@ -626,7 +603,7 @@ public class TourService {
 
         // Parse imageUrls from JSON
         List<String> imageUrlsList = new ArrayList<>();
-        if (tour.getImageUrls() != null && !tour.getImageUrls().isEmpty()) {
+        if (fields.includes("imageUrls") && tour.getImageUrls() != null && !tour.getImageUrls().isEmpty()) {
             try {
                 imageUrlsList = objectMapper.readValue(tour.getImageUrls(),
                         objectMapper.getTypeFactory().constructCollectionType(List.class, String.class));
@@ -646,6 +623,13 @@ public class TourService {
                 .distinct()
                 .collect(Collectors.toList());
 
+        boolean withTrips = fields.includesAny("trips", "totalTrips", "activeTrips");
+        boolean withReviews = fields.includesAny("averageRating", "reviewCount");
+        boolean withCreator = fields.includesAny("createdByUsername", "createdById", "createdByAvatar",
+                "createdByFirstName", "createdByLastName");
+        User creator = withCreator ? tour.getCreatedBy() : null;
+        ImageVariants variants = tour.getImageVariants();
+
         return TourResponse.builder()
                 .id(tour.getId())
                 .name(tour.getName())
@@ -658,27 +642,30 @@ public class TourService {
                 .totalTime(tour.getTotalTime())
                 .routePolyline(tour.getRoutePolyline())
                 .imageUrl(tour.getImageUrl()) // S3 image URL (thumbnail)
+                .thumbnailUrl(variants != null ? variants.getThumbnailUrl() : null)
+                .cardImageUrl(variants != null ? variants.getCardUrl() : null)
+                .fullImageUrl(variants != null ? variants.getFullUrl() : null)
                 .imageUrls(imageUrlsList) // List of all images
                 .points(pointResponses)
                 .cities(cities)
-                .createdByUsername(tour.getCreatedBy() != null ? tour.getCreatedBy().getUsername() : null)
-                .createdById(tour.getCreatedBy() != null ? tour.getCreatedBy().getId() : null)
-                .createdByAvatar(tour.getCreatedBy() != null ? tour.getCreatedBy().getAvatar() : null)
-                .createdByFirstName(tour.getCreatedBy() != null ? tour.getCreatedBy().getFirstName() : null)
-                .createdByLastName(tour.getCreatedBy() != null ? tour.getCreatedBy().getLastName() : null)
+                .createdByUsername(creator != null ? creator.getUsername() : null)
+                .createdById(creator != null ? creator.getId() : null)
+                .createdByAvatar(creator != null ? creator.getAvatar() : null)
+                .createdByFirstName(creator != null ? creator.getFirstName() : null)
+                .createdByLastName(creator != null ? creator.getLastName() : null)
                 .createdAt(tour.getCreatedAt())
                 .isActive(tour.getIsActive())
                 .status(tour.getStatus() != null ? tour.getStatus().name() : null)
                 .rejectionReason(tour.getRejectionReason())
                 // Trip statistics
-                .trips(mapTripsToResponse(tour))
-                .totalTrips(tour.getTrips() != null ? tour.getTrips().size() : 0)
-                .activeTrips(tour.getTrips() != null
+                .trips(withTrips ? mapTripsToResponse(tour) : null)
+                .totalTrips(withTrips && tour.getTrips() != null ? tour.getTrips().size() : 0)
+                .activeTrips(withTrips && tour.getTrips() != null
                         ? (int) tour.getTrips().stream().filter(t -> t.getIsActive() && !t.isFull()).count()
                         : 0)
                 // Review statistics
-                .averageRating(reviewRepository.findAverageRatingByTourId(tour.getId()))
-                .reviewCount(reviewRepository.countByTourId(tour.getId()))
+                .averageRating(withReviews ? reviewRepository.findAverageRatingByTourId(tour.getId()) : null)
+                .reviewCount(withReviews ? reviewRepository.countByTourId(tour.getId()) : null)
                 .build();
     }
 
@@ -705,32 +692,69 @@ public class TourService {
 
     @Transactional(readOnly = true)
     @org.springframework.cache.annotation.Cacheable(value = "trendingTours", unless = "#result.isEmpty()")
-    public List<TourResponse> getTrendingTours() {
-        List<Tour> trendingTours = tourRepository.findTrendingTours();
+    public List<TourSummaryResponse> getTrendingTours() {
+        List<Long> ids = tourRepository.findTrendingTourIds();
+        if (ids.isEmpty()) {
+            return List.of();
+        }
 
-        // Force load lazy relationships to avoid LazyInitializationException
-        trendingTours.forEach(tour -> {
-            // Force load tourPoints
-            if (tour.getTourPoints() != null) {
-                tour.getTourPoints().size();
-                tour.getTourPoints().forEach(tp -> {
-                    if (tp.getLocation() != null) {
-                        tp.getLocation().getName(); // Force load location
-                    }
-                });
-            }
-            // Force load createdBy
-            if (tour.getCreatedBy() != null) {
-                tour.getCreatedBy().getUsername();
-            }
-            // Force load trips
-            if (tour.getTrips() != null) {
-                tour.getTrips().size();
+        return toSummaryResponses(inIdOrder(ids, tourRepository.findSummariesByIdIn(ids)), FieldSelection.ALL);
+    }
+
+    // IN không giữ thứ tự, sắp lại theo thứ tự của ids (thứ hạng trending, khoảng cách)
+    private List<TourSummaryView> inIdOrder(List<Long> ids, List<TourSummaryView> views) {
+        Map<Long, TourSummaryView> byId = views.stream()
+                .collect(Collectors.toMap(TourSummaryView::getId, v -> v));
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Dựng TourSummaryResponse từ projection; danh sách thành phố lấy bằng một query cho cả trang,
+     * bỏ qua query đó nếu client không yêu cầu {@code cities}
+     */
+    public List<TourSummaryResponse> toSummaryResponses(List<TourSummaryView> views, FieldSelection fields) {
+        if (views.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, LinkedHashSet<String>> citiesByTour = new HashMap<>();
+        if (fields.includes("cities")) {
+            List<Long> ids = views.stream().map(TourSummaryView::getId).collect(Collectors.toList());
+            for (Object[] row : tourRepository.findCityNamesByTourIdIn(ids)) {
+                citiesByTour.computeIfAbsent((Long) row[0], k -> new LinkedHashSet<>())
+                        .add((String) row[1]);
             }
-        });
+        }
 
-        return trendingTours.stream()
-                .map(this::mapToResponse)
+        return views.stream()
+                .map(v -> TourSummaryResponse.builder()
+                        .id(v.getId())
+                        .name(v.getName())
+                        .description(v.getDescription())
+                        .price(v.getPrice())
+                        .numberOfDays(v.getNumberOfDays())
+                        .vehicle(v.getVehicle())
+                        .isOptimized(v.getIsOptimized())
+                        .totalDistance(v.getTotalDistance())
+                        .totalTime(v.getTotalTime())
+                        .imageUrl(v.getImageUrl())
+                        .thumbnailUrl(v.getThumbnailUrl())
+                        .cardImageUrl(v.getCardImageUrl())
+                        .status(v.getStatus() != null ? v.getStatus().name() : null)
+                        .createdAt(v.getCreatedAt())
+                        .createdById(v.getCreatedById())
+                        .createdByUsername(v.getCreatedByUsername())
+                        .createdByFirstName(v.getCreatedByFirstName())
+                        .createdByLastName(v.getCreatedByLastName())
+                        .createdByAvatar(v.getCreatedByAvatar())
+                        .pointCount(v.getPointCount() != null ? v.getPointCount().intValue() : 0)
+                        .cities(new ArrayList<>(citiesByTour.getOrDefault(v.getId(), new LinkedHashSet<>())))
+                        .averageRating(v.getAverageRating())
+                        .reviewCount(v.getReviewCount() != null ? v.getReviewCount().intValue() : 0)
+                        .build())
                 .collect(Collectors.toList());
     }
 }
@@ -0,0 +1,225 @@
+package com.devteria.identityservice.service;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+
+import com.devteria.identityservice.dto.response.VietmapClientStatsResponse;
+import com.devteria.identityservice.exception.AppException;
+import com.devteria.identityservice.exception.ErrorCode;
+import com.devteria.identityservice.util.CircuitBreaker;
+import com.devteria.identityservice.util.RetryBudget;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * HTTP client dùng chung cho mọi lời gọi Vietmap:
+ * - 1 HttpClient (JDK) dùng chung connection pool, có connect/read timeout
+ * - Circuit breaker riêng cho từng endpoint, mở thì lỗi ngay thay vì giữ thread Tomcat
+ * - Retry 1 lần cho lỗi mạng/5xx, giới hạn bởi RetryBudget dùng chung
+ * - Số liệu latency/lỗi theo endpoint
+ * Lỗi cuối cùng được ném ra dưới dạng AppException(VIETMAP_UNAVAILABLE), riêng 4xx do chính request
+ * (trừ 429) là AppException(VIETMAP_BAD_REQUEST) và không tính là lỗi của circuit breaker.
+ */
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class VietmapClient {
+
+    public enum Endpoint {
+        AUTOCOMPLETE,
+        PLACE,
+        REVERSE,
+        ROUTE,
+        TSP,
+        TILES
+    }
+
+    private static final int MAX_ATTEMPTS = 2;
+    private static final long RETRY_BACKOFF_MS = 100;
+
+    RestClient fastClient;
+    RestClient slowClient;
+    RetryBudget retryBudget;
+    Map<Endpoint, CircuitBreaker> breakers = new EnumMap<>(Endpoint.class);
+    Map<Endpoint, EndpointMetrics> metrics = new EnumMap<>(Endpoint.class);
+
+    public VietmapClient(
+            @Value("${vietmap.client.connect-timeout-ms:2000}") long connectTimeoutMs,
+            @Value("${vietmap.client.read-timeout-ms:5000}") long readTimeoutMs,
+            @Value("${vietmap.client.route-read-timeout-ms:20000}") long routeReadTimeoutMs,
+            @Value("${vietmap.client.breaker.failure-threshold:5}") int failureThreshold,
+            @Value("${vietmap.client.breaker.open-seconds:30}") long openSeconds,
+            @Value("${vietmap.client.retry-budget-ratio:0.1}") double retryBudgetRatio) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        this.fastClient = RestClient.builder()
+                .requestFactory(requestFactory(httpClient, readTimeoutMs))
+                .build();
+        // Route/TSP xử lý lâu hơn nhiều so với autocomplete, dùng read timeout riêng trên cùng connection pool
+        this.slowClient = RestClient.builder()
+                .requestFactory(requestFactory(httpClient, routeReadTimeoutMs))
+                .build();
+        this.retryBudget = new RetryBudget(retryBudgetRatio, 10);
+        for (Endpoint endpoint : Endpoint.values()) {
+            breakers.put(endpoint, new CircuitBreaker(failureThreshold, Duration.ofSeconds(openSeconds)));
+            metrics.put(endpoint, new EndpointMetrics());
+        }
+    }
+
+    public <T> T get(Endpoint endpoint, String url, Class<T> type) {
+        return execute(endpoint, client -> client.get().uri(url).retrieve().body(type));
+    }
+
+    public <T> T get(Endpoint endpoint, String url, ParameterizedTypeReference<T> type) {
+        return execute(endpoint, client -> client.get().uri(url).retrieve().body(type));
+    }
+
+    /**
+     * Ghi nhận 1 lần trả kết quả local/cache thay cho Vietmap
+     */
+    public void recordFallback(Endpoint endpoint) {
+        metrics.get(endpoint).fallbacks.increment();
+    }
+
+    public boolean isAvailable(Endpoint endpoint) {
+        return breakers.get(endpoint).getState() != CircuitBreaker.State.OPEN;
+    }
+
+    public VietmapClientStatsResponse getStats() {
+        return VietmapClientStatsResponse.builder()
+                .retryBudgetTokens(retryBudget.getTokens())
+                .endpoints(Arrays.stream(Endpoint.values())
+                        .map(endpoint -> metrics.get(endpoint).toStats(endpoint, breakers.get(endpoint).getState()))
+                        .toList())
+                .build();
+    }
+
+    private <T> T execute(Endpoint endpoint, Function<RestClient, T> call) {
+        CircuitBreaker breaker = breakers.get(endpoint);
+        EndpointMetrics endpointMetrics = metrics.get(endpoint);
+        CircuitBreaker.Permit permit = breaker.tryAcquire();
+        if (permit == CircuitBreaker.Permit.REJECTED) {
+            endpointMetrics.rejected.increment();
+            throw new AppException(ErrorCode.VIETMAP_UNAVAILABLE, "Vietmap " + endpoint + " circuit is open");
+        }
+
+        RestClient client = endpoint == Endpoint.ROUTE || endpoint == Endpoint.TSP ? slowClient : fastClient;
+        retryBudget.deposit();
+        RuntimeException lastError = null;
+        boolean healthy = false; // Vietmap trả lời được (thành công, hoặc 4xx do chính request)
+        try {
+            for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+                long start = System.nanoTime();
+                try {
+                    T result = call.apply(client);
+                    endpointMetrics.record(System.nanoTime() - start, false);
+                    healthy = true;
+                    return result;
+                } catch (RuntimeException e) {
+                    endpointMetrics.record(System.nanoTime() - start, true);
+                    lastError = e;
+                    if (attempt == MAX_ATTEMPTS || !isRetryable(e) || !retryBudget.tryWithdraw()) {
+                        break;
+                    }
+                    endpointMetrics.retries.increment();
+                    sleepBeforeRetry(attempt);
+                }
+            }
+            healthy = isClientError(lastError);
+        } finally {
+            // Luôn báo kết quả, kể cả khi 1 Error bay ra giữa chừng: lượt thử HALF_OPEN phải được nhả
+            if (healthy) {
+                breaker.onSuccess(permit);
+            } else {
+                breaker.onFailure(permit);
+            }
+        }
+
+        log.warn("Vietmap {} call failed: {}", endpoint, lastError.getMessage());
+        AppException exception = isClientError(lastError)
+                ? new AppException(ErrorCode.VIETMAP_BAD_REQUEST, "Vietmap " + endpoint + " rejected the request")
+                : new AppException(ErrorCode.VIETMAP_UNAVAILABLE, "Vietmap " + endpoint + " call failed");
+        exception.initCause(lastError);
+        throw exception;
+    }
+
+    /**
+     * Chỉ retry lỗi mạng/timeout và 5xx; 4xx (sai tham số, hết quota) retry cũng vô ích
+     */
+    private boolean isRetryable(RuntimeException e) {
+        return e instanceof ResourceAccessException || e instanceof HttpServerErrorException;
+    }
+
+    private boolean isClientError(RuntimeException e) {
+        return e instanceof HttpClientErrorException clientError
+                && clientError.getStatusCode().value() != 429;
+    }
+
+    private void sleepBeforeRetry(int attempt) {
+        try {
+            Thread.sleep(RETRY_BACKOFF_MS * attempt + ThreadLocalRandom.current().nextLong(RETRY_BACKOFF_MS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static JdkClientHttpRequestFactory requestFactory(HttpClient httpClient, long readTimeoutMs) {
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(httpClient);
+        factory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+        return factory;
+    }
+
+    private static class EndpointMetrics {
+        final LongAdder calls = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LongAdder retries = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        final LongAdder fallbacks = new LongAdder();
+        final LongAdder totalLatencyNanos = new LongAdder();
+        final AtomicLong maxLatencyNanos = new AtomicLong();
+
+        void record(long latencyNanos, boolean failed) {
+            calls.increment();
+            if (failed) {
+                failures.increment();
+            }
+            totalLatencyNanos.add(latencyNanos);
+            maxLatencyNanos.accumulateAndGet(latencyNanos, Math::max);
+        }
+
+        VietmapClientStatsResponse.EndpointStats toStats(Endpoint endpoint, CircuitBreaker.State state) {
+            long callCount = calls.sum();
+            return VietmapClientStatsResponse.EndpointStats.builder()
+                    .endpoint(endpoint.name())
+                    .circuitState(state.name())
+                    .calls(callCount)
+                    .failures(failures.sum())
+                    .retries(retries.sum())
+                    .rejected(rejected.sum())
+                    .fallbacks(fallbacks.sum())
+                    .avgLatencyMs(callCount == 0 ? 0.0 : totalLatencyNanos.sum() / 1_000_000.0 / callCount)
+                    .maxLatencyMs(maxLatencyNanos.get() / 1_000_000)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.devteria.identityservice.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.devteria.identityservice.dto.response.VietmapRouteResponse;
+import com.devteria.identityservice.entity.RouteCacheEntry;
+import com.devteria.identityservice.repository.RouteCacheRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cache 2 tầng cho kết quả route/TSP của Vietmap:
+ * - Memory: Caffeine giới hạn theo kích thước ước lượng của response (đã giải nén)
+ * - DB: bảng route_cache, payload là JSON nén gzip, giữ qua restart và dùng chung giữa các instance
+ * Key là SHA-256 của (loại, vehicle, roundtrip/sources/destinations, danh sách điểm đã chuẩn hóa theo thứ tự).
+ */
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class VietmapRouteCache {
+
+    RouteCacheRepository routeCacheRepository;
+    ObjectMapper objectMapper;
+    Cache<String, VietmapRouteResponse> memory;
+    TransactionTemplate writeTransaction;
+    Duration ttl;
+
+    LongAdder memoryHits = new LongAdder();
+    LongAdder dbHits = new LongAdder();
+    LongAdder misses = new LongAdder();
+
+    public VietmapRouteCache(
+            RouteCacheRepository routeCacheRepository,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager,
+            @Value("${vietmap.route-cache.memory-max-mb:32}") long memoryMaxMb,
+            @Value("${vietmap.route-cache.ttl-days:30}") long ttlDays) {
+        this.routeCacheRepository = routeCacheRepository;
+        this.objectMapper = objectMapper;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.ttl = Duration.ofDays(ttlDays);
+        this.memory = Caffeine.newBuilder()
+                .maximumWeight(memoryMaxMb * 1024 * 1024)
+                .weigher((String key, VietmapRouteResponse response) -> estimateSize(response))
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Key cho Route API (thứ tự điểm giữ nguyên)
+     */
+    public String routeKey(List<String> points, String vehicle) {
+        return hash("ROUTE|" + normalizeVehicle(vehicle) + "|" + canonicalPoints(points));
+    }
+
+    /**
+     * Key cho TSP API (sources=0, destinations=last nếu không roundtrip)
+     */
+    public String tspKey(List<String> points, String vehicle, boolean roundtrip) {
+        String destinations = !roundtrip && points.size() > 1 ? String.valueOf(points.size() - 1) : "";
+        return hash("TSP|" + normalizeVehicle(vehicle) + "|rt=" + roundtrip + "|src=0|dst=" + destinations
+                + "|" + canonicalPoints(points));
+    }
+
+    public VietmapRouteResponse get(String key) {
+        VietmapRouteResponse cached = memory.getIfPresent(key);
+        if (cached != null) {
+            memoryHits.increment();
+            return cached;
+        }
+
+        try {
+            RouteCacheEntry entry = routeCacheRepository.findById(key).orElse(null);
+            if (entry != null && entry.getCreatedAt().plus(ttl).isAfter(LocalDateTime.now())) {
+                VietmapRouteResponse response = decode(entry.getPayload());
+                memory.put(key, response);
+                dbHits.increment();
+                return response;
+            }
+        } catch (Exception e) {
+            log.warn("Failed to read route cache entry {}: {}", key, e.getMessage());
+        }
+
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Lưu kết quả thành công vào cả 2 tầng. Lỗi ghi DB không ảnh hưởng tới request.
+     */
+    public void put(String key, String kind, String vehicle, int pointCount, VietmapRouteResponse response) {
+        if (response == null || response.getPaths() == null || response.getPaths().isEmpty()) {
+            return; // Không cache lỗi hoặc kết quả rỗng
+        }
+        memory.put(key, response);
+
+        try {
+            RouteCacheEntry entry = RouteCacheEntry.builder()
+                    .cacheKey(key)
+                    .kind(kind)
+                    .vehicle(normalizeVehicle(vehicle))
+                    .pointCount(pointCount)
+                    .payload(encode(response))
+                    .createdAt(LocalDateTime.now())
+                    .build();
+            // Transaction riêng để lỗi ghi cache không làm rollback transaction của caller (vd: createTour)
+            writeTransaction.executeWithoutResult(status -> routeCacheRepository.save(entry));
+        } catch (Exception e) {
+            log.warn("Failed to persist route cache entry {}: {}", key, e.getMessage());
+        }
+    }
+
+    public long getMemoryHits() {
+        return memoryHits.sum();
+    }
+
+    public long getDbHits() {
+        return dbHits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Xóa các route đã hết hạn trong DB
+     */
+    @Scheduled(cron = "0 15 4 * * *")
+    @Transactional
+    public void purgeExpired() {
+        int deleted = routeCacheRepository.deleteByCreatedAtBefore(LocalDateTime.now().minus(ttl));
+        if (deleted > 0) {
+            log.info("Purged {} expired route cache entries", deleted);
+        }
+    }
+
+    private byte[] encode(VietmapRouteResponse response) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            objectMapper.writeValue(gzip, response);
+        }
+        return bytes.toByteArray();
+    }
+
+    private VietmapRouteResponse decode(byte[] payload) throws IOException {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(payload))) {
+            return objectMapper.readValue(gzip, VietmapRouteResponse.class);
+        }
+    }
+
+    /**
+     * Chuẩn hóa "lat,lng" về 6 chữ số thập phân (~0.1m) để các request gần như giống hệt nhau dùng chung key
+     */
+    private static String canonicalPoints(List<String> points) {
+        StringBuilder builder = new StringBuilder();
+        for (String point : points) {
+            String[] parts = point.split(",");
+            if (parts.length == 2) {
+                try {
+                    builder.append(String.format(Locale.ROOT, "%.6f,%.6f",
+                            Double.parseDouble(parts[0].trim()), Double.parseDouble(parts[1].trim())));
+                } catch (NumberFormatException e) {
+                    builder.append(point.trim());
+                }
+            } else {
+                builder.append(point.trim());
+            }
+            builder.append(';');
+        }
+        return builder.toString();
+    }
+
+    private static String normalizeVehicle(String vehicle) {
+        return vehicle == null || vehicle.isBlank() ? "car" : vehicle.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String hash(String canonical) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonical.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static int estimateSize(VietmapRouteResponse response) {
+        int size = 256;
+        if (response.getPaths() != null) {
+            for (VietmapRouteResponse.RoutePath path : response.getPaths()) {
+                size += path.getPoints() != null ? path.getPoints().length() * 2 : 0;
+                size += path.getInstructions() != null ? path.getInstructions().size() * 160 : 0;
+            }
+        }
+        return size;
+    }
+}
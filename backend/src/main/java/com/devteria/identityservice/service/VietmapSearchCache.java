@@ -0,0 +1,148 @@
+package com.devteria.identityservice.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.devteria.identityservice.dto.response.VietmapAutocompleteResponse;
+import com.devteria.identityservice.dto.response.VietmapSearchCacheStatsResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Cache in-memory cho autocomplete và reverse geocode của Vietmap.
+ * - Autocomplete: key = query đã chuẩn hóa + ô lưới (mặc định 0.05° ≈ 5km) chứa tọa độ focus
+ * - Reverse: key = tọa độ làm tròn theo lưới nhỏ (mặc định 0.0002° ≈ 20m)
+ * Request gửi lên Vietmap cũng dùng giá trị đã làm tròn, nên mọi người dùng trong cùng 1 ô nhận cùng kết quả.
+ */
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class VietmapSearchCache {
+
+    Cache<String, List<VietmapAutocompleteResponse>> autocomplete;
+    Cache<String, List<VietmapAutocompleteResponse>> reverse;
+    double focusCellDegrees;
+    double reverseCellDegrees;
+
+    LongAdder localServed = new LongAdder();
+    LongAdder localInsufficient = new LongAdder();
+
+    public VietmapSearchCache(
+            @Value("${vietmap.search-cache.max-entries:20000}") long maxEntries,
+            @Value("${vietmap.search-cache.autocomplete-ttl-minutes:360}") long autocompleteTtlMinutes,
+            @Value("${vietmap.search-cache.reverse-ttl-minutes:1440}") long reverseTtlMinutes,
+            @Value("${vietmap.search-cache.focus-cell-degrees:0.05}") double focusCellDegrees,
+            @Value("${vietmap.search-cache.reverse-cell-degrees:0.0002}") double reverseCellDegrees) {
+        this.focusCellDegrees = focusCellDegrees;
+        this.reverseCellDegrees = reverseCellDegrees;
+        this.autocomplete = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofMinutes(autocompleteTtlMinutes))
+                .recordStats()
+                .build();
+        this.reverse = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofMinutes(reverseTtlMinutes))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Chuẩn hóa query: bỏ khoảng trắng thừa, chữ thường (giữ dấu tiếng Việt)
+     */
+    public String normalizeQuery(String query) {
+        return query == null ? "" : query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Làm tròn focus "lat,lng" về tâm ô lưới. Giá trị không hợp lệ giữ nguyên.
+     */
+    public String snapFocus(String focus) {
+        if (focus == null || focus.isBlank()) {
+            return null;
+        }
+        String[] parts = focus.split(",");
+        if (parts.length != 2) {
+            return focus.trim();
+        }
+        try {
+            double lat = Double.parseDouble(parts[0].trim());
+            double lng = Double.parseDouble(parts[1].trim());
+            return format(snap(lat, focusCellDegrees)) + "," + format(snap(lng, focusCellDegrees));
+        } catch (NumberFormatException e) {
+            return focus.trim();
+        }
+    }
+
+    public double snapReverse(double value) {
+        return snap(value, reverseCellDegrees);
+    }
+
+    public String autocompleteKey(String normalizedQuery, String snappedFocus) {
+        return normalizedQuery + "|" + snappedFocus;
+    }
+
+    public String reverseKey(double snappedLat, double snappedLng) {
+        return format(snappedLat) + "," + format(snappedLng);
+    }
+
+    public List<VietmapAutocompleteResponse> getAutocomplete(String key) {
+        return autocomplete.getIfPresent(key);
+    }
+
+    public void putAutocomplete(String key, List<VietmapAutocompleteResponse> results) {
+        if (results != null) {
+            autocomplete.put(key, List.copyOf(results));
+        }
+    }
+
+    public List<VietmapAutocompleteResponse> getReverse(String key) {
+        return reverse.getIfPresent(key);
+    }
+
+    public void putReverse(String key, List<VietmapAutocompleteResponse> results) {
+        if (results != null) {
+            reverse.put(key, List.copyOf(results));
+        }
+    }
+
+    /**
+     * Ghi nhận autocomplete được trả hoàn toàn từ index local (true) hay vẫn phải hỏi Vietmap (false)
+     */
+    public void recordLocal(boolean served) {
+        (served ? localServed : localInsufficient).increment();
+    }
+
+    public VietmapSearchCacheStatsResponse getStats() {
+        CacheStats autocompleteStats = autocomplete.stats();
+        CacheStats reverseStats = reverse.stats();
+        return VietmapSearchCacheStatsResponse.builder()
+                .autocompleteHits(autocompleteStats.hitCount())
+                .autocompleteMisses(autocompleteStats.missCount())
+                .autocompleteHitRatio(autocompleteStats.hitRate())
+                .autocompleteEntries(autocomplete.estimatedSize())
+                .reverseHits(reverseStats.hitCount())
+                .reverseMisses(reverseStats.missCount())
+                .reverseHitRatio(reverseStats.hitRate())
+                .reverseEntries(reverse.estimatedSize())
+                .localServed(localServed.sum())
+                .localInsufficient(localInsufficient.sum())
+                .build();
+    }
+
+    private double snap(double value, double cell) {
+        return (Math.floor(value / cell) + 0.5) * cell;
+    }
+
+    private String format(double value) {
+        return String.format(Locale.ROOT, "%.6f", value);
+    }
+}
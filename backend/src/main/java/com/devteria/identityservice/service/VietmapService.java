@@ -1,16 +1,28 @@
 package com.devteria.identityservice.service;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestClient;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import com.devteria.identityservice.dto.response.TspBenchmarkResponse;
 import com.devteria.identityservice.dto.response.VietmapAutocompleteResponse;
 import com.devteria.identityservice.dto.response.VietmapPlaceResponse;
 import com.devteria.identityservice.dto.response.VietmapRouteResponse;
+import com.devteria.identityservice.entity.Location;
+import com.devteria.identityservice.exception.AppException;
+import com.devteria.identityservice.exception.ErrorCode;
+import com.devteria.identityservice.repository.LocationRepository;
+import com.devteria.identityservice.util.PolylineCodec;
+import com.devteria.identityservice.util.SingleFlight;
 
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
@@ -23,7 +35,24 @@ import lombok.extern.slf4j.Slf4j;
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 @Slf4j
 public class VietmapService {
-    RestClient restClient = RestClient.create();
+    // Mã của route ước lượng đường chim bay khi Vietmap không khả dụng
+    public static final String LOCAL_ESTIMATE_CODE = "LOCAL_ESTIMATE";
+    // refId của địa điểm local chưa có refId Vietmap: "local:{locationId}"
+    static final String LOCAL_REF_PREFIX = "local:";
+    static final int LOCAL_AUTOCOMPLETE_LIMIT = 10;
+
+    VietmapRouteCache routeCache;
+    VietmapSearchCache searchCache;
+    LocalTspSolver localTspSolver;
+    VietmapClient vietmapClient;
+    LocationRepository locationRepository;
+    LocationSearchIndex locationSearchIndex;
+
+    // Gộp các request giống nhau đang chạy đồng thời thành 1 lời gọi Vietmap
+    SingleFlight<String, byte[]> tileFlights = new SingleFlight<>();
+    SingleFlight<String, List<VietmapAutocompleteResponse>> searchFlights = new SingleFlight<>();
+    SingleFlight<String, VietmapPlaceResponse> placeFlights = new SingleFlight<>();
+    SingleFlight<String, VietmapRouteResponse> routeFlights = new SingleFlight<>();
 
     @NonFinal
     @Value("${vietmap.api.key}")
@@ -33,86 +62,194 @@ public class VietmapService {
     @Value("${vietmap.api.base-url:https://maps.vietmap.vn/api}")
     String baseUrl;
 
+    // Đủ số kết quả local này thì không gọi Vietmap autocomplete
+    @NonFinal
+    @Value("${vietmap.autocomplete.local-min-results:3}")
+    int localMinResults;
+
+    // Tập điểm có kích thước <= giá trị này được giải bằng LocalTspSolver thay vì gọi /tsp/v3 (0 = tắt)
+    @NonFinal
+    @Value("${vietmap.tsp.local-max-points:0}")
+    int localTspMaxPoints;
+
+    @NonFinal
+    @Value("${vietmap.tiles.url-template:https://maps.vietmap.vn/maps/tiles/tm/%d/%d/%d@2x.png?apikey=%s}")
+    String tileUrlTemplate;
+
+    /**
+     * Fetch a raster map tile (PNG) from Vietmap.
+     * Callers should go through VietmapTileStore which caches tiles in memory and on disk.
+     */
+    public byte[] fetchTile(int z, int x, int y) {
+        return tileFlights.execute(z + "/" + x + "/" + y, () -> doFetchTile(z, x, y));
+    }
+
+    private byte[] doFetchTile(int z, int x, int y) {
+        String tileUrl = String.format(tileUrlTemplate, z, x, y, apiKey);
+        log.debug("Fetching tile from Vietmap: z={}, x={}, y={}", z, x, y);
+        return vietmapClient.get(VietmapClient.Endpoint.TILES, tileUrl, byte[].class);
+    }
+
     /**
-     * Search locations using Vietmap Autocomplete API v3
+     * Search locations: approved Locations from LocationSearchIndex first,
+     * Vietmap Autocomplete API v3 only when local results are fewer than autocomplete.local-min-results.
+     * Vietmap results are cached per normalized query and coarse focus cell (VietmapSearchCache)
      */
     public List<VietmapAutocompleteResponse> autocomplete(String query, String focus) {
+        List<VietmapAutocompleteResponse> local = locationSearchIndex
+                .search(query, parseFocus(focus), LOCAL_AUTOCOMPLETE_LIMIT)
+                .stream()
+                .map(this::toAutocompleteResponse)
+                .toList();
+        if (local.size() >= localMinResults) {
+            searchCache.recordLocal(true);
+            return local;
+        }
+        searchCache.recordLocal(false);
+
+        String normalizedQuery = searchCache.normalizeQuery(query);
+        String snappedFocus = searchCache.snapFocus(focus);
+        String cacheKey = searchCache.autocompleteKey(normalizedQuery, snappedFocus);
+        List<VietmapAutocompleteResponse> remote = searchCache.getAutocomplete(cacheKey);
+        if (remote == null) {
+            try {
+                remote = searchFlights.execute("autocomplete|" + cacheKey, () -> {
+                    List<VietmapAutocompleteResponse> results = doAutocomplete(normalizedQuery, snappedFocus);
+                    searchCache.putAutocomplete(cacheKey, results);
+                    return results;
+                });
+            } catch (RuntimeException e) {
+                // Vietmap không khả dụng: chỉ trả gợi ý từ các địa điểm đã duyệt trong hệ thống
+                vietmapClient.recordFallback(VietmapClient.Endpoint.AUTOCOMPLETE);
+                return local;
+            }
+        }
+        return mergeAutocomplete(local, remote);
+    }
+
+    private List<VietmapAutocompleteResponse> doAutocomplete(String query, String focus) {
         String url = UriComponentsBuilder.fromHttpUrl(baseUrl + "/autocomplete/v3")
                 .queryParam("apikey", apiKey)
                 .queryParam("text", query)
-                .queryParamIfPresent("focus", focus != null ? java.util.Optional.of(focus) : java.util.Optional.empty())
+                .queryParamIfPresent("focus", focus != null ? Optional.of(focus) : Optional.empty())
                 .toUriString();
 
-        try {
-            log.info("Calling Vietmap Autocomplete API for query: {}", query);
-            List<VietmapAutocompleteResponse> results = restClient
-                    .get()
-                    .uri(url)
-                    .retrieve()
-                    .body(new ParameterizedTypeReference<List<VietmapAutocompleteResponse>>() {
-                    });
+        log.info("Calling Vietmap Autocomplete API for query: {}", query);
+        List<VietmapAutocompleteResponse> results = vietmapClient.get(
+                VietmapClient.Endpoint.AUTOCOMPLETE, url, new ParameterizedTypeReference<>() {});
 
-            log.info("Received {} results from Vietmap", results != null ? results.size() : 0);
-            return results;
-        } catch (Exception e) {
-            log.error("Error calling Vietmap Autocomplete API", e);
-            throw new RuntimeException("Failed to search locations", e);
-        }
+        log.info("Received {} results from Vietmap", results != null ? results.size() : 0);
+        return results;
     }
 
     /**
      * Get place details using Vietmap Place API v3
      */
     public VietmapPlaceResponse getPlaceDetails(String refId) {
+        // Kết quả autocomplete local không có refId của Vietmap
+        if (refId.startsWith(LOCAL_REF_PREFIX)) {
+            long locationId;
+            try {
+                locationId = Long.parseLong(refId.substring(LOCAL_REF_PREFIX.length()));
+            } catch (NumberFormatException e) {
+                throw new AppException(ErrorCode.LOCATION_NOT_FOUND);
+            }
+            return locationRepository.findById(locationId)
+                    .map(this::toPlaceResponse)
+                    .orElseThrow(() -> new AppException(ErrorCode.LOCATION_NOT_FOUND));
+        }
+        try {
+            return placeFlights.execute(refId, () -> doGetPlaceDetails(refId));
+        } catch (RuntimeException e) {
+            // Địa điểm đã lưu trong hệ thống (cùng refId) vẫn trả được khi Vietmap lỗi
+            VietmapPlaceResponse local = locationRepository.findByRefId(refId)
+                    .map(this::toPlaceResponse)
+                    .orElseThrow(() -> e);
+            vietmapClient.recordFallback(VietmapClient.Endpoint.PLACE);
+            return local;
+        }
+    }
+
+    private VietmapPlaceResponse doGetPlaceDetails(String refId) {
         String url = UriComponentsBuilder.fromHttpUrl(baseUrl + "/place/v3")
                 .queryParam("apikey", apiKey)
                 .queryParam("refid", refId)
                 .toUriString();
 
-        try {
-            log.info("Calling Vietmap Place API for refId: {}", refId);
-            VietmapPlaceResponse response = restClient.get().uri(url).retrieve().body(VietmapPlaceResponse.class);
+        log.info("Calling Vietmap Place API for refId: {}", refId);
+        VietmapPlaceResponse response = vietmapClient.get(VietmapClient.Endpoint.PLACE, url, VietmapPlaceResponse.class);
 
-            log.info("Received place details for: {}", response != null ? response.getName() : "null");
-            return response;
-        } catch (Exception e) {
-            log.error("Error calling Vietmap Place API", e);
-            throw new RuntimeException("Failed to get place details", e);
-        }
+        log.info("Received place details for: {}", response != null ? response.getName() : "null");
+        return response;
     }
 
     /**
      * Reverse geocoding using Vietmap Reverse API v3
+     * Coordinates are snapped to a small grid and cached (VietmapSearchCache)
      */
     public List<VietmapAutocompleteResponse> reverseGeocode(Double lat, Double lng) {
+        double snappedLat = searchCache.snapReverse(lat);
+        double snappedLng = searchCache.snapReverse(lng);
+        String cacheKey = searchCache.reverseKey(snappedLat, snappedLng);
+        List<VietmapAutocompleteResponse> cached = searchCache.getReverse(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+        try {
+            return searchFlights.execute("reverse|" + cacheKey, () -> {
+                List<VietmapAutocompleteResponse> results = doReverseGeocode(snappedLat, snappedLng);
+                searchCache.putReverse(cacheKey, results);
+                return results;
+            });
+        } catch (RuntimeException e) {
+            // Vietmap không khả dụng: trả địa điểm đã duyệt gần nhất (trong khoảng ~1km)
+            vietmapClient.recordFallback(VietmapClient.Endpoint.REVERSE);
+            return nearestLocalLocation(lat, lng).stream().map(this::toAutocompleteResponse).toList();
+        }
+    }
+
+    private List<VietmapAutocompleteResponse> doReverseGeocode(Double lat, Double lng) {
         String url = UriComponentsBuilder.fromHttpUrl(baseUrl + "/reverse/v3")
                 .queryParam("apikey", apiKey)
                 .queryParam("lat", lat)
                 .queryParam("lng", lng)
                 .toUriString();
 
-        try {
-            log.info("Calling Vietmap Reverse API for lat: {}, lng: {}", lat, lng);
-            List<VietmapAutocompleteResponse> results = restClient
-                    .get()
-                    .uri(url)
-                    .retrieve()
-                    .body(new ParameterizedTypeReference<List<VietmapAutocompleteResponse>>() {
-                    });
+        log.info("Calling Vietmap Reverse API for lat: {}, lng: {}", lat, lng);
+        List<VietmapAutocompleteResponse> results = vietmapClient.get(
+                VietmapClient.Endpoint.REVERSE, url, new ParameterizedTypeReference<>() {});
 
-            log.info("Received {} results from Vietmap Reverse", results != null ? results.size() : 0);
-            return results;
-        } catch (Exception e) {
-            log.error("Error calling Vietmap Reverse API", e);
-            throw new RuntimeException("Failed to reverse geocode", e);
-        }
+        log.info("Received {} results from Vietmap Reverse", results != null ? results.size() : 0);
+        return results;
     }
 
     /**
      * Calculate route between points using Vietmap Route API v3
      * Points are visited in the order provided
+     * Results are cached in memory and in the route_cache table (VietmapRouteCache)
      */
     public VietmapRouteResponse getRoute(List<String> points, String vehicle) {
+        String cacheKey = routeCache.routeKey(points, vehicle);
+        VietmapRouteResponse cached = routeCache.get(cacheKey);
+        if (cached != null) {
+            log.debug("Route cache hit for {} points, vehicle: {}", points.size(), vehicle);
+            return cached;
+        }
+        try {
+            return routeFlights.execute(cacheKey, () -> {
+                VietmapRouteResponse response = doGetRoute(points, vehicle);
+                routeCache.put(cacheKey, "ROUTE", vehicle, points.size(), response);
+                return response;
+            });
+        } catch (RuntimeException e) {
+            // Không cache kết quả ước lượng, lần sau vẫn thử lại Vietmap
+            log.warn("Vietmap Route unavailable, returning straight-line estimate: {}", e.getMessage());
+            vietmapClient.recordFallback(VietmapClient.Endpoint.ROUTE);
+            return straightLineRoute(points, vehicle);
+        }
+    }
+
+    private VietmapRouteResponse doGetRoute(List<String> points, String vehicle) {
         UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(baseUrl + "/route/v3")
                 .queryParam("apikey", apiKey)
                 .queryParam("points_encoded", true);
@@ -128,20 +265,11 @@ public class VietmapService {
 
         String url = builder.toUriString();
 
-        try {
-            log.info("Calling Vietmap Route API with {} points, vehicle: {}", points.size(), vehicle);
-            VietmapRouteResponse response = restClient
-                    .get()
-                    .uri(url)
-                    .retrieve()
-                    .body(VietmapRouteResponse.class);
+        log.info("Calling Vietmap Route API with {} points, vehicle: {}", points.size(), vehicle);
+        VietmapRouteResponse response = vietmapClient.get(VietmapClient.Endpoint.ROUTE, url, VietmapRouteResponse.class);
 
-            log.info("Route API response code: {}", response != null ? response.getCode() : "null");
-            return response;
-        } catch (Exception e) {
-            log.error("Error calling Vietmap Route API", e);
-            throw new RuntimeException("Failed to get route", e);
-        }
+        log.info("Route API response code: {}", response != null ? response.getCode() : "null");
+        return response;
     }
 
     /**
@@ -151,6 +279,225 @@ public class VietmapService {
      * If not roundtrip, the last point is fixed as the destination
      */
     public VietmapRouteResponse getTspRoute(List<String> points, String vehicle, boolean roundtrip) {
+        return getTspRoute(points, vehicle, roundtrip, null);
+    }
+
+    /**
+     * Same as getTspRoute, but the local solver orders points by the given cost matrix
+     * (e.g. cached road distances from LocationDistanceService) instead of haversine
+     */
+    public VietmapRouteResponse getTspRoute(
+            List<String> points, String vehicle, boolean roundtrip, double[][] costMatrix) {
+        // Fast path: với <= 3 điểm thứ tự đã cố định, hoặc tập điểm nhỏ được cấu hình giải local
+        if (localTspSolver.isOrderFixed(points.size())
+                || points.size() <= localTspMaxPoints) {
+            return getLocalTspRoute(points, vehicle, roundtrip, costMatrix);
+        }
+
+        String cacheKey = routeCache.tspKey(points, vehicle, roundtrip);
+        VietmapRouteResponse cached = routeCache.get(cacheKey);
+        if (cached != null) {
+            log.debug("TSP cache hit for {} points, vehicle: {}, roundtrip: {}", points.size(), vehicle, roundtrip);
+            return cached;
+        }
+        try {
+            return routeFlights.execute(cacheKey, () -> {
+                VietmapRouteResponse response = doGetTspRoute(points, vehicle, roundtrip);
+                routeCache.put(cacheKey, "TSP", vehicle, points.size(), response);
+                return response;
+            });
+        } catch (RuntimeException e) {
+            log.warn("Vietmap TSP unavailable for {} points, falling back to local solver: {}",
+                    points.size(), e.getMessage());
+            vietmapClient.recordFallback(VietmapClient.Endpoint.TSP);
+            return getLocalTspRoute(points, vehicle, roundtrip, costMatrix);
+        }
+    }
+
+    /**
+     * Optimize the visiting order locally (LocalTspSolver on a haversine matrix), then compute the road route
+     * for that order via the Route API. If the Route API also fails, return a straight-line estimate.
+     */
+    public VietmapRouteResponse getLocalTspRoute(List<String> points, String vehicle, boolean roundtrip) {
+        return getLocalTspRoute(points, vehicle, roundtrip, null);
+    }
+
+    private VietmapRouteResponse getLocalTspRoute(
+            List<String> points, String vehicle, boolean roundtrip, double[][] costMatrix) {
+        List<String> ordered = orderLocally(points, roundtrip, costMatrix);
+        if (ordered.size() < 2) {
+            return null;
+        }
+        return getRoute(ordered, vehicle); // getRoute tự trả ước lượng đường chim bay nếu Vietmap lỗi
+    }
+
+    /**
+     * Compare the local TSP solver with the remote /tsp/v3 result for the same points
+     */
+    public TspBenchmarkResponse benchmarkTsp(List<String> points, String vehicle, boolean roundtrip) {
+        List<double[]> coordinates = parsePoints(points);
+        double[][] matrix = localTspSolver.haversineMatrix(coordinates);
+
+        long localStart = System.nanoTime();
+        int[] order = localTspSolver.solve(matrix, roundtrip);
+        long localSolveMicros = (System.nanoTime() - localStart) / 1_000;
+
+        TspBenchmarkResponse.TspBenchmarkResponseBuilder result = TspBenchmarkResponse.builder()
+                .pointCount(points.size())
+                .localOrder(Arrays.stream(order).boxed().toList())
+                .localSolveMicros(localSolveMicros)
+                .localHaversineMeters(localTspSolver.routeCost(order, matrix, roundtrip));
+
+        try {
+            VietmapRouteResponse localRoute = getRoute(orderedPoints(points, order, roundtrip), vehicle);
+            result.localRoadMeters(firstPathDistance(localRoute));
+        } catch (RuntimeException e) {
+            log.warn("Benchmark: route for local order failed: {}", e.getMessage());
+        }
+
+        try {
+            long remoteStart = System.nanoTime();
+            VietmapRouteResponse remote = doGetTspRoute(points, vehicle, roundtrip);
+            result.remoteMillis((System.nanoTime() - remoteStart) / 1_000_000);
+            result.remoteRoadMeters(firstPathDistance(remote));
+        } catch (RuntimeException e) {
+            log.warn("Benchmark: remote TSP failed: {}", e.getMessage());
+        }
+        return result.build();
+    }
+
+    private List<String> orderLocally(List<String> points, boolean roundtrip, double[][] costMatrix) {
+        if (points.size() <= 1) {
+            return points;
+        }
+        double[][] matrix = costMatrix != null && costMatrix.length == points.size()
+                ? costMatrix
+                : localTspSolver.haversineMatrix(parsePoints(points));
+        return orderedPoints(points, localTspSolver.solve(matrix, roundtrip), roundtrip);
+    }
+
+    private List<String> orderedPoints(List<String> points, int[] order, boolean roundtrip) {
+        List<String> ordered = new ArrayList<>(order.length + 1);
+        for (int index : order) {
+            ordered.add(points.get(index));
+        }
+        if (roundtrip) {
+            ordered.add(points.get(order[0])); // Quay về điểm xuất phát như TSP roundtrip
+        }
+        return ordered;
+    }
+
+    private VietmapRouteResponse straightLineRoute(List<String> ordered, String vehicle) {
+        List<double[]> coordinates = parsePoints(ordered);
+        double distance = 0;
+        for (int i = 0; i + 1 < coordinates.size(); i++) {
+            distance += LocalTspSolver.haversine(coordinates.get(i), coordinates.get(i + 1));
+        }
+        double speedMetersPerSecond = "motorcycle".equalsIgnoreCase(vehicle) ? 8.3 : 11.1; // ~30 / ~40 km/h
+        return VietmapRouteResponse.builder()
+                .code(LOCAL_ESTIMATE_CODE)
+                .paths(List.of(VietmapRouteResponse.RoutePath.builder()
+                        .distance(distance)
+                        .time((long) (distance / speedMetersPerSecond * 1000))
+                        .pointsEncoded(true)
+                        .points(PolylineCodec.encode(coordinates))
+                        .build()))
+                .build();
+    }
+
+    private Optional<Location> nearestLocalLocation(Double lat, Double lng) {
+        double delta = 0.01; // ~1km
+        double[] target = {lat, lng};
+        return locationRepository
+                .findByLatitudeBetweenAndLongitudeBetween(lat - delta, lat + delta, lng - delta, lng + delta)
+                .stream()
+                .min(Comparator.comparingDouble(location ->
+                        LocalTspSolver.haversine(target, new double[] {location.getLatitude(), location.getLongitude()})));
+    }
+
+    private VietmapAutocompleteResponse toAutocompleteResponse(Location location) {
+        return VietmapAutocompleteResponse.builder()
+                .refId(location.getRefId() != null ? location.getRefId() : LOCAL_REF_PREFIX + location.getId())
+                .name(location.getName())
+                .address(location.getAddress())
+                .display(location.getName() + (location.getAddress() != null ? ", " + location.getAddress() : ""))
+                .locationId(location.getId())
+                .lat(location.getLatitude())
+                .lng(location.getLongitude())
+                .build();
+    }
+
+    private VietmapAutocompleteResponse toAutocompleteResponse(LocationSearchIndex.Hit hit) {
+        return VietmapAutocompleteResponse.builder()
+                .refId(hit.getRefId() != null ? hit.getRefId() : LOCAL_REF_PREFIX + hit.getLocationId())
+                .name(hit.getName())
+                .address(hit.getAddress())
+                .display(hit.getName() + (hit.getAddress() != null ? ", " + hit.getAddress() : ""))
+                .distance(hit.getDistanceMeters() / 1000)
+                .locationId(hit.getLocationId())
+                .lat(hit.getLatitude())
+                .lng(hit.getLongitude())
+                .build();
+    }
+
+    /**
+     * Kết quả local đứng trước, bỏ kết quả Vietmap trùng refId
+     */
+    private List<VietmapAutocompleteResponse> mergeAutocomplete(
+            List<VietmapAutocompleteResponse> local, List<VietmapAutocompleteResponse> remote) {
+        if (local.isEmpty() || remote == null) {
+            return remote != null ? remote : local;
+        }
+        Set<String> localRefIds = local.stream()
+                .map(VietmapAutocompleteResponse::getRefId)
+                .collect(Collectors.toSet());
+        List<VietmapAutocompleteResponse> merged = new ArrayList<>(local);
+        remote.stream().filter(result -> !localRefIds.contains(result.getRefId())).forEach(merged::add);
+        return merged;
+    }
+
+    private double[] parseFocus(String focus) {
+        if (focus == null || focus.isBlank()) {
+            return null;
+        }
+        try {
+            return parsePoints(List.of(focus)).get(0);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private VietmapPlaceResponse toPlaceResponse(Location location) {
+        return VietmapPlaceResponse.builder()
+                .name(location.getName())
+                .display(location.getName())
+                .address(location.getAddress())
+                .hsNum(location.getHouseNumber())
+                .street(location.getStreetName())
+                .ward(location.getWardName())
+                .district(location.getDistrictName())
+                .city(location.getCityName())
+                .lat(location.getLatitude())
+                .lng(location.getLongitude())
+                .build();
+    }
+
+    private List<double[]> parsePoints(List<String> points) {
+        return points.stream()
+                .map(point -> {
+                    String[] parts = point.split(",");
+                    return new double[] {Double.parseDouble(parts[0].trim()), Double.parseDouble(parts[1].trim())};
+                })
+                .toList();
+    }
+
+    private Double firstPathDistance(VietmapRouteResponse response) {
+        return response != null && response.getPaths() != null && !response.getPaths().isEmpty()
+                ? response.getPaths().get(0).getDistance()
+                : null;
+    }
+
+    private VietmapRouteResponse doGetTspRoute(List<String> points, String vehicle, boolean roundtrip) {
         UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(baseUrl + "/tsp/v3")
                 .queryParam("apikey", apiKey)
                 .queryParam("points_encoded", true)
@@ -173,21 +520,12 @@ public class VietmapService {
 
         String url = builder.toUriString();
 
-        try {
-            log.info("Calling Vietmap TSP API with {} points, vehicle: {}, roundtrip: {}, sources: 0{}", 
-                    points.size(), vehicle, roundtrip, 
-                    (!roundtrip && points.size() > 1) ? ", destinations: " + (points.size() - 1) : "");
-            VietmapRouteResponse response = restClient
-                    .get()
-                    .uri(url)
-                    .retrieve()
-                    .body(VietmapRouteResponse.class);
-
-            log.info("TSP API response code: {}", response != null ? response.getCode() : "null");
-            return response;
-        } catch (Exception e) {
-            log.error("Error calling Vietmap TSP API", e);
-            throw new RuntimeException("Failed to get TSP route", e);
-        }
+        log.info("Calling Vietmap TSP API with {} points, vehicle: {}, roundtrip: {}, sources: 0{}",
+                points.size(), vehicle, roundtrip,
+                (!roundtrip && points.size() > 1) ? ", destinations: " + (points.size() - 1) : "");
+        VietmapRouteResponse response = vietmapClient.get(VietmapClient.Endpoint.TSP, url, VietmapRouteResponse.class);
+
+        log.info("TSP API response code: {}", response != null ? response.getCode() : "null");
+        return response;
     }
 }
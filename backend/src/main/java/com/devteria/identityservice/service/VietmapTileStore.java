@@ -0,0 +1,371 @@
+package com.devteria.identityservice.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.devteria.identityservice.dto.response.VietmapTileCacheStatsResponse;
+import com.devteria.identityservice.util.SingleFlight;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cache 2 tầng cho tile bản đồ Vietmap:
+ * - Memory: LRU giới hạn theo số byte (không phải số entry)
+ * - Disk: mỗi tile 1 file {cacheDir}/{z}/{x}/{y}.png, giữ qua các lần restart
+ * Mỗi tầng có TTL riêng. Nếu Vietmap lỗi mà disk còn tile cũ thì trả tile cũ.
+ * Disk được dọn định kỳ: bỏ tile quá 2 lần TTL (hết hạn lâu, không còn đáng dùng làm bản cũ), rồi xóa tile cũ nhất
+ * cho tới khi dưới giới hạn dung lượng.
+ */
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class VietmapTileStore {
+
+    // Bounding box của Việt Nam (bao gồm biển gần bờ)
+    private static final double VN_MIN_LAT = 8.18;
+    private static final double VN_MAX_LAT = 23.39;
+    private static final double VN_MIN_LNG = 102.14;
+    private static final double VN_MAX_LNG = 109.46;
+    private static final int MAX_ZOOM = 22;
+    // Zoom 14 phủ Việt Nam đã ~60k tile; cao hơn thì chỉ cache theo lượt xem, không seed trước
+    private static final int MAX_SEED_ZOOM = 14;
+    private static final long SEED_DELAY_MS = 50; // Giãn cách gọi Vietmap khi seed
+
+    VietmapService vietmapService;
+    Executor tileSeedTaskExecutor;
+    Cache<String, byte[]> memory;
+    Path cacheDir;
+    Duration diskTtl;
+    long diskMaxBytes;
+    long memoryMaxBytes;
+    long seedMaxTiles;
+
+    LongAdder memoryHits = new LongAdder();
+    LongAdder diskHits = new LongAdder();
+    LongAdder misses = new LongAdder();
+    LongAdder upstreamErrors = new LongAdder();
+    LongAdder staleServed = new LongAdder();
+    LongAdder seededTiles = new LongAdder();
+    LongAdder prunedTiles = new LongAdder();
+    AtomicBoolean seeding = new AtomicBoolean(false);
+    SingleFlight<String, Tile> missFlights = new SingleFlight<>();
+
+    public VietmapTileStore(
+            VietmapService vietmapService,
+            @Qualifier("tileSeedTaskExecutor") Executor tileSeedTaskExecutor,
+            @Value("${vietmap.tiles.cache-dir:./data/vietmap-tiles}") String cacheDir,
+            @Value("${vietmap.tiles.memory-max-mb:64}") long memoryMaxMb,
+            @Value("${vietmap.tiles.memory-ttl-minutes:60}") long memoryTtlMinutes,
+            @Value("${vietmap.tiles.disk-ttl-days:30}") long diskTtlDays,
+            @Value("${vietmap.tiles.disk-max-mb:2048}") long diskMaxMb,
+            @Value("${vietmap.tiles.seed-max-tiles:100000}") long seedMaxTiles) {
+        this.vietmapService = vietmapService;
+        this.tileSeedTaskExecutor = tileSeedTaskExecutor;
+        this.cacheDir = Paths.get(cacheDir).toAbsolutePath();
+        this.diskTtl = Duration.ofDays(diskTtlDays);
+        this.diskMaxBytes = diskMaxMb * 1024 * 1024;
+        this.seedMaxTiles = seedMaxTiles;
+        this.memoryMaxBytes = memoryMaxMb * 1024 * 1024;
+        this.memory = Caffeine.newBuilder()
+                .maximumWeight(memoryMaxBytes)
+                .weigher((String key, byte[] bytes) -> bytes.length)
+                .expireAfterWrite(Duration.ofMinutes(memoryTtlMinutes))
+                .build();
+        log.info("Vietmap tile store: disk={} (max {}MB), memory={}MB, memoryTtl={}m, diskTtl={}d",
+                this.cacheDir, diskMaxMb, memoryMaxMb, memoryTtlMinutes, diskTtlDays);
+    }
+
+    public enum TileSource {
+        MEMORY,
+        DISK,
+        UPSTREAM,
+        STALE
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Tile {
+        byte[] bytes;
+        TileSource source;
+    }
+
+    /**
+     * Lấy tile theo thứ tự memory -> disk -> Vietmap. Trả về null nếu không lấy được.
+     */
+    public Tile getTile(int z, int x, int y) {
+        validate(z, x, y);
+        String key = key(z, x, y);
+
+        byte[] bytes = memory.getIfPresent(key);
+        if (bytes != null) {
+            memoryHits.increment();
+            return new Tile(bytes, TileSource.MEMORY);
+        }
+
+        Path file = tilePath(z, x, y);
+        byte[] diskBytes = readDisk(file);
+        if (diskBytes != null && !isExpired(file)) {
+            diskHits.increment();
+            memory.put(key, diskBytes);
+            return new Tile(diskBytes, TileSource.DISK);
+        }
+
+        misses.increment();
+        // Các miss đồng thời của cùng tile chỉ gọi Vietmap và ghi disk 1 lần
+        return missFlights.execute(key, () -> loadFromUpstream(z, x, y, key, file, diskBytes));
+    }
+
+    private Tile loadFromUpstream(int z, int x, int y, String key, Path file, byte[] staleBytes) {
+        byte[] bytes;
+        try {
+            bytes = vietmapService.fetchTile(z, x, y);
+        } catch (Exception e) {
+            upstreamErrors.increment();
+            if (staleBytes != null) {
+                staleServed.increment();
+                log.warn("Vietmap tile {} unavailable, serving stale copy from disk", key);
+                return new Tile(staleBytes, TileSource.STALE);
+            }
+            throw e;
+        }
+
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        memory.put(key, bytes);
+        writeDisk(file, bytes);
+        return new Tile(bytes, TileSource.UPSTREAM);
+    }
+
+    /**
+     * Seed các tile phủ Việt Nam cho zoom [minZoom, maxZoom] ở background.
+     * Tile đã có trên disk và chưa hết hạn sẽ được bỏ qua.
+     * Zoom tối đa MAX_SEED_ZOOM và tổng số tile tối đa seed-max-tiles, để 1 lần gọi không sinh hàng triệu request.
+     * @return số tile cần kiểm tra, hoặc -1 nếu đang có tiến trình seed khác
+     */
+    public long seedVietnam(int minZoom, int maxZoom) {
+        if (minZoom < 0 || maxZoom > MAX_SEED_ZOOM || minZoom > maxZoom) {
+            throw new IllegalArgumentException("Invalid zoom range: " + minZoom + "-" + maxZoom
+                    + " (seeding supports zoom 0-" + MAX_SEED_ZOOM + ")");
+        }
+
+        long total = 0;
+        for (int z = minZoom; z <= maxZoom; z++) {
+            total += (long) (lngToTileX(VN_MAX_LNG, z) - lngToTileX(VN_MIN_LNG, z) + 1)
+                    * (latToTileY(VN_MIN_LAT, z) - latToTileY(VN_MAX_LAT, z) + 1);
+        }
+        if (total > seedMaxTiles) {
+            throw new IllegalArgumentException("Zoom range " + minZoom + "-" + maxZoom + " covers " + total
+                    + " tiles, more than the seeding limit of " + seedMaxTiles);
+        }
+        if (!seeding.compareAndSet(false, true)) {
+            return -1;
+        }
+
+        try {
+            tileSeedTaskExecutor.execute(() -> runSeed(minZoom, maxZoom));
+        } catch (RuntimeException e) {
+            seeding.set(false);
+            throw e;
+        }
+        log.info("Scheduled Vietmap tile seeding for zoom {}-{} ({} tiles)", minZoom, maxZoom, total);
+        return total;
+    }
+
+    public VietmapTileCacheStatsResponse getStats() {
+        long memoryHitCount = memoryHits.sum();
+        long diskHitCount = diskHits.sum();
+        long missCount = misses.sum();
+        long requests = memoryHitCount + diskHitCount + missCount;
+
+        return VietmapTileCacheStatsResponse.builder()
+                .memoryHits(memoryHitCount)
+                .diskHits(diskHitCount)
+                .misses(missCount)
+                .upstreamErrors(upstreamErrors.sum())
+                .staleServed(staleServed.sum())
+                .hitRatio(requests == 0 ? 0.0 : (double) (memoryHitCount + diskHitCount) / requests)
+                .memoryEntries(memory.estimatedSize())
+                .memoryBytes(memory.policy().eviction().map(e -> e.weightedSize().orElse(0L)).orElse(0L))
+                .memoryMaxBytes(memoryMaxBytes)
+                .seededTiles(seededTiles.sum())
+                .prunedTiles(prunedTiles.sum())
+                .coalescedMisses(missFlights.getCoalesced())
+                .build();
+    }
+
+    /**
+     * Dọn tầng disk: xóa tile quá 2 lần TTL, sau đó xóa tile cũ nhất nếu vẫn vượt disk-max-mb
+     */
+    @Scheduled(cron = "${vietmap.tiles.prune-cron:0 30 3 * * *}")
+    public void pruneDisk() {
+        if (!Files.isDirectory(cacheDir)) {
+            return;
+        }
+        Instant staleBefore = Instant.now().minus(diskTtl.multipliedBy(2));
+        List<CachedFile> kept = new ArrayList<>();
+        long totalBytes = 0;
+        long removed = 0;
+        try (Stream<Path> files = Files.walk(cacheDir)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    if (attributes.lastModifiedTime().toInstant().isBefore(staleBefore)) {
+                        Files.deleteIfExists(file);
+                        removed++;
+                    } else {
+                        kept.add(new CachedFile(file, attributes.size(), attributes.lastModifiedTime().toInstant()));
+                        totalBytes += attributes.size();
+                    }
+                } catch (IOException e) {
+                    log.debug("Cannot prune cached tile {}: {}", file, e.getMessage());
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Vietmap tile disk prune failed: {}", e.getMessage());
+            return;
+        }
+
+        if (totalBytes > diskMaxBytes) {
+            kept.sort(Comparator.comparing(CachedFile::modified));
+            for (CachedFile file : kept) {
+                if (totalBytes <= diskMaxBytes * 9 / 10) {
+                    break;
+                }
+                try {
+                    Files.deleteIfExists(file.path());
+                    totalBytes -= file.size();
+                    removed++;
+                } catch (IOException e) {
+                    log.debug("Cannot prune cached tile {}: {}", file.path(), e.getMessage());
+                }
+            }
+        }
+        prunedTiles.add(removed);
+        if (removed > 0) {
+            log.info("Pruned {} Vietmap tiles from disk, {} bytes remain", removed, totalBytes);
+        }
+    }
+
+    private record CachedFile(Path path, long size, Instant modified) {
+    }
+
+    private void runSeed(int minZoom, int maxZoom) {
+        try {
+            for (int z = minZoom; z <= maxZoom; z++) {
+                int minX = lngToTileX(VN_MIN_LNG, z);
+                int maxX = lngToTileX(VN_MAX_LNG, z);
+                int minY = latToTileY(VN_MAX_LAT, z);
+                int maxY = latToTileY(VN_MIN_LAT, z);
+                for (int x = minX; x <= maxX; x++) {
+                    for (int y = minY; y <= maxY; y++) {
+                        Path file = tilePath(z, x, y);
+                        if (Files.exists(file) && !isExpired(file)) {
+                            continue;
+                        }
+                        try {
+                            byte[] bytes = vietmapService.fetchTile(z, x, y);
+                            if (bytes != null && bytes.length > 0) {
+                                writeDisk(file, bytes);
+                                seededTiles.increment();
+                            }
+                            Thread.sleep(SEED_DELAY_MS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        } catch (Exception e) {
+                            upstreamErrors.increment();
+                            log.warn("Failed to seed tile {}/{}/{}: {}", z, x, y, e.getMessage());
+                        }
+                    }
+                }
+                log.info("Seeded Vietmap tiles for zoom {}", z);
+            }
+        } finally {
+            seeding.set(false);
+        }
+    }
+
+    private byte[] readDisk(Path file) {
+        try {
+            return Files.exists(file) ? Files.readAllBytes(file) : null;
+        } catch (IOException e) {
+            log.warn("Cannot read cached tile {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeDisk(Path file, byte[] bytes) {
+        try {
+            Files.createDirectories(file.getParent());
+            // Ghi ra file tạm rồi move để không bao giờ đọc phải tile ghi dở
+            Path tmp = Files.createTempFile(file.getParent(), "tile", ".tmp");
+            Files.write(tmp, bytes);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Cannot write cached tile {}: {}", file, e.getMessage());
+        }
+    }
+
+    private boolean isExpired(Path file) {
+        try {
+            FileTime modified = Files.getLastModifiedTime(file);
+            return modified.toInstant().plus(diskTtl).isBefore(Instant.now());
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    private Path tilePath(int z, int x, int y) {
+        return cacheDir.resolve(String.valueOf(z)).resolve(String.valueOf(x)).resolve(y + ".png");
+    }
+
+    private static String key(int z, int x, int y) {
+        return z + "/" + x + "/" + y;
+    }
+
+    private static void validate(int z, int x, int y) {
+        if (z < 0 || z > MAX_ZOOM) {
+            throw new IllegalArgumentException("Invalid zoom: " + z);
+        }
+        int max = 1 << z;
+        if (x < 0 || x >= max || y < 0 || y >= max) {
+            throw new IllegalArgumentException("Invalid tile: " + z + "/" + x + "/" + y);
+        }
+    }
+
+    private static int lngToTileX(double lng, int z) {
+        return (int) Math.floor((lng + 180.0) / 360.0 * (1 << z));
+    }
+
+    private static int latToTileY(double lat, int z) {
+        double latRad = Math.toRadians(lat);
+        return (int) Math.floor((1 - Math.log(Math.tan(latRad) + 1 / Math.cos(latRad)) / Math.PI) / 2 * (1 << z));
+    }
+}
@@ -0,0 +1,96 @@
+package com.devteria.identityservice.util;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Circuit breaker đơn giản theo số lỗi liên tiếp.
+ * CLOSED: cho mọi lời gọi đi qua. Sau failureThreshold lỗi liên tiếp chuyển sang OPEN.
+ * OPEN: từ chối ngay trong openDuration, sau đó chuyển HALF_OPEN.
+ * HALF_OPEN: chỉ cho 1 lời gọi thử (PROBE); thành công thì CLOSED, lỗi thì OPEN lại.
+ * Caller phải gọi onSuccess/onFailure với permit nhận được trong finally sau mỗi tryAcquire không bị REJECTED,
+ * nếu không lượt thử HALF_OPEN không bao giờ được nhả. Chỉ lời gọi PROBE mới đóng circuit và nhả lượt thử;
+ * lời gọi bắt đầu từ lúc CLOSED mà kết thúc muộn không làm đổi trạng thái HALF_OPEN.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    public enum Permit {
+        REJECTED,
+        CALL,  // Lời gọi bình thường lúc CLOSED
+        PROBE  // Lời gọi thử duy nhất lúc HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicLong openedAt = new AtomicLong();
+    private final AtomicBoolean probeInFlight = new AtomicBoolean();
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+    }
+
+    /**
+     * @return REJECTED nếu lời gọi bị chặn; ngược lại caller phải báo lại onSuccess/onFailure với permit này
+     */
+    public Permit tryAcquire() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return Permit.CALL;
+        }
+        if (current == State.OPEN) {
+            if (System.nanoTime() - openedAt.get() < openNanos) {
+                return Permit.REJECTED;
+            }
+            state.compareAndSet(State.OPEN, State.HALF_OPEN);
+        }
+        // HALF_OPEN: chỉ 1 lời gọi thử tại 1 thời điểm
+        return probeInFlight.compareAndSet(false, true) ? Permit.PROBE : Permit.REJECTED;
+    }
+
+    public void onSuccess(Permit permit) {
+        consecutiveFailures.set(0);
+        if (permit == Permit.PROBE) {
+            state.set(State.CLOSED);
+            probeInFlight.set(false);
+        }
+    }
+
+    public void onFailure(Permit permit) {
+        try {
+            int failures = consecutiveFailures.incrementAndGet();
+            if (permit == Permit.PROBE || failures >= failureThreshold) {
+                open();
+            }
+        } finally {
+            if (permit == Permit.PROBE) {
+                probeInFlight.set(false);
+            }
+        }
+    }
+
+    public State getState() {
+        State current = state.get();
+        if (current == State.OPEN && System.nanoTime() - openedAt.get() >= openNanos) {
+            return State.HALF_OPEN;
+        }
+        return current;
+    }
+
+    private void open() {
+        openedAt.set(System.nanoTime());
+        state.set(State.OPEN);
+    }
+}
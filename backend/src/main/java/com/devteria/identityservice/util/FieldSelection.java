@@ -0,0 +1,65 @@
+package com.devteria.identityservice.util;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Danh sách field client yêu cầu qua tham số {@code fields=name,price,imageUrl}.
+ * Service dùng để bỏ qua các association không cần load; {@code id} luôn được giữ.
+ * Không truyền {@code fields} (hoặc rỗng) nghĩa là lấy tất cả.
+ */
+public final class FieldSelection {
+
+    public static final String PARAM = "fields";
+
+    public static final FieldSelection ALL = new FieldSelection(null);
+
+    private final Set<String> fields; // null = tất cả
+
+    private FieldSelection(Set<String> fields) {
+        this.fields = fields;
+    }
+
+    public static FieldSelection parse(String raw) {
+        if (raw == null || raw.isBlank()) {
+            return ALL;
+        }
+        Set<String> fields = new LinkedHashSet<>();
+        fields.add("id");
+        for (String part : raw.split(",")) {
+            String field = part.trim();
+            if (!field.isEmpty()) {
+                fields.add(field);
+            }
+        }
+        return new FieldSelection(Collections.unmodifiableSet(fields));
+    }
+
+    public boolean isAll() {
+        return fields == null;
+    }
+
+    public boolean includes(String field) {
+        return fields == null || fields.contains(field);
+    }
+
+    public boolean includesAny(String... candidates) {
+        if (fields == null) {
+            return true;
+        }
+        for (String candidate : candidates) {
+            if (fields.contains(candidate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tập field đã chọn, null nếu lấy tất cả
+     */
+    public Set<String> fields() {
+        return fields;
+    }
+}
@@ -0,0 +1,161 @@
+package com.devteria.identityservice.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Lưới đều theo độ (lat/lng) để tra nhanh các đối tượng gần 1 điểm hoặc trong 1 bounding box.
+ * Mỗi id có thể có nhiều điểm (ví dụ các điểm dừng + polyline của tour); khoảng cách của id là điểm gần nhất.
+ * Không thread-safe, caller tự đồng bộ.
+ * Box truy vấn được kẹp vào [-90, 90] x [-180, 180]; box rỗng hoặc có NaN không trả về gì.
+ */
+public class GeoGrid {
+
+    private static final double METERS_PER_DEGREE_LAT = 111_320;
+
+    private final double cellDegrees;
+    private final Map<Long, Set<Long>> cells = new HashMap<>();
+    private final Map<Long, double[][]> pointsById = new HashMap<>();
+
+    public GeoGrid(double cellDegrees) {
+        this.cellDegrees = cellDegrees;
+    }
+
+    /**
+     * Thêm hoặc thay thế toàn bộ điểm của 1 id. points[i] = {lat, lng}
+     */
+    public void put(long id, double[][] points) {
+        remove(id);
+        if (points.length == 0) {
+            return;
+        }
+        pointsById.put(id, points);
+        for (double[] point : points) {
+            cells.computeIfAbsent(cellKey(point[0], point[1]), key -> new HashSet<>()).add(id);
+        }
+    }
+
+    public void remove(long id) {
+        double[][] previous = pointsById.remove(id);
+        if (previous == null) {
+            return;
+        }
+        for (double[] point : previous) {
+            long key = cellKey(point[0], point[1]);
+            Set<Long> ids = cells.get(key);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    cells.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Các id có ít nhất 1 điểm trong bán kính, sắp xếp theo khoảng cách tăng dần
+     */
+    public List<Hit> withinRadius(double lat, double lng, double radiusMeters) {
+        double deltaLat = radiusMeters / METERS_PER_DEGREE_LAT;
+        double deltaLng = radiusMeters / (METERS_PER_DEGREE_LAT * Math.max(0.01, Math.cos(Math.toRadians(lat))));
+        double[] center = {lat, lng};
+
+        List<Hit> hits = new ArrayList<>();
+        for (long id : candidates(lat - deltaLat, lat + deltaLat, lng - deltaLng, lng + deltaLng)) {
+            double best = Double.MAX_VALUE;
+            for (double[] point : pointsById.get(id)) {
+                if (Math.abs(point[0] - lat) <= deltaLat && Math.abs(point[1] - lng) <= deltaLng) {
+                    best = Math.min(best, haversine(center, point));
+                }
+            }
+            if (best <= radiusMeters) {
+                hits.add(new Hit(id, best));
+            }
+        }
+        hits.sort((a, b) -> Double.compare(a.distanceMeters(), b.distanceMeters()));
+        return hits;
+    }
+
+    /**
+     * Các id có ít nhất 1 điểm nằm trong bounding box
+     */
+    public List<Long> withinBox(double minLat, double maxLat, double minLng, double maxLng) {
+        List<Long> result = new ArrayList<>();
+        for (long id : candidates(minLat, maxLat, minLng, maxLng)) {
+            for (double[] point : pointsById.get(id)) {
+                if (point[0] >= minLat && point[0] <= maxLat && point[1] >= minLng && point[1] <= maxLng) {
+                    result.add(id);
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        return pointsById.size();
+    }
+
+    private Set<Long> candidates(double minLat, double maxLat, double minLng, double maxLng) {
+        Set<Long> result = new HashSet<>();
+        // Viết dạng phủ định để NaN cũng rơi vào nhánh này
+        if (!(minLat <= maxLat && minLng <= maxLng)) {
+            return result;
+        }
+        long minRow = cell(clamp(minLat, -90, 90));
+        long maxRow = cell(clamp(maxLat, -90, 90));
+        long minCol = cell(clamp(minLng, -180, 180));
+        long maxCol = cell(clamp(maxLng, -180, 180));
+        // Box lớn hơn số ô đang có thì duyệt các ô có dữ liệu thay vì mọi ô trong box (tính bằng double, không tràn số)
+        if ((double) (maxRow - minRow + 1) * (maxCol - minCol + 1) > cells.size()) {
+            cells.forEach((key, ids) -> {
+                long row = key >> 32;
+                long col = (int) key.longValue();
+                if (row >= minRow && row <= maxRow && col >= minCol && col <= maxCol) {
+                    result.addAll(ids);
+                }
+            });
+            return result;
+        }
+        for (long row = minRow; row <= maxRow; row++) {
+            for (long col = minCol; col <= maxCol; col++) {
+                Set<Long> ids = cells.get(pack(row, col));
+                if (ids != null) {
+                    result.addAll(ids);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private long cellKey(double lat, double lng) {
+        return pack(cell(lat), cell(lng));
+    }
+
+    private long cell(double degrees) {
+        return (long) Math.floor(degrees / cellDegrees);
+    }
+
+    private static long pack(long row, long col) {
+        return (row << 32) | (col & 0xffffffffL);
+    }
+
+    private static double haversine(double[] a, double[] b) {
+        double dLat = Math.toRadians(b[0] - a[0]);
+        double dLng = Math.toRadians(b[1] - a[1]);
+        double h = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(a[0])) * Math.cos(Math.toRadians(b[0]))
+                        * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * 6_371_000 * Math.asin(Math.sqrt(h));
+    }
+
+    public record Hit(long id, double distanceMeters) {}
+}
@@ -0,0 +1,67 @@
+package com.devteria.identityservice.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Tập chuỗi gọn trong bộ nhớ: mỗi chuỗi chỉ lưu fingerprint 64-bit (FNV-1a) trong một mảng long đã sắp xếp,
+ * khoảng 8 byte/phần tử thay vì cả String.
+ * Trùng fingerprint (rất hiếm) chỉ làm {@link #contains} trả true nhầm, không bao giờ trả false nhầm.
+ * Dùng theo 2 pha: add hết rồi {@link #seal()}, sau đó chỉ contains.
+ */
+public class KeyFingerprintSet {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private long[] fingerprints = new long[1024];
+    private int size;
+    private boolean sealed;
+
+    public void add(String key) {
+        if (sealed) {
+            throw new IllegalStateException("Set is sealed");
+        }
+        if (size == fingerprints.length) {
+            fingerprints = Arrays.copyOf(fingerprints, size * 2);
+        }
+        fingerprints[size++] = fingerprint(key);
+    }
+
+    /**
+     * Sắp xếp và bỏ trùng, sau đó có thể tra cứu
+     */
+    public KeyFingerprintSet seal() {
+        Arrays.sort(fingerprints, 0, size);
+        int unique = 0;
+        for (int i = 0; i < size; i++) {
+            if (unique == 0 || fingerprints[unique - 1] != fingerprints[i]) {
+                fingerprints[unique++] = fingerprints[i];
+            }
+        }
+        size = unique;
+        fingerprints = Arrays.copyOf(fingerprints, size);
+        sealed = true;
+        return this;
+    }
+
+    public boolean contains(String key) {
+        if (!sealed) {
+            throw new IllegalStateException("Set is not sealed");
+        }
+        return Arrays.binarySearch(fingerprints, 0, size, fingerprint(key)) >= 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static long fingerprint(String key) {
+        long hash = FNV_OFFSET;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= (b & 0xff);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,106 @@
+package com.devteria.identityservice.util;
+
+import java.util.Arrays;
+
+/**
+ * Bảng băm open-addressing dùng mảng primitive cho chi phí giữa 2 id (không có hướng).
+ * Mỗi entry chỉ tốn 1 long (key) + 1 float (mét) + 1 int (giây) thay vì vài object boxed.
+ * Không thread-safe, caller tự đồng bộ.
+ */
+public class LongPairCostTable {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private float[] distances;
+    private int[] durations;
+    private int size;
+
+    public LongPairCostTable(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / LOAD_FACTOR)) * 2 - 1);
+        allocate(capacity);
+    }
+
+    /**
+     * Key đối xứng: (a, b) và (b, a) cho cùng 1 key
+     */
+    public static long key(long a, long b) {
+        long low = Math.min(a, b);
+        long high = Math.max(a, b);
+        return (low << 32) | (high & 0xffffffffL);
+    }
+
+    public void put(long a, long b, float distanceMeters, int durationSeconds) {
+        if (size + 1 > keys.length * LOAD_FACTOR) {
+            resize();
+        }
+        long key = key(a, b);
+        int slot = findSlot(keys, key);
+        if (keys[slot] == EMPTY) {
+            keys[slot] = key;
+            size++;
+        }
+        distances[slot] = distanceMeters;
+        durations[slot] = durationSeconds;
+    }
+
+    /**
+     * @return index nội bộ của entry, -1 nếu chưa có
+     */
+    public int indexOf(long a, long b) {
+        long key = key(a, b);
+        int slot = findSlot(keys, key);
+        return keys[slot] == EMPTY ? -1 : slot;
+    }
+
+    public float distanceAt(int index) {
+        return distances[index];
+    }
+
+    public int durationAt(int index) {
+        return durations[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        float[] oldDistances = distances;
+        int[] oldDurations = durations;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = findSlot(keys, oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                distances[slot] = oldDistances[i];
+                durations[slot] = oldDurations[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        distances = new float[capacity];
+        durations = new int[capacity];
+    }
+
+    private static int findSlot(long[] table, long key) {
+        int mask = table.length - 1;
+        int slot = (int) (mix(key) & mask);
+        while (table[slot] != EMPTY && table[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return key;
+    }
+}
@@ -0,0 +1,73 @@
+package com.devteria.identityservice.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Encode/decode Google Encoded Polyline (precision 5), định dạng Vietmap trả về khi points_encoded=true.
+ * Mỗi điểm là double[]{lat, lng}.
+ */
+public final class PolylineCodec {
+
+    private static final double PRECISION = 1e5;
+
+    private PolylineCodec() {}
+
+    public static String encode(List<double[]> points) {
+        StringBuilder encoded = new StringBuilder();
+        long prevLat = 0;
+        long prevLng = 0;
+        for (double[] point : points) {
+            long lat = Math.round(point[0] * PRECISION);
+            long lng = Math.round(point[1] * PRECISION);
+            encodeValue(lat - prevLat, encoded);
+            encodeValue(lng - prevLng, encoded);
+            prevLat = lat;
+            prevLng = lng;
+        }
+        return encoded.toString();
+    }
+
+    public static List<double[]> decode(String encoded) {
+        List<double[]> points = new ArrayList<>();
+        if (encoded == null) {
+            return points;
+        }
+        int index = 0;
+        long lat = 0;
+        long lng = 0;
+        while (index < encoded.length()) {
+            long[] result = decodeValue(encoded, index);
+            lat += result[0];
+            index = (int) result[1];
+            result = decodeValue(encoded, index);
+            lng += result[0];
+            index = (int) result[1];
+            points.add(new double[] {lat / PRECISION, lng / PRECISION});
+        }
+        return points;
+    }
+
+    private static void encodeValue(long value, StringBuilder out) {
+        long v = value < 0 ? ~(value << 1) : (value << 1);
+        while (v >= 0x20) {
+            out.append((char) ((0x20 | (v & 0x1f)) + 63));
+            v >>= 5;
+        }
+        out.append((char) (v + 63));
+    }
+
+    // Trả về {giá trị, index kế tiếp}
+    private static long[] decodeValue(String encoded, int index) {
+        long result = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = encoded.charAt(index++) - 63;
+            result |= (long) (b & 0x1f) << shift;
+            shift += 5;
+        } while (b >= 0x20 && index < encoded.length());
+        long value = (result & 1) != 0 ? ~(result >> 1) : (result >> 1);
+        return new long[] {value, index};
+    }
+}
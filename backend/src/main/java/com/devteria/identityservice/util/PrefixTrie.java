@@ -0,0 +1,74 @@
+package com.devteria.identityservice.util;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Trie ánh xạ token → tập id. Tra theo tiền tố trả về mọi id có token bắt đầu bằng tiền tố đó.
+ * Không thread-safe, caller tự đồng bộ.
+ */
+public class PrefixTrie {
+
+    private final Node root = new Node();
+
+    public void insert(String token, int id) {
+        Node node = root;
+        for (int i = 0; i < token.length(); i++) {
+            node = node.children.computeIfAbsent(token.charAt(i), c -> new Node());
+        }
+        if (node.ids == null) {
+            node.ids = new LinkedHashSet<>(2);
+        }
+        node.ids.add(id);
+    }
+
+    public void remove(String token, int id) {
+        Node node = find(token);
+        if (node != null && node.ids != null) {
+            node.ids.remove(id);
+        }
+    }
+
+    /**
+     * @param limit số id tối đa thu thập (duyệt theo chiều rộng nên token ngắn/khớp sát được lấy trước)
+     */
+    public Set<Integer> collect(String prefix, int limit) {
+        Set<Integer> result = new LinkedHashSet<>();
+        Node start = find(prefix);
+        if (start == null) {
+            return result;
+        }
+        Deque<Node> queue = new ArrayDeque<>();
+        queue.add(start);
+        while (!queue.isEmpty() && result.size() < limit) {
+            Node node = queue.poll();
+            if (node.ids != null) {
+                for (Integer id : node.ids) {
+                    result.add(id);
+                    if (result.size() >= limit) {
+                        break;
+                    }
+                }
+            }
+            queue.addAll(node.children.values());
+        }
+        return result;
+    }
+
+    private Node find(String prefix) {
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.children.get(prefix.charAt(i));
+        }
+        return node;
+    }
+
+    private static class Node {
+        final Map<Character, Node> children = new HashMap<>(4);
+        Set<Integer> ids;
+    }
+}
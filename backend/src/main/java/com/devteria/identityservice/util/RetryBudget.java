@@ -0,0 +1,35 @@
+package com.devteria.identityservice.util;
+
+/**
+ * Giới hạn tổng số lần retry theo tỉ lệ với số request thật.
+ * Mỗi request nạp thêm ratio token, mỗi lần retry tiêu 1 token (tối đa maxTokens).
+ * Khi upstream lỗi hàng loạt, retry tự dừng thay vì nhân tải lên upstream.
+ */
+public class RetryBudget {
+
+    private final double ratio;
+    private final double maxTokens;
+    private double tokens;
+
+    public RetryBudget(double ratio, double maxTokens) {
+        this.ratio = ratio;
+        this.maxTokens = maxTokens;
+        this.tokens = maxTokens;
+    }
+
+    public synchronized void deposit() {
+        tokens = Math.min(maxTokens, tokens + ratio);
+    }
+
+    public synchronized boolean tryWithdraw() {
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+    public synchronized double getTokens() {
+        return tokens;
+    }
+}
@@ -0,0 +1,120 @@
+package com.devteria.identityservice.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.devteria.identityservice.dto.request.ApiResponse;
+import com.devteria.identityservice.dto.response.TourSummaryResponse;
+import com.devteria.identityservice.service.AiChatLimiter;
+import com.devteria.identityservice.service.AiFallbackResponder;
+import com.devteria.identityservice.service.AiResponseCache;
+import com.devteria.identityservice.service.AiToolCache;
+import com.devteria.identityservice.service.BoundedChatMemory;
+import com.devteria.identityservice.service.LocationSuggestionService;
+import com.devteria.identityservice.service.TourIntentParser;
+import com.devteria.identityservice.service.TourService;
+
+/**
+ * AiChatController with a stubbed ChatClient: the local tour search answers when the LLM fails,
+ * structured questions never reach the LLM, and guests only keep a conversation id the server signed.
+ */
+class AiChatControllerTest {
+
+    private static final String APOLOGY = "Xin lỗi, tôi đang gặp chút trục trặc kỹ thuật. Vui lòng thử lại sau.";
+
+    private final ChatClient chatClient = mock(ChatClient.class);
+    private final TourService tourService = mock(TourService.class);
+    private final AiChatLimiter aiChatLimiter = mock(AiChatLimiter.class);
+    private AiChatController controller;
+
+    @BeforeEach
+    void setUp() {
+        SecurityContextHolder.clearContext();
+
+        ChatClient.Builder builder = mock(ChatClient.Builder.class, RETURNS_SELF);
+        when(builder.build()).thenReturn(chatClient);
+        when(chatClient.prompt()).thenThrow(new IllegalStateException("OpenAI unavailable"));
+
+        AiToolCache aiToolCache = mock(AiToolCache.class);
+        doReturn(List.of("Đà Lạt", "Hà Nội")).when(aiToolCache).get(eq("cityNames"), any());
+        AiFallbackResponder responder = new AiFallbackResponder(new TourIntentParser(aiToolCache, mock(LocationSuggestionService.class)), tourService);
+        when(tourService.searchTours(any(), any(), any(), any(), any(), any(), any())).thenReturn(List.of(
+                TourSummaryResponse.builder().name("Đà Lạt mộng mơ").numberOfDays(3).price(2_500_000d).build()));
+
+        // Run the task inline instead of on the limiter's virtual threads
+        when(aiChatLimiter.submit(any(), any())).thenAnswer(invocation -> {
+            Supplier<?> task = invocation.getArgument(0);
+            return CompletableFuture.completedFuture(task.get());
+        });
+
+        controller = new AiChatController(builder, mock(BoundedChatMemory.class), mock(AiResponseCache.class),
+                responder, aiChatLimiter, true, "test-secret");
+    }
+
+    @Test
+    void llmFailureAnswersWithLocalSearchInsteadOfApology() {
+        AiChatController.ChatRequest request = new AiChatController.ChatRequest(
+                "Mình muốn tìm tour Đà Lạt dưới 3 triệu để đi cùng gia đình", "session-1");
+
+        ApiResponse<AiChatController.ChatResponse> response =
+                controller.chat(request, new MockHttpServletRequest()).join();
+
+        String reply = response.getResult().reply();
+        assertThat(reply).isNotEqualTo(APOLOGY);
+        assertThat(reply).startsWith("Hiện trợ lý AI đang bận, đây là kết quả tìm kiếm nhanh cho bạn.");
+        assertThat(reply).contains("Mình tìm thấy 1 tour", "Đà Lạt mộng mơ");
+        verify(chatClient).prompt();
+        verify(tourService).searchTours(isNull(), isNull(), eq(3_000_000d), isNull(), isNull(), eq("Đà Lạt"), any());
+    }
+
+    @Test
+    void structuredQuestionTakesFastPathWithoutCallingLlm() {
+        AiChatController.ChatRequest request =
+                new AiChatController.ChatRequest("tour Đà Lạt 3 ngày dưới 3 triệu", "session-2");
+
+        ApiResponse<AiChatController.ChatResponse> response =
+                controller.chat(request, new MockHttpServletRequest()).join();
+
+        assertThat(response.getCode()).isEqualTo(1000);
+        assertThat(response.getResult().reply()).startsWith("Mình tìm thấy 1 tour");
+        verify(chatClient, never()).prompt();
+        verify(aiChatLimiter, never()).submit(any(), any());
+        verify(tourService).searchTours(isNull(), isNull(), eq(3_000_000d), eq(3), isNull(), eq("Đà Lạt"), any());
+    }
+
+    @Test
+    void guestKeepsServerIssuedConversationIdButNotAGuessedOne() {
+        String issued = ask("session-3");
+        assertThat(issued).isNotEqualTo("session-3").contains(".");
+
+        assertThat(ask(issued)).isEqualTo(issued);
+
+        // Same id with a forged signature starts a new conversation
+        String guestId = issued.substring(0, issued.indexOf('.'));
+        assertThat(ask(guestId + ".forged")).isNotEqualTo(issued).doesNotStartWith(guestId);
+    }
+
+    private String ask(String conversationId) {
+        AiChatController.ChatRequest request =
+                new AiChatController.ChatRequest("tour Đà Lạt 3 ngày dưới 3 triệu", conversationId);
+        return controller.chat(request, new MockHttpServletRequest()).join().getResult().conversationId();
+    }
+}
@@ -0,0 +1,158 @@
+package com.devteria.identityservice.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import com.devteria.identityservice.exception.AppException;
+import com.devteria.identityservice.exception.ErrorCode;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Sinks;
+
+/**
+ * AiChatLimiter with one slot: queued calls run in arrival order, and callers get the fallback
+ * instead of waiting when the queue is full or the wait times out. Streams give their slot back
+ * exactly once, however they end.
+ */
+class AiChatLimiterTest {
+
+    private static final String BUSY = "busy";
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final CountDownLatch releaseSlot = new CountDownLatch(1);
+
+    @AfterEach
+    void shutdownExecutor() {
+        releaseSlot.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void fullQueueFallsBackImmediately() throws Exception {
+        AiChatLimiter limiter = limiter(1, 1, 30);
+        CompletableFuture<String> running = occupySlot(limiter);
+        CompletableFuture<String> queued = limiter.submit(() -> "queued", () -> BUSY);
+        awaitQueueDepth(limiter, 1);
+
+        CompletableFuture<String> rejected = limiter.submit(() -> "rejected", () -> BUSY);
+
+        assertThat(rejected.get(5, TimeUnit.SECONDS)).isEqualTo(BUSY);
+        assertThat(limiter.getStats()).containsEntry("rejectedQueueFull", 1L);
+
+        releaseSlot.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("running");
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("queued");
+    }
+
+    @Test
+    void waitTimeoutFallsBack() throws Exception {
+        AiChatLimiter limiter = limiter(1, 10, 1);
+        occupySlot(limiter);
+
+        CompletableFuture<String> waiting = limiter.submit(() -> "waiting", () -> BUSY);
+
+        assertThat(waiting.get(5, TimeUnit.SECONDS)).isEqualTo(BUSY);
+        assertThat(limiter.getStats())
+                .containsEntry("timedOut", 1L)
+                .containsEntry("queueDepth", 0L);
+    }
+
+    @Test
+    void queuedCallsRunInArrivalOrder() throws Exception {
+        AiChatLimiter limiter = limiter(1, 10, 30);
+        occupySlot(limiter);
+
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Integer>> calls = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            int number = i;
+            calls.add(limiter.submit(() -> {
+                order.add(number);
+                return number;
+            }, () -> -1));
+            awaitQueueDepth(limiter, i);
+            // Give the caller time to park on the semaphore after bumping the queue counter
+            Thread.sleep(50);
+        }
+
+        releaseSlot.countDown();
+        CompletableFuture.allOf(calls.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+
+        assertThat(order).containsExactly(1, 2, 3, 4, 5);
+    }
+
+    @Test
+    void cancelMidStreamReleasesSlotOnce() {
+        AiChatLimiter limiter = limiter(2, 10, 30);
+        Sinks.Many<String> upstream = Sinks.many().unicast().onBackpressureBuffer();
+        List<String> received = new CopyOnWriteArrayList<>();
+
+        Disposable subscription = limiter.stream(upstream::asFlux, () -> BUSY).subscribe(received::add);
+        await().atMost(Duration.ofSeconds(5)).until(() -> limiter.getStats().get("active") == 1L);
+        upstream.tryEmitNext("first chunk");
+        await().atMost(Duration.ofSeconds(5)).until(() -> received.contains("first chunk"));
+
+        subscription.dispose();
+
+        // Both the cancel hook and doFinally fire; a second release would leave active at -1
+        await().atMost(Duration.ofSeconds(5)).until(() -> limiter.getStats().get("completed") == 1L);
+        assertThat(limiter.getStats())
+                .containsEntry("active", 0L)
+                .containsEntry("completed", 1L);
+    }
+
+    @Test
+    void rateLimitRejectsOverBurstWith429() {
+        AiChatLimiter limiter = new AiChatLimiter(executor, 1, 1, 1, 2, 1);
+
+        limiter.checkRateLimit("user:alice");
+        limiter.checkRateLimit("user:alice");
+
+        assertThatThrownBy(() -> limiter.checkRateLimit("user:alice"))
+                .isInstanceOfSatisfying(AppException.class, e -> {
+                    assertThat(e.getErrorCode()).isEqualTo(ErrorCode.AI_RATE_LIMITED);
+                    assertThat(e.getErrorCode().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+                });
+        // Buckets are per key
+        limiter.checkRateLimit("user:bob");
+        assertThat(limiter.getStats()).containsEntry("rateLimited", 1L);
+    }
+
+    private AiChatLimiter limiter(int maxConcurrent, int maxQueue, long queueTimeoutSeconds) {
+        return new AiChatLimiter(executor, maxConcurrent, maxQueue, queueTimeoutSeconds, 100, 100);
+    }
+
+    // Holds the only slot until releaseSlot is counted down
+    private CompletableFuture<String> occupySlot(AiChatLimiter limiter) {
+        CompletableFuture<String> running = limiter.submit(() -> {
+            try {
+                releaseSlot.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "running";
+        }, () -> BUSY);
+        await().atMost(Duration.ofSeconds(5)).until(() -> limiter.getStats().get("active") == 1L);
+        return running;
+    }
+
+    private static void awaitQueueDepth(AiChatLimiter limiter, long depth) {
+        await().atMost(Duration.ofSeconds(5)).until(() -> limiter.getStats().get("queueDepth") == depth);
+    }
+}
@@ -0,0 +1,187 @@
+package com.devteria.identityservice.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Benchmark of LocalTspSolver over fixed sample tours.
+ * The remote Vietmap TSP is not reachable from the build, so the reference for each sample is the exact
+ * optimum (brute force), which the remote solver can at best match. The local order must stay within
+ * TOLERANCE of it and keep the /tsp/v3 semantics (start at 0, fixed destination when not roundtrip).
+ */
+@Slf4j
+class LocalTspSolverTest {
+
+    private static final double TOLERANCE = 0.05;
+
+    private final LocalTspSolver solver = new LocalTspSolver();
+
+    // {lat, lng} of the stops of a few real tours; index 0 is the meeting point
+    private static final List<double[]> DA_LAT = List.of(
+            new double[] {11.9416, 108.4547}, // Ga Đà Lạt
+            new double[] {12.0470, 108.4400}, // Langbiang
+            new double[] {11.9430, 108.4372}, // Chợ Đà Lạt
+            new double[] {11.9016, 108.4497}, // Thác Datanla
+            new double[] {11.9780, 108.4490}, // Thung lũng Tình Yêu
+            new double[] {11.8770, 108.5680}, // Đồi chè Cầu Đất
+            new double[] {11.9330, 108.4290}, // Dinh Bảo Đại III
+            new double[] {11.9425, 108.4419}); // Hồ Xuân Hương
+
+    private static final List<double[]> HA_NOI = List.of(
+            new double[] {21.0287, 105.8524}, // Hồ Gươm
+            new double[] {21.0580, 105.8190}, // Hồ Tây
+            new double[] {21.0277, 105.8355}, // Văn Miếu
+            new double[] {21.0243, 105.8575}, // Nhà hát Lớn
+            new double[] {21.0405, 105.7986}, // Bảo tàng Dân tộc học
+            new double[] {21.0368, 105.8346}, // Lăng Bác
+            new double[] {21.0340, 105.8500}, // Phố cổ
+            new double[] {21.0352, 105.8403}, // Hoàng thành Thăng Long
+            new double[] {21.0480, 105.8360}); // Chùa Trấn Quốc
+
+    private static final List<double[]> DA_NANG_HOI_AN = List.of(
+            new double[] {16.0611, 108.2270}, // Cầu Rồng
+            new double[] {15.7640, 108.1240}, // Mỹ Sơn
+            new double[] {16.1000, 108.2770}, // Sơn Trà
+            new double[] {15.9950, 107.9960}, // Bà Nà
+            new double[] {15.8770, 108.3260}, // Phố cổ Hội An
+            new double[] {16.0036, 108.2636}, // Ngũ Hành Sơn
+            new double[] {16.0544, 108.2470}); // Biển Mỹ Khê
+
+    static Stream<Arguments> sampleTours() {
+        return Stream.of(
+                Arguments.of("Đà Lạt", DA_LAT, false),
+                Arguments.of("Đà Lạt", DA_LAT, true),
+                Arguments.of("Hà Nội", HA_NOI, false),
+                Arguments.of("Hà Nội", HA_NOI, true),
+                Arguments.of("Đà Nẵng - Hội An", DA_NANG_HOI_AN, false),
+                Arguments.of("Đà Nẵng - Hội An", DA_NANG_HOI_AN, true));
+    }
+
+    @ParameterizedTest(name = "{0} roundtrip={2}")
+    @MethodSource("sampleTours")
+    void staysWithinToleranceOfOptimumOnSampleTours(String name, List<double[]> stops, boolean roundtrip) {
+        double[][] matrix = solver.haversineMatrix(stops);
+
+        long start = System.nanoTime();
+        int[] order = solver.solve(matrix, roundtrip);
+        long micros = (System.nanoTime() - start) / 1_000;
+
+        double local = solver.routeCost(order, matrix, roundtrip);
+        double optimum = bruteForceOptimum(matrix, roundtrip);
+        log.info("TSP benchmark {} (roundtrip={}): local {} m in {} µs, optimum {} m ({}%)",
+                name, roundtrip, Math.round(local), micros, Math.round(optimum),
+                String.format("%.2f", (local / optimum - 1) * 100));
+
+        assertValidOrder(order, stops.size(), roundtrip);
+        assertThat(local).isLessThanOrEqualTo(optimum * (1 + TOLERANCE));
+    }
+
+    @Test
+    void neverWorseThanNearestNeighbourOnLargerSeededTours() {
+        Random random = new Random(42);
+        for (int run = 0; run < 20; run++) {
+            List<double[]> stops = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                stops.add(new double[] {10.5 + random.nextDouble(), 106.3 + random.nextDouble()});
+            }
+            double[][] matrix = solver.haversineMatrix(stops);
+            boolean roundtrip = run % 2 == 0;
+
+            int[] order = solver.solve(matrix, roundtrip);
+
+            assertValidOrder(order, stops.size(), roundtrip);
+            assertThat(solver.routeCost(order, matrix, roundtrip))
+                    .isLessThanOrEqualTo(nearestNeighbourCost(matrix, roundtrip) + 1e-6);
+        }
+    }
+
+    @Test
+    void keepsInputOrderForThreePointsOrFewer() {
+        double[][] matrix = solver.haversineMatrix(DA_LAT.subList(0, 3));
+
+        assertThat(solver.isOrderFixed(3)).isTrue();
+        assertThat(solver.solve(matrix, false)).containsExactly(0, 1, 2);
+    }
+
+    private static void assertValidOrder(int[] order, int n, boolean roundtrip) {
+        assertThat(order).hasSize(n);
+        assertThat(order[0]).isZero();
+        if (!roundtrip) {
+            assertThat(order[n - 1]).isEqualTo(n - 1);
+        }
+        assertThat(Arrays.stream(order).sorted().toArray()).isEqualTo(IntStream.range(0, n).toArray());
+    }
+
+    // Try every order of the movable stops (n <= 9 keeps this under 40k permutations)
+    private double bruteForceOptimum(double[][] matrix, boolean roundtrip) {
+        int n = matrix.length;
+        int[] middle = IntStream.range(1, roundtrip ? n : n - 1).toArray();
+        double[] best = {Double.MAX_VALUE};
+        permute(middle, 0, () -> {
+            int[] order = new int[n];
+            System.arraycopy(middle, 0, order, 1, middle.length);
+            if (!roundtrip) {
+                order[n - 1] = n - 1;
+            }
+            best[0] = Math.min(best[0], solver.routeCost(order, matrix, roundtrip));
+        });
+        return best[0];
+    }
+
+    private static void permute(int[] values, int k, Runnable visit) {
+        if (k == values.length) {
+            visit.run();
+            return;
+        }
+        for (int i = k; i < values.length; i++) {
+            swap(values, k, i);
+            permute(values, k + 1, visit);
+            swap(values, k, i);
+        }
+    }
+
+    private static void swap(int[] values, int i, int j) {
+        int tmp = values[i];
+        values[i] = values[j];
+        values[j] = tmp;
+    }
+
+    private double nearestNeighbourCost(double[][] matrix, boolean roundtrip) {
+        int n = matrix.length;
+        boolean[] visited = new boolean[n];
+        visited[0] = true;
+        if (!roundtrip) {
+            visited[n - 1] = true;
+        }
+        int[] order = new int[n];
+        int current = 0;
+        for (int step = 1; step < (roundtrip ? n : n - 1); step++) {
+            int best = -1;
+            for (int candidate = 0; candidate < n; candidate++) {
+                if (!visited[candidate] && (best < 0 || matrix[current][candidate] < matrix[current][best])) {
+                    best = candidate;
+                }
+            }
+            visited[best] = true;
+            order[step] = best;
+            current = best;
+        }
+        if (!roundtrip) {
+            order[n - 1] = n - 1;
+        }
+        return solver.routeCost(order, matrix, roundtrip);
+    }
+}
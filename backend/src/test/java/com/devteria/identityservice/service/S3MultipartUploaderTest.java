@@ -0,0 +1,174 @@
+package com.devteria.identityservice.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.InputStreamSource;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CreateBucketRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.ListMultipartUploadsRequest;
+
+/**
+ * S3MultipartUploader against a real S3 API (MinIO), skipped when Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class S3MultipartUploaderTest {
+
+    private static final String BUCKET = "multipart-test";
+    private static final long PART_SIZE = 5L * 1024 * 1024;
+    private static final Duration RESUME_TTL = Duration.ofHours(24);
+
+    @Container
+    static final GenericContainer<?> MINIO = new GenericContainer<>(
+                    DockerImageName.parse("minio/minio:RELEASE.2024-05-10T01-41-38Z"))
+            .withEnv("MINIO_ROOT_USER", "minioadmin")
+            .withEnv("MINIO_ROOT_PASSWORD", "minioadmin")
+            .withCommand("server", "/data")
+            .withExposedPorts(9000)
+            .waitingFor(Wait.forHttp("/minio/health/live").forPort(9000));
+
+    private static S3Client s3Client;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(3);
+    private final AtomicLong nanos = new AtomicLong();
+    private final S3MultipartUploader uploader = new S3MultipartUploader(
+            s3Client, executor, BUCKET, PART_SIZE + 1, PART_SIZE, RESUME_TTL, nanos::get);
+
+    // 3 parts: 5MB, 5MB, 1MB
+    private final byte[] content = randomBytes(2 * PART_SIZE + 1024 * 1024);
+
+    @BeforeAll
+    static void createBucket() {
+        s3Client = S3Client.builder()
+                .endpointOverride(URI.create("http://" + MINIO.getHost() + ":" + MINIO.getMappedPort(9000)))
+                .region(Region.US_EAST_1)
+                .credentialsProvider(StaticCredentialsProvider.create(
+                        AwsBasicCredentials.create("minioadmin", "minioadmin")))
+                .forcePathStyle(true)
+                .build();
+        s3Client.createBucket(CreateBucketRequest.builder().bucket(BUCKET).build());
+    }
+
+    @AfterEach
+    void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void uploadsPartsInParallel() throws IOException {
+        String key = newKey();
+        // Every part blocks until all 3 have started, so the upload only finishes if they run concurrently
+        CountDownLatch allStarted = new CountDownLatch(3);
+        InputStreamSource source = () -> {
+            allStarted.countDown();
+            try {
+                if (!allStarted.await(10, TimeUnit.SECONDS)) {
+                    throw new IOException("Parts were not uploaded in parallel");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            return new ByteArrayInputStream(content);
+        };
+
+        uploader.upload(key, "image/jpeg", content.length, source);
+
+        assertThat(readObject(key)).isEqualTo(content);
+        assertThat(uploader.getStats())
+                .containsEntry("partsUploaded", 3L)
+                .containsEntry("uploadsCompleted", 1L)
+                .containsEntry("resumableUploads", 0L);
+    }
+
+    @Test
+    void resumesFromPartsListedByS3AfterFailedPart() throws IOException {
+        String key = newKey();
+        // Source cut after the first part: parts 2 and 3 fail on every attempt
+        byte[] truncated = Arrays.copyOf(content, (int) PART_SIZE);
+
+        assertThatThrownBy(() -> uploader.upload(key, "image/jpeg", content.length,
+                        () -> new ByteArrayInputStream(truncated)))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(uploader.getStats())
+                .containsEntry("uploadsFailed", 1L)
+                .containsEntry("resumableUploads", 1L);
+
+        uploader.upload(key, "image/jpeg", content.length, () -> new ByteArrayInputStream(content));
+
+        assertThat(readObject(key)).isEqualTo(content);
+        assertThat(uploader.getStats())
+                .containsEntry("partsResumed", 1L)
+                .containsEntry("partsUploaded", 3L)
+                .containsEntry("uploadsCompleted", 1L);
+    }
+
+    @Test
+    void abortsExpiredUpload() {
+        String key = newKey();
+        byte[] truncated = Arrays.copyOf(content, (int) PART_SIZE);
+        assertThatThrownBy(() -> uploader.upload(key, "image/jpeg", content.length,
+                        () -> new ByteArrayInputStream(truncated)))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(pendingUploads(key)).isEqualTo(1);
+
+        nanos.addAndGet(RESUME_TTL.plusMinutes(1).toNanos());
+        uploader.abortStaleUploads();
+
+        // The removal listener runs asynchronously
+        await().atMost(Duration.ofSeconds(10)).until(() -> pendingUploads(key) == 0);
+        assertThat(uploader.getStats()).containsEntry("resumableUploads", 0L);
+    }
+
+    private static String newKey() {
+        return "tours/" + UUID.randomUUID() + ".jpg";
+    }
+
+    private static int pendingUploads(String key) {
+        return s3Client.listMultipartUploads(ListMultipartUploadsRequest.builder()
+                        .bucket(BUCKET)
+                        .prefix(key)
+                        .build())
+                .uploads()
+                .size();
+    }
+
+    private static byte[] readObject(String key) throws IOException {
+        try (var in = s3Client.getObject(GetObjectRequest.builder().bucket(BUCKET).key(key).build())) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static byte[] randomBytes(long size) {
+        byte[] bytes = new byte[(int) size];
+        new Random(7).nextBytes(bytes);
+        return bytes;
+    }
+}
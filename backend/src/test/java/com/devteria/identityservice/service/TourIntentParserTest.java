@@ -0,0 +1,106 @@
+package com.devteria.identityservice.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+/**
+ * TourIntentParser.parse(message, cityNames): deterministic, no repository or LLM involved.
+ */
+class TourIntentParserTest {
+
+    private static final List<String> CITY_NAMES = List.of("Đà Lạt", "Thành phố Hồ Chí Minh", "Hà Nội", "Đà Nẵng");
+
+    private final TourIntentParser parser = new TourIntentParser(null, null);
+
+    @Test
+    void parsesStructuredQuestionWithCityDaysAndBudget() {
+        TourIntentParser.Intent intent = parser.parse("tour Đà Lạt 3 ngày dưới 3 triệu", CITY_NAMES);
+
+        assertThat(intent.cityName()).isEqualTo("Đà Lạt");
+        assertThat(intent.numberOfDays()).isEqualTo(3);
+        assertThat(intent.maxPrice()).isEqualTo(3_000_000d);
+        assertThat(intent.minPrice()).isNull();
+        assertThat(intent.vehicle()).isNull();
+        assertThat(intent.structured()).isTrue();
+    }
+
+    @Test
+    void parsesDecimalMillionsWithShortUnit() {
+        TourIntentParser.Intent intent = parser.parse("tour Đà Lạt 2,5tr", CITY_NAMES);
+
+        assertThat(intent.maxPrice()).isEqualTo(2_500_000d);
+        assertThat(intent.structured()).isTrue();
+    }
+
+    @Test
+    void parsesPriceRange() {
+        TourIntentParser.Intent intent = parser.parse("tour Hà Nội từ 2 đến 4 triệu", CITY_NAMES);
+
+        assertThat(intent.cityName()).isEqualTo("Hà Nội");
+        assertThat(intent.minPrice()).isEqualTo(2_000_000d);
+        assertThat(intent.maxPrice()).isEqualTo(4_000_000d);
+        assertThat(intent.structured()).isTrue();
+    }
+
+    @Test
+    void approximatePriceWithThousandSeparatorsBecomesBand() {
+        TourIntentParser.Intent intent = parser.parse("tour Đà Nẵng khoảng 1.500.000đ", CITY_NAMES);
+
+        assertThat(intent.minPrice()).isEqualTo(1_200_000d);
+        assertThat(intent.maxPrice()).isEqualTo(1_800_000d);
+        assertThat(intent.structured()).isTrue();
+    }
+
+    @Test
+    void parsesDaysNightsShorthand() {
+        TourIntentParser.Intent intent = parser.parse("tour Đà Lạt 3N2Đ", CITY_NAMES);
+
+        assertThat(intent.numberOfDays()).isEqualTo(3);
+        assertThat(intent.minPrice()).isNull();
+        assertThat(intent.maxPrice()).isNull();
+        assertThat(intent.structured()).isTrue();
+    }
+
+    @ParameterizedTest
+    @CsvSource({"tour Đà Lạt đi xe máy, motorcycle", "tour Đà Lạt bằng ô tô, car"})
+    void parsesVehicle(String message, String vehicle) {
+        TourIntentParser.Intent intent = parser.parse(message, CITY_NAMES);
+
+        assertThat(intent.vehicle()).isEqualTo(vehicle);
+        assertThat(intent.structured()).isTrue();
+    }
+
+    @ParameterizedTest
+    @CsvSource({"tour sg 2 ngày, Thành phố Hồ Chí Minh", "tour hn 2 ngày, Hà Nội"})
+    void resolvesCityAliases(String message, String cityName) {
+        TourIntentParser.Intent intent = parser.parse(message, CITY_NAMES);
+
+        assertThat(intent.cityName()).isEqualTo(cityName);
+        assertThat(intent.numberOfDays()).isEqualTo(2);
+        assertThat(intent.structured()).isTrue();
+    }
+
+    @Test
+    void headCountIsNotAPrice() {
+        TourIntentParser.Intent intent = parser.parse("tour Đà Lạt cho 2 người", CITY_NAMES);
+
+        assertThat(intent.cityName()).isEqualTo("Đà Lạt");
+        assertThat(intent.minPrice()).isNull();
+        assertThat(intent.maxPrice()).isNull();
+        // "người" is not a known criterion, so the question goes to the LLM
+        assertThat(intent.structured()).isFalse();
+    }
+
+    @Test
+    void freeFormQuestionIsNotStructured() {
+        TourIntentParser.Intent intent = parser.parse("Đà Lạt mùa này có lạnh không?", CITY_NAMES);
+
+        assertThat(intent.cityName()).isEqualTo("Đà Lạt");
+        assertThat(intent.structured()).isFalse();
+    }
+}
@@ -0,0 +1,48 @@
+package com.devteria.identityservice.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+/**
+ * GeoGrid queries with hostile bounds: they must finish quickly and never loop over the whole
+ * (saturated) cell range.
+ */
+@Timeout(5)
+class GeoGridTest {
+
+    private final GeoGrid grid = new GeoGrid(0.05);
+
+    @BeforeEach
+    void indexSamplePoints() {
+        grid.put(1, new double[][] {{10.7769, 106.7009}}); // Hồ Chí Minh
+        grid.put(2, new double[][] {{21.0285, 105.8542}}); // Hà Nội
+    }
+
+    @Test
+    void infiniteBoxIsClampedToTheWorld() {
+        assertThat(grid.withinBox(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY,
+                        Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY))
+                .containsExactlyInAnyOrder(1L, 2L);
+    }
+
+    @Test
+    void hugeFiniteBoxDoesNotOverflowCellCount() {
+        assertThat(grid.withinBox(-1e300, 1e300, -1e300, 1e300)).containsExactlyInAnyOrder(1L, 2L);
+    }
+
+    @Test
+    void nanOrInvertedBoxReturnsNothing() {
+        assertThat(grid.withinBox(Double.NaN, 22, 100, 110)).isEmpty();
+        assertThat(grid.withinBox(22, 10, 100, 110)).isEmpty();
+    }
+
+    @Test
+    void infiniteRadiusIsBoundedByTheWorld() {
+        assertThat(grid.withinRadius(10.7769, 106.7009, Double.POSITIVE_INFINITY))
+                .extracting(GeoGrid.Hit::id)
+                .containsExactly(1L, 2L);
+    }
+}
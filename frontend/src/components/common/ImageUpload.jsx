@@ -1,6 +1,6 @@
 import React, { useState, useRef } from 'react';
 import { Upload, X, Loader2, Image as ImageIcon } from 'lucide-react';
-import { api } from '../../utils/api';
+import { uploadImage } from '../../utils/uploadApi';
 
 /**
  * ImageUpload component for uploading images to S3
@@ -52,23 +52,9 @@ const ImageUpload = ({
         setError(null);
 
         try {
-            const formData = new FormData();
-            formData.append('file', file);
-            formData.append('folder', folder);
-
-            const response = await api.post('/upload', formData, {
-                headers: {
-                    'Content-Type': 'multipart/form-data',
-                },
-            });
-
-            if (response.data.code === 1000) {
-                const imageUrl = response.data.result;
-                setPreviewUrl(imageUrl);
-                onUploadComplete?.(imageUrl);
-            } else {
-                throw new Error('Upload failed');
-            }
+            const imageUrl = await uploadImage(file, folder);
+            setPreviewUrl(imageUrl);
+            onUploadComplete?.(imageUrl);
         } catch (err) {
             console.error('Upload error:', err);
             setError(err.response?.data?.message || 'Không thể upload ảnh');
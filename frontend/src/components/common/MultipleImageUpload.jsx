@@ -1,6 +1,6 @@
 import React, { useState, useRef } from 'react';
 import { Upload, X, Loader2, Image as ImageIcon, Plus, GripVertical } from 'lucide-react';
-import { api } from '../../utils/api';
+import { uploadImage } from '../../utils/uploadApi';
 
 /**
  * MultipleImageUpload component for uploading multiple images to S3
@@ -68,23 +68,20 @@ const MultipleImageUpload = ({
         const uploadedUrls = [...imageUrls];
 
         try {
-            for (let i = 0; i < filesToUpload.length; i++) {
-                const file = filesToUpload[i];
-                const formData = new FormData();
-                formData.append('file', file);
-                formData.append('folder', folder);
-
-                const response = await api.post('/upload', formData, {
-                    headers: {
-                        'Content-Type': 'multipart/form-data',
-                    },
-                });
-
-                if (response.data.code === 1000) {
-                    uploadedUrls.push(response.data.result);
-                    setUploadProgress(Math.round(((i + 1) / filesToUpload.length) * 100));
+            // Upload tối đa 3 ảnh cùng lúc, giữ đúng thứ tự đã chọn
+            const results = new Array(filesToUpload.length);
+            let nextIndex = 0;
+            let done = 0;
+            const worker = async () => {
+                while (nextIndex < filesToUpload.length) {
+                    const index = nextIndex++;
+                    results[index] = await uploadImage(filesToUpload[index], folder);
+                    done++;
+                    setUploadProgress(Math.round((done / filesToUpload.length) * 100));
                 }
-            }
+            };
+            await Promise.all(Array.from({ length: Math.min(3, filesToUpload.length) }, worker));
+            uploadedUrls.push(...results);
 
             onImagesChange?.(uploadedUrls);
         } catch (err) {
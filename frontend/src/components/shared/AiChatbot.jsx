@@ -12,6 +12,9 @@ const AiChatbot = () => {
     const [input, setInput] = useState('');
     const [isLoading, setIsLoading] = useState(false);
     const messagesEndRef = useRef(null);
+    // Phiên chat riêng của tab này, server ghép thêm user để tách lịch sử hội thoại.
+    // Khách chưa đăng nhập dùng id do server cấp (header X-Conversation-Id), id tự tạo sẽ bị thay.
+    const conversationIdRef = useRef(crypto.randomUUID());
 
     // Get user info and role to check permissions
     const userData = JSON.parse(localStorage.getItem('user') || '{}');
@@ -61,12 +64,16 @@ const AiChatbot = () => {
                     'Content-Type': 'application/json',
                     'Authorization': token ? `Bearer ${token}` : ''
                 },
-                body: JSON.stringify({ message: userMessage })
+                body: JSON.stringify({ message: userMessage, conversationId: conversationIdRef.current })
             });
 
             if (!response.ok) {
                 throw new Error('Network response was not ok');
             }
+            const issuedConversationId = response.headers.get('X-Conversation-Id');
+            if (issuedConversationId) {
+                conversationIdRef.current = issuedConversationId;
+            }
 
             const reader = response.body.getReader();
             const decoder = new TextDecoder();
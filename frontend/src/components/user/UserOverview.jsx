@@ -96,6 +96,7 @@ const UserOverview = () => {
   };
 
   const getTourImage = (tour) => {
+    if (tour.cardImageUrl) return tour.cardImageUrl; // Bản 800px đã nén
     if (tour.imageUrl) return tour.imageUrl;
     if (tour.imageUrls && tour.imageUrls.length > 0) return tour.imageUrls[0];
 
@@ -112,7 +113,7 @@ const UserOverview = () => {
   const getTourTag = (tour) => {
     if (tour.isOptimized) return "Tối ưu";
     if (tour.numberOfDays >= 3) return "Dài ngày";
-    if (tour.points?.length >= 5) return "Nhiều điểm";
+    if ((tour.pointCount ?? tour.points?.length ?? 0) >= 5) return "Nhiều điểm";
     if (tour.reviewCount > 5) return "Phổ biến";
     return "Nổi bật";
   };
@@ -265,7 +266,7 @@ const UserOverview = () => {
                         <span className="w-1 h-1 bg-white/40 rounded-full"></span>
                         <div className="flex items-center gap-1 text-white/80 text-sm">
                           <MapPin size={14} className="text-secondary" />
-                          <span>{tour.points?.length || 0} điểm</span>
+                          <span>{tour.pointCount ?? tour.points?.length ?? 0} điểm</span>
                         </div>
                       </div>
                       <div className="text-right">
@@ -321,7 +322,7 @@ const UserOverview = () => {
                       </span>
                       <span className="flex items-center gap-1">
                         <MapPin size={12} className="md:w-[14px] md:h-[14px]" />
-                        {tour.points?.length || 0} điểm
+                        {tour.pointCount ?? tour.points?.length ?? 0} điểm
                       </span>
                       {tour.averageRating ? (
                         <span className="flex items-center gap-1">
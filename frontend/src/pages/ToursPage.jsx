@@ -181,6 +181,7 @@ const ToursPage = () => {
   };
 
   const getTourImage = (tour) => {
+    if (tour.cardImageUrl) return tour.cardImageUrl; // Bản 800px đã nén
     if (tour.imageUrl) return tour.imageUrl;
     const defaultImages = [
       "https://images.unsplash.com/photo-1559592413-7cec4d0cae2b?auto=format&fit=crop&w=800&q=80",
@@ -444,7 +445,7 @@ const ToursPage = () => {
                       <div className="flex items-center gap-3 text-sm text-slate-500 mb-4 flex-wrap">
                         <span className="flex items-center gap-1">
                           <MapPin size={14} className="text-secondary" />
-                          {tour.points?.length || 0} điểm
+                          {tour.pointCount ?? tour.points?.length ?? 0} điểm
                         </span>
                         {tour.totalDistance && (
                           <span className="flex items-center gap-1">
@@ -1,4 +1,5 @@
 import { api } from './api';
+import { uploadImage } from './uploadApi';
 
 // Chat API functions
 
@@ -57,14 +58,5 @@ export const markAsRead = async (conversationId) => {
  * Upload ảnh cho chat
  */
 export const uploadChatImage = async (file) => {
-    const formData = new FormData();
-    formData.append('file', file);
-    formData.append('folder', 'chat');
-
-    const response = await api.post('/upload', formData, {
-        headers: {
-            'Content-Type': 'multipart/form-data'
-        }
-    });
-    return response.data.result;
+    return uploadImage(file, 'chat');
 };
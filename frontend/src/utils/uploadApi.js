@@ -0,0 +1,75 @@
+import { api } from './api';
+
+/**
+ * Upload ảnh cũ qua backend (multipart), dùng khi không upload thẳng lên bucket được
+ */
+const uploadViaBackend = async (file, folder) => {
+    const formData = new FormData();
+    formData.append('file', file);
+    formData.append('folder', folder);
+
+    const response = await api.post('/upload', formData, {
+        headers: {
+            'Content-Type': 'multipart/form-data',
+        },
+    });
+    if (response.data.code !== 1000) {
+        throw new Error('Upload failed');
+    }
+    return response.data.result;
+};
+
+/**
+ * SHA-256 (hex) của file, null nếu trình duyệt không hỗ trợ (crypto.subtle chỉ có trên HTTPS/localhost)
+ */
+const sha256Hex = async (file) => {
+    if (!window.crypto?.subtle) return null;
+    try {
+        const digest = await window.crypto.subtle.digest('SHA-256', await file.arrayBuffer());
+        return Array.from(new Uint8Array(digest))
+            .map((b) => b.toString(16).padStart(2, '0'))
+            .join('');
+    } catch {
+        return null;
+    }
+};
+
+/**
+ * Upload ảnh thẳng từ browser lên S3 bằng presigned URL, backend chỉ cấp URL và xác nhận.
+ * Trả về public URL của ảnh.
+ */
+export const uploadImage = async (file, folder = 'images') => {
+    const sha256 = await sha256Hex(file);
+    if (!sha256) {
+        // Presigned URL cần checksum SHA-256 của file
+        return uploadViaBackend(file, folder);
+    }
+    const presignResponse = await api.post('/upload/presign', {
+        fileName: file.name,
+        contentType: file.type,
+        contentLength: file.size,
+        folder,
+        sha256,
+    });
+    const { duplicate, fileUrl, uploadUrl, method, headers, key } = presignResponse.data.result;
+    if (duplicate) {
+        // Ảnh này đã có trên bucket, không cần upload lại
+        return fileUrl;
+    }
+
+    let putResponse;
+    try {
+        // Không dùng axios instance để không gửi kèm Authorization lên bucket
+        putResponse = await fetch(uploadUrl, { method, headers, body: file });
+    } catch (err) {
+        // Bucket chưa cấu hình CORS hoặc lỗi mạng: quay về upload qua backend
+        console.warn('Direct upload failed, falling back to backend upload:', err);
+        return uploadViaBackend(file, folder);
+    }
+    if (!putResponse.ok) {
+        throw new Error(`Upload failed with status ${putResponse.status}`);
+    }
+
+    const completeResponse = await api.post('/upload/complete', { key });
+    return completeResponse.data.result;
+};